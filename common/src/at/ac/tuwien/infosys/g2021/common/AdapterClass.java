@@ -24,5 +24,15 @@ public enum AdapterClass {
 
     // This adapters suppress marginal input value changes. The maximum difference between
     // the last sent output value and the current input value is a configuration item.
-    FILTER
+    FILTER,
+
+    // This kind of adapters calculates a statistic like the mean or the maximum over a
+    // sliding window of the latest input values. The window is a time span or a number of
+    // values. The output value is sent with every input value or at a configurable cadence.
+    WINDOW,
+
+    // This adapters limit the rate of the output values to a minimum interval, where the latest
+    // value wins, and send the current value again as heartbeat after a maximum silence. Input
+    // values within a relative deadband are suppressed. State changes are sent immediately.
+    THROTTLE
 }
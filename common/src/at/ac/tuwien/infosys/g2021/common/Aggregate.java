@@ -0,0 +1,112 @@
+package at.ac.tuwien.infosys.g2021.common;
+
+import java.util.Date;
+
+/**
+ * An aggregate summarizes the values of a buffer within a time window. Only values of the buffer state
+ * <tt>{@link BufferState#READY}</tt> are summarized. Aggregates are computed by the daemon, so a client displaying
+ * a long time range needs only one aggregate per window instead of every buffer value.
+ */
+final public class Aggregate {
+
+    // The buffer name and the time window
+    private final String buffer;
+    private final long start;
+    private final long window;
+
+    // The summarized values
+    private final int count;
+    private final double minimum;
+    private final double maximum;
+    private final double average;
+
+    /**
+     * Initialisation of the aggregate.
+     *
+     * @param b       the buffer name
+     * @param start   the start of the time window in milliseconds since the epoch, inclusive
+     * @param window  the length of the time window in milliseconds
+     * @param count   the number of values within the time window
+     * @param minimum the smallest value
+     * @param maximum the greatest value
+     * @param average the average of the values
+     */
+    public Aggregate(String b, long start, long window, int count, double minimum, double maximum, double average) {
+
+        this.buffer = b;
+        this.start = start;
+        this.window = window;
+        this.count = count;
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.average = average;
+    }
+
+    /**
+     * Returns the buffer name.
+     *
+     * @return the buffer name
+     */
+    public String getBufferName() { return buffer; }
+
+    /**
+     * Returns the start of the time window.
+     *
+     * @return the start of the time window in milliseconds since the epoch, inclusive
+     */
+    public long getStart() { return start; }
+
+    /**
+     * Returns the start of the time window.
+     *
+     * @return the start of the time window, inclusive
+     */
+    public Date getStartTimestamp() { return new Date(start); }
+
+    /**
+     * Returns the length of the time window.
+     *
+     * @return the length of the time window in milliseconds
+     */
+    public long getWindow() { return window; }
+
+    /**
+     * Returns the number of values within the time window.
+     *
+     * @return the number of values
+     */
+    public int getCount() { return count; }
+
+    /**
+     * Returns the smallest value within the time window.
+     *
+     * @return the smallest value
+     */
+    public double getMinimum() { return minimum; }
+
+    /**
+     * Returns the greatest value within the time window.
+     *
+     * @return the greatest value
+     */
+    public double getMaximum() { return maximum; }
+
+    /**
+     * Returns the average of the values within the time window.
+     *
+     * @return the average
+     */
+    public double getAverage() { return average; }
+
+    /**
+     * Returns a string representation of the aggregate.
+     *
+     * @return a string representation
+     */
+    @Override
+    public String toString() {
+
+        return String.format("%s: '%s': %d values since %d (%d ms), min %s, max %s, avg %s",
+                             super.toString(), buffer, count, start, window, minimum, maximum, average);
+    }
+}
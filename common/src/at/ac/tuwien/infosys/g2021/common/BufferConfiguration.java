@@ -8,6 +8,12 @@ import java.util.Map;
 /** This is simply a data container describing the features of a buffer. */
 final public class BufferConfiguration {
 
+    /** The time period in milliseconds summarized by a rollup. */
+    public final static long ROLLUP_PERIOD = 10000L;
+
+    // The longest time window of an aggregate in milliseconds
+    private final static long MAX_ROLLUP_WINDOW = 1L << 50;
+
     // The buffer class
     private BufferClass bufferClass;
 
@@ -20,6 +26,12 @@ final public class BufferConfiguration {
     // The gatherer configuration
     private Map<String, String> metainfo;
 
+    // The number of buffer values kept in the history of the buffer
+    private int historyCapacity;
+
+    // The number of rollups kept for the aggregates of the buffer
+    private int rollupCapacity;
+
     /**
      * Initializing the data container. The buffer configuration contains then a sensor buffer, driven by the
      * dummy gatherer, which always returns 0.0 as input data.
@@ -30,6 +42,8 @@ final public class BufferConfiguration {
         adapterChain = new ArrayList<>();
         gatherer = new DummyGathererConfiguration();
         metainfo = new HashMap<>();
+        historyCapacity = 0;
+        rollupCapacity = 0;
     }
 
     /**
@@ -85,6 +99,62 @@ final public class BufferConfiguration {
      * @return the buffer meta info
      */
     public Map<String, String> getMetainfo() { return metainfo; }
-}
 
+    /**
+     * Returns the number of buffer values kept in the history of the buffer.
+     *
+     * @return the history capacity, which is 0, if the buffer keeps no history
+     */
+    public int getHistoryCapacity() { return historyCapacity; }
+
+    /**
+     * Selects the number of buffer values kept in the history of the buffer. The daemon keeps the latest values in a
+     * ring of fixed capacity, so the history of the buffer can be read with a single request.
+     *
+     * @param historyCapacity the history capacity, which is 0, if the buffer should keep no history. A negative
+     *                        capacity will cause an IllegalArgumentException.
+     */
+    public void setHistoryCapacity(int historyCapacity) {
+
+        if (historyCapacity < 0) throw new IllegalArgumentException("negative history capacity");
+
+        this.historyCapacity = historyCapacity;
+    }
+
+    /**
+     * Returns the number of rollups kept for the aggregates of the buffer.
+     *
+     * @return the rollup capacity, which is 0, if the buffer keeps no rollups
+     */
+    public int getRollupCapacity() { return rollupCapacity; }
+
+    /**
+     * Selects the number of rollups kept for the aggregates of the buffer. A rollup summarizes the buffer values of
+     * <tt>{@link #ROLLUP_PERIOD}</tt> milliseconds. The daemon keeps the latest rollups in a ring of fixed capacity and
+     * answers aggregate queries by combining them, e.g. a capacity of 8640 covers the aggregates of one day.
+     *
+     * @param rollupCapacity the rollup capacity, which is 0, if the buffer should keep no rollups. A negative
+     *                       capacity will cause an IllegalArgumentException.
+     */
+    public void setRollupCapacity(int rollupCapacity) {
+
+        if (rollupCapacity < 0) throw new IllegalArgumentException("negative rollup capacity");
+
+        this.rollupCapacity = rollupCapacity;
+    }
 
+    /**
+     * Rounds the length of a time window up to a multiple of <tt>{@link #ROLLUP_PERIOD}</tt>, because aggregates are
+     * combined from whole rollups. Time windows longer than some thousand years are shortened.
+     *
+     * @param window the requested length of the time window in milliseconds
+     *
+     * @return the length of the time window in milliseconds
+     */
+    public static long rollupWindow(long window) {
+
+        long periods = (Math.min(window, MAX_ROLLUP_WINDOW) + ROLLUP_PERIOD - 1L) / ROLLUP_PERIOD;
+
+        return Math.max(1L, periods) * ROLLUP_PERIOD;
+    }
+}
@@ -0,0 +1,193 @@
+package at.ac.tuwien.infosys.g2021.common;
+
+/**
+ * A condition is watched by the daemon instead of pushing every value change of a buffer. The daemon evaluates the
+ * condition whenever the buffer value changes and sends an event only, if the condition becomes active or inactive. There
+ * are two kinds of conditions:
+ * <ul>
+ * <li>A range condition is active, while the buffer is ready and its value lies within the range. The range may be open
+ * at one side. The hysteresis delays leaving the range: an active condition becomes inactive not until the value leaves
+ * the range extended by the hysteresis at both sides, so a value jittering at a limit doesn't cause a flood of events.</li>
+ * <li>A state change condition reports every change of the buffer state. It is active, while the buffer is ready.</li>
+ * </ul>
+ */
+final public class Condition {
+
+    // The range limits and the hysteresis
+    private final double lower;
+    private final double upper;
+    private final double hysteresis;
+
+    // Is this a state change condition?
+    private final boolean stateChange;
+
+    /**
+     * Initialisation of the condition.
+     *
+     * @param l the lower limit
+     * @param u the upper limit
+     * @param h the hysteresis
+     * @param s is this a state change condition?
+     */
+    private Condition(double l, double u, double h, boolean s) {
+
+        this.lower = l;
+        this.upper = u;
+        this.hysteresis = h;
+        this.stateChange = s;
+    }
+
+    /**
+     * Creates a range condition.
+     *
+     * @param lower      the lower limit, inclusive, which may be <tt>Double.NEGATIVE_INFINITY</tt>
+     * @param upper      the upper limit, inclusive, which may be <tt>Double.POSITIVE_INFINITY</tt>
+     * @param hysteresis the distance to the range, which must be exceeded to leave the range
+     *
+     * @return the condition
+     *
+     * @throws IllegalArgumentException if a limit is NaN, the range is empty or the hysteresis is negative
+     */
+    public static Condition range(double lower, double upper, double hysteresis) throws IllegalArgumentException {
+
+        if (Double.isNaN(lower) || Double.isNaN(upper) || lower > upper) throw new IllegalArgumentException("illegal range");
+        if (!(hysteresis >= 0.0) || Double.isInfinite(hysteresis)) throw new IllegalArgumentException("illegal hysteresis");
+
+        return new Condition(lower, upper, hysteresis, false);
+    }
+
+    /**
+     * Creates a condition, which is active, while the buffer value is not less than a limit.
+     *
+     * @param limit      the limit
+     * @param hysteresis the distance to the limit, which must be exceeded to leave the range
+     *
+     * @return the condition
+     *
+     * @throws IllegalArgumentException if the limit is not finite or the hysteresis is negative
+     */
+    public static Condition above(double limit, double hysteresis) throws IllegalArgumentException {
+
+        if (Double.isInfinite(limit)) throw new IllegalArgumentException("illegal limit");
+
+        return range(limit, Double.POSITIVE_INFINITY, hysteresis);
+    }
+
+    /**
+     * Creates a condition, which is active, while the buffer value is not greater than a limit.
+     *
+     * @param limit      the limit
+     * @param hysteresis the distance to the limit, which must be exceeded to leave the range
+     *
+     * @return the condition
+     *
+     * @throws IllegalArgumentException if the limit is not finite or the hysteresis is negative
+     */
+    public static Condition below(double limit, double hysteresis) throws IllegalArgumentException {
+
+        if (Double.isInfinite(limit)) throw new IllegalArgumentException("illegal limit");
+
+        return range(Double.NEGATIVE_INFINITY, limit, hysteresis);
+    }
+
+    /**
+     * Creates a condition reporting every change of the buffer state.
+     *
+     * @return the condition
+     */
+    public static Condition stateChange() {
+
+        return new Condition(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0.0, true);
+    }
+
+    /**
+     * Returns the lower limit of a range condition.
+     *
+     * @return the lower limit, which is <tt>Double.NEGATIVE_INFINITY</tt>, if the range is open at the lower side
+     */
+    public double getLower() { return lower; }
+
+    /**
+     * Returns the upper limit of a range condition.
+     *
+     * @return the upper limit, which is <tt>Double.POSITIVE_INFINITY</tt>, if the range is open at the upper side
+     */
+    public double getUpper() { return upper; }
+
+    /**
+     * Returns the hysteresis of a range condition.
+     *
+     * @return the hysteresis
+     */
+    public double getHysteresis() { return hysteresis; }
+
+    /**
+     * Is this a state change condition?
+     *
+     * @return <tt>true</tt>, if this condition reports the changes of the buffer state
+     */
+    public boolean isStateChange() { return stateChange; }
+
+    /**
+     * Evaluates the condition for a new buffer value.
+     *
+     * @param value  the new buffer value
+     * @param active was the condition active before?
+     *
+     * @return <tt>true</tt>, if the condition is active now
+     */
+    public boolean isActive(SimpleData value, boolean active) {
+
+        if (value.getState() != BufferState.READY) return false;
+        if (stateChange) return true;
+        if (!value.hasValue()) return false;
+
+        double v = value.doubleValue();
+
+        if (active) return v >= lower - hysteresis && v <= upper + hysteresis;
+        else return v >= lower && v <= upper;
+    }
+
+    /**
+     * Returns a hash code value for the object.
+     *
+     * @return a hash code value for this object.
+     */
+    @Override
+    public int hashCode() {
+
+        return Double.hashCode(lower) * 31 * 31 + Double.hashCode(upper) * 31 + Double.hashCode(hysteresis) + (stateChange ? 1 : 0);
+    }
+
+    /**
+     * Indicates whether some other object is "equal to" this one.
+     *
+     * @param obj the reference object with which to compare.
+     *
+     * @return {@code true} if this object is the same as the obj
+     *         argument; {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object obj) {
+
+        try {
+            Condition other = (Condition)obj;
+            return lower == other.lower && upper == other.upper && hysteresis == other.hysteresis && stateChange == other.stateChange;
+        }
+        catch (ClassCastException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object.
+     */
+    @Override
+    public String toString() {
+
+        if (stateChange) return "state change";
+        else return String.format("[%s, %s] +/- %s", lower, upper, hysteresis);
+    }
+}
@@ -0,0 +1,60 @@
+package at.ac.tuwien.infosys.g2021.common;
+
+/**
+ * A condition event reports, that a watched <tt>{@link Condition}</tt> has become active or inactive. It carries the
+ * buffer value causing the change. The first event of a watch reports the initial status of the condition.
+ */
+final public class ConditionEvent {
+
+    // The id of the watch
+    private final int id;
+
+    // The buffer value causing the event
+    private final SimpleData value;
+
+    // Is the condition active now?
+    private final boolean active;
+
+    /**
+     * Initialisation of the event.
+     *
+     * @param id     the id of the watch
+     * @param value  the buffer value causing the event
+     * @param active is the condition active now?
+     */
+    public ConditionEvent(int id, SimpleData value, boolean active) {
+
+        this.id = id;
+        this.value = value;
+        this.active = active;
+    }
+
+    /**
+     * Returns the id of the watch, which has been chosen by the client watching the condition.
+     *
+     * @return the id
+     */
+    public int getId() { return id; }
+
+    /**
+     * Returns the buffer value causing the event.
+     *
+     * @return the buffer value
+     */
+    public SimpleData getValue() { return value; }
+
+    /**
+     * Is the condition active now?
+     *
+     * @return <tt>true</tt>, if the condition is active
+     */
+    public boolean isActive() { return active; }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object.
+     */
+    @Override
+    public String toString() { return String.format("#%d %s: %s", id, active ? "active" : "inactive", value); }
+}
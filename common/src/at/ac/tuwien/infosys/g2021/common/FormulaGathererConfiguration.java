@@ -0,0 +1,86 @@
+package at.ac.tuwien.infosys.g2021.common;
+
+/**
+ * A FORMULA-gatherer works as sensor, whose value is calculated by the daemon from the values of other buffers. The
+ * expression knows the operators <tt>+</tt>, <tt>-</tt>, <tt>*</tt>, <tt>/</tt>, <tt>%</tt> and <tt>^</tt>,
+ * parentheses, numbers and the functions <tt>abs</tt>, <tt>sqrt</tt>, <tt>exp</tt>, <tt>log</tt>, <tt>min</tt>,
+ * <tt>max</tt>, <tt>sum</tt> and <tt>avg</tt>. Buffers are referenced by their names. Names containing other characters
+ * than letters, digits, '_' and '.' are enclosed in single quotes, e.g. <tt>'voltage L1' * 'current L1'</tt>.
+ * <p>
+ * The value is calculated whenever the value of a referenced buffer changes. It is ready, if all the referenced buffers
+ * are ready.
+ */
+final public class FormulaGathererConfiguration implements GathererConfiguration {
+
+    // The expression.
+    private String expression;
+
+    /** Initialization. */
+    private FormulaGathererConfiguration() {}
+
+    /**
+     * Initialization.
+     *
+     * @param expr the expression calculating the value
+     */
+    public FormulaGathererConfiguration(String expr) {
+
+        this();
+
+        if (expr == null) throw new NullPointerException("expression is null");
+        expression = expr;
+    }
+
+    /**
+     * Returns a hash code value for the object.
+     *
+     * @return a hash code value for this object.
+     */
+    @Override
+    public int hashCode() { return expression.hashCode(); }
+
+    /**
+     * Indicates whether some other object is "equal to" this one.
+     *
+     * @param obj the reference object with which to compare.
+     *
+     * @return {@code true} if this object is the same as the obj
+     *         argument; {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object obj) {
+
+        try {
+            FormulaGathererConfiguration other = (FormulaGathererConfiguration)obj;
+            return expression.equals(other.expression);
+        }
+        catch (ClassCastException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Every adapter configuration can return the kind of gatherer.
+     *
+     * @return the kind of gatherer
+     */
+    @Override
+    public GathererClass kindOfGatherer() { return GathererClass.FORMULA; }
+
+    /**
+     * Is this buffer class supported by the gatherer?
+     *
+     * @param bufferClass the buffer class
+     *
+     * @return <tt>true</tt>, if this kind of buffer is supported by the gatherer
+     */
+    @Override
+    public boolean isBufferClassSupported(BufferClass bufferClass) { return bufferClass == BufferClass.SENSOR; }
+
+    /**
+     * Returns the expression.
+     *
+     * @return the expression
+     */
+    public String getExpression() { return expression; }
+}
@@ -20,6 +20,12 @@ public enum GathererClass {
     SENSOR,
 
     /** This kind of gatherer can be used as actor for hardware ports. */
-    ACTOR
+    ACTOR,
+
+    /**
+     * This kind of gatherer can be used as sensor. The value is calculated by an expression over the
+     * values of other buffers, whenever one of these values changes.
+     */
+    FORMULA
 }
 
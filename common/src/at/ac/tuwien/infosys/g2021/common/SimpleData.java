@@ -5,14 +5,32 @@ import java.util.Date;
 /**
  * A simple data container, containing the current information about a single buffer. This may be the newest value
  * gathered from a sensor or the last value sent to an actor.
+ * <p>
+ * The timestamp and the value are stored as primitives. Instances are created at every value change, so they are kept
+ * as small as possible. The <tt>Date</tt> and <tt>Number</tt> objects returned by {@link #getTimestamp()} and
+ * {@link #getValue()} are created on demand. The primitive accessors {@link #getTime()} and {@link #doubleValue()}
+ * don't allocate any objects.
  */
 public class SimpleData {
 
-    // The data
+    // The kinds of values. The kind determines the class of the number returned by getValue().
+    private final static byte NO_VALUE = 0;
+    private final static byte BYTE_VALUE = 1;
+    private final static byte SHORT_VALUE = 2;
+    private final static byte INTEGER_VALUE = 3;
+    private final static byte LONG_VALUE = 4;
+    private final static byte FLOAT_VALUE = 5;
+    private final static byte DOUBLE_VALUE = 6;
+
+    // This time value marks a missing timestamp.
+    private final static long NO_TIME = Long.MIN_VALUE;
+
+    // The data. Integral values are stored as long, all the other values as the bits of a double.
     private String buffer;
-    private Date timestamp;
-    private BufferState state;
-    private Number value;
+    private final long time;
+    private final BufferState state;
+    private final long bits;
+    private final byte kind;
 
     /** Instances without data make no sense. */
     public SimpleData() { this(null, null, null, null); }
@@ -25,6 +43,14 @@ public class SimpleData {
      */
     public SimpleData(Date t, BufferState s) { this("???", t, s, null); }
 
+    /**
+     * Initialisation of the data container.
+     *
+     * @param t a timestamp in milliseconds since the epoch
+     * @param s the buffer state
+     */
+    public SimpleData(long t, BufferState s) { this("???", t, s, null); }
+
     /**
      * Initialisation of the data container.
      *
@@ -34,6 +60,15 @@ public class SimpleData {
      */
     public SimpleData(String b, Date t, BufferState s) { this(b, t, s, null); }
 
+    /**
+     * Initialisation of the data container.
+     *
+     * @param b the buffer name
+     * @param t a timestamp in milliseconds since the epoch
+     * @param s the buffer state
+     */
+    public SimpleData(String b, long t, BufferState s) { this(b, t, s, null); }
+
     /**
      * Initialisation of the data container.
      *
@@ -43,13 +78,44 @@ public class SimpleData {
      */
     public SimpleData(Date t, BufferState s, Number v) { this("???", t, s, v); }
 
+    /**
+     * Initialisation of the data container for a value of a buffer in the state <tt>{@link BufferState#READY}</tt>.
+     *
+     * @param t a timestamp in milliseconds since the epoch
+     * @param v the buffer value
+     */
+    public SimpleData(long t, double v) { this("???", t, v); }
+
+    /**
+     * Initialisation of the data container for a value of a buffer in the state <tt>{@link BufferState#READY}</tt>.
+     *
+     * @param b the buffer name
+     * @param t a timestamp in milliseconds since the epoch
+     * @param v the buffer value
+     */
+    public SimpleData(String b, long t, double v) {
+
+        buffer = b;
+        time = t;
+        state = BufferState.READY;
+        bits = Double.doubleToRawLongBits(v);
+        kind = DOUBLE_VALUE;
+    }
+
     /**
      * Initialisation of the data container.
      *
      * @param b the buffer name
      * @param d the buffer data as SimpleData object
      */
-    public SimpleData(String b, SimpleData d) { this(b, d.timestamp, d.state, d.value); }
+    public SimpleData(String b, SimpleData d) {
+
+        buffer = b;
+        time = d.time;
+        state = d.state;
+        bits = d.bits;
+        kind = d.kind;
+    }
 
     /**
      * Initialisation of the data container.
@@ -59,14 +125,52 @@ public class SimpleData {
      * @param s the buffer state
      * @param v the buffer value
      */
-    public SimpleData(String b, Date t, BufferState s, Number v) {
+    public SimpleData(String b, Date t, BufferState s, Number v) { this(b, t == null ? NO_TIME : t.getTime(), s, v); }
+
+    /**
+     * Initialisation of the data container.
+     *
+     * @param b the buffer name
+     * @param t a timestamp in milliseconds since the epoch
+     * @param s the buffer state
+     * @param v the buffer value
+     */
+    public SimpleData(String b, long t, BufferState s, Number v) {
 
         if (v == null && s == BufferState.READY) throw new NullPointerException("buffer value is null");
 
         buffer = b;
-        timestamp = t;
+        time = t;
         state = s;
-        value = v;
+
+        if (v == null) {
+            bits = 0L;
+            kind = NO_VALUE;
+        }
+        else if (v instanceof Integer) {
+            bits = v.longValue();
+            kind = INTEGER_VALUE;
+        }
+        else if (v instanceof Long) {
+            bits = v.longValue();
+            kind = LONG_VALUE;
+        }
+        else if (v instanceof Short) {
+            bits = v.longValue();
+            kind = SHORT_VALUE;
+        }
+        else if (v instanceof Byte) {
+            bits = v.longValue();
+            kind = BYTE_VALUE;
+        }
+        else if (v instanceof Float) {
+            bits = Double.doubleToRawLongBits(v.doubleValue());
+            kind = FLOAT_VALUE;
+        }
+        else {
+            bits = Double.doubleToRawLongBits(v.doubleValue());
+            kind = DOUBLE_VALUE;
+        }
     }
 
     /**
@@ -83,9 +187,9 @@ public class SimpleData {
         try {
             SimpleData other = (SimpleData)obj;
 
-            return state == other.getState()
-                   && (value == null && other.getValue() == null
-                       || value != null && Math.abs(value.doubleValue() - other.getValue().doubleValue()) < 1.0e-8);
+            return state == other.state
+                   && (kind == NO_VALUE && other.kind == NO_VALUE
+                       || kind != NO_VALUE && other.kind != NO_VALUE && Math.abs(doubleValue() - other.doubleValue()) < 1.0e-8);
         }
         catch (ClassCastException | NullPointerException e) {
             // This exceptions mean, that the other object reference is null
@@ -102,7 +206,7 @@ public class SimpleData {
     @Override
     public int hashCode() {
 
-        return state.hashCode() ^ (value == null ? -42 : value.hashCode()) << 3;
+        return state.hashCode() ^ (kind == NO_VALUE ? -42 : Double.hashCode(doubleValue())) << 3;
     }
 
     /**
@@ -113,7 +217,7 @@ public class SimpleData {
     @Override
     public String toString() {
 
-        return String.format("%s: '%s': %s (%s)", super.toString(), buffer, value == null ? "null" : value.toString(), state.name());
+        return String.format("%s: '%s': %s (%s)", super.toString(), buffer, kind == NO_VALUE ? "null" : getValue().toString(), state.name());
     }
 
     /**
@@ -151,7 +255,51 @@ public class SimpleData {
      *         is <tt>{@link BufferState#READY}</tt> and
      *         <tt>null</tt> in any other cases.
      */
-    public Number getValue() { return value; }
+    public Number getValue() {
+
+        switch (kind) {
+            case BYTE_VALUE:
+                return (byte)bits;
+            case SHORT_VALUE:
+                return (short)bits;
+            case INTEGER_VALUE:
+                return (int)bits;
+            case LONG_VALUE:
+                return bits;
+            case FLOAT_VALUE:
+                return (float)Double.longBitsToDouble(bits);
+            case DOUBLE_VALUE:
+                return Double.longBitsToDouble(bits);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Is there a buffer value?
+     *
+     * @return <tt>true</tt>, if there is a value. This is always the case, if the buffer state
+     *         is <tt>{@link BufferState#READY}</tt>.
+     */
+    public boolean hasValue() { return kind != NO_VALUE; }
+
+    /**
+     * This method returns the gathered value of the buffer as primitive. No object is created.
+     *
+     * @return the gathered value or <tt>NaN</tt>, if there is no value
+     */
+    public double doubleValue() {
+
+        switch (kind) {
+            case NO_VALUE:
+                return Double.NaN;
+            case FLOAT_VALUE:
+            case DOUBLE_VALUE:
+                return Double.longBitsToDouble(bits);
+            default:
+                return bits;
+        }
+    }
 
     /**
      * <p>
@@ -166,7 +314,16 @@ public class SimpleData {
      *
      * @return the timestamp as date and time (it isn't <tt>null</tt> in any case)
      */
-    public Date getTimestamp() { return timestamp; }
+    public Date getTimestamp() { return time == NO_TIME ? null : new Date(time); }
+
+    /**
+     * This method returns the timestamp as primitive. No object is created.
+     *
+     * @return the timestamp in milliseconds since the epoch
+     *
+     * @see #getTimestamp()
+     */
+    public long getTime() { return time; }
 }
 
 
@@ -0,0 +1,92 @@
+package at.ac.tuwien.infosys.g2021.common;
+
+/**
+ * A throttling adapter limits the rate of the output values and sends the current value again, if it has been silent
+ * for a long time. The configuration items are:
+ * <ul>
+ *     <li>"minimumInterval": the minimum time between two output values in milliseconds. Input values received
+ *     earlier are delayed. Only the latest delayed value is sent, when the interval has elapsed. 0 means no
+ *     limit.</li>
+ *     <li>"maximumSilence": the maximum time without an output value in milliseconds. After this time the current
+ *     value is sent again with a new timestamp as heartbeat. 0 means no heartbeat.</li>
+ *     <li>"deadband": the relative deadband in percent of the last output value. Input values differing less from the
+ *     last output value are suppressed. 0 means no deadband.</li>
+ * </ul>
+ * Changes of the buffer state are always sent immediately.
+ */
+public class ThrottlingAdapterConfiguration implements AdapterConfiguration {
+
+    // The configuration items
+    private long minimumInterval;
+    private long maximumSilence;
+    private double deadband;
+
+    /** Initialization with the default values. */
+    public ThrottlingAdapterConfiguration() {}
+
+    /**
+     * Initialization with configuration items.
+     *
+     * @param minimumInterval the minimum time between two output values in milliseconds
+     * @param maximumSilence  the maximum time without an output value in milliseconds
+     * @param deadband        the relative deadband in percent
+     */
+    public ThrottlingAdapterConfiguration(long minimumInterval, long maximumSilence, double deadband) {
+
+        this();
+
+        setMinimumInterval(minimumInterval);
+        setMaximumSilence(maximumSilence);
+        setDeadband(deadband);
+    }
+
+    /**
+     * Every adapter configuration can return the kind of adapter.
+     *
+     * @return the kind of adapter
+     */
+    @Override
+    public AdapterClass kindOfAdapter() { return AdapterClass.THROTTLE; }
+
+    /**
+     * Returns the minimum time between two output values.
+     *
+     * @return the minimum interval in milliseconds
+     */
+    public long getMinimumInterval() { return minimumInterval; }
+
+    /**
+     * Sets the minimum time between two output values.
+     *
+     * @param minimumInterval the new minimum interval in milliseconds. A negative interval is treated as 0.
+     */
+    public void setMinimumInterval(long minimumInterval) { this.minimumInterval = Math.max(0L, minimumInterval); }
+
+    /**
+     * Returns the maximum time without an output value.
+     *
+     * @return the maximum silence in milliseconds
+     */
+    public long getMaximumSilence() { return maximumSilence; }
+
+    /**
+     * Sets the maximum time without an output value.
+     *
+     * @param maximumSilence the new maximum silence in milliseconds. A negative silence is treated as 0.
+     */
+    public void setMaximumSilence(long maximumSilence) { this.maximumSilence = Math.max(0L, maximumSilence); }
+
+    /**
+     * Returns the relative deadband.
+     *
+     * @return the deadband in percent of the last output value
+     */
+    public double getDeadband() { return deadband; }
+
+    /**
+     * Sets the relative deadband.
+     *
+     * @param deadband the new deadband in percent of the last output value
+     */
+    public void setDeadband(double deadband) { this.deadband = Math.abs(deadband); }
+}
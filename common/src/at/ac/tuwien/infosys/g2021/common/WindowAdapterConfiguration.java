@@ -0,0 +1,156 @@
+package at.ac.tuwien.infosys.g2021.common;
+
+/**
+ * A window adapter calculates a statistic over a sliding window of the latest input values, e.g. the moving average
+ * over 30 seconds or the maximum over the last minute. The window contains either the input values received within a
+ * time span or a number of the latest input values. The latest input value is always part of the window, even if it is
+ * older than the time span.
+ * <p>
+ * If an emit interval is set, the adapter sends the statistic at this cadence. Otherwise the statistic is sent with
+ * every input value. Any input state other than <tt>{@link BufferState#READY}</tt> is sent immediately and empties the
+ * window.
+ */
+public class WindowAdapterConfiguration implements AdapterConfiguration {
+
+    /** The statistics calculated over the window. */
+    public enum Function {
+
+        /** The arithmetic mean of the values. */
+        MEAN,
+
+        /** The smallest value. */
+        MINIMUM,
+
+        /** The greatest value. */
+        MAXIMUM,
+
+        /** The population variance of the values. */
+        VARIANCE,
+
+        /** The population standard deviation of the values. */
+        STANDARD_DEVIATION,
+
+        /** The change per second between the oldest and the latest value. */
+        RATE
+    }
+
+    // The configuration items
+    private Function function;
+    private long windowTime;
+    private int windowCount;
+    private long emitInterval;
+
+    /** Initialization with the default values, which is the mean of the values within the last 60 seconds. */
+    public WindowAdapterConfiguration() {
+
+        function = Function.MEAN;
+        windowTime = 60000L;
+        windowCount = 0;
+        emitInterval = 0L;
+    }
+
+    /**
+     * Initialization with configuration items.
+     *
+     * @param function     the statistic calculated over the window
+     * @param windowTime   the time span of the window in milliseconds or 0 for a window of a number of values
+     * @param windowCount  the number of values of the window or 0 for a window of a time span
+     * @param emitInterval the interval in milliseconds between the values sent or 0 for sending a value with every input
+     *
+     * @see #setTimeWindow(long)
+     * @see #setCountWindow(int)
+     * @see #setEmitInterval(long)
+     */
+    public WindowAdapterConfiguration(Function function, long windowTime, int windowCount, long emitInterval) {
+
+        this();
+
+        setFunction(function);
+        if (windowCount > 0) setCountWindow(windowCount);
+        else setTimeWindow(windowTime);
+        setEmitInterval(emitInterval);
+    }
+
+    /**
+     * Every adapter configuration can return the kind of adapter.
+     *
+     * @return the kind of adapter
+     */
+    @Override
+    public AdapterClass kindOfAdapter() { return AdapterClass.WINDOW; }
+
+    /**
+     * Returns the statistic calculated over the window.
+     *
+     * @return the statistic
+     */
+    public Function getFunction() { return function; }
+
+    /**
+     * Selects the statistic calculated over the window.
+     *
+     * @param function the statistic. A <tt>null</tt>-value will cause a NullPointerException.
+     */
+    public void setFunction(Function function) {
+
+        if (function == null) throw new NullPointerException("argument is null");
+
+        this.function = function;
+    }
+
+    /**
+     * Returns the time span of the window.
+     *
+     * @return the time span in milliseconds, which is 0, if the window contains a number of values
+     */
+    public long getWindowTime() { return windowTime; }
+
+    /**
+     * Returns the number of values of the window.
+     *
+     * @return the number of values, which is 0, if the window contains the values of a time span
+     */
+    public int getWindowCount() { return windowCount; }
+
+    /**
+     * Selects a window containing the values received within a time span.
+     *
+     * @param windowTime the time span in milliseconds. A time span, which is not positive, will cause an
+     *                   IllegalArgumentException.
+     */
+    public void setTimeWindow(long windowTime) {
+
+        if (windowTime <= 0L) throw new IllegalArgumentException("window time must be positive");
+
+        this.windowTime = windowTime;
+        this.windowCount = 0;
+    }
+
+    /**
+     * Selects a window containing a number of the latest values.
+     *
+     * @param windowCount the number of values. A number, which is not positive, will cause an IllegalArgumentException.
+     */
+    public void setCountWindow(int windowCount) {
+
+        if (windowCount <= 0) throw new IllegalArgumentException("window count must be positive");
+
+        this.windowTime = 0L;
+        this.windowCount = windowCount;
+    }
+
+    /**
+     * Returns the interval between the values sent.
+     *
+     * @return the interval in milliseconds, which is 0, if a value is sent with every input value
+     */
+    public long getEmitInterval() { return emitInterval; }
+
+    /**
+     * Selects the interval between the values sent.
+     *
+     * @param emitInterval the interval in milliseconds or 0 for sending a value with every input value. A negative
+     *                     interval is treated as 0.
+     */
+    public void setEmitInterval(long emitInterval) { this.emitInterval = Math.max(0L, emitInterval); }
+}
@@ -0,0 +1,426 @@
+package at.ac.tuwien.infosys.g2021.common.communication;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * This is the binary framing of messages used since protocol version 2. Every frame starts with its length as
+ * 4 byte integer, which counts all the following bytes. A frame longer than {@link #MAX_FRAME_LENGTH} is rejected. The
+ * next byte is the frame type:
+ * </p>
+ * <ul>
+ * <li><tt>JSON</tt>: an UTF-8 encoded JSON message follows.</li>
+ * <li><tt>BUFFER_ID</tt>: a 4 byte buffer id and the UTF-8 encoded buffer name follows. Buffer names are sent
+ * only once per connection. All further pushes use the buffer id.</li>
+ * <li><tt>PUSH</tt> and <tt>PUSH_SPONTANEOUS</tt>: a 4 byte buffer id, the timestamp as 8 byte long, the ordinal of
+ * the buffer state as single byte and the buffer value as 8 byte double follows. The highest bit of the state byte is
+ * set, if the buffer has a value, so every buffer state may carry a value and NaN is a value like any other one. A
+ * missing value is sent as NaN without this bit.</li>
+ * <li><tt>PUSH_BATCH</tt>: the number of records as 4 byte integer and the spontaneous push records follows. Every
+ * record has the layout of a <tt>PUSH</tt> frame without the frame type.</li>
+ * <li><tt>PUSH_ANSWER</tt>: the 4 byte id of the answered request and a push record follows.</li>
+ * <li><tt>BUFFER_VALUES</tt>: the 4 byte id of the answered request, the number of records as 4 byte integer and the
+ * push records follows. This is the answer to the requests dealing with many buffers at once.</li>
+ * <li><tt>BUFFER_HISTORY</tt>: the 4 byte id of the answered request, the 4 byte buffer id, the number of samples as
+ * 4 byte integer and the samples follows. A sample is a push record without buffer id. This is the answer to a
+ * &lt;getHistory&gt; request.</li>
+ * </ul>
+ * <p>
+ * An instance keeps the buffer ids of one connection. Writing must be synchronized by the caller, reading is done
+ * by the receiver thread only.
+ * </p>
+ */
+final class BinaryInterface {
+
+    // All the frame types.
+    final static byte JSON = 0;
+    final static byte BUFFER_ID = 1;
+    final static byte PUSH = 2;
+    final static byte PUSH_SPONTANEOUS = 3;
+    final static byte PUSH_BATCH = 4;
+    final static byte PUSH_ANSWER = 5;
+    final static byte BUFFER_VALUES = 6;
+    final static byte BUFFER_HISTORY = 7;
+
+    /** The maximum frame length. It must cover the history of a buffer over a week with a value per second. */
+    final static int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    // The length of a push record: buffer id, timestamp, state and value
+    private final static int RECORD_LENGTH = 4 + 8 + 1 + 8;
+
+    // The length of a history sample: timestamp, state and value
+    private final static int SAMPLE_LENGTH = RECORD_LENGTH - 4;
+
+    // The length of a push frame: frame type and push record
+    private final static int PUSH_LENGTH = 1 + RECORD_LENGTH;
+
+    // The length of a push answer frame: frame type, request id and push record
+    private final static int PUSH_ANSWER_LENGTH = 1 + 4 + RECORD_LENGTH;
+
+    // All the buffer states
+    private final static BufferState[] STATES = BufferState.values();
+
+    // The bit of the state byte flagging a buffer value
+    private final static int HAS_VALUE = 0x80;
+
+    // The buffer ids sent to the peer
+    private final Map<String, Integer> sentIds;
+
+    // The buffer names received from the peer
+    private final Map<Integer, String> receivedNames;
+
+    // Initializes this instance
+    BinaryInterface() {
+
+        sentIds = new HashMap<>();
+        receivedNames = new HashMap<>();
+    }
+
+    /**
+     * Writes a JSON message as frame.
+     *
+     * @param out     the output stream
+     * @param message the string representation of the JSON message
+     *
+     * @throws java.io.IOException if writing fails
+     */
+    void writeJSON(DataOutputStream out, String message) throws IOException {
+
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(1 + data.length);
+        out.writeByte(JSON);
+        out.write(data);
+    }
+
+    /**
+     * Writes a buffer value as push record. If the buffer name is not known by the peer, a buffer id is
+     * sent before.
+     *
+     * @param out         the output stream
+     * @param value       the buffer value
+     * @param spontaneous is this message spontaneous sent
+     *
+     * @throws java.io.IOException if writing fails
+     */
+    void writePush(DataOutputStream out, SimpleData value, boolean spontaneous) throws IOException {
+
+        int id = bufferId(out, value.getBufferName());
+
+        out.writeInt(PUSH_LENGTH);
+        out.writeByte(spontaneous ? PUSH_SPONTANEOUS : PUSH);
+        writeRecord(out, id, value);
+    }
+
+    /**
+     * Writes a buffer value answering a request as push record. If the buffer name is not known by the peer, a buffer id is
+     * sent before.
+     *
+     * @param out       the output stream
+     * @param value     the buffer value
+     * @param requestId the id of the answered request
+     *
+     * @throws java.io.IOException if writing fails
+     */
+    void writePushAnswer(DataOutputStream out, SimpleData value, int requestId) throws IOException {
+
+        int id = bufferId(out, value.getBufferName());
+
+        out.writeInt(PUSH_ANSWER_LENGTH);
+        out.writeByte(PUSH_ANSWER);
+        out.writeInt(requestId);
+        writeRecord(out, id, value);
+    }
+
+    /**
+     * Writes some spontaneous changed buffer values as one push batch. If some buffer names are not known by the
+     * peer, the buffer ids are sent before.
+     *
+     * @param out    the output stream
+     * @param values the buffer values
+     *
+     * @throws java.io.IOException if writing fails
+     */
+    void writePushBatch(DataOutputStream out, Collection<SimpleData> values) throws IOException {
+
+        int[] ids = new int[values.size()];
+        int i = 0;
+
+        for (SimpleData value : values) ids[i++] = bufferId(out, value.getBufferName());
+
+        out.writeInt(1 + 4 + ids.length * RECORD_LENGTH);
+        out.writeByte(PUSH_BATCH);
+        out.writeInt(ids.length);
+
+        i = 0;
+        for (SimpleData value : values) writeRecord(out, ids[i++], value);
+    }
+
+    /**
+     * Writes some buffer values answering a request as one frame. If some buffer names are not known by the peer, the
+     * buffer ids are sent before.
+     *
+     * @param out       the output stream
+     * @param values    the buffer values
+     * @param requestId the id of the answered request
+     *
+     * @throws java.io.IOException if writing fails
+     */
+    void writeBufferValues(DataOutputStream out, Collection<SimpleData> values, int requestId) throws IOException {
+
+        int[] ids = new int[values.size()];
+        int i = 0;
+
+        for (SimpleData value : values) ids[i++] = bufferId(out, value.getBufferName());
+
+        out.writeInt(1 + 4 + 4 + ids.length * RECORD_LENGTH);
+        out.writeByte(BUFFER_VALUES);
+        out.writeInt(requestId);
+        out.writeInt(ids.length);
+
+        i = 0;
+        for (SimpleData value : values) writeRecord(out, ids[i++], value);
+    }
+
+    /**
+     * Writes the history of a buffer answering a request as one frame. If the buffer name is not known by the peer, a
+     * buffer id is sent before.
+     *
+     * @param out        the output stream
+     * @param bufferName the buffer name
+     * @param values     the buffer values of the history
+     * @param requestId  the id of the answered request
+     *
+     * @throws java.io.IOException if writing fails
+     */
+    void writeBufferHistory(DataOutputStream out, String bufferName, Collection<SimpleData> values, int requestId) throws IOException {
+
+        int id = bufferId(out, bufferName);
+
+        out.writeInt(1 + 4 + 4 + 4 + values.size() * SAMPLE_LENGTH);
+        out.writeByte(BUFFER_HISTORY);
+        out.writeInt(requestId);
+        out.writeInt(id);
+        out.writeInt(values.size());
+
+        for (SimpleData value : values) writeSample(out, value);
+    }
+
+    /**
+     * Returns the buffer id of a buffer name. If the buffer name is not known by the peer, a buffer id is
+     * assigned and sent.
+     *
+     * @param out  the output stream
+     * @param name the buffer name
+     *
+     * @return the buffer id
+     *
+     * @throws java.io.IOException if writing fails
+     */
+    private int bufferId(DataOutputStream out, String name) throws IOException {
+
+        Integer id = sentIds.get(name);
+
+        if (id == null) {
+
+            byte[] data = name.getBytes(StandardCharsets.UTF_8);
+
+            id = sentIds.size();
+            sentIds.put(name, id);
+
+            out.writeInt(1 + 4 + data.length);
+            out.writeByte(BUFFER_ID);
+            out.writeInt(id);
+            out.write(data);
+        }
+
+        return id;
+    }
+
+    /**
+     * Writes a push record.
+     *
+     * @param out   the output stream
+     * @param id    the buffer id
+     * @param value the buffer value
+     *
+     * @throws java.io.IOException if writing fails
+     */
+    private void writeRecord(DataOutputStream out, int id, SimpleData value) throws IOException {
+
+        out.writeInt(id);
+        writeSample(out, value);
+    }
+
+    /**
+     * Writes a history sample, which is a push record without buffer id.
+     *
+     * @param out   the output stream
+     * @param value the buffer value
+     *
+     * @throws java.io.IOException if writing fails
+     */
+    private void writeSample(DataOutputStream out, SimpleData value) throws IOException {
+
+        out.writeLong(value.getTime());
+        out.writeByte(value.hasValue() ? value.getState().ordinal() | HAS_VALUE : value.getState().ordinal());
+        out.writeDouble(value.doubleValue());
+    }
+
+    /**
+     * Reads a push record.
+     *
+     * @param in the input stream
+     *
+     * @return the buffer value
+     *
+     * @throws java.io.IOException if reading fails or the record is malformed
+     */
+    private SimpleData readRecord(DataInputStream in) throws IOException {
+
+        String bufferName = receivedNames.get(in.readInt());
+        if (bufferName == null) throw new ProtocolException("unknown buffer id");
+
+        return readSample(in, bufferName);
+    }
+
+    /**
+     * Reads a history sample.
+     *
+     * @param in         the input stream
+     * @param bufferName the buffer name
+     *
+     * @return the buffer value
+     *
+     * @throws java.io.IOException if reading fails or the sample is malformed
+     */
+    private SimpleData readSample(DataInputStream in, String bufferName) throws IOException {
+
+        long timestamp = in.readLong();
+        int state = in.readUnsignedByte();
+        double value = in.readDouble();
+
+        boolean hasValue = (state & HAS_VALUE) != 0;
+        state &= ~HAS_VALUE;
+
+        if (state >= STATES.length) throw new ProtocolException("unknown buffer state " + state);
+        if (!hasValue && STATES[state] == BufferState.READY) throw new ProtocolException("missing value of a ready buffer");
+
+        return new SimpleData(bufferName, timestamp, STATES[state], hasValue ? value : null);
+    }
+
+    /**
+     * Reads the next message. Buffer id frames are consumed silently.
+     *
+     * @param in the input stream
+     *
+     * @return the message read
+     *
+     * @throws java.io.IOException if reading fails or the frame is malformed
+     */
+    Message read(DataInputStream in) throws IOException {
+
+        while (true) {
+            Message message = readFrame(in, in.readInt());
+            if (message != null) return message;
+        }
+    }
+
+    /**
+     * Reads a frame, whose length has already been read.
+     *
+     * @param in     the input stream
+     * @param length the frame length
+     *
+     * @return the message read or <tt>null</tt>, if this was a buffer id frame
+     *
+     * @throws java.io.IOException if reading fails or the frame is malformed
+     */
+    Message readFrame(DataInputStream in, int length) throws IOException {
+
+        // The length is checked before anything is allocated.
+        if (length < 1 || length > MAX_FRAME_LENGTH) throw new ProtocolException("illegal frame length " + length);
+
+        byte type = in.readByte();
+        switch (type) {
+            case JSON:
+                byte[] data = new byte[length - 1];
+                in.readFully(data);
+
+                JsonInterface json = new JsonInterface();
+                return new Message(json.stringToJSON(new String(data, StandardCharsets.UTF_8)));
+
+            case BUFFER_ID:
+                if (length < 5) throw new ProtocolException("illegal buffer id frame");
+
+                int id = in.readInt();
+                byte[] name = new byte[length - 5];
+                in.readFully(name);
+
+                receivedNames.put(id, new String(name, StandardCharsets.UTF_8));
+                return null;
+
+            case PUSH:
+            case PUSH_SPONTANEOUS:
+                if (length != PUSH_LENGTH) throw new ProtocolException("illegal push frame");
+
+                return new Message(readRecord(in), type == PUSH_SPONTANEOUS);
+
+            case PUSH_ANSWER:
+                if (length != PUSH_ANSWER_LENGTH) throw new ProtocolException("illegal push answer frame");
+
+                int requestId = in.readInt();
+                return new Message(readRecord(in), requestId);
+
+            case PUSH_BATCH:
+                if (length < 5) throw new ProtocolException("illegal push batch frame");
+
+                int count = in.readInt();
+                if (count < 0 || count != (length - 5) / RECORD_LENGTH || (length - 5) % RECORD_LENGTH != 0) throw new ProtocolException("illegal push batch frame");
+
+                List<SimpleData> values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) values.add(readRecord(in));
+
+                return new Message(values);
+
+            case BUFFER_VALUES:
+                if (length < 9) throw new ProtocolException("illegal buffer values frame");
+
+                requestId = in.readInt();
+                count = in.readInt();
+                if (count < 0 || count != (length - 9) / RECORD_LENGTH || (length - 9) % RECORD_LENGTH != 0) throw new ProtocolException("illegal buffer values frame");
+
+                values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) values.add(readRecord(in));
+
+                return new Message(values, requestId);
+
+            case BUFFER_HISTORY:
+                if (length < 13) throw new ProtocolException("illegal buffer history frame");
+
+                requestId = in.readInt();
+                String bufferName = receivedNames.get(in.readInt());
+                count = in.readInt();
+                if (bufferName == null) throw new ProtocolException("unknown buffer id");
+                if (count < 0 || count != (length - 13) / SAMPLE_LENGTH || (length - 13) % SAMPLE_LENGTH != 0) throw new ProtocolException("illegal buffer history frame");
+
+                values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) values.add(readSample(in, bufferName));
+
+                return new Message(bufferName, values, requestId);
+
+            default:
+                throw new ProtocolException("unknown frame type " + type);
+        }
+    }
+}
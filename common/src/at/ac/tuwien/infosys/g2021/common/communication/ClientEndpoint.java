@@ -1,8 +1,11 @@
 package at.ac.tuwien.infosys.g2021.common.communication;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
 import at.ac.tuwien.infosys.g2021.common.BufferDescription;
 import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
 import com.eclipsesource.json.JsonObject;
@@ -12,54 +15,114 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.TreeSet;
 import java.util.WeakHashMap;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Exchanger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This is the connection endpoint at a JVM containing GBots with its DataPoint instances. It is implemented as singleton, because there is
  * only one TCP/IP connection to the daemon per JVM necessary.
+ * <p>
+ * Every request is marked with a request id and the daemon answers with the same id. So many threads may send their requests
+ * without waiting for the answers of other threads. A request is completed, when the answer carrying its id arrives. A daemon,
+ * which doesn't know request ids, answers its requests in the order of arrival. Such an answer completes the oldest pending
+ * request.
+ * <p>
+ * Every request is available as blocking method and as method returning a <tt>CompletableFuture</tt>. The future is completed
+ * by the receiver thread, when the answer arrives, or by a timer thread, if the daemon doesn't answer in time. Dependent
+ * actions of these futures are executed by these threads too. They must not block, otherwise no further answer could be
+ * received. Especially they must not call any blocking method of this class.
  */
 public class ClientEndpoint {
 
+    /** This interface sends a request to the daemon. */
+    @FunctionalInterface
+    private interface Request {
+
+        /**
+         * Sends the request.
+         *
+         * @param requestSender the message sender marking the request with its request id
+         *
+         * @throws java.io.IOException if sending fails
+         */
+        void send(MessageSender requestSender) throws IOException;
+    }
+
     /** This inner class is a thread listening for messages from the daemon. */
     private class Receiver extends Thread {
 
-        /** Initialization. */
-        Receiver() {
+        // The connection read by this thread
+        private final Connection daemonConnection;
+
+        /**
+         * Initialization.
+         *
+         * @param c the connection to read
+         */
+        Receiver(Connection c) {
             super("message receiver thread");
+            daemonConnection = c;
             setDaemon(true);
             start();
         }
 
         /**
-         * Returns the answer to the waiting thread.
+         * Returns the answer to the waiting thread. An answer without request id completes the oldest pending request.
          *
-         * @param answer the answer
+         * @param message the answering message
+         * @param answer  the answer
          */
-        private void returnAnswer(Answer answer) {
+        private void returnAnswer(Message message, Answer answer) {
 
-            try {
-                synchronizer.exchange(answer, CommunicationSettings.CLIENT_READY_TIMEOUT, TimeUnit.MILLISECONDS);
-            }
-            catch (InterruptedException e) {
-                // This is a shutdown request. All right.
+            CompletableFuture<Answer> request = null;
+            int id = message.getRequestId();
+
+            synchronized (pendingRequests) {
+                if (id != 0) {
+                    request = pendingRequests.remove(id);
+                }
+                else {
+                    Iterator<CompletableFuture<Answer>> oldest = pendingRequests.values().iterator();
+                    if (oldest.hasNext()) {
+                        request = oldest.next();
+                        oldest.remove();
+                    }
+                }
             }
-            catch (TimeoutException e) {
-                logger.warning("Unable to return an answer from the buffer daemon.");
 
-                // The missing delivery of a daemon message will cause a communication breakdown. We close the connection.
-                disconnectImmediately();
+            // The requesting thread may have given up waiting.
+            if (request != null) request.complete(answer);
+            else logger.warning("An answer from the buffer daemon is not expected any more.");
+        }
+
+        /**
+         * The daemon cancels subscriptions of released buffers.
+         *
+         * @param value the pushed buffer value
+         */
+        private void released(SimpleData value) {
+
+            if (value.getState() == BufferState.RELEASED) {
+                synchronized (subscriptions) {
+                    subscriptions.remove(value.getBufferName());
+                }
             }
         }
 
@@ -68,32 +131,84 @@ public class ClientEndpoint {
         public void run() {
 
             // A local copy of the connection to be thread-safe
-            Connection daemon = connection;
+            Connection daemon = daemonConnection;
 
             if (daemon != null) logger.fine("The receiver thread for daemon messages is started.");
 
             try {
                 while (daemon != null && !interrupted()) {
 
-                    JsonObject message = daemon.receive();
-                    JsonObject arguments = message.get(JsonInterface.ARGUMENTS).asObject();
+                    Message message = daemon.receive();
+                    JsonObject arguments = message.getArguments();
                     JsonInterface json = new JsonInterface();
 
                     // Interpret the received message and create an answer.
-                    switch (message.get(JsonInterface.TYPE).asString()) {
+                    switch (message.getType()) {
                         case JsonInterface.ACCEPTED:
-                            returnAnswer(new Answer(true));
+                            // The acceptance of an "establish" message finishes the protocol negotiation.
+                            int version = requestedVersion;
+                            if (version > 0) {
+                                daemon.setVersion(version);
+                                requestedVersion = 0;
+                            }
+                            returnAnswer(message, new Answer(true));
                             break;
 
                         case JsonInterface.BUFFER_CONFIGURATION:
-                            returnAnswer(new Answer(json.configurationFromJSON(arguments.get(JsonInterface.CONFIGURATION).asObject())));
+                            returnAnswer(message, new Answer(json.configurationFromJSON(arguments.get(JsonInterface.CONFIGURATION).asObject())));
                             break;
 
                         case JsonInterface.BUFFER_METAINFO:
                             BufferDescription description = new BufferDescription(arguments.get(JsonInterface.NAME).asString(),
                                                                                   arguments.get(JsonInterface.IS_HARDWARE).asBoolean(),
                                                                                   json.metainfoFromJSON(arguments.get(JsonInterface.METAINFO).asArray()));
-                            returnAnswer(new Answer(description));
+                            returnAnswer(message, new Answer(description));
+                            break;
+
+                        case JsonInterface.BUFFER_DESCRIPTIONS:
+                            Set<BufferDescription> descriptions = new HashSet<>();
+                            for (JsonValue d : arguments.get(JsonInterface.DESCRIPTIONS).asArray().values()) {
+                                JsonObject descriptionArguments = d.asObject();
+                                descriptions.add(new BufferDescription(descriptionArguments.get(JsonInterface.NAME).asString(),
+                                                                       descriptionArguments.get(JsonInterface.IS_HARDWARE).asBoolean(),
+                                                                       json.metainfoFromJSON(descriptionArguments.get(JsonInterface.METAINFO).asArray())));
+                            }
+                            returnAnswer(message, new Answer(descriptions));
+                            break;
+
+                        case JsonInterface.BUFFER_VALUES:
+                            Map<String, SimpleData> values = new LinkedHashMap<>();
+                            for (SimpleData value : message.getValues()) {
+                                released(value);
+                                values.put(value.getBufferName(), value);
+                            }
+                            returnAnswer(message, new Answer(values));
+                            break;
+
+                        case JsonInterface.BUFFER_HISTORY:
+                            returnAnswer(message, new Answer(message.getValues()));
+                            break;
+
+                        case JsonInterface.BUFFER_AGGREGATES:
+                            long window = arguments.get(JsonInterface.WINDOW).asLong();
+                            Map<String, List<Aggregate>> aggregates = new LinkedHashMap<>();
+                            for (JsonValue b : arguments.get(JsonInterface.AGGREGATES).asArray().values()) {
+                                JsonObject buffer = b.asObject();
+                                String bufferName = buffer.get(JsonInterface.NAME).asString();
+                                List<Aggregate> bufferAggregates = new ArrayList<>();
+                                for (JsonValue a : buffer.get(JsonInterface.VALUES).asArray().values()) {
+                                    JsonObject aggregate = a.asObject();
+                                    bufferAggregates.add(new Aggregate(bufferName,
+                                                                       aggregate.get(JsonInterface.TIMESTAMP).asLong(),
+                                                                       window,
+                                                                       aggregate.get(JsonInterface.COUNT).asInt(),
+                                                                       aggregate.get(JsonInterface.MIN).asDouble(),
+                                                                       aggregate.get(JsonInterface.MAX).asDouble(),
+                                                                       aggregate.get(JsonInterface.AVERAGE).asDouble()));
+                                }
+                                aggregates.put(bufferName, bufferAggregates);
+                            }
+                            returnAnswer(message, new Answer(aggregates));
                             break;
 
                         case JsonInterface.BUFFER_NAMES:
@@ -101,7 +216,7 @@ public class ClientEndpoint {
                             for (JsonValue name : arguments.get(JsonInterface.NAME).asArray().values()) {
                                 names.add(name.asString());
                             }
-                            returnAnswer(new Answer(names));
+                            returnAnswer(message, new Answer(names));
                             break;
 
                         case JsonInterface.DISCONNECT:
@@ -109,18 +224,30 @@ public class ClientEndpoint {
                             break;
 
                         case JsonInterface.REJECTED:
-                            returnAnswer(new Answer(false));
+                            // A daemon rejecting the protocol version names the highest version it supports.
+                            JsonValue supported = arguments == null ? null : arguments.get(JsonInterface.VERSION);
+                            if (supported != null && supported.isNumber()) supportedVersion = supported.asInt();
+                            returnAnswer(message, new Answer(false));
                             break;
 
                         case JsonInterface.PUSH:
 
-                            JsonValue value = arguments.get(JsonInterface.VALUE);
-                            SimpleData data = new SimpleData(arguments.get(JsonInterface.NAME).asString(),
-                                                             new Date(arguments.get(JsonInterface.TIMESTAMP).asLong()),
-                                                             BufferState.valueOf(arguments.get(JsonInterface.STATE).asString()),
-                                                             value == null ? null : value.asDouble());
-                            if (arguments.get(JsonInterface.SPONTANEOUS).asBoolean()) valueChangeDistributorQueue.put(data);
-                            else returnAnswer(new Answer(data));
+                            SimpleData data = message.getValue();
+
+                            released(data);
+                            if (message.isSpontaneous()) valueChangeDistributorQueue.put(data);
+                            else returnAnswer(message, new Answer(data));
+                            break;
+
+                        case JsonInterface.PUSH_BATCH:
+                            for (SimpleData value : message.getValues()) {
+                                released(value);
+                                valueChangeDistributorQueue.put(value);
+                            }
+                            break;
+
+                        case JsonInterface.EVENT:
+                            valueChangeDistributorQueue.put(message.getEvent());
                             break;
 
                         default:
@@ -128,7 +255,8 @@ public class ClientEndpoint {
                             break;
                     }
 
-                    daemon = connection;
+                    // Stop reading, if the connection was closed or replaced.
+                    if (daemon != connection) daemon = null;
                 }
             }
             catch (InterruptedException e) {
@@ -137,8 +265,11 @@ public class ClientEndpoint {
             }
             catch (Exception e) {
 
-                // An understandable exception, if the connection was closed.
-                if (connection != null && connection.isConnected()) handleCommunicationError(e);
+                // An understandable exception, if the connection was closed. The check must be atomic, otherwise
+                // a connection established in the meantime would be closed.
+                synchronized (connectionLock) {
+                    if (connection != null && connection == daemon && connection.isConnected()) handleCommunicationError(e);
+                }
             }
 
             logger.fine("The receiver thread terminates now.");
@@ -148,7 +279,7 @@ public class ClientEndpoint {
         void shutdown() { interrupt(); }
     }
 
-    /** This inner class is a thread distributing value changes. */
+    /** This inner class is a thread distributing value changes and condition events. */
     private class ValueChangeDistributor extends Thread {
 
         /** Initialization. */
@@ -164,7 +295,10 @@ public class ClientEndpoint {
 
             while (!interrupted()) {
                 try {
-                    fireValueChanged(valueChangeDistributorQueue.take());
+                    Object change = valueChangeDistributorQueue.take();
+
+                    if (change instanceof ConditionEvent) fireConditionChanged((ConditionEvent)change);
+                    else fireValueChanged((SimpleData)change);
                 }
                 catch (InterruptedException e) {
                     // Ok, we terminate now
@@ -186,14 +320,22 @@ public class ClientEndpoint {
     // The logger.
     private final static Logger logger = Loggers.getLogger(ClientEndpoint.class);
 
+    // This timer expires the requests, which are not answered in time
+    private final static Timer timer = new Timer("request timeout timer", true);
+
+    // This thread sends the requests depending on an answer, because the receiver thread must not send them. It ends,
+    // if there is nothing to send for 10 seconds.
+    private final static ThreadPoolExecutor requestSender = createRequestSender();
+
     // This is the one existing instance of this class
     private static ClientEndpoint instance = new ClientEndpoint();
 
-    // This is the lock for synchronization of requests sent to the daemon
-    private final Lock requestSerializer;
+    // This lock keeps the order of the pending requests equal to the order of sending. The next request id is guarded by it.
+    private final Object requestLock;
+    private int nextRequestId;
 
-    // This is the synchronisation object for the data exchange between calling thread and receiver thread
-    private final Exchanger<Answer> synchronizer;
+    // The requests sent to the daemon, which are not answered yet, in the order of sending
+    private final Map<Integer, CompletableFuture<Answer>> pendingRequests;
 
     // The observers
     private final WeakHashMap<ValueChangeObserver, Object> observers;
@@ -201,9 +343,9 @@ public class ClientEndpoint {
     // The receiver thread
     private Receiver receiverThread;
 
-    // The value change distributor thread and its queue
+    // The value change distributor thread and its queue containing value changes and condition events
     private ValueChangeDistributor valueChangeDistributor;
-    private BlockingQueue<SimpleData> valueChangeDistributorQueue;
+    private BlockingQueue<Object> valueChangeDistributorQueue;
 
     // The connection to the daemon
     private Connection connection;
@@ -212,11 +354,25 @@ public class ClientEndpoint {
     // The message sender
     private MessageSender sender;
 
+    // The protocol version requested by an "establish" message, which is not answered yet
+    private volatile int requestedVersion;
+
+    // The highest protocol version supported by a daemon, which has rejected the requested version, or 0
+    private volatile int supportedVersion;
+
+    // The number of subscriptions for every subscribed buffer
+    private final Map<String, Integer> subscriptions;
+
+    // The observers of the watched conditions by the ids of the watches. The next id is guarded by the map.
+    private final Map<Integer, ConditionObserver> watches;
+    private int nextWatchId;
+
     /** Initialisation of the endpoint instance. */
     private ClientEndpoint() {
 
-        synchronizer = new Exchanger<>();
-        requestSerializer = new ReentrantLock();
+        requestLock = new Object();
+        nextRequestId = 1;
+        pendingRequests = new LinkedHashMap<>();
         observers = new WeakHashMap<>();
         receiverThread = null;
         valueChangeDistributor = null;
@@ -224,6 +380,10 @@ public class ClientEndpoint {
         connection = null;
         connectionLock = new Object();
         sender = null;
+        requestedVersion = 0;
+        subscriptions = new HashMap<>();
+        watches = new HashMap<>();
+        nextWatchId = 1;
     }
 
     /**
@@ -249,69 +409,103 @@ public class ClientEndpoint {
         synchronized (connectionLock) {
             if (!isConnected()) {
 
-                // Create a connected socket.
-                Socket socket;
+                // A daemon, which doesn't know the current protocol version, rejects the connection.
+                // Then the version named by the daemon is tried, or the legacy protocol, if the daemon
+                // names no version.
+                int version = CommunicationSettings.version();
+                while (version > 0) version = connect(version);
+            }
+        }
+    }
 
-                try {
-                    socket = new Socket(CommunicationSettings.bufferDaemonAddress(), CommunicationSettings.bufferDaemonPort());
-                    socket.setKeepAlive(true);
-                    socket.setReuseAddress(true);
-                }
-                catch (IOException e) {
-                    logger.log(Level.WARNING,
-                               String.format("Cannot connect the daemon at '%s:%d'.",
-                                             CommunicationSettings.bufferDaemonAddress(),
-                                             CommunicationSettings.bufferDaemonPort()),
-                               e);
-                    throw new IOException(e.getMessage(), e);
-                }
+    /**
+     * Establishes the connection to the daemon using a protocol version.
+     *
+     * @param version the requested protocol version
+     *
+     * @return the lower protocol version to try next, if the daemon has rejected the requested version, or 0 otherwise
+     *
+     * @throws java.io.IOException if this operation fails
+     */
+    private int connect(int version) throws IOException {
 
-                // Establish the connection
-                connection = new Connection(socket);
-                sender = new MessageSender(connection);
+        boolean result;
+        int next = 0;
 
-                // Setting up the value change distributor
-                valueChangeDistributorQueue.clear();
-                valueChangeDistributor = new ValueChangeDistributor();
+        // Create a connected socket.
+        Socket socket;
 
-                // Listen for messages
-                receiverThread = new Receiver();
+        try {
+            socket = new Socket(CommunicationSettings.bufferDaemonAddress(), CommunicationSettings.bufferDaemonPort());
+            socket.setKeepAlive(true);
+            socket.setReuseAddress(true);
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING,
+                       String.format("Cannot connect the daemon at '%s:%d'.",
+                                     CommunicationSettings.bufferDaemonAddress(),
+                                     CommunicationSettings.bufferDaemonPort()),
+                       e);
+            throw new IOException(e.getMessage(), e);
+        }
 
-                // Send an establish-Message and wait for an answer
-                requestSerializer.lock();
-                try {
-                    sender.establish();
-                    boolean ok = waitForAnAnswer().get();
+        // Establish the connection
+        connection = new Connection(socket);
+        sender = new MessageSender(connection);
 
-                    if (ok) {
-                        logger.info(String.format("The daemon at '%s:%d' accepts this connection.",
-                                                  CommunicationSettings.bufferDaemonAddress(),
-                                                  CommunicationSettings.bufferDaemonPort()));
-                    }
-                    else {
-                        logger.warning(String.format("The daemon at '%s:%d' rejects this connection.",
-                                                     CommunicationSettings.bufferDaemonAddress(),
-                                                     CommunicationSettings.bufferDaemonPort()));
-                        disconnect();
-                    }
-                }
-                catch (NullPointerException np) {
-                    handleDumblyDaemon();
-                    throw new IOException("missing answer from the buffer daemon");
-                }
-                catch (ClassCastException cc) {
-                    handleProtocolViolation();
-                    throw new ProtocolException("protocol violation", cc);
-                }
-                catch (Exception ex) {
-                    handleCommunicationError(ex);
-                    throw new IOException("communication error", ex);
-                }
-                finally {
-                    requestSerializer.unlock();
-                }
+        // Setting up the value change distributor
+        valueChangeDistributorQueue.clear();
+        valueChangeDistributor = new ValueChangeDistributor();
+
+        // Listen for messages
+        receiverThread = new Receiver(connection);
+
+        // Send an establish-Message and wait for an answer
+        try {
+            requestedVersion = version;
+            supportedVersion = 0;
+            result = await(requestAsync(s -> s.establish(version))).get();
+
+            if (result) {
+                logger.info(String.format("The daemon at '%s:%d' accepts this connection using protocol version %d.",
+                                          CommunicationSettings.bufferDaemonAddress(),
+                                          CommunicationSettings.bufferDaemonPort(),
+                                          version));
+            }
+            else if (version > CommunicationSettings.legacyVersion()) {
+                logger.info(String.format("The daemon at '%s:%d' rejects the protocol version %d.",
+                                          CommunicationSettings.bufferDaemonAddress(),
+                                          CommunicationSettings.bufferDaemonPort(),
+                                          version));
+
+                // The daemon has closed the connection. No one must be notified about it.
+                closeConnection();
+
+                // A legacy daemon names no version.
+                int supported = supportedVersion;
+                next = supported >= CommunicationSettings.legacyVersion() && supported < version ? supported : CommunicationSettings.legacyVersion();
+            }
+            else {
+                logger.warning(String.format("The daemon at '%s:%d' rejects this connection.",
+                                             CommunicationSettings.bufferDaemonAddress(),
+                                             CommunicationSettings.bufferDaemonPort()));
+                disconnect();
             }
         }
+        catch (NullPointerException np) {
+            handleDumblyDaemon();
+            throw new IOException("missing answer from the buffer daemon");
+        }
+        catch (ClassCastException cc) {
+            handleProtocolViolation();
+            throw new ProtocolException("protocol violation", cc);
+        }
+        catch (Exception ex) {
+            handleCommunicationError(ex);
+            throw new IOException("communication error", ex);
+        }
+
+        return next;
     }
 
     /**
@@ -320,6 +514,20 @@ public class ClientEndpoint {
      */
     private void disconnectImmediately() {
 
+        synchronized (connectionLock) {
+            if (isConnected()) {
+
+                closeConnection();
+
+                // At last wie notify all about the connection shutdown
+                fireCommunicationLost();
+            }
+        }
+    }
+
+    /** Closes the connection and stops all communication threads without any notification. */
+    private void closeConnection() {
+
         synchronized (connectionLock) {
             if (isConnected()) {
 
@@ -338,9 +546,18 @@ public class ClientEndpoint {
                 sender = null;
                 connection = null;
                 valueChangeDistributorQueue.clear();
+                requestedVersion = 0;
 
-                // At last wie notify all about the connection shutdown
-                fireCommunicationLost();
+                // No pending request will be answered any more
+                cancelPendingRequests();
+
+                // The subscriptions and the watches are lost with the connection
+                synchronized (subscriptions) {
+                    subscriptions.clear();
+                }
+                synchronized (watches) {
+                    watches.clear();
+                }
             }
         }
     }
@@ -356,7 +573,6 @@ public class ClientEndpoint {
 
                 // Sending a disconnect - Message
                 if (!connection.getSocket().isClosed()) {
-                    requestSerializer.lock();
                     try {
                         sender.disconnect();
                     }
@@ -364,9 +580,6 @@ public class ClientEndpoint {
                         // We are not able to communicate about the connection
                         handleCommunicationError(io);
                     }
-                    finally {
-                        requestSerializer.unlock();
-                    }
                 }
 
                 // wait a moment to give the peer a chance to receive this message
@@ -385,16 +598,81 @@ public class ClientEndpoint {
     }
 
     /**
-     * Waits for an answer of the buffer daemon.
+     * Sends a request to the daemon. The returned future is completed by the receiver thread, if the answer arrives. Other
+     * threads may send their requests in the meantime.
+     *
+     * @param request the request
      *
-     * @return the answer or <tt>null</tt>, if the buffer daemon has sent no answer
+     * @return the pending answer, which is completed with <tt>null</tt>, if the buffer daemon sends no answer in time or
+     *         the connection is lost
      */
-    private Answer waitForAnAnswer() {
+    private CompletableFuture<Answer> requestAsync(Request request) {
+
+        CompletableFuture<Answer> answer = new CompletableFuture<>();
+        int id;
+
+        synchronized (requestLock) {
+
+            // The request id 0 marks messages without request id.
+            id = nextRequestId;
+            nextRequestId = id == Integer.MAX_VALUE ? 1 : id + 1;
+
+            synchronized (pendingRequests) {
+                pendingRequests.put(id, answer);
+            }
+
+            try {
+                MessageSender requestSender = sender;
+                if (requestSender == null) throw new IOException("no connection");
+
+                request.send(requestSender.withRequestId(id));
+            }
+            catch (IOException e) {
+                synchronized (pendingRequests) {
+                    pendingRequests.remove(id);
+                }
+                handleCommunicationError(e);
+                answer.complete(null);
+                return answer;
+            }
+        }
+
+        // The daemon must answer in time.
+        TimerTask timeout = new TimerTask() {
+            @Override
+            public void run() {
+
+                boolean expired;
 
-        Answer result = null;
+                synchronized (pendingRequests) {
+                    expired = pendingRequests.remove(id) != null;
+                }
+
+                if (expired) {
+                    answer.complete(null);
+                    handleDumblyDaemon();
+                }
+            }
+        };
+
+        timer.schedule(timeout, CommunicationSettings.DAEMON_ANSWER_TIMEOUT);
+        answer.whenComplete((a, e) -> timeout.cancel());
+
+        return answer;
+    }
+
+    /**
+     * Waits for the completion of a request.
+     *
+     * @param result the pending result of the request
+     * @param <T>    the type of the result
+     *
+     * @return the result
+     */
+    private <T> T await(CompletableFuture<T> result) {
 
         try {
-            result = synchronizer.exchange(new Answer(), CommunicationSettings.DAEMON_ANSWER_TIMEOUT, TimeUnit.MILLISECONDS);
+            return result.get();
         }
         catch (InterruptedException e) {
 
@@ -407,14 +685,28 @@ public class ClientEndpoint {
                                      CommunicationSettings.bufferDaemonPort()),
                        e);
 
-            // Here an interrupt may result in a communication breakdown. We close the connection.
+            // Here an interrupt may result in a communication breakdown. We close the connection. This completes all the
+            // pending requests.
             disconnect();
+            return await(result);
         }
-        catch (TimeoutException e) {
-            // The result is already right.
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            else throw new IllegalStateException(e.getCause());
         }
+    }
 
-        return result;
+    /** Completes all the pending requests without an answer. */
+    private void cancelPendingRequests() {
+
+        Collection<CompletableFuture<Answer>> requests;
+
+        synchronized (pendingRequests) {
+            requests = new ArrayList<>(pendingRequests.values());
+            pendingRequests.clear();
+        }
+
+        for (CompletableFuture<Answer> request : requests) request.complete(null);
     }
 
     /** A protocol violation has occurred. The connection will be closed. */
@@ -515,6 +807,23 @@ public class ClientEndpoint {
      */
     private void fireValueChanged(SimpleData value) { for (ValueChangeObserver observer : getObservers()) observer.valueChanged(value); }
 
+    /**
+     * Notifies the observer of a watch about a condition event. The watch of a released buffer ends.
+     *
+     * @param event the condition event
+     */
+    private void fireConditionChanged(ConditionEvent event) {
+
+        ConditionObserver observer;
+
+        synchronized (watches) {
+            if (event.getValue().getState() == BufferState.RELEASED) observer = watches.remove(event.getId());
+            else observer = watches.get(event.getId());
+        }
+
+        if (observer != null) observer.conditionChanged(event);
+    }
+
     /**
      * This method sends a shutdown message.
      *
@@ -524,7 +833,6 @@ public class ClientEndpoint {
 
         boolean result = false;
 
-        requestSerializer.lock();
         try {
             sender.shutdown();
             result = true;
@@ -532,9 +840,6 @@ public class ClientEndpoint {
         catch (Exception io) {
             handleCommunicationError(io);
         }
-        finally {
-            requestSerializer.unlock();
-        }
 
         return result;
     }
@@ -547,29 +852,22 @@ public class ClientEndpoint {
      *
      * @return a collection of the names of all the buffers matching this query
      */
-    public Set<String> queryBuffersByName(String name) {
-
-        Set<String> result = new HashSet<>();
+    public Set<String> queryBuffersByName(String name) { return await(queryBuffersByNameAsync(name)); }
 
-        requestSerializer.lock();
-        try {
-            sender.queryBuffersByName(name);
-            result = waitForAnAnswer().get();
-        }
-        catch (ClassCastException cc) {
-            // The result is correct.
-        }
-        catch (NullPointerException np) {
-            handleDumblyDaemon();
-        }
-        catch (Exception io) {
-            handleCommunicationError(io);
-        }
-        finally {
-            requestSerializer.unlock();
-        }
+    /**
+     * This method looks for available buffers without waiting for the answer of the daemon.
+     *
+     * @param name a regular expression specifying the buffer name, which should be scanned. A simple match satisfy
+     *             the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending collection of the names of all the buffers matching this query
+     */
+    public CompletableFuture<Set<String>> queryBuffersByNameAsync(String name) {
 
-        return result;
+        return requestAsync(s -> s.queryBuffersByName(name)).thenApply(answer -> {
+            if (answer != null && answer.get() instanceof Set) return answer.get();
+            else return new HashSet<>();
+        });
     }
 
     /**
@@ -582,29 +880,24 @@ public class ClientEndpoint {
      *
      * @return a collection of the names of all the buffers matching this query
      */
-    public Set<String> queryBuffersByMetainfo(String topic, String feature) {
+    public Set<String> queryBuffersByMetainfo(String topic, String feature) { return await(queryBuffersByMetainfoAsync(topic, feature)); }
 
-        Set<String> result = new HashSet<>();
-
-        requestSerializer.lock();
-        try {
-            sender.queryBuffersByMetainfo(topic, feature);
-            result = waitForAnAnswer().get();
-        }
-        catch (ClassCastException cc) {
-            // The result is correct.
-        }
-        catch (NullPointerException np) {
-            handleDumblyDaemon();
-        }
-        catch (Exception io) {
-            handleCommunicationError(io);
-        }
-        finally {
-            requestSerializer.unlock();
-        }
+    /**
+     * This method looks for available buffers without waiting for the answer of the daemon.
+     *
+     * @param topic   a regular expression specifying the buffer topics, which should be scanned for the wanted features. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole topic name.
+     * @param feature a regular expression specifying the buffer features, which should be scanned. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending collection of the names of all the buffers matching this query
+     */
+    public CompletableFuture<Set<String>> queryBuffersByMetainfoAsync(String topic, String feature) {
 
-        return result;
+        return requestAsync(s -> s.queryBuffersByMetainfo(topic, feature)).thenApply(answer -> {
+            if (answer != null && answer.get() instanceof Set) return answer.get();
+            else return new HashSet<>();
+        });
     }
 
     /**
@@ -614,123 +907,246 @@ public class ClientEndpoint {
      *
      * @return the buffer meta information, which is <tt>null</tt> if the buffer doesn't exists or the connection to the daemon is broken
      */
-    public BufferDescription queryMetainfo(String name) {
-
-        BufferDescription result = null;
-
-        requestSerializer.lock();
-        try {
-            sender.queryMetainfo(name);
-            result = waitForAnAnswer().get();
-        }
-        catch (ClassCastException cc) {
-            // The result is correct.
-        }
-        catch (NullPointerException np) {
-            handleDumblyDaemon();
-        }
-        catch (Exception io) {
-            handleCommunicationError(io);
-        }
-        finally {
-            requestSerializer.unlock();
-        }
-
-        return result;
-    }
+    public BufferDescription queryMetainfo(String name) { return await(queryMetainfoAsync(name)); }
 
     /**
-     * Get the current configuration data of a buffer.
-     *
-     * @param bufferName the name of the buffer
+     * This method returns the meta information of a buffer without waiting for the answer of the daemon.
      *
-     * @return the current buffer configuration
+     * @param name the name of a buffer
      *
-     * @throws java.lang.IllegalArgumentException
-     *          there is no buffer with the given buffer name
+     * @return the pending buffer meta information, which is <tt>null</tt> if the buffer doesn't exists or the connection to
+     *         the daemon is broken
      */
-    public BufferConfiguration getBufferConfiguration(String bufferName) throws IllegalArgumentException {
+    public CompletableFuture<BufferDescription> queryMetainfoAsync(String name) {
 
-        requestSerializer.lock();
-        try {
-            sender.getBufferConfiguration(bufferName);
-            return waitForAnAnswer().get();
-        }
-        catch (ClassCastException cc) {
-            throw new IllegalArgumentException("unknown buffer " + bufferName);
-        }
-        catch (NullPointerException np) {
-            handleDumblyDaemon();
-            return null;
-        }
-        catch (Exception io) {
-            handleCommunicationError(io);
-            return null;
-        }
-        finally {
-            requestSerializer.unlock();
-        }
+        return requestAsync(s -> s.queryMetainfo(name)).thenApply(answer -> {
+            if (answer != null && answer.get() instanceof BufferDescription) return answer.get();
+            else return null;
+        });
     }
 
     /**
-     * Changes the current configuration of a buffer.
-     *
-     * @param bufferName    the name of the buffer
-     * @param configuration the new buffer configuration
-     * @param createAllowed is the creation of a new buffer allowed
+     * Does the daemon understand the messages dealing with many buffers at once?
      *
-     * @return <tt>true</tt>, if the configuration was successfully changed in the daemon
+     * @return <tt>true</tt>, if the daemon understands these messages
      */
-    public boolean setBufferConfiguration(String bufferName, BufferConfiguration configuration, boolean createAllowed) {
+    private boolean hasBulkMessages() {
 
-        requestSerializer.lock();
-        try {
-            sender.setBufferConfiguration(bufferName, configuration, createAllowed);
-            return waitForAnAnswer().get();
-        }
-        catch (NullPointerException np) {
-            handleDumblyDaemon();
-            return false;
-        }
-        catch (Exception io) {
-            handleCommunicationError(io);
-            return false;
-        }
-        finally {
-            requestSerializer.unlock();
+        synchronized (connectionLock) {
+            return connection != null && connection.hasBulkMessages();
         }
     }
 
     /**
-     * Changes the current configuration of a buffer.
-     *
-     * @param bufferName the name of the buffer
+     * This method looks for available buffers and returns their meta information.
      *
-     * @return <tt>true</tt>, if the configuration was successfully changed in the daemon
+     * @param name a regular expression specifying the buffer name, which should be scanned. A simple match satisfy
+     *             the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the meta information of all the buffers matching this query
+     */
+    public Set<BufferDescription> queryDescriptionsByName(String name) { return await(queryDescriptionsByNameAsync(name)); }
+
+    /**
+     * This method looks for available buffers and returns their meta information without waiting for the answer of the daemon.
+     * The meta information is sent within the answer to the query. Older daemons are asked for the meta information of every
+     * buffer found.
+     *
+     * @param name a regular expression specifying the buffer name, which should be scanned. A simple match satisfy
+     *             the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending meta information of all the buffers matching this query
+     */
+    public CompletableFuture<Set<BufferDescription>> queryDescriptionsByNameAsync(String name) {
+
+        if (hasBulkMessages()) return requestAsync(s -> s.queryBuffersByName(name, true)).thenApply(ClientEndpoint::descriptions);
+        else return describe(queryBuffersByNameAsync(name));
+    }
+
+    /**
+     * This method looks for available buffers and returns their meta information.
+     *
+     * @param topic   a regular expression specifying the buffer topics, which should be scanned for the wanted features. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole topic name.
+     * @param feature a regular expression specifying the buffer features, which should be scanned. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the meta information of all the buffers matching this query
+     */
+    public Set<BufferDescription> queryDescriptionsByMetainfo(String topic, String feature) {
+
+        return await(queryDescriptionsByMetainfoAsync(topic, feature));
+    }
+
+    /**
+     * This method looks for available buffers and returns their meta information without waiting for the answer of the daemon.
+     * The meta information is sent within the answer to the query. Older daemons are asked for the meta information of every
+     * buffer found.
+     *
+     * @param topic   a regular expression specifying the buffer topics, which should be scanned for the wanted features. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole topic name.
+     * @param feature a regular expression specifying the buffer features, which should be scanned. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending meta information of all the buffers matching this query
+     */
+    public CompletableFuture<Set<BufferDescription>> queryDescriptionsByMetainfoAsync(String topic, String feature) {
+
+        if (hasBulkMessages()) return requestAsync(s -> s.queryBuffersByMetainfo(topic, feature, true)).thenApply(ClientEndpoint::descriptions);
+        else return describe(queryBuffersByMetainfoAsync(topic, feature));
+    }
+
+    /**
+     * Extracts the buffer descriptions from an answer.
+     *
+     * @param answer the answer, which may be <tt>null</tt>
+     *
+     * @return the buffer descriptions
+     */
+    private static Set<BufferDescription> descriptions(Answer answer) {
+
+        if (answer != null && answer.get() instanceof Set) return answer.get();
+        else return new HashSet<>();
+    }
+
+    /**
+     * Creates the thread sending the requests, which depend on an answer.
+     *
+     * @return the request sender thread
+     */
+    private static ThreadPoolExecutor createRequestSender() {
+
+        ThreadPoolExecutor result = new ThreadPoolExecutor(1, 1, 10L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "request sender thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        result.allowCoreThreadTimeOut(true);
+
+        return result;
+    }
+
+    /**
+     * Queries the meta information of some buffers. All these queries are sent without waiting for the answers. The
+     * buffer names are completed by the receiver thread, so the queries are sent by the request sender thread.
+     *
+     * @param names the pending buffer names
+     *
+     * @return the pending buffer descriptions
+     */
+    private CompletableFuture<Set<BufferDescription>> describe(CompletableFuture<Set<String>> names) {
+
+        return names.thenComposeAsync(bufferNames -> {
+
+            List<CompletableFuture<BufferDescription>> descriptions = new ArrayList<>();
+            for (String name : bufferNames) descriptions.add(queryMetainfoAsync(name));
+
+            return CompletableFuture.allOf(descriptions.toArray(new CompletableFuture<?>[descriptions.size()])).thenApply(v -> {
+
+                // A buffer may be removed in the meantime. Therefore it is ignored.
+                Set<BufferDescription> result = new HashSet<>();
+                for (CompletableFuture<BufferDescription> description : descriptions) {
+                    if (description.join() != null) result.add(description.join());
+                }
+
+                return result;
+            });
+        }, requestSender);
+    }
+
+    /**
+     * Get the current configuration data of a buffer.
+     *
+     * @param bufferName the name of the buffer
+     *
+     * @return the current buffer configuration
      *
      * @throws java.lang.IllegalArgumentException
      *          there is no buffer with the given buffer name
      */
-    public boolean releaseBuffer(String bufferName) throws IllegalArgumentException {
+    public BufferConfiguration getBufferConfiguration(String bufferName) throws IllegalArgumentException {
 
-        requestSerializer.lock();
-        try {
-            sender.releaseBuffer(bufferName);
-            return waitForAnAnswer().get();
-        }
-        catch (NullPointerException np) {
-            handleDumblyDaemon();
-            return false;
-        }
-        catch (Exception io) {
-            handleCommunicationError(io);
-            return false;
-        }
-        finally {
-            requestSerializer.unlock();
-        }
+        return await(getBufferConfigurationAsync(bufferName));
+    }
+
+    /**
+     * Get the current configuration data of a buffer without waiting for the answer of the daemon.
+     *
+     * @param bufferName the name of the buffer
+     *
+     * @return the pending buffer configuration, which is <tt>null</tt> if the connection to the daemon is broken. It completes
+     *         exceptionally with an <tt>IllegalArgumentException</tt>, if there is no buffer with the given buffer name.
+     */
+    public CompletableFuture<BufferConfiguration> getBufferConfigurationAsync(String bufferName) {
+
+        return requestAsync(s -> s.getBufferConfiguration(bufferName)).thenApply(answer -> {
+            if (answer == null) return null;
+            else if (answer.get() instanceof BufferConfiguration) return answer.get();
+            else throw new IllegalArgumentException("unknown buffer " + bufferName);
+        });
     }
 
+    /**
+     * Changes the current configuration of a buffer.
+     *
+     * @param bufferName    the name of the buffer
+     * @param configuration the new buffer configuration
+     * @param createAllowed is the creation of a new buffer allowed
+     *
+     * @return <tt>true</tt>, if the configuration was successfully changed in the daemon
+     */
+    public boolean setBufferConfiguration(String bufferName, BufferConfiguration configuration, boolean createAllowed) {
+
+        return await(setBufferConfigurationAsync(bufferName, configuration, createAllowed));
+    }
+
+    /**
+     * Changes the current configuration of a buffer without waiting for the answer of the daemon.
+     *
+     * @param bufferName    the name of the buffer
+     * @param configuration the new buffer configuration
+     * @param createAllowed is the creation of a new buffer allowed
+     *
+     * @return the pending result, which is <tt>true</tt>, if the configuration was successfully changed in the daemon
+     */
+    public CompletableFuture<Boolean> setBufferConfigurationAsync(String bufferName, BufferConfiguration configuration, boolean createAllowed) {
+
+        return requestAsync(s -> s.setBufferConfiguration(bufferName, configuration, createAllowed)).thenApply(ClientEndpoint::accepted);
+    }
+
+    /**
+     * Changes the current configuration of a buffer.
+     *
+     * @param bufferName the name of the buffer
+     *
+     * @return <tt>true</tt>, if the configuration was successfully changed in the daemon
+     *
+     * @throws java.lang.IllegalArgumentException
+     *          there is no buffer with the given buffer name
+     */
+    public boolean releaseBuffer(String bufferName) throws IllegalArgumentException { return await(releaseBufferAsync(bufferName)); }
+
+    /**
+     * Releases a buffer without waiting for the answer of the daemon.
+     *
+     * @param bufferName the name of the buffer
+     *
+     * @return the pending result, which is <tt>true</tt>, if the buffer was successfully released in the daemon
+     */
+    public CompletableFuture<Boolean> releaseBufferAsync(String bufferName) {
+
+        return requestAsync(s -> s.releaseBuffer(bufferName)).thenApply(ClientEndpoint::accepted);
+    }
+
+    /**
+     * Is an answer the acceptance of a request?
+     *
+     * @param answer the answer, which may be <tt>null</tt>
+     *
+     * @return <tt>true</tt>, if the daemon has accepted the request
+     */
+    private static boolean accepted(Answer answer) { return answer != null && Boolean.TRUE.equals(answer.get()); }
+
     /**
      * Get the current information about a buffer attached to this data point.
      *
@@ -741,29 +1157,172 @@ public class ClientEndpoint {
      * @throws java.lang.IllegalArgumentException
      *          there is no buffer with the given buffer name assigned to this data point
      */
-    public SimpleData getImmediate(String bufferName) throws IllegalArgumentException {
+    public SimpleData getImmediate(String bufferName) throws IllegalArgumentException { return await(getImmediateAsync(bufferName)); }
 
-        requestSerializer.lock();
-        try {
-            sender.getImmediate(bufferName);
-            return waitForAnAnswer().get();
-        }
-        catch (ClassCastException cc) {
-            throw new IllegalArgumentException("unknown buffer " + bufferName);
+    /**
+     * Get the current information about a buffer without waiting for the answer of the daemon.
+     *
+     * @param bufferName the name of the buffer
+     *
+     * @return the pending buffer data, which is in the state <tt>{@link BufferState#FAULTED}</tt>, if the connection to the
+     *         daemon is broken. It completes exceptionally with an <tt>IllegalArgumentException</tt>, if there is no buffer
+     *         with the given buffer name.
+     */
+    public CompletableFuture<SimpleData> getImmediateAsync(String bufferName) {
+
+        return requestAsync(s -> s.getImmediate(bufferName)).thenApply(answer -> {
+            if (answer == null) return new SimpleData(bufferName, new Date(), BufferState.FAULTED);
+            else if (answer.get() instanceof SimpleData) return answer.get();
+            else throw new IllegalArgumentException("unknown buffer " + bufferName);
+        });
+    }
+
+    /**
+     * Get the current information about some buffers.
+     *
+     * @param bufferNames the names of the buffers
+     *
+     * @return the current buffer data by buffer name. Unknown buffers are missing.
+     */
+    public Map<String, SimpleData> getImmediateAll(Collection<String> bufferNames) { return await(getImmediateAllAsync(bufferNames)); }
+
+    /**
+     * Get the current information about some buffers without waiting for the answer of the daemon. All the values are sent
+     * within one answer. Older daemons are asked for every buffer value.
+     *
+     * @param bufferNames the names of the buffers
+     *
+     * @return the pending buffer data by buffer name. Unknown buffers are missing. If the connection to the daemon is broken,
+     *         all the values are in the state <tt>{@link BufferState#FAULTED}</tt>.
+     */
+    public CompletableFuture<Map<String, SimpleData>> getImmediateAllAsync(Collection<String> bufferNames) {
+
+        List<String> names = new ArrayList<>(bufferNames);
+
+        if (hasBulkMessages()) {
+            return requestAsync(s -> s.getImmediateAll(names)).thenApply(answer -> values(answer, names));
         }
-        catch (NullPointerException np) {
-            handleDumblyDaemon();
-            return new SimpleData(bufferName, new Date(), BufferState.FAULTED);
+        else {
+            Map<String, CompletableFuture<SimpleData>> values = new LinkedHashMap<>();
+            for (String name : names) values.put(name, getImmediateAsync(name));
+            return collect(values);
         }
-        catch (Exception io) {
-            handleCommunicationError(io);
-            return new SimpleData(bufferName, new Date(), BufferState.FAULTED);
+    }
+
+    /**
+     * Does the daemon understand the messages reading the history of buffers?
+     *
+     * @return <tt>true</tt>, if the daemon understands these messages
+     */
+    private boolean hasHistoryMessages() {
+
+        synchronized (connectionLock) {
+            return connection != null && connection.hasHistoryMessages();
         }
-        finally {
-            requestSerializer.unlock();
+    }
+
+    /**
+     * Reads the history of a buffer.
+     *
+     * @param bufferName the name of the buffer
+     * @param from       the start of the time range in milliseconds since the epoch, inclusive
+     * @param to         the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints  the maximum number of values, which is 0 for no limit
+     *
+     * @return the buffer values in the order of their timestamps
+     *
+     * @throws java.lang.IllegalArgumentException
+     *          there is no buffer with the given buffer name
+     */
+    public List<SimpleData> getHistory(String bufferName, long from, long to, int maxPoints) throws IllegalArgumentException {
+
+        return await(getHistoryAsync(bufferName, from, to, maxPoints));
+    }
+
+    /**
+     * Reads the history of a buffer without waiting for the answer of the daemon. All the values are sent within one answer.
+     * If there are more values within the time range than requested, the daemon downsamples them.
+     *
+     * @param bufferName the name of the buffer
+     * @param from       the start of the time range in milliseconds since the epoch, inclusive
+     * @param to         the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints  the maximum number of values, which is 0 for no limit
+     *
+     * @return the pending buffer values in the order of their timestamps. The history is empty, if the buffer keeps no history,
+     *         the daemon is too old to keep any history or the connection to the daemon is broken. It completes exceptionally
+     *         with an <tt>IllegalArgumentException</tt>, if there is no buffer with the given buffer name.
+     */
+    public CompletableFuture<List<SimpleData>> getHistoryAsync(String bufferName, long from, long to, int maxPoints) {
+
+        if (!hasHistoryMessages()) return CompletableFuture.completedFuture(new ArrayList<>());
+
+        return requestAsync(s -> s.getHistory(bufferName, from, to, maxPoints)).thenApply(answer -> {
+            if (answer == null) return new ArrayList<>();
+            else if (answer.get() instanceof List) return answer.get();
+            else throw new IllegalArgumentException("unknown buffer " + bufferName);
+        });
+    }
+
+    /**
+     * Does the daemon understand the messages reading the aggregates of buffers?
+     *
+     * @return <tt>true</tt>, if the daemon understands these messages
+     */
+    private boolean hasAggregateMessages() {
+
+        synchronized (connectionLock) {
+            return connection != null && connection.hasAggregateMessages();
         }
     }
 
+    /**
+     * Reads the aggregates of some buffers.
+     *
+     * @param bufferNames the names of the buffers
+     * @param from        the start of the time range in milliseconds since the epoch, inclusive
+     * @param to          the end of the time range in milliseconds since the epoch, inclusive
+     * @param window      the length of a time window in milliseconds
+     *
+     * @return the aggregates in the order of their time windows by buffer name
+     *
+     * @throws java.lang.IllegalArgumentException
+     *          the length of the time window is not positive
+     */
+    public Map<String, List<Aggregate>> getAggregates(Collection<String> bufferNames, long from, long to, long window)
+            throws IllegalArgumentException {
+
+        return await(getAggregatesAsync(bufferNames, from, to, window));
+    }
+
+    /**
+     * Reads the aggregates of some buffers without waiting for the answer of the daemon. The time range is split into
+     * consecutive time windows, which start at multiples of the window length. The daemon summarizes the values of every
+     * time window from rollups, which are kept by the buffer. Therefore the daemon may enlarge the window to a multiple of
+     * <tt>{@link BufferConfiguration#ROLLUP_PERIOD}</tt>. All the aggregates are sent within one answer.
+     *
+     * @param bufferNames the names of the buffers
+     * @param from        the start of the time range in milliseconds since the epoch, inclusive
+     * @param to          the end of the time range in milliseconds since the epoch, inclusive
+     * @param window      the length of a time window in milliseconds
+     *
+     * @return the pending aggregates in the order of their time windows by buffer name. Unknown buffers are missing. A buffer
+     *         keeping no rollups has no aggregates, and time windows without any value have no aggregate. The result is empty,
+     *         if the daemon is too old to keep any rollups or the connection to the daemon is broken. It completes
+     *         exceptionally with an <tt>IllegalArgumentException</tt>, if the length of the time window is not positive.
+     */
+    public CompletableFuture<Map<String, List<Aggregate>>> getAggregatesAsync(Collection<String> bufferNames, long from, long to, long window) {
+
+        if (!hasAggregateMessages()) return CompletableFuture.completedFuture(new LinkedHashMap<>());
+
+        List<String> names = new ArrayList<>(bufferNames);
+
+        return requestAsync(s -> s.getAggregates(names, from, to, window)).thenApply(answer -> {
+            if (answer == null) return new LinkedHashMap<>();
+            else if (answer.get() instanceof Map) return answer.get();
+            else throw new IllegalArgumentException("illegal window " + window);
+        });
+    }
+
     /**
      * Get the current information about a buffer attached to this data point.
      *
@@ -780,38 +1339,269 @@ public class ClientEndpoint {
     }
 
     /**
-     * Sets the value to an actor assigned to this data point.
+     * Does the daemon understand the messages subscribing value changes?
      *
-     * @param bufferName the name of the actor buffer
-     * @param value      the new value
+     * @return <tt>true</tt>, if the daemon understands these messages. Otherwise every value change must be requested
+     *         by <tt>{@link #getOnChange(String)}</tt>.
+     */
+    public boolean hasSubscriptions() {
+
+        synchronized (connectionLock) {
+            return connection != null && connection.hasSubscriptions();
+        }
+    }
+
+    /**
+     * Subscribes all the value changes of a buffer. In contrast to <tt>{@link #getOnChange(String)}</tt> the subscription
+     * lasts until it is cancelled, the buffer is released or the connection is lost. The current buffer value is pushed
+     * immediately after subscribing.
      *
-     * @return the current actor value
+     * @param bufferName the name of the buffer
      *
-     * @throws IllegalStateException if the buffer isn't an actor or the actor isn't in the state <tt>{@link at.ac.tuwien.infosys.g2021.common.BufferState#READY}</tt>.
+     * @return <tt>true</tt>, if the buffer is subscribed, and <tt>false</tt>, if the daemon is too old to subscribe value
+     *         changes or the connection to the daemon is broken
+     */
+    public boolean subscribe(String bufferName) { return subscribe(bufferName, 0L, 0.0); }
+
+    /**
+     * Subscribes the value changes of a buffer. The daemon pushes a value change not until the minimum interval since the
+     * last push is elapsed and the value differs from the last pushed value at least by the deadband. Changes of the buffer
+     * state are pushed immediately. Every subscription must be cancelled by <tt>{@link #unsubscribe(String)}</tt>. If a
+     * buffer is subscribed several times, the settings of the last subscription are used.
+     *
+     * @param bufferName  the name of the buffer
+     * @param minInterval the minimum time in milliseconds between two pushes, which is 0 for no limit
+     * @param deadband    the minimum value difference to push, which is 0 for no deadband
+     *
+     * @return <tt>true</tt>, if the buffer is subscribed, and <tt>false</tt>, if the daemon is too old to subscribe value
+     *         changes or the connection to the daemon is broken
      */
-    public SimpleData set(String bufferName, Number value) throws IllegalStateException {
+    public boolean subscribe(String bufferName, long minInterval, double deadband) {
+
+        if (!hasSubscriptions()) return false;
+
+        synchronized (subscriptions) {
+            subscriptions.merge(bufferName, 1, Integer::sum);
+        }
 
-        requestSerializer.lock();
         try {
-            sender.set(bufferName, value.doubleValue());
-            return waitForAnAnswer().get();
+            sender.subscribe(bufferName, minInterval, deadband);
         }
-        catch (ClassCastException cc) {
-            throw new IllegalArgumentException("value change rejected");
+        catch (Exception io) {
+            handleCommunicationError(io);
+            return false;
         }
-        catch (NullPointerException np) {
-            handleDumblyDaemon();
-            return new SimpleData(bufferName, new Date(), BufferState.FAULTED);
+
+        return true;
+    }
+
+    /**
+     * Cancels a subscription of buffer value changes. The daemon stops pushing value changes, if the last subscription
+     * of the buffer is cancelled.
+     *
+     * @param bufferName the name of the buffer
+     */
+    public void unsubscribe(String bufferName) {
+
+        if (!hasSubscriptions()) return;
+
+        synchronized (subscriptions) {
+            Integer count = subscriptions.remove(bufferName);
+
+            if (count == null) return;
+
+            // Other subscriptions of this buffer are still active
+            if (count > 1) {
+                subscriptions.put(bufferName, count - 1);
+                return;
+            }
+        }
+
+        try {
+            sender.unsubscribe(bufferName);
         }
         catch (Exception io) {
             handleCommunicationError(io);
-            return new SimpleData(bufferName, new Date(), BufferState.FAULTED);
         }
-        finally {
-            requestSerializer.unlock();
+    }
+
+    /**
+     * Does the daemon understand the messages watching conditions?
+     *
+     * @return <tt>true</tt>, if the daemon understands these messages
+     */
+    private boolean hasConditionMessages() {
+
+        synchronized (connectionLock) {
+            return connection != null && connection.hasConditionMessages();
         }
     }
 
+    /**
+     * Watches a condition of a buffer. Instead of pushing every value change, the daemon evaluates the condition and sends
+     * an event only, if the condition becomes active or inactive. The first event reports the current status of the
+     * condition. The watch lasts until it is cancelled by <tt>{@link #unwatch(int)}</tt>, the buffer is released or the
+     * connection is lost. Watching an unknown buffer results in a single event reporting the state
+     * <tt>{@link BufferState#RELEASED}</tt>.
+     *
+     * @param bufferName the name of the buffer
+     * @param condition  the condition
+     * @param observer   the observer receiving the events
+     *
+     * @return the id of the watch, which is 0, if the daemon is too old to watch conditions or the connection to the daemon
+     *         is broken
+     */
+    public int watch(String bufferName, Condition condition, ConditionObserver observer) {
+
+        if (condition == null) throw new NullPointerException("condition is null");
+        if (observer == null) throw new NullPointerException("observer is null");
+        if (!hasConditionMessages()) return 0;
+
+        int id;
+
+        synchronized (watches) {
+            id = nextWatchId++;
+            watches.put(id, observer);
+        }
+
+        try {
+            sender.watch(bufferName, id, condition);
+        }
+        catch (Exception io) {
+            handleCommunicationError(io);
+            return 0;
+        }
+
+        return id;
+    }
+
+    /**
+     * Cancels the watch of a condition. If there is no watch with this id, this method has no effect.
+     *
+     * @param id the id of the watch
+     */
+    public void unwatch(int id) {
+
+        synchronized (watches) {
+            if (watches.remove(id) == null) return;
+        }
+
+        try {
+            sender.unwatch(id);
+        }
+        catch (Exception io) {
+            handleCommunicationError(io);
+        }
+    }
+
+    /**
+     * Sets the value to an actor assigned to this data point.
+     *
+     * @param bufferName the name of the actor buffer
+     * @param value      the new value
+     *
+     * @return the current actor value
+     *
+     * @throws IllegalStateException if the buffer isn't an actor or the actor isn't in the state <tt>{@link at.ac.tuwien.infosys.g2021.common.BufferState#READY}</tt>.
+     */
+    public SimpleData set(String bufferName, Number value) throws IllegalStateException { return await(setAsync(bufferName, value)); }
+
+    /**
+     * Sets the value to an actor without waiting for the answer of the daemon.
+     *
+     * @param bufferName the name of the actor buffer
+     * @param value      the new value
+     *
+     * @return the pending actor value, which is in the state <tt>{@link BufferState#FAULTED}</tt>, if the connection to the
+     *         daemon is broken. It completes exceptionally with an <tt>IllegalArgumentException</tt>, if the daemon rejects
+     *         the value change.
+     */
+    public CompletableFuture<SimpleData> setAsync(String bufferName, Number value) {
+
+        double newValue = value.doubleValue();
+
+        return requestAsync(s -> s.set(bufferName, newValue)).thenApply(answer -> {
+            if (answer == null) return new SimpleData(bufferName, new Date(), BufferState.FAULTED);
+            else if (answer.get() instanceof SimpleData) return answer.get();
+            else throw new IllegalArgumentException("value change rejected");
+        });
+    }
+
+    /**
+     * Sets the values of some actors.
+     *
+     * @param values the new values by buffer name
+     *
+     * @return the current actor values by buffer name. The actors, which have rejected the value change, are missing.
+     */
+    public Map<String, SimpleData> setAll(Map<String, ? extends Number> values) { return await(setAllAsync(values)); }
+
+    /**
+     * Sets the values of some actors without waiting for the answer of the daemon. All the values are sent within one request
+     * and the daemon sends all the actor values within one answer. Older daemons get a request for every value.
+     *
+     * @param values the new values by buffer name
+     *
+     * @return the pending actor values by buffer name. The actors, which have rejected the value change, are missing. If the
+     *         connection to the daemon is broken, all the values are in the state <tt>{@link BufferState#FAULTED}</tt>.
+     */
+    public CompletableFuture<Map<String, SimpleData>> setAllAsync(Map<String, ? extends Number> values) {
+
+        Map<String, Double> newValues = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Number> value : values.entrySet()) newValues.put(value.getKey(), value.getValue().doubleValue());
+
+        if (hasBulkMessages()) {
+            return requestAsync(s -> s.setAll(newValues)).thenApply(answer -> values(answer, newValues.keySet()));
+        }
+        else {
+            Map<String, CompletableFuture<SimpleData>> currentValues = new LinkedHashMap<>();
+            for (Map.Entry<String, Double> value : newValues.entrySet()) currentValues.put(value.getKey(), setAsync(value.getKey(), value.getValue()));
+            return collect(currentValues);
+        }
+    }
+
+    /**
+     * Extracts the buffer values from an answer.
+     *
+     * @param answer      the answer, which may be <tt>null</tt>
+     * @param bufferNames the names of the requested buffers
+     *
+     * @return the buffer values by buffer name
+     */
+    private static Map<String, SimpleData> values(Answer answer, Collection<String> bufferNames) {
+
+        if (answer != null && answer.get() instanceof Map) return answer.get();
+
+        // There is no answer from the daemon
+        Map<String, SimpleData> result = new LinkedHashMap<>();
+        for (String name : bufferNames) result.put(name, new SimpleData(name, new Date(), BufferState.FAULTED));
+
+        return result;
+    }
+
+    /**
+     * Collects the buffer values of some single requests. Rejected requests are ignored.
+     *
+     * @param values the pending buffer values by buffer name
+     *
+     * @return the pending buffer values by buffer name
+     */
+    private static CompletableFuture<Map<String, SimpleData>> collect(Map<String, CompletableFuture<SimpleData>> values) {
+
+        return CompletableFuture.allOf(values.values().stream()
+                                             .map(value -> value.exceptionally(e -> null))
+                                             .toArray(CompletableFuture<?>[]::new))
+                                .thenApply(v -> {
+
+                                    Map<String, SimpleData> result = new LinkedHashMap<>();
+                                    for (Map.Entry<String, CompletableFuture<SimpleData>> value : values.entrySet()) {
+                                        if (!value.getValue().isCompletedExceptionally()) result.put(value.getKey(), value.getValue().join());
+                                    }
+
+                                    return result;
+                                });
+    }
+
     /**
      * Reads the client endpoint instance.
      *
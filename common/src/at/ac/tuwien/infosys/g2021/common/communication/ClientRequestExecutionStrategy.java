@@ -1,7 +1,13 @@
 package at.ac.tuwien.infosys.g2021.common.communication;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -102,6 +108,36 @@ public interface ClientRequestExecutionStrategy {
      */
     public SimpleData bufferValue(DaemonEndpoint conn, String bufferName);
 
+    /**
+     * Returns the history of a buffer. If there are more values within the time range than requested, the values
+     * are downsampled.
+     *
+     * @param conn       the connection
+     * @param bufferName the name of the buffer
+     * @param from       the start of the time range in milliseconds since the epoch, inclusive
+     * @param to         the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints  the maximum number of values, which is 0 for no limit
+     *
+     * @return the values in the order of their timestamps or <tt>null</tt>, is no buffer with this name is known. The
+     *         history of a buffer keeping no history is empty.
+     */
+    public List<SimpleData> bufferHistory(DaemonEndpoint conn, String bufferName, long from, long to, int maxPoints);
+
+    /**
+     * Returns the aggregates of some buffers. The time range is split into consecutive time windows, and the values of
+     * every time window are summarized.
+     *
+     * @param conn        the connection
+     * @param bufferNames the names of the buffers
+     * @param from        the start of the time range in milliseconds since the epoch, inclusive
+     * @param to          the end of the time range in milliseconds since the epoch, inclusive
+     * @param window      the length of a time window in milliseconds
+     *
+     * @return the aggregates in the order of their time windows by buffer name. Unknown buffers are missing. Time windows
+     *         without any value have no aggregate.
+     */
+    public Map<String, List<Aggregate>> bufferAggregates(DaemonEndpoint conn, Collection<String> bufferNames, long from, long to, long window);
+
     /**
      * Sets the value of a buffer.
      *
@@ -122,6 +158,26 @@ public interface ClientRequestExecutionStrategy {
      * @return <tt>true</tt>, if the buffer is now released
      */
     public boolean removeBuffer(DaemonEndpoint conn, String bufferName);
-}
 
+    /**
+     * Watches a condition of a buffer. The daemon sends the current status of the condition at once and then every
+     * change of the status to <tt>{@link DaemonEndpoint#conditionChanged(ConditionEvent)}</tt>. The watch ends, if it is
+     * cancelled, the buffer is released or the connection dies. A watch with the same id is replaced.
+     *
+     * @param conn       the connection
+     * @param bufferName the name of the buffer
+     * @param id         the id of the watch chosen by the client
+     * @param condition  the condition
+     *
+     * @return <tt>true</tt>, if the buffer is watched now, <tt>false</tt>, if no buffer with this name is known
+     */
+    public boolean watch(DaemonEndpoint conn, String bufferName, int id, Condition condition);
 
+    /**
+     * Cancels the watch of a condition. If there is no watch with this id, this method has no effect.
+     *
+     * @param conn the connection
+     * @param id   the id of the watch chosen by the client
+     */
+    public void unwatch(DaemonEndpoint conn, int id);
+}
@@ -12,17 +12,29 @@ import java.util.logging.Logger;
 public final class CommunicationSettings {
 
     /** This is the current protocol version. */
-    private final static int VERSION = 1;
+    private final static int VERSION = 7;
+
+    /** This is the oldest protocol version still supported. It uses JSON messages only. */
+    private final static int LEGACY_VERSION = 1;
 
     /** This is the default port for the TCP/IP-connection to the daemon. */
     private final static int DAEMON_DEFAULT_PORT = 3449;
 
-    /** This is the timeout in milliseconds, the receiver thread will wait for the GBot thread to get ready for receiving an answer. */
-    final static long CLIENT_READY_TIMEOUT = 250L;
-
     /** This is the timeout in milliseconds, a client will wait for an answer of the buffer daemon. */
     final static long DAEMON_ANSWER_TIMEOUT = 2500L;
 
+    /** This is the default time in milliseconds, spontaneous value changes are collected before they are pushed. */
+    private final static long PUSH_WINDOW_DEFAULT = 5L;
+
+    /** This is the default number of collected value changes, which causes a push before the end of the time window. */
+    private final static int PUSH_BATCH_SIZE_DEFAULT = 64;
+
+    /** This is the default number of worker threads interpreting the client requests within an event loop. */
+    private final static int EVENT_LOOP_WORKERS_DEFAULT = 4;
+
+    /** This is the default number of threads writing the pushes to the client connections without event loop. */
+    private final static int PUSH_WRITERS_DEFAULT = 4;
+
     /** This is the logger. */
     private static final Logger LOGGER = Loggers.getLogger(CommunicationSettings.class);
 
@@ -30,6 +42,16 @@ public final class CommunicationSettings {
     private static InetAddress daemonHost = null;
     private static int daemonPort = -1;
 
+    // The collecting of spontaneous value changes.
+    private static long pushWindow = -1L;
+    private static int pushBatchSize = -1;
+
+    // The worker threads of an event loop.
+    private static int eventLoopWorkers = -1;
+
+    // The threads writing the pushes.
+    private static int pushWriters = -1;
+
     /**
      * Returns the current protocol version.
      *
@@ -37,6 +59,22 @@ public final class CommunicationSettings {
      */
     static int version() { return VERSION; }
 
+    /**
+     * Returns the oldest protocol version, which is still supported.
+     *
+     * @return the legacy protocol version
+     */
+    static int legacyVersion() { return LEGACY_VERSION; }
+
+    /**
+     * Is a protocol version supported?
+     *
+     * @param version the protocol version
+     *
+     * @return <tt>true</tt>, if connections using this protocol version are accepted
+     */
+    static boolean isSupportedVersion(int version) { return version >= LEGACY_VERSION && version <= VERSION; }
+
     /**
      * Returns the host address of the buffer daemon.
      *
@@ -104,6 +142,149 @@ public final class CommunicationSettings {
         return daemonPort;
     }
 
+    /**
+     * Returns the time in milliseconds, the daemon collects spontaneous value changes, before they are pushed to the
+     * client in one batch. A time of 0 disables the collecting. The default of 5 ms can be overridden with the system
+     * property "<tt>at.ac.tuwien.infosys.g2021.push.window</tt>".
+     *
+     * @return the time window in milliseconds
+     */
+    static long pushWindow() {
+
+        if (pushWindow < 0L) {
+
+            pushWindow = PUSH_WINDOW_DEFAULT;
+
+            // Checking for an explicit time window.
+            String property = System.getProperty("at.ac.tuwien.infosys.g2021.push.window");
+            if (property != null) {
+                try {
+                    pushWindow = Long.parseLong(property);
+                }
+                catch (NumberFormatException nfe) {
+                    LOGGER.warning(String.format("'%s' is not a valid push window. The default of %d ms will be used.", property, PUSH_WINDOW_DEFAULT));
+                }
+            }
+
+            // Checking for an valid time window.
+            if (pushWindow < 0L) {
+                LOGGER.warning(String.format("'%d' is not a valid push window. The default of %d ms will be used.", pushWindow, PUSH_WINDOW_DEFAULT));
+                pushWindow = PUSH_WINDOW_DEFAULT;
+            }
+
+            LOGGER.config(String.format("Value changes are collected for %d ms.", pushWindow));
+        }
+
+        return pushWindow;
+    }
+
+    /**
+     * Returns the number of collected value changes, which are pushed to the client immediately without waiting for the
+     * end of the time window. The default of 64 can be overridden with the system property
+     * "<tt>at.ac.tuwien.infosys.g2021.push.batchSize</tt>".
+     *
+     * @return the maximum size of a push batch
+     */
+    static int pushBatchSize() {
+
+        if (pushBatchSize < 0) {
+
+            pushBatchSize = PUSH_BATCH_SIZE_DEFAULT;
+
+            // Checking for an explicit batch size.
+            String property = System.getProperty("at.ac.tuwien.infosys.g2021.push.batchSize");
+            if (property != null) {
+                try {
+                    pushBatchSize = Integer.parseInt(property);
+                }
+                catch (NumberFormatException nfe) {
+                    LOGGER.warning(String.format("'%s' is not a valid push batch size. The default size %d will be used.", property, PUSH_BATCH_SIZE_DEFAULT));
+                }
+            }
+
+            // Checking for an valid batch size.
+            if (pushBatchSize < 1) {
+                LOGGER.warning(String.format("'%d' is not a valid push batch size. The default size %d will be used.", pushBatchSize, PUSH_BATCH_SIZE_DEFAULT));
+                pushBatchSize = PUSH_BATCH_SIZE_DEFAULT;
+            }
+
+            LOGGER.config(String.format("Up to %d value changes are pushed in one batch.", pushBatchSize));
+        }
+
+        return pushBatchSize;
+    }
+
+    /**
+     * Returns the number of worker threads, which interpret the client requests within an event loop. The default of 4 can be
+     * overridden with the system property "<tt>at.ac.tuwien.infosys.g2021.daemon.workers</tt>".
+     *
+     * @return the number of worker threads
+     */
+    static int eventLoopWorkers() {
+
+        if (eventLoopWorkers < 0) {
+
+            eventLoopWorkers = EVENT_LOOP_WORKERS_DEFAULT;
+
+            // Checking for an explicit number of workers.
+            String property = System.getProperty("at.ac.tuwien.infosys.g2021.daemon.workers");
+            if (property != null) {
+                try {
+                    eventLoopWorkers = Integer.parseInt(property);
+                }
+                catch (NumberFormatException nfe) {
+                    LOGGER.warning(String.format("'%s' is not a valid number of workers. The default of %d workers will be used.", property, EVENT_LOOP_WORKERS_DEFAULT));
+                }
+            }
+
+            // Checking for an valid number of workers.
+            if (eventLoopWorkers < 1) {
+                LOGGER.warning(String.format("'%d' is not a valid number of workers. The default of %d workers will be used.", eventLoopWorkers, EVENT_LOOP_WORKERS_DEFAULT));
+                eventLoopWorkers = EVENT_LOOP_WORKERS_DEFAULT;
+            }
+
+            LOGGER.config(String.format("The event loop uses %d worker threads.", eventLoopWorkers));
+        }
+
+        return eventLoopWorkers;
+    }
+
+    /**
+     * Returns the number of threads, which write the pushes and condition events to the client connections without event
+     * loop. These threads are shared by all such connections. The default of 4 can be overridden with the system property
+     * "<tt>at.ac.tuwien.infosys.g2021.daemon.writers</tt>".
+     *
+     * @return the number of writer threads
+     */
+    static int pushWriters() {
+
+        if (pushWriters < 0) {
+
+            pushWriters = PUSH_WRITERS_DEFAULT;
+
+            // Checking for an explicit number of writers.
+            String property = System.getProperty("at.ac.tuwien.infosys.g2021.daemon.writers");
+            if (property != null) {
+                try {
+                    pushWriters = Integer.parseInt(property);
+                }
+                catch (NumberFormatException nfe) {
+                    LOGGER.warning(String.format("'%s' is not a valid number of writers. The default of %d writers will be used.", property, PUSH_WRITERS_DEFAULT));
+                }
+            }
+
+            // Checking for an valid number of writers.
+            if (pushWriters < 1) {
+                LOGGER.warning(String.format("'%d' is not a valid number of writers. The default of %d writers will be used.", pushWriters, PUSH_WRITERS_DEFAULT));
+                pushWriters = PUSH_WRITERS_DEFAULT;
+            }
+
+            LOGGER.config(String.format("The pushes are written by %d threads.", pushWriters));
+        }
+
+        return pushWriters;
+    }
+
     /** Instances of this class are not allowed. */
     private CommunicationSettings() {}
 }
@@ -0,0 +1,17 @@
+package at.ac.tuwien.infosys.g2021.common.communication;
+
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
+
+/**
+ * Objects implementing this interface can be notified about the events of
+ * a watched condition.
+ */
+public interface ConditionObserver {
+
+    /**
+     * This is the notification, that a watched condition has become active or inactive.
+     *
+     * @param event the condition event
+     */
+    public void conditionChanged(ConditionEvent event);
+}
@@ -1,17 +1,30 @@
 package at.ac.tuwien.infosys.g2021.common.communication;
 
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
-import com.eclipsesource.json.JsonObject;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-/** This is a TCP/IP connection, which exchanges Strings containing JSON objects. */
+/**
+ * This is a TCP/IP connection, which exchanges Strings containing JSON objects. Up to the end of the protocol
+ * negotiation every message is sent with <tt>writeUTF()</tt>. If both peers agree to protocol version 2, the
+ * messages are sent as binary frames and buffer values are pushed as binary records.
+ * <p>
+ * A connection served by an <tt>{@link EventLoop}</tt> is not read with <tt>receive()</tt>. The event loop reads the
+ * incoming bytes and the messages are taken from these bytes with <tt>decode()</tt>.
+ */
 class Connection {
 
     // The logger.
@@ -23,6 +36,10 @@ class Connection {
     private DataOutputStream outputStream;
     private final Object senderLock;
 
+    // The negotiated protocol version and the binary framing used since version 2
+    private volatile int version;
+    private BinaryInterface binary;
+
     // Every connection has an id for logging reasons
     private int id;
     private static int nextId = 1;
@@ -32,6 +49,8 @@ class Connection {
     private Connection() {
 
         senderLock = new Object();
+        version = 1;
+        binary = null;
 
         // Evaluating the id
         synchronized (idLock) {
@@ -62,6 +81,30 @@ class Connection {
                                   id));
     }
 
+    /**
+     * Establishing a connection served by an event loop.
+     *
+     * @param channel the underlying non-blocking socket channel
+     * @param out     the output stream, which writes to the channel
+     *
+     * @throws java.io.IOException if the connection cannot be initialized
+     */
+    Connection(SocketChannel channel, OutputStream out) throws IOException {
+
+        this();
+        socket = channel.socket();
+
+        if (!isConnected()) throw new IOException("the socket is not connected");
+
+        inputStream = null;
+        outputStream = new DataOutputStream(out);
+
+        logger.info(String.format("The connection '%s:%d' has been established as connection #%d.",
+                                  socket.getInetAddress().toString(),
+                                  socket.getPort(),
+                                  id));
+    }
+
     /**
      * Returns the id of this connection.
      *
@@ -69,6 +112,69 @@ class Connection {
      */
     int getId() { return id; }
 
+    /**
+     * Returns the negotiated protocol version.
+     *
+     * @return the protocol version
+     */
+    int getVersion() { return version; }
+
+    /**
+     * Sets the protocol version, the peers have agreed to. Any message sent or received after this call
+     * uses the framing of this protocol version.
+     *
+     * @param v the negotiated protocol version
+     */
+    void setVersion(int v) {
+
+        synchronized (senderLock) {
+            if (v >= 2 && binary == null) binary = new BinaryInterface();
+            version = v;
+        }
+    }
+
+    /**
+     * Can buffer values be pushed as binary records?
+     *
+     * @return <tt>true</tt>, if the protocol version 2 has been negotiated
+     */
+    boolean isBinary() { return version >= 2; }
+
+    /**
+     * Does the peer understand the messages dealing with many buffers at once?
+     *
+     * @return <tt>true</tt>, if the protocol version 3 has been negotiated
+     */
+    boolean hasBulkMessages() { return version >= 3; }
+
+    /**
+     * Does the peer understand the messages reading the history of buffers?
+     *
+     * @return <tt>true</tt>, if the protocol version 4 has been negotiated
+     */
+    boolean hasHistoryMessages() { return version >= 4; }
+
+    /**
+     * Does the peer understand the messages reading the aggregates of buffers?
+     *
+     * @return <tt>true</tt>, if the protocol version 5 has been negotiated
+     */
+    boolean hasAggregateMessages() { return version >= 5; }
+
+    /**
+     * Does the peer understand the messages watching conditions?
+     *
+     * @return <tt>true</tt>, if the protocol version 6 has been negotiated
+     */
+    boolean hasConditionMessages() { return version >= 6; }
+
+    /**
+     * Does the peer understand the messages subscribing buffer value changes?
+     *
+     * @return <tt>true</tt>, if the protocol version 7 has been negotiated
+     */
+    boolean hasSubscriptions() { return version >= 7; }
+
     /**
      * Reads the underlying socket. This may be null, if the connection is in the disconnected state.
      *
@@ -115,7 +221,21 @@ class Connection {
      */
     void send(String message) throws IOException {
 
-        if (message == null) {
+        if (message == null) throw new NullPointerException("message is null");
+
+        send(Collections.singletonList(message));
+    }
+
+    /**
+     * Sending some messages to the corresponding peer. The socket is flushed once after the last message.
+     *
+     * @param messages the messages to send
+     *
+     * @throws java.io.IOException if the messages cannot be sent
+     */
+    void send(Collection<String> messages) throws IOException {
+
+        if (messages == null || messages.contains(null)) {
             throw new NullPointerException("message is null");
         }
         else if (!isConnected()) {
@@ -125,9 +245,162 @@ class Connection {
         else {
             try {
                 synchronized (senderLock) {
-                    outputStream.writeUTF(message);
+                    for (String message : messages) {
+                        if (isBinary()) binary.writeJSON(outputStream, message);
+                        else outputStream.writeUTF(message);
+                        if (logger.isLoggable(Level.FINE)) logger.fine(String.format("The message '%s' has been sent over the connection #%d.", message, getId()));
+                    }
+                    outputStream.flush();
+                }
+            }
+            catch (Exception e) {
+                logger.log(Level.WARNING, "Cannot write to the connection #" + id + ":", e);
+                disconnect();
+                throw new IOException("sending to a closed connection");
+            }
+        }
+    }
+
+    /**
+     * Pushing a buffer value as binary record to the corresponding peer. This is possible only, if the protocol version 2
+     * has been negotiated.
+     *
+     * @param value       the buffer value
+     * @param spontaneous is this message spontaneous sent
+     * @param requestId   the id of the request answered by a not spontaneous push, which is 0 for requests without id
+     *
+     * @throws java.io.IOException if the message cannot be sent
+     */
+    void sendPush(SimpleData value, boolean spontaneous, int requestId) throws IOException {
+
+        if (value == null) {
+            throw new NullPointerException("value is null");
+        }
+        else if (!isBinary()) {
+            throw new IllegalStateException("binary pushes need protocol version 2");
+        }
+        else if (!isConnected()) {
+            disconnect();
+            throw new IOException("sending to a closed connection");
+        }
+        else {
+            try {
+                synchronized (senderLock) {
+                    if (!spontaneous && requestId != 0) binary.writePushAnswer(outputStream, value, requestId);
+                    else binary.writePush(outputStream, value, spontaneous);
+                    outputStream.flush();
+                    if (logger.isLoggable(Level.FINE)) logger.fine(String.format("The value of '%s' has been pushed over the connection #%d.", value.getBufferName(), getId()));
+                }
+            }
+            catch (Exception e) {
+                logger.log(Level.WARNING, "Cannot write to the connection #" + id + ":", e);
+                disconnect();
+                throw new IOException("sending to a closed connection");
+            }
+        }
+    }
+
+    /**
+     * Pushing some spontaneous changed buffer values as one binary push batch to the corresponding peer. This is
+     * possible only, if the protocol version 2 has been negotiated.
+     *
+     * @param values the buffer values
+     *
+     * @throws java.io.IOException if the message cannot be sent
+     */
+    void sendPushBatch(Collection<SimpleData> values) throws IOException {
+
+        if (values == null || values.contains(null)) {
+            throw new NullPointerException("value is null");
+        }
+        else if (!isBinary()) {
+            throw new IllegalStateException("binary pushes need protocol version 2");
+        }
+        else if (!isConnected()) {
+            disconnect();
+            throw new IOException("sending to a closed connection");
+        }
+        else {
+            try {
+                synchronized (senderLock) {
+                    binary.writePushBatch(outputStream, values);
+                    outputStream.flush();
+                    if (logger.isLoggable(Level.FINE)) logger.fine(String.format("%d values have been pushed over the connection #%d.", values.size(), getId()));
+                }
+            }
+            catch (Exception e) {
+                logger.log(Level.WARNING, "Cannot write to the connection #" + id + ":", e);
+                disconnect();
+                throw new IOException("sending to a closed connection");
+            }
+        }
+    }
+
+    /**
+     * Sending some buffer values answering a request as one binary frame to the corresponding peer. This is possible only,
+     * if the protocol version 2 has been negotiated.
+     *
+     * @param values    the buffer values
+     * @param requestId the id of the answered request
+     *
+     * @throws java.io.IOException if the message cannot be sent
+     */
+    void sendBufferValues(Collection<SimpleData> values, int requestId) throws IOException {
+
+        if (values == null || values.contains(null)) {
+            throw new NullPointerException("value is null");
+        }
+        else if (!isBinary()) {
+            throw new IllegalStateException("binary pushes need protocol version 2");
+        }
+        else if (!isConnected()) {
+            disconnect();
+            throw new IOException("sending to a closed connection");
+        }
+        else {
+            try {
+                synchronized (senderLock) {
+                    binary.writeBufferValues(outputStream, values, requestId);
+                    outputStream.flush();
+                    if (logger.isLoggable(Level.FINE)) logger.fine(String.format("%d values have been sent over the connection #%d.", values.size(), getId()));
+                }
+            }
+            catch (Exception e) {
+                logger.log(Level.WARNING, "Cannot write to the connection #" + id + ":", e);
+                disconnect();
+                throw new IOException("sending to a closed connection");
+            }
+        }
+    }
+
+    /**
+     * Sending the history of a buffer answering a request as one binary frame to the corresponding peer. This is possible
+     * only, if the protocol version 2 has been negotiated.
+     *
+     * @param bufferName the buffer name
+     * @param values     the buffer values of the history
+     * @param requestId  the id of the answered request
+     *
+     * @throws java.io.IOException if the message cannot be sent
+     */
+    void sendBufferHistory(String bufferName, Collection<SimpleData> values, int requestId) throws IOException {
+
+        if (bufferName == null || values == null || values.contains(null)) {
+            throw new NullPointerException("value is null");
+        }
+        else if (!isBinary()) {
+            throw new IllegalStateException("binary pushes need protocol version 2");
+        }
+        else if (!isConnected()) {
+            disconnect();
+            throw new IOException("sending to a closed connection");
+        }
+        else {
+            try {
+                synchronized (senderLock) {
+                    binary.writeBufferHistory(outputStream, bufferName, values, requestId);
                     outputStream.flush();
-                    logger.fine(String.format("The message '%s' has been sent over the connection #%d.", message, getId()));
+                    if (logger.isLoggable(Level.FINE)) logger.fine(String.format("%d values of '%s' have been sent over the connection #%d.", values.size(), bufferName, getId()));
                 }
             }
             catch (Exception e) {
@@ -146,9 +419,9 @@ class Connection {
      *
      * @throws java.io.IOException if the message cannot be received
      */
-    JsonObject receive() throws IOException {
+    Message receive() throws IOException {
 
-        JsonObject result;
+        Message result;
 
         if (!isConnected()) {
             disconnect();
@@ -157,11 +430,17 @@ class Connection {
         else {
 
             try {
-                String message = inputStream.readUTF();
-                JsonInterface json = new JsonInterface();
+                if (isBinary()) {
+                    result = binary.read(inputStream);
+                    if (logger.isLoggable(Level.FINE)) logger.fine(String.format("A '%s' message has been read from the connection #%d.", result.getType(), getId()));
+                }
+                else {
+                    String message = inputStream.readUTF();
+                    JsonInterface json = new JsonInterface();
 
-                result = json.stringToJSON(message);
-                logger.fine(String.format("The JSON object '%s' has been read from the connection #%d.", message, getId()));
+                    result = new Message(json.stringToJSON(message));
+                    if (logger.isLoggable(Level.FINE)) logger.fine(String.format("The JSON object '%s' has been read from the connection #%d.", message, getId()));
+                }
             }
             catch (IOException e) {
                 // IOExceptions are rethrown
@@ -176,4 +455,69 @@ class Connection {
 
         return result;
     }
+
+    /**
+     * Takes the next message from the bytes received by an event loop. The buffer must be ready for reading. The bytes of the
+     * message are consumed. An incomplete message is left in the buffer.
+     *
+     * @param buffer the received bytes
+     *
+     * @return the message or <tt>null</tt>, if there is no complete message in the buffer
+     *
+     * @throws java.io.IOException if the message is malformed
+     */
+    Message decode(ByteBuffer buffer) throws IOException {
+
+        try {
+            while (true) {
+
+                int start = buffer.position();
+
+                if (isBinary()) {
+
+                    if (buffer.remaining() < 4) return null;
+
+                    int length = buffer.getInt(start);
+                    if (length < 1 || length > BinaryInterface.MAX_FRAME_LENGTH) throw new ProtocolException("illegal frame length " + length);
+                    if (buffer.remaining() - 4 < length) return null;
+
+                    byte[] frame = new byte[length];
+                    buffer.position(start + 4);
+                    buffer.get(frame);
+
+                    // Buffer id frames are consumed silently.
+                    Message result = binary.readFrame(new DataInputStream(new ByteArrayInputStream(frame)), length);
+                    if (result != null) {
+                        if (logger.isLoggable(Level.FINE)) logger.fine(String.format("A '%s' message has been read from the connection #%d.", result.getType(), getId()));
+                        return result;
+                    }
+                }
+                else {
+
+                    if (buffer.remaining() < 2) return null;
+
+                    int length = buffer.getShort(start) & 0xffff;
+                    if (buffer.remaining() - 2 < length) return null;
+
+                    byte[] frame = new byte[length + 2];
+                    buffer.get(frame);
+
+                    String message = new DataInputStream(new ByteArrayInputStream(frame)).readUTF();
+                    JsonInterface json = new JsonInterface();
+
+                    if (logger.isLoggable(Level.FINE)) logger.fine(String.format("The JSON object '%s' has been read from the connection #%d.", message, getId()));
+                    return new Message(json.stringToJSON(message));
+                }
+            }
+        }
+        catch (IOException e) {
+            // IOExceptions are rethrown
+            throw e;
+        }
+        catch (Exception e) {
+            // All other exceptions are treated as protocol violations
+            logger.log(Level.WARNING, "Cannot read a JSON object from the connection #" + id + ":", e);
+            throw new ProtocolException(e);
+        }
+    }
 }
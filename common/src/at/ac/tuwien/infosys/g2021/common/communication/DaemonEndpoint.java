@@ -1,14 +1,34 @@
 package at.ac.tuwien.infosys.g2021.common.communication;
 
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import at.ac.tuwien.infosys.g2021.common.BufferDescription;
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
 import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -73,98 +93,7 @@ public class DaemonEndpoint {
 
                 while (client != null && messageSender != null && !interrupted()) {
 
-                    JsonObject message = client.receive();
-                    JsonObject arguments = message.get(JsonInterface.ARGUMENTS).asObject();
-                    JsonInterface json = new JsonInterface();
-
-                    // Interpret the received message and create an answer.
-                    switch (message.get(JsonInterface.TYPE).asString()) {
-                        case JsonInterface.DISCONNECT:
-                            disconnectImmediately();
-                            break;
-
-                        case JsonInterface.ESTABLISH:
-                            if (arguments.get(JsonInterface.VERSION).asInt() == CommunicationSettings.version()) {
-                                messageSender.accepted();
-                            }
-                            else {
-                                messageSender.rejected("illegal version");
-                                disconnectImmediately();
-                            }
-                            break;
-
-                        case JsonInterface.GET:
-                            String name = arguments.get(JsonInterface.NAME).asString();
-                            if (daemon.bufferExists(DaemonEndpoint.this, name)) buffersToPush.add(name);
-                            break;
-
-                        case JsonInterface.GET_BUFFER_CONFIGURATION:
-                            BufferConfiguration configuration = daemon.bufferConfiguration(DaemonEndpoint.this, arguments.get(JsonInterface.NAME).asString());
-                            if (configuration != null) messageSender.bufferConfiguration(configuration);
-                            else messageSender.rejected("unknown buffer");
-                            break;
-
-                        case JsonInterface.GET_IMMEDIATE:
-                            SimpleData value = daemon.bufferValue(DaemonEndpoint.this, arguments.get(JsonInterface.NAME).asString());
-                            if (value != null) messageSender.push(value, false);
-                            else messageSender.rejected("unknown buffer");
-                            break;
-
-                        case JsonInterface.QUERY_BUFFER_BY_METAINFO:
-                            messageSender.bufferNames(daemon.queryBuffersByMetainfo(DaemonEndpoint.this,
-                                                                                    arguments.get(JsonInterface.TOPIC).asString(),
-                                                                                    arguments.get(JsonInterface.METAINFO).asString()));
-                            break;
-
-                        case JsonInterface.QUERY_BUFFER_BY_NAME:
-                            messageSender.bufferNames(daemon.queryBuffersByName(DaemonEndpoint.this,
-                                                                                arguments.get(JsonInterface.NAME).asString()));
-                            break;
-
-                        case JsonInterface.QUERY_METAINFO:
-                            name = arguments.get(JsonInterface.NAME).asString();
-                            configuration = daemon.bufferConfiguration(DaemonEndpoint.this, name);
-                            if (configuration != null) {
-                                messageSender.bufferMetainfo(name,
-                                                             daemon.isHardwareBuffer(DaemonEndpoint.this, name),
-                                                             configuration.getMetainfo());
-                            }
-                            else {
-                                messageSender.rejected("unknown buffer");
-                            }
-                            break;
-
-                        case JsonInterface.RELEASE_BUFFER:
-                            if (daemon.removeBuffer(DaemonEndpoint.this, arguments.get(JsonInterface.NAME).asString())) messageSender.accepted();
-                            else messageSender.rejected("unknown buffer");
-                            break;
-
-                        case JsonInterface.SET:
-                            value = daemon.setBufferValue(DaemonEndpoint.this, arguments.get(JsonInterface.NAME).asString(), arguments.get(JsonInterface.VALUE).asDouble());
-                            if (value != null) messageSender.push(value, false);
-                            else messageSender.rejected("unknown actor");
-                            break;
-
-                        case JsonInterface.SET_BUFFER_CONFIGURATION:
-                            if (daemon.setBufferConfiguration(DaemonEndpoint.this,
-                                                              arguments.get(JsonInterface.NAME).asString(),
-                                                              json.configurationFromJSON(arguments.get(JsonInterface.CONFIGURATION).asObject()),
-                                                              arguments.get(JsonInterface.CREATE).asBoolean())) {
-                                messageSender.accepted();
-                            }
-                            else {
-                                messageSender.rejected("wrong buffer configuration");
-                            }
-                            break;
-
-                        case JsonInterface.SHUTDOWN:
-                            new Killer();
-                            break;
-
-                        default:
-                            handleProtocolViolation();
-                            break;
-                    }
+                    interpret(client.receive(), client, messageSender);
 
                     client = connection;
                     messageSender = sender;
@@ -181,9 +110,68 @@ public class DaemonEndpoint {
         void shutdown() { interrupt(); }
     }
 
+    /**
+     * This inner class runs the writing tasks of one connection one after another in the shared writer threads. So a
+     * client, which doesn't read its messages, only delays its own messages.
+     */
+    private static class Writer implements Executor {
+
+        // The tasks, which are not run yet, and a flag, whether a writer thread is running them
+        private final Queue<Runnable> tasks;
+        private final AtomicBoolean active;
+
+        /** Initialization. */
+        Writer() {
+
+            tasks = new ConcurrentLinkedQueue<>();
+            active = new AtomicBoolean();
+        }
+
+        /**
+         * Runs a task after the tasks executed before.
+         *
+         * @param task the task
+         */
+        @Override
+        public void execute(Runnable task) {
+
+            tasks.add(task);
+            if (active.compareAndSet(false, true)) writers.execute(this::run);
+        }
+
+        /** Runs the tasks within a shared writer thread. */
+        private void run() {
+
+            do {
+                for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+                    try {
+                        task.run();
+                    }
+                    catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "A message cannot be written.", e);
+                    }
+                }
+
+                active.set(false);
+
+            } while (!tasks.isEmpty() && active.compareAndSet(false, true));
+        }
+    }
+
     // The logger.
     private final static Logger logger = Loggers.getLogger(DaemonEndpoint.class);
 
+    // This timer delays the values by the minimum interval of subscriptions and the push batches by the push window.
+    // It never writes to a connection itself.
+    private final static Timer timer = new Timer("push timer", true);
+
+    // The time in seconds, an idle writer thread is kept alive.
+    private final static long WRITER_KEEP_ALIVE = 10L;
+
+    // The writer threads shared by all the connections without event loop. An event loop connection never blocks while
+    // writing, so it is written by the thread producing the messages.
+    private final static ThreadPoolExecutor writers = createWriters();
+
     // The receiver thread
     private Receiver receiverThread;
 
@@ -200,14 +188,44 @@ public class DaemonEndpoint {
     // The set of buffer names, whose value changes must communicated.
     private Set<String> buffersToPush;
 
-    /** Initialisation of the endpoint instance. */
-    private DaemonEndpoint() {
+    // The persistent subscriptions of buffer value changes.
+    private Map<String, Subscription> subscriptions;
+
+    // The value changes collected for the next push batch. The latest value of a buffer wins.
+    private final Map<String, SimpleData> pushBatch;
+    private boolean flushScheduled;
+    private final AtomicBoolean flushRequested;
+
+    // Only one push batch is sent at a time. Otherwise a newer batch may overtake an older one.
+    private final Object flushLock;
+
+    // The executor of the writing tasks. It is <tt>null</tt>, if the messages are written by the producing thread.
+    private final Writer writer;
+
+    // The condition events, which are not sent yet. Unlike value changes, no event is dropped.
+    private final Queue<ConditionEvent> events;
+    private final AtomicBoolean eventsScheduled;
+
+    /**
+     * Initialisation of the endpoint instance.
+     *
+     * @param blocking <tt>true</tt>, if writing to the connection may block
+     */
+    private DaemonEndpoint(boolean blocking) {
 
         receiverThread = null;
         connection = null;
         connectionLock = new Object();
         sender = null;
         buffersToPush = Collections.synchronizedSet(new HashSet<>());
+        subscriptions = new ConcurrentHashMap<>();
+        pushBatch = new LinkedHashMap<>();
+        flushScheduled = false;
+        flushRequested = new AtomicBoolean();
+        flushLock = new Object();
+        writer = blocking ? new Writer() : null;
+        events = new ConcurrentLinkedQueue<>();
+        eventsScheduled = new AtomicBoolean();
     }
 
     /**
@@ -220,12 +238,46 @@ public class DaemonEndpoint {
      */
     public DaemonEndpoint(Socket socket, ClientRequestExecutionStrategy impl) throws IOException {
 
-        this();
+        this(true);
         this.daemon = impl;
 
         connect(socket);
     }
 
+    /**
+     * Initialisation of an endpoint instance, whose connection is read by an event loop. This endpoint has no receiver
+     * thread. The event loop passes the received messages to <tt>received()</tt>.
+     *
+     * @param c    the connection to the client
+     * @param impl the implementation of the request execution
+     */
+    DaemonEndpoint(Connection c, ClientRequestExecutionStrategy impl) {
+
+        this(false);
+        this.daemon = impl;
+
+        connection = c;
+        sender = new MessageSender(connection);
+    }
+
+    /**
+     * Creates the writer threads shared by all the connections without event loop.
+     *
+     * @return the writer threads
+     */
+    private static ThreadPoolExecutor createWriters() {
+
+        int count = CommunicationSettings.pushWriters();
+        ThreadPoolExecutor result = new ThreadPoolExecutor(count, count, WRITER_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "push writer thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        result.allowCoreThreadTimeOut(true);
+
+        return result;
+    }
+
     /**
      * Returns the connection state of this connection.
      *
@@ -268,6 +320,13 @@ public class DaemonEndpoint {
     public void disconnectImmediately() {
 
         buffersToPush.clear();
+        subscriptions.clear();
+
+        synchronized (pushBatch) {
+            pushBatch.clear();
+        }
+
+        events.clear();
 
         synchronized (connectionLock) {
             if (isConnected()) {
@@ -276,7 +335,7 @@ public class DaemonEndpoint {
                 connection.disconnect();
 
                 // Stop the receiver thread
-                receiverThread.shutdown();
+                if (receiverThread != null) receiverThread.shutdown();
 
                 // Resetting all communication components
                 receiverThread = null;
@@ -297,16 +356,8 @@ public class DaemonEndpoint {
         synchronized (connectionLock) {
             if (isConnected()) {
 
-                // Sending a disconnect - Message
-                if (!connection.getSocket().isClosed()) {
-                    try {
-                        sender.disconnect();
-                    }
-                    catch (IOException io) {
-                        // We are not able to communicate about the connection
-                        handleCommunicationError(io);
-                    }
-                }
+                // Sending the collected value changes and a disconnect - Message
+                sendDisconnect();
 
                 // wait a moment to give the peer a chance to receive this message
                 try {
@@ -323,6 +374,300 @@ public class DaemonEndpoint {
         }
     }
 
+    /**
+     * Sends the collected value changes and a disconnect message to the client. The connection stays open, so the
+     * messages can be written, before it is closed.
+     */
+    void sendDisconnect() {
+
+        synchronized (connectionLock) {
+            if (isConnected() && !connection.getSocket().isClosed()) {
+                try {
+                    flushPushBatch();
+                    sender.disconnect();
+                }
+                catch (IOException io) {
+                    // We are not able to communicate about the connection
+                    handleCommunicationError(io);
+                }
+            }
+        }
+    }
+
+    /**
+     * Interprets a received message and sends the answer.
+     *
+     * @param message       the message
+     * @param client        the connection to the client
+     * @param messageSender the message sender of this connection
+     *
+     * @throws java.io.IOException if the answer cannot be sent
+     */
+    private void interpret(Message message, Connection client, MessageSender messageSender) throws IOException {
+
+        JsonObject arguments = message.getArguments();
+        JsonInterface json = new JsonInterface();
+
+        // The answer carries the id of the request.
+        MessageSender answer = messageSender.withRequestId(message.getRequestId());
+
+        // Interpret the received message and create an answer.
+        switch (message.getType()) {
+            case JsonInterface.DISCONNECT:
+                disconnectImmediately();
+                break;
+
+            case JsonInterface.ESTABLISH:
+                int version = arguments.get(JsonInterface.VERSION).asInt();
+                if (CommunicationSettings.isSupportedVersion(version)) {
+
+                    // The answer uses the legacy framing. After that the negotiated framing is used.
+                    answer.accepted();
+                    client.setVersion(version);
+                }
+                else {
+                    answer.rejected("illegal version", CommunicationSettings.version());
+                    disconnectImmediately();
+                }
+                break;
+
+            case JsonInterface.GET:
+                String name = arguments.get(JsonInterface.NAME).asString();
+                if (daemon.bufferExists(this, name)) buffersToPush.add(name);
+                break;
+
+            case JsonInterface.GET_BUFFER_CONFIGURATION:
+                BufferConfiguration configuration = daemon.bufferConfiguration(this, arguments.get(JsonInterface.NAME).asString());
+                if (configuration != null) answer.bufferConfiguration(configuration);
+                else answer.rejected("unknown buffer");
+                break;
+
+            case JsonInterface.GET_IMMEDIATE:
+                SimpleData value = daemon.bufferValue(this, arguments.get(JsonInterface.NAME).asString());
+
+                // Collected value changes must not overtake the answer.
+                flushPushBatch();
+                if (value != null) answer.push(value, false);
+                else answer.rejected("unknown buffer");
+                break;
+
+            case JsonInterface.GET_IMMEDIATE_ALL:
+                List<SimpleData> values = new ArrayList<>();
+                for (JsonValue bufferName : arguments.get(JsonInterface.NAME).asArray()) {
+                    value = daemon.bufferValue(this, bufferName.asString());
+                    if (value != null) values.add(value);
+                }
+
+                flushPushBatch();
+                answer.bufferValues(values);
+                break;
+
+            case JsonInterface.GET_HISTORY:
+                name = arguments.get(JsonInterface.NAME).asString();
+                JsonValue maxPoints = arguments.get(JsonInterface.MAX_POINTS);
+                values = daemon.bufferHistory(this,
+                                              name,
+                                              arguments.get(JsonInterface.FROM).asLong(),
+                                              arguments.get(JsonInterface.TO).asLong(),
+                                              maxPoints == null ? 0 : maxPoints.asInt());
+
+                flushPushBatch();
+                if (values != null) answer.bufferHistory(name, values);
+                else answer.rejected("unknown buffer");
+                break;
+
+            case JsonInterface.GET_AGGREGATES:
+                List<String> bufferNames = new ArrayList<>();
+                for (JsonValue bufferName : arguments.get(JsonInterface.NAME).asArray()) bufferNames.add(bufferName.asString());
+                long window = arguments.get(JsonInterface.WINDOW).asLong();
+
+                flushPushBatch();
+                if (window > 0L) {
+                    window = BufferConfiguration.rollupWindow(window);
+                    answer.bufferAggregates(window, daemon.bufferAggregates(this,
+                                                                            bufferNames,
+                                                                            arguments.get(JsonInterface.FROM).asLong(),
+                                                                            arguments.get(JsonInterface.TO).asLong(),
+                                                                            window));
+                }
+                else {
+                    answer.rejected("illegal window");
+                }
+                break;
+
+            case JsonInterface.QUERY_BUFFER_BY_METAINFO:
+                Set<String> names = daemon.queryBuffersByMetainfo(this,
+                                                                  arguments.get(JsonInterface.TOPIC).asString(),
+                                                                  arguments.get(JsonInterface.METAINFO).asString());
+                if (isTrue(arguments.get(JsonInterface.DESCRIBE))) answer.bufferDescriptions(describe(names));
+                else answer.bufferNames(names);
+                break;
+
+            case JsonInterface.QUERY_BUFFER_BY_NAME:
+                names = daemon.queryBuffersByName(this, arguments.get(JsonInterface.NAME).asString());
+                if (isTrue(arguments.get(JsonInterface.DESCRIBE))) answer.bufferDescriptions(describe(names));
+                else answer.bufferNames(names);
+                break;
+
+            case JsonInterface.QUERY_METAINFO:
+                name = arguments.get(JsonInterface.NAME).asString();
+                configuration = daemon.bufferConfiguration(this, name);
+                if (configuration != null) {
+                    answer.bufferMetainfo(name,
+                                          daemon.isHardwareBuffer(this, name),
+                                          configuration.getMetainfo());
+                }
+                else {
+                    answer.rejected("unknown buffer");
+                }
+                break;
+
+            case JsonInterface.RELEASE_BUFFER:
+                boolean removed = daemon.removeBuffer(this, arguments.get(JsonInterface.NAME).asString());
+
+                flushPushBatch();
+                if (removed) answer.accepted();
+                else answer.rejected("unknown buffer");
+                break;
+
+            case JsonInterface.SET:
+                value = daemon.setBufferValue(this, arguments.get(JsonInterface.NAME).asString(), arguments.get(JsonInterface.VALUE).asDouble());
+
+                flushPushBatch();
+                if (value != null) answer.push(value, false);
+                else answer.rejected("unknown actor");
+                break;
+
+            case JsonInterface.SET_ALL:
+                values = new ArrayList<>();
+                for (JsonValue v : arguments.get(JsonInterface.VALUES).asArray()) {
+                    JsonObject change = v.asObject();
+                    value = daemon.setBufferValue(this, change.get(JsonInterface.NAME).asString(), change.get(JsonInterface.VALUE).asDouble());
+                    if (value != null) values.add(value);
+                }
+
+                flushPushBatch();
+                answer.bufferValues(values);
+                break;
+
+            case JsonInterface.SET_BUFFER_CONFIGURATION:
+                boolean updated = daemon.setBufferConfiguration(this,
+                                                                arguments.get(JsonInterface.NAME).asString(),
+                                                                json.configurationFromJSON(arguments.get(JsonInterface.CONFIGURATION).asObject()),
+                                                                arguments.get(JsonInterface.CREATE).asBoolean());
+
+                flushPushBatch();
+                if (updated) {
+                    answer.accepted();
+                }
+                else {
+                    answer.rejected("wrong buffer configuration");
+                }
+                break;
+
+            case JsonInterface.SHUTDOWN:
+                new Killer();
+                break;
+
+            case JsonInterface.SUBSCRIBE:
+                name = arguments.get(JsonInterface.NAME).asString();
+                if (daemon.bufferExists(this, name)) {
+                    JsonValue minInterval = arguments.get(JsonInterface.MIN_INTERVAL);
+                    JsonValue deadband = arguments.get(JsonInterface.DEADBAND);
+                    subscribe(name,
+                              new Subscription(minInterval == null ? 0L : minInterval.asLong(),
+                                               deadband == null ? 0.0 : deadband.asDouble()));
+                }
+                break;
+
+            case JsonInterface.UNSUBSCRIBE:
+                subscriptions.remove(arguments.get(JsonInterface.NAME).asString());
+                break;
+
+            case JsonInterface.UNWATCH:
+                daemon.unwatch(this, arguments.get(JsonInterface.CONDITION_ID).asInt());
+                break;
+
+            case JsonInterface.WATCH:
+                name = arguments.get(JsonInterface.NAME).asString();
+                int id = arguments.get(JsonInterface.CONDITION_ID).asInt();
+                Condition condition;
+
+                try {
+                    condition = json.conditionFromJSON(arguments.get(JsonInterface.CONDITION).asObject());
+                }
+                catch (IllegalArgumentException e) {
+                    handleProtocolViolation();
+                    break;
+                }
+
+                // The watch of an unknown buffer ends at once, as if the buffer had been released.
+                if (!daemon.watch(this, name, id, condition)) {
+                    conditionChanged(new ConditionEvent(id, new SimpleData(name, System.currentTimeMillis(), BufferState.RELEASED), false));
+                }
+                break;
+
+            default:
+                handleProtocolViolation();
+                break;
+        }
+    }
+
+    /**
+     * Is an optional boolean argument set?
+     *
+     * @param argument the argument, which may be <tt>null</tt>
+     *
+     * @return <tt>true</tt>, if the argument is present and <tt>true</tt>
+     */
+    private static boolean isTrue(JsonValue argument) { return argument != null && argument.isTrue(); }
+
+    /**
+     * Describes some buffers. Buffers removed in the meantime are ignored.
+     *
+     * @param names the buffer names
+     *
+     * @return the buffer descriptions
+     */
+    private List<BufferDescription> describe(Collection<String> names) {
+
+        List<BufferDescription> result = new ArrayList<>(names.size());
+
+        for (String name : names) {
+            BufferConfiguration configuration = daemon.bufferConfiguration(this, name);
+            if (configuration != null) result.add(new BufferDescription(name, daemon.isHardwareBuffer(this, name), configuration.getMetainfo()));
+        }
+
+        return result;
+    }
+
+    /**
+     * A message has been received by an event loop.
+     *
+     * @param message the message
+     *
+     * @throws java.io.IOException if the answer cannot be sent
+     */
+    void received(Message message) throws IOException {
+
+        // A local copy of the connection to be thread-safe
+        Connection client = connection;
+        MessageSender messageSender = sender;
+
+        if (client != null && messageSender != null) interpret(message, client, messageSender);
+    }
+
+    /**
+     * An event loop cannot read from the connection any more.
+     *
+     * @param e the causing exception
+     */
+    void receiveFailed(Exception e) {
+
+        // An understandable exception, if the connection was closed.
+        if (connection != null) handleCommunicationError(e);
+    }
+
     /** A protocol violation has occurred. The connection will be closed. */
     private void handleProtocolViolation() {
 
@@ -352,7 +697,152 @@ public class DaemonEndpoint {
      *
      * @param name the buffer name
      */
-    public void forgetBuffer(String name) { buffersToPush.remove(name); }
+    public void forgetBuffer(String name) {
+
+        buffersToPush.remove(name);
+        subscriptions.remove(name);
+    }
+
+    /**
+     * Registers a subscription and pushes the current buffer value. The push of the current value
+     * ensures, that no value change is lost between the last query and the subscription.
+     *
+     * @param name         the buffer name
+     * @param subscription the subscription
+     */
+    private void subscribe(String name, Subscription subscription) {
+
+        // Spontaneous value changes of this buffer must wait until the current value is pushed.
+        synchronized (subscription) {
+            subscriptions.put(name, subscription);
+
+            SimpleData value = daemon.bufferValue(this, name);
+            if (value != null && subscription.accept(value, System.currentTimeMillis()) == Subscription.Action.PUSH) push(value);
+        }
+    }
+
+    /**
+     * Pushes a value change to the client. The value change is collected with other value changes. They are pushed
+     * together at the end of the push window or if the batch is full. This method doesn't wait for the client.
+     *
+     * @param value the new value
+     */
+    private void push(SimpleData value) {
+
+        boolean flush;
+        boolean schedule = false;
+
+        synchronized (pushBatch) {
+            pushBatch.put(value.getBufferName(), value);
+
+            flush = CommunicationSettings.pushWindow() == 0L || pushBatch.size() >= CommunicationSettings.pushBatchSize();
+            if (!flush && !flushScheduled) {
+                flushScheduled = true;
+                schedule = true;
+            }
+        }
+
+        if (flush) {
+            requestFlush();
+        }
+        else if (schedule) {
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() { requestFlush(); }
+            }, CommunicationSettings.pushWindow());
+        }
+    }
+
+    /** Pushes the collected value changes, if this is not requested already. */
+    private void requestFlush() {
+
+        if (flushRequested.compareAndSet(false, true)) write(this::flushPushBatch);
+    }
+
+    /**
+     * Runs a writing task. Without event loop, it is run by a shared writer thread after the writing tasks of this
+     * connection executed before. Otherwise it is run immediately, because writing doesn't block.
+     *
+     * @param task the writing task
+     */
+    private void write(Runnable task) {
+
+        if (writer != null) writer.execute(task);
+        else task.run();
+    }
+
+    /**
+     * Handles a failed write. A condition event may be written by the thread, which has locked the buffer. Closing the
+     * connection locks other buffers, so this is done by the timer thread, if the message was written immediately.
+     *
+     * @param error the causing exception
+     */
+    private void writeFailed(IOException error) {
+
+        if (writer != null) {
+            handleCommunicationError(error);
+        }
+        else {
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() { handleCommunicationError(error); }
+            }, 0L);
+        }
+    }
+
+    /** Pushes the collected value changes to the client. */
+    private void flushPushBatch() {
+
+        IOException error = null;
+
+        synchronized (flushLock) {
+
+            List<SimpleData> values;
+            MessageSender currentSender = sender;
+
+            // Value changes collected from now on are pushed by the next flush. The batch is not locked while it is sent,
+            // so collecting value changes never waits for the client.
+            flushRequested.set(false);
+            synchronized (pushBatch) {
+                values = new ArrayList<>(pushBatch.values());
+                pushBatch.clear();
+                flushScheduled = false;
+            }
+
+            if (currentSender != null && !values.isEmpty()) {
+                try {
+                    currentSender.pushBatch(values);
+                }
+                catch (IOException e) {
+                    error = e;
+                }
+            }
+        }
+
+        // We are not able to communicate about the connection
+        if (error != null) writeFailed(error);
+    }
+
+    /**
+     * Schedules the push of a value change, which is delayed by the minimum interval of a subscription.
+     *
+     * @param name         the buffer name
+     * @param subscription the subscription
+     */
+    private void scheduleTrailingPush(String name, Subscription subscription) {
+
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+
+                // The subscription may be cancelled in the meantime.
+                synchronized (subscription) {
+                    SimpleData value = subscription.takePending(System.currentTimeMillis());
+                    if (value != null && subscriptions.get(name) == subscription) push(value);
+                }
+            }
+        }, subscription.remainingInterval(System.currentTimeMillis()));
+    }
 
     /**
      * A spontaneous value change has occurred.
@@ -361,18 +851,76 @@ public class DaemonEndpoint {
      */
     public void spontaneousValueChange(SimpleData value) {
 
-        MessageSender currentSender = sender;
+        if (sender == null) return;
 
-        if (currentSender != null && buffersToPush.remove(value.getBufferName())) {
-            try {
-                currentSender.push(value, true);
-            }
-            catch (IOException e) {
-                // We are not able to communicate about the connection
-                handleCommunicationError(e);
+        String name = value.getBufferName();
+        boolean requested = buffersToPush.remove(name);
+        Subscription subscription = subscriptions.get(name);
+
+        if (subscription != null) {
+            synchronized (subscription) {
+                switch (subscription.accept(value, System.currentTimeMillis())) {
+                    case PUSH:
+                        push(value);
+                        requested = false;
+                        break;
+
+                    case SCHEDULE:
+                        scheduleTrailingPush(name, subscription);
+                        break;
+
+                    default:
+                        break;
+                }
             }
+
+            // A released buffer will not change any more.
+            if (value.getState() == BufferState.RELEASED) subscriptions.remove(name, subscription);
         }
+
+        if (requested) push(value);
     }
-}
 
+    /**
+     * A watched condition has become active or inactive. This method doesn't block, so it may be called while the
+     * buffer is locked. The events are sent in the order of their arrival.
+     *
+     * @param event the condition event
+     */
+    public void conditionChanged(ConditionEvent event) {
+
+        if (sender == null) return;
+
+        events.add(event);
+        if (eventsScheduled.compareAndSet(false, true)) write(this::sendEvents);
+    }
+
+    /** Sends the condition events to the client. */
+    private void sendEvents() {
+
+        IOException error = null;
+
+        // Written immediately, the events of different threads must not overtake each other.
+        synchronized (events) {
+
+            List<ConditionEvent> list = new ArrayList<>();
+            MessageSender currentSender = sender;
+
+            // Events added from now on are sent by the next writing task.
+            eventsScheduled.set(false);
+            for (ConditionEvent event = events.poll(); event != null; event = events.poll()) list.add(event);
+
+            if (currentSender != null && !list.isEmpty()) {
+                try {
+                    currentSender.conditionEvents(list);
+                }
+                catch (IOException e) {
+                    error = e;
+                }
+            }
+        }
 
+        // We are not able to communicate about the connection
+        if (error != null) writeFailed(error);
+    }
+}
@@ -0,0 +1,532 @@
+package at.ac.tuwien.infosys.g2021.common.communication;
+
+import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * This is an event loop serving all the client connections of the buffer daemon. It is an alternative to the
+ * thread-per-connection model, where every <tt>{@link DaemonEndpoint}</tt> reads its connection with its own receiver thread.
+ * </p>
+ * <p>
+ * A single selector thread accepts new connections, reads the incoming bytes into direct buffers and writes the outgoing
+ * bytes, which could not be written immediately. The received messages are interpreted by a small pool of worker threads.
+ * The messages of one connection are interpreted one after another in the order of their arrival.
+ * </p>
+ */
+public class EventLoop {
+
+    /** This inner class is a client connection served by the event loop. It is also the output stream of the connection. */
+    private class Client extends OutputStream {
+
+        // The channel and its registration at the selector
+        private final SocketChannel channel;
+        private SelectionKey key;
+
+        // The connection and the endpoint of this client
+        private Connection connection;
+        private DaemonEndpoint endpoint;
+
+        // The received bytes, which are not interpreted yet
+        private ByteBuffer input;
+        private final Object inputLock;
+
+        // The bytes to send, which could not be written yet
+        private ByteBuffer output;
+        private boolean writeRequested;
+
+        // Is a worker interpreting the received bytes and are there any bytes received in the meantime?
+        private final AtomicBoolean scheduled;
+        private volatile boolean received;
+
+        // The reason, why the channel cannot be read any more
+        private volatile Exception failure;
+
+        /**
+         * Initialization.
+         *
+         * @param c the channel of the client
+         */
+        Client(SocketChannel c) {
+
+            channel = c;
+            key = null;
+            connection = null;
+            endpoint = null;
+            input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            inputLock = new Object();
+            output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            writeRequested = false;
+            scheduled = new AtomicBoolean(false);
+            received = false;
+            failure = null;
+        }
+
+        /** Reads the available bytes and lets a worker interpret them. This is done by the selector thread. */
+        void read() {
+
+            try {
+                int count;
+
+                synchronized (inputLock) {
+                    if (!input.hasRemaining()) input = grow(input, 1);
+                    count = channel.read(input);
+                }
+
+                if (count < 0) throw new EOFException("the client has closed the connection");
+            }
+            catch (IOException e) {
+                failed(e);
+            }
+
+            received = true;
+            if (scheduled.compareAndSet(false, true)) workers.execute(this::interpret);
+        }
+
+        /** Writes the pending bytes. This is done by the selector thread. */
+        synchronized void writable() {
+
+            try {
+                writeOutput();
+                if (output.position() == 0) {
+                    writeRequested = false;
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+            catch (IOException e) {
+                failed(e);
+                if (scheduled.compareAndSet(false, true)) workers.execute(this::interpret);
+            }
+        }
+
+        /**
+         * The channel cannot be used any more.
+         *
+         * @param e the causing exception
+         */
+        private void failed(Exception e) {
+
+            failure = e;
+            key.cancel();
+        }
+
+        /** Interprets the received messages. This is done by a worker thread. */
+        private void interpret() {
+
+            do {
+                received = false;
+
+                try {
+                    Message message;
+                    while ((message = next()) != null) endpoint.received(message);
+
+                    // All the messages received before a failure are interpreted.
+                    Exception e = failure;
+                    if (e != null) {
+                        failure = null;
+                        endpoint.receiveFailed(e);
+                    }
+                }
+                catch (Exception e) {
+                    endpoint.receiveFailed(e);
+                }
+
+                scheduled.set(false);
+
+            } while (received && scheduled.compareAndSet(false, true));
+        }
+
+        /**
+         * Takes the next complete message from the received bytes.
+         *
+         * @return the message or <tt>null</tt>, if there is no complete message received
+         *
+         * @throws java.io.IOException if the message is malformed
+         */
+        private Message next() throws IOException {
+
+            if (!connection.isConnected()) return null;
+
+            synchronized (inputLock) {
+                input.flip();
+                try {
+                    return connection.decode(input);
+                }
+                finally {
+                    input.compact();
+                }
+            }
+        }
+
+        /**
+         * Writing a single byte.
+         *
+         * @param b the byte
+         *
+         * @throws java.io.IOException if the client does not read its messages
+         */
+        @Override
+        public synchronized void write(int b) throws IOException {
+
+            reserve(1);
+            output.put((byte)b);
+        }
+
+        /**
+         * Writing some bytes.
+         *
+         * @param b   the bytes
+         * @param off the start offset
+         * @param len the number of bytes to write
+         *
+         * @throws java.io.IOException if the client does not read its messages
+         */
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+
+            reserve(len);
+            output.put(b, off, len);
+        }
+
+        /**
+         * Writes as many bytes as possible to the channel. The remaining bytes are written by the selector thread,
+         * if the channel is ready for writing.
+         *
+         * @throws java.io.IOException if writing fails
+         */
+        @Override
+        public synchronized void flush() throws IOException {
+
+            writeOutput();
+
+            if (output.position() > 0 && !writeRequested) {
+                writeRequested = true;
+                execute(() -> {
+                    if (key.isValid()) key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                });
+            }
+        }
+
+        /**
+         * Writes the pending bytes to the channel, as long as the channel accepts them.
+         *
+         * @throws java.io.IOException if writing fails
+         */
+        private void writeOutput() throws IOException {
+
+            output.flip();
+            try {
+                channel.write(output);
+            }
+            finally {
+                output.compact();
+            }
+        }
+
+        /**
+         * Are there any bytes to send, which could not be written yet?
+         *
+         * @return <tt>true</tt>, if there are bytes to send and the channel is still usable
+         */
+        synchronized boolean hasOutput() { return output.position() > 0 && key.isValid(); }
+
+        /**
+         * Reserves space for some bytes in the output buffer.
+         *
+         * @param count the number of bytes
+         *
+         * @throws java.io.IOException if the client does not read its messages
+         */
+        private void reserve(int count) throws IOException {
+
+            if (output.remaining() < count) output = grow(output, count);
+        }
+    }
+
+    // The logger.
+    private final static Logger logger = Loggers.getLogger(EventLoop.class);
+
+    // The initial size of the buffers of a connection.
+    private final static int BUFFER_SIZE = 8192;
+
+    // The maximum size of the buffers of a connection. A client sending larger messages or not reading its messages is disconnected.
+    private final static int MAX_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    // The time in milliseconds, the last messages are written to the clients, if the event loop is closed.
+    private final static long CLOSE_TIMEOUT = 1000L;
+
+    // The server channel and the selector
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+
+    // The selector thread and the tasks, it has to execute
+    private final Thread selectorThread;
+    private final Queue<Runnable> tasks;
+    private volatile boolean running;
+
+    // The worker threads
+    private final ExecutorService workers;
+
+    // The creation of the request execution strategies and the observer of new endpoints
+    private final Supplier<ClientRequestExecutionStrategy> strategies;
+    private final Consumer<DaemonEndpoint> endpoints;
+
+    /**
+     * Starts listening for client connections.
+     *
+     * @param port       the port to listen at
+     * @param strategies creates the implementation of the request execution for a new connection
+     * @param endpoints  is notified about every new endpoint
+     *
+     * @throws java.io.IOException if the server channel cannot be opened
+     */
+    public EventLoop(int port, Supplier<ClientRequestExecutionStrategy> strategies, Consumer<DaemonEndpoint> endpoints) throws IOException {
+
+        this.strategies = strategies;
+        this.endpoints = endpoints;
+
+        tasks = new ConcurrentLinkedQueue<>();
+        running = true;
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+
+        selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        workers = Executors.newFixedThreadPool(CommunicationSettings.eventLoopWorkers(), r -> {
+            Thread worker = new Thread(r, "event loop worker thread");
+            worker.setDaemon(true);
+            return worker;
+        });
+
+        selectorThread = new Thread(this::run, "event loop thread");
+        selectorThread.start();
+    }
+
+    /**
+     * Returns the port, this event loop is listening at.
+     *
+     * @return the local port
+     */
+    public int getLocalPort() { return serverChannel.socket().getLocalPort(); }
+
+    /**
+     * Stops listening for client connections and closes all the connections. The collected value changes and a
+     * disconnect message are sent to every client before. They are written as long as the clients read them within
+     * a second.
+     */
+    public void close() {
+
+        running = false;
+        selector.wakeup();
+
+        try {
+            selectorThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            serverChannel.close();
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to close the server channel.", e);
+        }
+
+        List<Client> clients = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Client && ((Client)attachment).endpoint != null) clients.add((Client)attachment);
+        }
+
+        for (Client client : clients) client.endpoint.sendDisconnect();
+        drain(clients);
+
+        for (Client client : clients) {
+            client.endpoint.disconnectImmediately();
+
+            try {
+                client.channel.close();
+            }
+            catch (IOException e) {
+                // Nothing more to do.
+            }
+        }
+
+        try {
+            selector.close();
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to close the selector.", e);
+        }
+
+        workers.shutdown();
+    }
+
+    /**
+     * Writes the pending bytes of closing clients. This is done by the closing thread after the selector thread has
+     * terminated.
+     *
+     * @param clients the clients
+     */
+    private void drain(List<Client> clients) {
+
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT;
+
+        try {
+            while (clients.stream().anyMatch(Client::hasOutput)) {
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0L) break;
+
+                // The clients with pending bytes have requested to be written.
+                Runnable task;
+                while ((task = tasks.poll()) != null) task.run();
+
+                selector.select(remaining);
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    try {
+                        if (key.isValid() && key.isWritable() && key.attachment() instanceof Client) ((Client)key.attachment()).writable();
+                    }
+                    catch (CancelledKeyException e) {
+                        // The connection has been closed in the meantime.
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "The last messages cannot be written to the clients.", e);
+        }
+    }
+
+    /**
+     * Executes a task within the selector thread.
+     *
+     * @param task the task
+     */
+    private void execute(Runnable task) {
+
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Enlarges a buffer.
+     *
+     * @param buffer the buffer ready for putting bytes
+     * @param count  the number of additional bytes needed
+     *
+     * @return the new buffer ready for putting bytes
+     *
+     * @throws java.io.IOException if the buffer would exceed the maximum size
+     */
+    private static ByteBuffer grow(ByteBuffer buffer, int count) throws IOException {
+
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + count);
+        if (capacity > MAX_BUFFER_SIZE) throw new ProtocolException("the buffer size limit is exceeded");
+
+        ByteBuffer result = ByteBuffer.allocateDirect(capacity);
+        buffer.flip();
+        result.put(buffer);
+
+        return result;
+    }
+
+    /** The implementation of the selector thread. */
+    private void run() {
+
+        logger.fine("The event loop is started.");
+
+        while (running) {
+            try {
+                selector.select();
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) task.run();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        }
+                        else {
+                            Client client = (Client)key.attachment();
+                            if (key.isWritable()) client.writable();
+                            if (key.isValid() && key.isReadable()) client.read();
+                        }
+                    }
+                    catch (CancelledKeyException e) {
+                        // The connection has been closed in the meantime.
+                    }
+                }
+            }
+            catch (IOException e) {
+                if (running) logger.log(Level.WARNING, "The event loop cannot wait for ready connections.", e);
+            }
+        }
+
+        logger.fine("The event loop terminates now.");
+    }
+
+    /** Accepts an incoming connection. */
+    private void accept() {
+
+        SocketChannel channel = null;
+
+        try {
+            channel = serverChannel.accept();
+            if (channel == null) return;
+
+            channel.configureBlocking(false);
+
+            Client client = new Client(channel);
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            client.connection = new Connection(channel, client);
+            client.endpoint = new DaemonEndpoint(client.connection, strategies.get());
+
+            endpoints.accept(client.endpoint);
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Establishing an incoming connection has failed.", e);
+
+            try {
+                if (channel != null) channel.close();
+            }
+            catch (IOException ioe) {
+                // Nothing more to do.
+            }
+        }
+    }
+}
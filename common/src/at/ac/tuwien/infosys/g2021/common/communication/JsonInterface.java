@@ -4,15 +4,19 @@ import at.ac.tuwien.infosys.g2021.common.ActorGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.AdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.BufferClass;
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import at.ac.tuwien.infosys.g2021.common.Condition;
 import at.ac.tuwien.infosys.g2021.common.DummyAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.DummyGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.FilteringAdapterConfiguration;
+import at.ac.tuwien.infosys.g2021.common.FormulaGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.GathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.LowpassAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.ScalingAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.SensorGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.TestGathererConfiguration;
+import at.ac.tuwien.infosys.g2021.common.ThrottlingAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.TriggeringAdapterConfiguration;
+import at.ac.tuwien.infosys.g2021.common.WindowAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.util.NotYetImplementedError;
 import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
@@ -28,40 +32,79 @@ final class JsonInterface {
 
     // All the property names.
     final static String ACCEPTED = "accepted";
+    final static String ACTIVE = "active";
     final static String ADAPTER = "adapter";
+    final static String AGGREGATES = "aggregates";
     final static String ARGUMENTS = "arguments";
+    final static String AVERAGE = "average";
     final static String BUFFER = "buffer";
+    final static String BUFFER_AGGREGATES = "bufferAggregates";
     final static String BUFFER_CONFIGURATION = "bufferConfiguration";
+    final static String BUFFER_DESCRIPTIONS = "bufferDescriptions";
+    final static String BUFFER_HISTORY = "bufferHistory";
     final static String BUFFER_NAMES = "bufferNames";
     final static String BUFFER_METAINFO = "bufferMetainfo";
+    final static String BUFFER_VALUES = "bufferValues";
+    final static String CONDITION = "condition";
+    final static String CONDITION_ID = "conditionId";
     final static String CONFIGURATION = "configuration";
+    final static String COUNT = "count";
     final static String CREATE = "create";
+    final static String DEADBAND = "deadband";
+    final static String DESCRIBE = "describe";
+    final static String DESCRIPTIONS = "descriptions";
     final static String DISCONNECT = "disconnect";
     final static String ESTABLISH = "establish";
+    final static String EVENT = "event";
+    final static String EXPRESSION = "expression";
+    final static String FROM = "from";
     final static String GATHERER = "gatherer";
     final static String GET = "get";
+    final static String GET_AGGREGATES = "getAggregates";
     final static String GET_BUFFER_CONFIGURATION = "getBufferConfiguration";
+    final static String GET_HISTORY = "getHistory";
     final static String GET_IMMEDIATE = "getImmediate";
+    final static String GET_IMMEDIATE_ALL = "getImmediateAll";
+    final static String HISTORY = "history";
+    final static String HYSTERESIS = "hysteresis";
     final static String IS_HARDWARE = "isHardware";
+    final static String LOWER = "lower";
+    final static String MAX = "max";
+    final static String MAX_POINTS = "maxPoints";
     final static String METAINFO = "metainfo";
+    final static String MIN = "min";
+    final static String MIN_INTERVAL = "minInterval";
     final static String NAME = "name";
     final static String PUSH = "push";
+    final static String PUSH_BATCH = "pushBatch";
     final static String QUERY_BUFFER_BY_METAINFO = "queryBufferByMetainfo";
     final static String QUERY_BUFFER_BY_NAME = "queryBufferByName";
     final static String QUERY_METAINFO = "queryMetainfo";
     final static String REASON = "reason";
     final static String REJECTED = "rejected";
     final static String RELEASE_BUFFER = "releaseBuffer";
+    final static String ROLLUPS = "rollups";
+    final static String REQUEST_ID = "id";
     final static String SET = "set";
+    final static String SET_ALL = "setAll";
     final static String SET_BUFFER_CONFIGURATION = "setBufferConfiguration";
     final static String SHUTDOWN = "shutdown";
     final static String SPONTANEOUS = "spontaneous";
     final static String STATE = "state";
+    final static String STATE_CHANGE = "stateChange";
+    final static String SUBSCRIBE = "subscribe";
     final static String TIMESTAMP = "timestamp";
+    final static String TO = "to";
     final static String TOPIC = "topic";
     final static String TYPE = "type";
+    final static String UNSUBSCRIBE = "unsubscribe";
+    final static String UNWATCH = "unwatch";
+    final static String UPPER = "upper";
     final static String VALUE = "value";
+    final static String VALUES = "values";
     final static String VERSION = "version";
+    final static String WATCH = "watch";
+    final static String WINDOW = "window";
 
     /**
      * Converts a JSON object into its string representation.
@@ -129,6 +172,12 @@ final class JsonInterface {
         JsonObject buffer = configuration.get(BUFFER).asObject();
         result.setBufferClass(BufferClass.valueOf(buffer.get(TYPE).asString()));
 
+        JsonValue history = buffer.get(HISTORY);
+        if (history != null) result.setHistoryCapacity(history.asInt());
+
+        JsonValue rollups = buffer.get(ROLLUPS);
+        if (rollups != null) result.setRollupCapacity(rollups.asInt());
+
         // Converting the adapter settings
         JsonArray adapters = configuration.get(ADAPTER).asArray();
         for (JsonValue a : adapters.values()) {
@@ -158,7 +207,21 @@ final class JsonInterface {
                     break;
 
                 case "FILTER":
-                    result.getAdapterChain().add(new LowpassAdapterConfiguration(adapter.get("minimumDifference").asDouble()));
+                    result.getAdapterChain().add(new FilteringAdapterConfiguration(adapter.get("minimumDifference").asDouble()));
+                    break;
+
+                case "THROTTLE":
+                    result.getAdapterChain().add(new ThrottlingAdapterConfiguration(adapter.getLong("minimumInterval", 0L),
+                                                                                    adapter.getLong("maximumSilence", 0L),
+                                                                                    adapter.getDouble("deadband", 0.0)));
+                    break;
+
+                case "WINDOW":
+                    result.getAdapterChain().add(
+                            new WindowAdapterConfiguration(WindowAdapterConfiguration.Function.valueOf(adapter.get("function").asString()),
+                                                           adapter.getLong("windowTime", 0L),
+                                                           adapter.getInt("windowCount", 0),
+                                                           adapter.getLong("emitInterval", 0L)));
                     break;
 
                 default:
@@ -185,6 +248,10 @@ final class JsonInterface {
                 result.setGatherer(new SensorGathererConfiguration(gatherer.get(NAME).asString()));
                 break;
 
+            case "FORMULA":
+                result.setGatherer(new FormulaGathererConfiguration(gatherer.get(EXPRESSION).asString()));
+                break;
+
             default:
                 throw new NotYetImplementedError("unknown gatherer class received");
         }
@@ -213,6 +280,8 @@ final class JsonInterface {
         JsonObject buffer = new JsonObject();
         result.add(BUFFER, buffer);
         buffer.add(TYPE, configuration.getBufferClass().name());
+        if (configuration.getHistoryCapacity() > 0) buffer.add(HISTORY, configuration.getHistoryCapacity());
+        if (configuration.getRollupCapacity() > 0) buffer.add(ROLLUPS, configuration.getRollupCapacity());
 
         // Converting the info about the gatherer.
         GathererConfiguration gathererConfiguration = configuration.getGatherer();
@@ -235,6 +304,10 @@ final class JsonInterface {
                 gatherer.add(NAME, ((SensorGathererConfiguration)gathererConfiguration).getPortName());
                 break;
 
+            case FORMULA:
+                gatherer.add(EXPRESSION, ((FormulaGathererConfiguration)gathererConfiguration).getExpression());
+                break;
+
             default:
                 throw new NotYetImplementedError("unknown gatherer class: " + gathererConfiguration.kindOfGatherer());
         }
@@ -285,6 +358,29 @@ final class JsonInterface {
                     adapterObject.add("minimumDifference", filteringAdapterConfiguration.getMinimumDifference());
                     break;
 
+                case THROTTLE:
+
+                    ThrottlingAdapterConfiguration throttlingAdapterConfiguration = (ThrottlingAdapterConfiguration)adapter;
+
+                    adapterObject.add("minimumInterval", throttlingAdapterConfiguration.getMinimumInterval());
+                    adapterObject.add("maximumSilence", throttlingAdapterConfiguration.getMaximumSilence());
+                    adapterObject.add("deadband", throttlingAdapterConfiguration.getDeadband());
+                    break;
+
+                case WINDOW:
+
+                    WindowAdapterConfiguration windowAdapterConfiguration = (WindowAdapterConfiguration)adapter;
+
+                    adapterObject.add("function", windowAdapterConfiguration.getFunction().name());
+                    if (windowAdapterConfiguration.getWindowCount() > 0) {
+                        adapterObject.add("windowCount", windowAdapterConfiguration.getWindowCount());
+                    }
+                    else {
+                        adapterObject.add("windowTime", windowAdapterConfiguration.getWindowTime());
+                    }
+                    adapterObject.add("emitInterval", windowAdapterConfiguration.getEmitInterval());
+                    break;
+
                 default:
                     throw new NotYetImplementedError("unknown adapter class: " + adapter.kindOfAdapter());
             }
@@ -350,6 +446,47 @@ final class JsonInterface {
         return result;
     }
 
+    /**
+     * Converts a condition into a JSON object. Open range limits are omitted, because JSON knows no infinite numbers.
+     *
+     * @param condition the condition
+     *
+     * @return the JSON object
+     */
+    JsonObject conditionToJSON(Condition condition) {
+
+        JsonObject result = new JsonObject();
+
+        if (condition.isStateChange()) {
+            result.add(STATE_CHANGE, true);
+        }
+        else {
+            if (!Double.isInfinite(condition.getLower())) result.add(LOWER, condition.getLower());
+            if (!Double.isInfinite(condition.getUpper())) result.add(UPPER, condition.getUpper());
+            result.add(HYSTERESIS, condition.getHysteresis());
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts a JSON object into a condition.
+     *
+     * @param condition the JSON object
+     *
+     * @return the condition
+     *
+     * @throws IllegalArgumentException if the JSON object is not a valid condition
+     */
+    Condition conditionFromJSON(JsonObject condition) throws IllegalArgumentException {
+
+        if (condition.getBoolean(STATE_CHANGE, false)) return Condition.stateChange();
+
+        return Condition.range(condition.getDouble(LOWER, Double.NEGATIVE_INFINITY),
+                               condition.getDouble(UPPER, Double.POSITIVE_INFINITY),
+                               condition.getDouble(HYSTERESIS, 0.0));
+    }
+
     // Initializes this instance
     JsonInterface() {}
 }
@@ -0,0 +1,217 @@
+package at.ac.tuwien.infosys.g2021.common.communication;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This is a message received from the communication partner. Usually a message is a JSON object with the properties
+ * 'type' and 'arguments'. Since protocol version 2 buffer values are pushed as binary records, which are decoded
+ * into a <tt>{@link SimpleData}</tt> object without building any JSON object.
+ * <p>
+ * A request may carry a request id in the optional property 'id'. The answer to this request carries the same id.
+ */
+class Message {
+
+    // The kind of message
+    private String type;
+
+    // The id of the request or of the answered request, which is 0 for messages without request id
+    private int requestId;
+
+    // The message arguments. Binary pushes have no arguments.
+    private JsonObject arguments;
+
+    // The pushed buffer value and the kind of push.
+    private SimpleData value;
+    private boolean spontaneous;
+
+    // The buffer values of a push batch, of a "bufferValues" or of a "bufferHistory" message.
+    private List<SimpleData> values;
+
+    // The condition event of an "event" message.
+    private ConditionEvent event;
+
+    /**
+     * Creating a message from a received JSON object.
+     *
+     * @param message the JSON object
+     */
+    Message(JsonObject message) {
+
+        type = message.get(JsonInterface.TYPE).asString();
+        JsonValue id = message.get(JsonInterface.REQUEST_ID);
+        requestId = id == null ? 0 : id.asInt();
+        arguments = message.get(JsonInterface.ARGUMENTS).asObject();
+        value = null;
+        spontaneous = false;
+        values = Collections.emptyList();
+
+        if (JsonInterface.PUSH.equals(type)) {
+            value = valueFromJSON(arguments);
+            spontaneous = arguments.get(JsonInterface.SPONTANEOUS).asBoolean();
+        }
+        else if (JsonInterface.EVENT.equals(type)) {
+            event = new ConditionEvent(arguments.get(JsonInterface.CONDITION_ID).asInt(),
+                                       valueFromJSON(arguments),
+                                       arguments.get(JsonInterface.ACTIVE).asBoolean());
+        }
+        else if (JsonInterface.BUFFER_VALUES.equals(type)) {
+            List<SimpleData> v = new ArrayList<>();
+            for (JsonValue data : arguments.get(JsonInterface.VALUES).asArray()) v.add(valueFromJSON(data.asObject()));
+            values = Collections.unmodifiableList(v);
+        }
+        else if (JsonInterface.BUFFER_HISTORY.equals(type)) {
+            String name = arguments.get(JsonInterface.NAME).asString();
+            List<SimpleData> v = new ArrayList<>();
+            for (JsonValue data : arguments.get(JsonInterface.VALUES).asArray()) {
+                JsonObject sample = data.asObject();
+                sample.add(JsonInterface.NAME, name);
+                v.add(valueFromJSON(sample));
+            }
+            values = Collections.unmodifiableList(v);
+        }
+    }
+
+    /**
+     * Creating a "push" message from a received binary record.
+     *
+     * @param v the pushed buffer value
+     * @param s is this message spontaneous sent
+     */
+    Message(SimpleData v, boolean s) {
+
+        type = JsonInterface.PUSH;
+        requestId = 0;
+        arguments = new JsonObject();
+        value = v;
+        spontaneous = s;
+        values = Collections.emptyList();
+    }
+
+    /**
+     * Creating a "push" message answering a request from a received binary record.
+     *
+     * @param v  the pushed buffer value
+     * @param id the id of the answered request
+     */
+    Message(SimpleData v, int id) {
+
+        this(v, false);
+        requestId = id;
+    }
+
+    /**
+     * Creating a "pushBatch" message from a received binary frame. All the values of a batch are spontaneous sent.
+     *
+     * @param v the pushed buffer values
+     */
+    Message(List<SimpleData> v) {
+
+        type = JsonInterface.PUSH_BATCH;
+        requestId = 0;
+        arguments = new JsonObject();
+        value = null;
+        spontaneous = true;
+        values = Collections.unmodifiableList(v);
+    }
+
+    /**
+     * Creating a "bufferValues" message answering a request from a received binary frame.
+     *
+     * @param v  the buffer values
+     * @param id the id of the answered request
+     */
+    Message(List<SimpleData> v, int id) {
+
+        this(v);
+        type = JsonInterface.BUFFER_VALUES;
+        spontaneous = false;
+        requestId = id;
+    }
+
+    /**
+     * Creating a "bufferHistory" message answering a request from a received binary frame.
+     *
+     * @param name the buffer name
+     * @param v    the buffer values of the history
+     * @param id   the id of the answered request
+     */
+    Message(String name, List<SimpleData> v, int id) {
+
+        this(v, id);
+        type = JsonInterface.BUFFER_HISTORY;
+        arguments.add(JsonInterface.NAME, name);
+    }
+
+    /**
+     * Converts a JSON object into a buffer value.
+     *
+     * @param data the JSON object containing the buffer name, the timestamp, the buffer state and the optional value
+     *
+     * @return the buffer value
+     */
+    private static SimpleData valueFromJSON(JsonObject data) {
+
+        JsonValue v = data.get(JsonInterface.VALUE);
+        return new SimpleData(data.get(JsonInterface.NAME).asString(),
+                              new Date(data.get(JsonInterface.TIMESTAMP).asLong()),
+                              BufferState.valueOf(data.get(JsonInterface.STATE).asString()),
+                              v == null ? null : v.asDouble());
+    }
+
+    /**
+     * Returns the kind of message.
+     *
+     * @return the message type
+     */
+    String getType() { return type; }
+
+    /**
+     * Returns the request id of a request or the id of the request answered by this message.
+     *
+     * @return the request id, which is 0 if the message has no request id
+     */
+    int getRequestId() { return requestId; }
+
+    /**
+     * Returns the message arguments.
+     *
+     * @return the arguments, which are empty for binary pushes
+     */
+    JsonObject getArguments() { return arguments; }
+
+    /**
+     * Returns the buffer value of a "push" message.
+     *
+     * @return the pushed value or <tt>null</tt>, if this is not a "push" message
+     */
+    SimpleData getValue() { return value; }
+
+    /**
+     * Is this a spontaneous sent "push" message?
+     *
+     * @return <tt>true</tt>, if the value was pushed due to a value change
+     */
+    boolean isSpontaneous() { return spontaneous; }
+
+    /**
+     * Returns the buffer values of a "pushBatch", a "bufferValues" or a "bufferHistory" message.
+     *
+     * @return the values, which are empty, if this is neither a "pushBatch", a "bufferValues" nor a "bufferHistory" message
+     */
+    List<SimpleData> getValues() { return values; }
+
+    /**
+     * Returns the condition event of an "event" message.
+     *
+     * @return the event or <tt>null</tt>, if this is not an "event" message
+     */
+    ConditionEvent getEvent() { return event; }
+}
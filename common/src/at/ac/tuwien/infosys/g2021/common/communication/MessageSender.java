@@ -1,27 +1,39 @@
 package at.ac.tuwien.infosys.g2021.common.communication;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import at.ac.tuwien.infosys.g2021.common.BufferDescription;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
 import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
-/** This class transforms a method interface into message objects and sends the message objects to the communication partner. */
+/**
+ * This class transforms a method interface into message objects and sends the message objects to the communication partner.
+ * A message sender may mark all its messages with a request id. It is used to send a request or the answer to a request.
+ */
 class MessageSender {
 
     // The connection to the peer
     private Connection connection;
 
+    // The request id of all the messages sent, which is 0 for messages without request id
+    private int requestId;
+
     // The logger
     private final static Logger logger = Loggers.getLogger(MessageSender.class);
 
     /** Initialize an instance with no communication partner assigned. */
-    MessageSender() {}
+    MessageSender() { requestId = 0; }
 
     /** Initialize an instance and assigns a connection to it. */
     MessageSender(Connection c) {
@@ -44,6 +56,23 @@ class MessageSender {
      */
     void setConnection(Connection connection) { this.connection = connection; }
 
+    /**
+     * Returns a message sender using the same connection, which marks all its messages with a request id.
+     *
+     * @param id the request id, which is 0 for messages without request id
+     *
+     * @return the message sender
+     */
+    MessageSender withRequestId(int id) {
+
+        if (id == requestId) return this;
+
+        MessageSender result = new MessageSender(connection);
+        result.requestId = id;
+
+        return result;
+    }
+
     /**
      * Assigns a connection to the communication partner.
      *
@@ -64,6 +93,8 @@ class MessageSender {
      */
     private void sendMessage(JsonObject message) throws IOException {
 
+        if (requestId != 0) message.add(JsonInterface.REQUEST_ID, requestId);
+
         JsonInterface json = new JsonInterface();
         String msg = json.stringFromJSON(message);
         connection.send(msg);
@@ -72,14 +103,16 @@ class MessageSender {
     /**
      * Sends an "establish" message to the communication partner.
      *
+     * @param version the protocol version requested
+     *
      * @throws IOException if the send operation fails
      */
-    void establish() throws IOException {
+    void establish(int version) throws IOException {
 
         checkConnection();
 
         JsonObject arguments = new JsonObject();
-        arguments.add(JsonInterface.VERSION, CommunicationSettings.version());
+        arguments.add(JsonInterface.VERSION, version);
 
         JsonObject message = new JsonObject();
         message.add(JsonInterface.TYPE, JsonInterface.ESTABLISH);
@@ -125,6 +158,29 @@ class MessageSender {
         sendMessage(message);
     }
 
+    /**
+     * Sends a "rejected" message answering an &lt;establish&gt; message with an unsupported protocol version.
+     *
+     * @param reason  the reason of rejection
+     * @param version the highest protocol version supported
+     *
+     * @throws IOException if the send operation fails
+     */
+    void rejected(String reason, int version) throws IOException {
+
+        checkConnection();
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.REASON, reason);
+        arguments.add(JsonInterface.VERSION, version);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.REJECTED);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
     /**
      * Sends a "disconnect" message to the communication partner.
      *
@@ -164,12 +220,23 @@ class MessageSender {
      *
      * @throws IOException if the send operation fails
      */
-    void queryBuffersByName(String name) throws IOException {
+    void queryBuffersByName(String name) throws IOException { queryBuffersByName(name, false); }
+
+    /**
+     * Sends a "queryBuffersByName" message to the communication partner.
+     *
+     * @param name     a regular expression for the buffer name
+     * @param describe should the peer answer with the buffer descriptions instead of the buffer names
+     *
+     * @throws IOException if the send operation fails
+     */
+    void queryBuffersByName(String name, boolean describe) throws IOException {
 
         checkConnection();
 
         JsonObject arguments = new JsonObject();
         arguments.add(JsonInterface.NAME, name);
+        if (describe) arguments.add(JsonInterface.DESCRIBE, true);
 
         JsonObject message = new JsonObject();
         message.add(JsonInterface.TYPE, JsonInterface.QUERY_BUFFER_BY_NAME);
@@ -188,11 +255,26 @@ class MessageSender {
      */
     void queryBuffersByMetainfo(String topic, String metainfoPattern) throws IOException {
 
+        queryBuffersByMetainfo(topic, metainfoPattern, false);
+    }
+
+    /**
+     * Sends a "queryBuffersByMetainfo" message to the communication partner.
+     *
+     * @param topic           a regular expression specifying the buffer topics
+     * @param metainfoPattern a regular expression for the buffer meta info
+     * @param describe        should the peer answer with the buffer descriptions instead of the buffer names
+     *
+     * @throws IOException if the send operation fails
+     */
+    void queryBuffersByMetainfo(String topic, String metainfoPattern, boolean describe) throws IOException {
+
         checkConnection();
 
         JsonObject arguments = new JsonObject();
         arguments.add(JsonInterface.TOPIC, topic);
         arguments.add(JsonInterface.METAINFO, metainfoPattern);
+        if (describe) arguments.add(JsonInterface.DESCRIBE, true);
 
         JsonObject message = new JsonObject();
         message.add(JsonInterface.TYPE, JsonInterface.QUERY_BUFFER_BY_METAINFO);
@@ -224,6 +306,39 @@ class MessageSender {
         sendMessage(message);
     }
 
+    /**
+     * Sends a "bufferDescriptions" message to the communication partner.
+     *
+     * @param descriptions the buffer descriptions
+     *
+     * @throws IOException if the send operation fails
+     */
+    void bufferDescriptions(Collection<BufferDescription> descriptions) throws IOException {
+
+        checkConnection();
+
+        JsonInterface json = new JsonInterface();
+        JsonArray descriptionArray = new JsonArray();
+
+        for (BufferDescription description : descriptions) {
+
+            JsonObject d = new JsonObject();
+            d.add(JsonInterface.NAME, description.getBufferName());
+            d.add(JsonInterface.IS_HARDWARE, description.isHardwareBuffer());
+            d.add(JsonInterface.METAINFO, json.metainfoToJSON(description.getBufferMetainfo()));
+            descriptionArray.add(d);
+        }
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.DESCRIPTIONS, descriptionArray);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.BUFFER_DESCRIPTIONS);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
     /**
      * Sends a "queryMetaInfo" message to the communication partner.
      *
@@ -385,6 +500,30 @@ class MessageSender {
         sendMessage(message);
     }
 
+    /**
+     * Sends a "getImmediateAll" message to the communication partner.
+     *
+     * @param bufferNames the buffer names
+     *
+     * @throws IOException if the send operation fails
+     */
+    void getImmediateAll(Collection<String> bufferNames) throws IOException {
+
+        checkConnection();
+
+        JsonArray nameArray = new JsonArray();
+        for (String n : bufferNames) nameArray.add(n);
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.NAME, nameArray);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.GET_IMMEDIATE_ALL);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
     /**
      * Sends a "get" message to the communication partner.
      *
@@ -406,6 +545,134 @@ class MessageSender {
         sendMessage(message);
     }
 
+    /**
+     * Sends a "subscribe" message to the communication partner.
+     *
+     * @param bufferName  the buffer name
+     * @param minInterval the minimum time in milliseconds between two pushes
+     * @param deadband    the minimum value difference to push
+     *
+     * @throws IOException if the send operation fails
+     */
+    void subscribe(String bufferName, long minInterval, double deadband) throws IOException {
+
+        checkConnection();
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.NAME, bufferName);
+        if (minInterval > 0L) arguments.add(JsonInterface.MIN_INTERVAL, minInterval);
+        if (deadband > 0.0) arguments.add(JsonInterface.DEADBAND, deadband);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.SUBSCRIBE);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends an "unsubscribe" message to the communication partner.
+     *
+     * @param bufferName the buffer name
+     *
+     * @throws IOException if the send operation fails
+     */
+    void unsubscribe(String bufferName) throws IOException {
+
+        checkConnection();
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.NAME, bufferName);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.UNSUBSCRIBE);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends a "watch" message to the communication partner.
+     *
+     * @param bufferName the buffer name
+     * @param id         the id of the watch
+     * @param condition  the watched condition
+     *
+     * @throws IOException if the send operation fails
+     */
+    void watch(String bufferName, int id, Condition condition) throws IOException {
+
+        checkConnection();
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.NAME, bufferName);
+        arguments.add(JsonInterface.CONDITION_ID, id);
+        arguments.add(JsonInterface.CONDITION, new JsonInterface().conditionToJSON(condition));
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.WATCH);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends an "unwatch" message to the communication partner.
+     *
+     * @param id the id of the watch
+     *
+     * @throws IOException if the send operation fails
+     */
+    void unwatch(int id) throws IOException {
+
+        checkConnection();
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.CONDITION_ID, id);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.UNWATCH);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends some "event" messages with a single flush of the connection.
+     *
+     * @param events the condition events
+     *
+     * @throws IOException if the send operation fails
+     */
+    void conditionEvents(Collection<ConditionEvent> events) throws IOException {
+
+        checkConnection();
+
+        JsonInterface json = new JsonInterface();
+        List<String> messages = new ArrayList<>(events.size());
+
+        for (ConditionEvent event : events) {
+
+            SimpleData value = event.getValue();
+
+            JsonObject arguments = new JsonObject();
+            arguments.add(JsonInterface.CONDITION_ID, event.getId());
+            arguments.add(JsonInterface.ACTIVE, event.isActive());
+            arguments.add(JsonInterface.NAME, value.getBufferName());
+            arguments.add(JsonInterface.TIMESTAMP, value.getTime());
+            arguments.add(JsonInterface.STATE, value.getState().name());
+            if (value.hasValue()) arguments.add(JsonInterface.VALUE, value.doubleValue());
+
+            JsonObject message = new JsonObject();
+            message.add(JsonInterface.TYPE, JsonInterface.EVENT);
+            message.add(JsonInterface.ARGUMENTS, arguments);
+
+            messages.add(json.stringFromJSON(message));
+        }
+
+        if (!messages.isEmpty()) connection.send(messages);
+    }
+
     /**
      * Sends a "set" message to the communication partner.
      *
@@ -430,7 +697,216 @@ class MessageSender {
     }
 
     /**
-     * Sends a "push" message to the communication partner.
+     * Sends a "setAll" message to the communication partner.
+     *
+     * @param values the new buffer values by buffer name
+     *
+     * @throws IOException if the send operation fails
+     */
+    void setAll(Map<String, Double> values) throws IOException {
+
+        checkConnection();
+
+        JsonArray valueArray = new JsonArray();
+        for (Map.Entry<String, Double> value : values.entrySet()) {
+
+            JsonObject v = new JsonObject();
+            v.add(JsonInterface.NAME, value.getKey());
+            v.add(JsonInterface.VALUE, value.getValue());
+            valueArray.add(v);
+        }
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.VALUES, valueArray);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.SET_ALL);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends a "bufferValues" message to the communication partner. If the protocol version 2 has been negotiated,
+     * the values are sent as one binary frame.
+     *
+     * @param values the buffer values
+     *
+     * @throws IOException if the send operation fails
+     */
+    void bufferValues(Collection<SimpleData> values) throws IOException {
+
+        checkConnection();
+
+        if (connection.isBinary()) {
+            connection.sendBufferValues(values, requestId);
+            return;
+        }
+
+        JsonArray valueArray = new JsonArray();
+        for (SimpleData value : values) {
+
+            JsonObject v = new JsonObject();
+            v.add(JsonInterface.NAME, value.getBufferName());
+            v.add(JsonInterface.TIMESTAMP, value.getTime());
+            v.add(JsonInterface.STATE, value.getState().name());
+            if (value.hasValue()) v.add(JsonInterface.VALUE, value.doubleValue());
+            valueArray.add(v);
+        }
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.VALUES, valueArray);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.BUFFER_VALUES);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends a "getHistory" message to the communication partner.
+     *
+     * @param bufferName the buffer name
+     * @param from       the start of the time range in milliseconds since the epoch, inclusive
+     * @param to         the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints  the maximum number of values to send, which is 0 for no limit
+     *
+     * @throws IOException if the send operation fails
+     */
+    void getHistory(String bufferName, long from, long to, int maxPoints) throws IOException {
+
+        checkConnection();
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.NAME, bufferName);
+        arguments.add(JsonInterface.FROM, from);
+        arguments.add(JsonInterface.TO, to);
+        if (maxPoints > 0) arguments.add(JsonInterface.MAX_POINTS, maxPoints);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.GET_HISTORY);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends a "bufferHistory" message to the communication partner. If the protocol version 2 has been negotiated,
+     * the values are sent as one binary frame.
+     *
+     * @param bufferName the buffer name
+     * @param values     the buffer values of the history
+     *
+     * @throws IOException if the send operation fails
+     */
+    void bufferHistory(String bufferName, Collection<SimpleData> values) throws IOException {
+
+        checkConnection();
+
+        if (connection.isBinary()) {
+            connection.sendBufferHistory(bufferName, values, requestId);
+            return;
+        }
+
+        JsonArray valueArray = new JsonArray();
+        for (SimpleData value : values) {
+
+            JsonObject v = new JsonObject();
+            v.add(JsonInterface.TIMESTAMP, value.getTime());
+            v.add(JsonInterface.STATE, value.getState().name());
+            if (value.hasValue()) v.add(JsonInterface.VALUE, value.doubleValue());
+            valueArray.add(v);
+        }
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.NAME, bufferName);
+        arguments.add(JsonInterface.VALUES, valueArray);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.BUFFER_HISTORY);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends a "getAggregates" message to the communication partner.
+     *
+     * @param bufferNames the buffer names
+     * @param from        the start of the time range in milliseconds since the epoch, inclusive
+     * @param to          the end of the time range in milliseconds since the epoch, inclusive
+     * @param window      the length of a time window in milliseconds
+     *
+     * @throws IOException if the send operation fails
+     */
+    void getAggregates(Collection<String> bufferNames, long from, long to, long window) throws IOException {
+
+        checkConnection();
+
+        JsonArray nameArray = new JsonArray();
+        for (String n : bufferNames) nameArray.add(n);
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.NAME, nameArray);
+        arguments.add(JsonInterface.FROM, from);
+        arguments.add(JsonInterface.TO, to);
+        arguments.add(JsonInterface.WINDOW, window);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.GET_AGGREGATES);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends a "bufferAggregates" message to the communication partner.
+     *
+     * @param window     the length of a time window in milliseconds
+     * @param aggregates the aggregates by buffer name
+     *
+     * @throws IOException if the send operation fails
+     */
+    void bufferAggregates(long window, Map<String, List<Aggregate>> aggregates) throws IOException {
+
+        checkConnection();
+
+        JsonArray bufferArray = new JsonArray();
+        for (Map.Entry<String, List<Aggregate>> entry : aggregates.entrySet()) {
+
+            JsonArray valueArray = new JsonArray();
+            for (Aggregate aggregate : entry.getValue()) {
+
+                JsonObject v = new JsonObject();
+                v.add(JsonInterface.TIMESTAMP, aggregate.getStart());
+                v.add(JsonInterface.COUNT, aggregate.getCount());
+                v.add(JsonInterface.MIN, aggregate.getMinimum());
+                v.add(JsonInterface.MAX, aggregate.getMaximum());
+                v.add(JsonInterface.AVERAGE, aggregate.getAverage());
+                valueArray.add(v);
+            }
+
+            JsonObject b = new JsonObject();
+            b.add(JsonInterface.NAME, entry.getKey());
+            b.add(JsonInterface.VALUES, valueArray);
+            bufferArray.add(b);
+        }
+
+        JsonObject arguments = new JsonObject();
+        arguments.add(JsonInterface.WINDOW, window);
+        arguments.add(JsonInterface.AGGREGATES, bufferArray);
+
+        JsonObject message = new JsonObject();
+        message.add(JsonInterface.TYPE, JsonInterface.BUFFER_AGGREGATES);
+        message.add(JsonInterface.ARGUMENTS, arguments);
+
+        sendMessage(message);
+    }
+
+    /**
+     * Sends a "push" message to the communication partner. If the protocol version 2 has been negotiated,
+     * the value is sent as binary record.
      *
      * @param value       the buffer value
      * @param spontaneous is this message spontaneous sent
@@ -439,7 +915,14 @@ class MessageSender {
      */
     void push(SimpleData value, boolean spontaneous) throws IOException {
 
-        Double doubleValue = value.getValue() == null ? null : value.getValue().doubleValue();
+        checkConnection();
+
+        if (connection.isBinary()) {
+            connection.sendPush(value, spontaneous, requestId);
+            return;
+        }
+
+        Double doubleValue = value.hasValue() ? value.doubleValue() : null;
         push(value.getBufferName(), value.getState().name(), doubleValue, value.getTimestamp(), spontaneous);
     }
 
@@ -457,6 +940,54 @@ class MessageSender {
     void push(String bufferName, String state, Double value, Date timestamp, boolean spontaneous) throws IOException {
 
         checkConnection();
+        sendMessage(pushMessage(bufferName, state, value, timestamp, spontaneous));
+    }
+
+    /**
+     * Sends some spontaneous changed buffer values with a single flush of the connection. If the protocol version 2
+     * has been negotiated, the values are sent as one "pushBatch" message. Otherwise a "push" message for every value
+     * is sent, because legacy clients do not know the "pushBatch" message.
+     *
+     * @param values the buffer values
+     *
+     * @throws IOException if the send operation fails
+     */
+    void pushBatch(Collection<SimpleData> values) throws IOException {
+
+        checkConnection();
+
+        if (values.size() == 1) {
+            push(values.iterator().next(), true);
+        }
+        else if (connection.isBinary()) {
+            connection.sendPushBatch(values);
+        }
+        else if (!values.isEmpty()) {
+
+            JsonInterface json = new JsonInterface();
+            List<String> messages = new ArrayList<>(values.size());
+
+            for (SimpleData value : values) {
+                Double doubleValue = value.hasValue() ? value.doubleValue() : null;
+                messages.add(json.stringFromJSON(pushMessage(value.getBufferName(), value.getState().name(), doubleValue, value.getTimestamp(), true)));
+            }
+
+            connection.send(messages);
+        }
+    }
+
+    /**
+     * Creates a "push" message.
+     *
+     * @param bufferName  the buffer name
+     * @param state       the buffer state
+     * @param value       the buffer value
+     * @param timestamp   the timestamp of last change
+     * @param spontaneous is this message spontaneous sent
+     *
+     * @return the message
+     */
+    private JsonObject pushMessage(String bufferName, String state, Double value, Date timestamp, boolean spontaneous) {
 
         JsonObject arguments = new JsonObject();
         arguments.add(JsonInterface.NAME, bufferName);
@@ -469,7 +1000,7 @@ class MessageSender {
         message.add(JsonInterface.TYPE, JsonInterface.PUSH);
         message.add(JsonInterface.ARGUMENTS, arguments);
 
-        sendMessage(message);
+        return message;
     }
 }
 
@@ -0,0 +1,141 @@
+package at.ac.tuwien.infosys.g2021.common.communication;
+
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+
+/**
+ * <p>
+ * This is a persistent subscription of a client to the value changes of a buffer. Unlike the "get" message, the
+ * subscription is not consumed by a push. It lasts until it is cancelled or the buffer is released.
+ * </p>
+ * <p>
+ * A subscription may filter the value changes:
+ * </p>
+ * <ul>
+ * <li>The minimum interval is the minimum time in milliseconds between two pushes. Value changes within this interval
+ * are delayed. Only the latest one is pushed at the end of the interval.</li>
+ * <li>The deadband is the minimum difference between the last pushed value and a new value. Smaller changes are not
+ * pushed at all.</li>
+ * </ul>
+ * <p>
+ * Changes of the buffer state are never filtered.
+ * </p>
+ */
+class Subscription {
+
+    /** This is the decision about a value change. */
+    enum Action {
+
+        /** The value must be pushed now. */
+        PUSH,
+
+        /** The value is delayed. A trailing push must be scheduled. */
+        SCHEDULE,
+
+        /** The value is delayed or dropped. Nothing is to do. */
+        IGNORE
+    }
+
+    // The filter settings
+    private final long minInterval;
+    private final double deadband;
+
+    // The last value pushed and the time of this push
+    private SimpleData lastPushed;
+    private long lastPushTime;
+
+    // The value change delayed by the minimum interval
+    private SimpleData pending;
+    private boolean trailingScheduled;
+
+    /**
+     * Creates a subscription.
+     *
+     * @param minInterval the minimum time in milliseconds between two pushes, which is 0 for no limit
+     * @param deadband    the minimum difference of values to push, which is 0 for no deadband
+     */
+    Subscription(long minInterval, double deadband) {
+
+        this.minInterval = Math.max(0L, minInterval);
+        this.deadband = Math.max(0.0, deadband);
+
+        lastPushed = null;
+        lastPushTime = 0L;
+        pending = null;
+        trailingScheduled = false;
+    }
+
+    /**
+     * Decides, what to do with a value change. If the value must be pushed, it is registered as pushed value.
+     *
+     * @param value the new buffer value
+     * @param now   the current time in milliseconds
+     *
+     * @return the action to do
+     */
+    synchronized Action accept(SimpleData value, long now) {
+
+        if (lastPushed == null || lastPushed.getState() != value.getState()) {
+            pushed(value, now);
+            return Action.PUSH;
+        }
+
+        if (deadband > 0.0 && lastPushed.hasValue() && value.hasValue() &&
+            Math.abs(value.doubleValue() - lastPushed.doubleValue()) < deadband) {
+
+            // The value is back within the deadband. A delayed value is outdated now.
+            pending = null;
+            return Action.IGNORE;
+        }
+
+        if (minInterval > 0L && now - lastPushTime < minInterval) {
+
+            pending = value;
+            if (trailingScheduled) return Action.IGNORE;
+
+            trailingScheduled = true;
+            return Action.SCHEDULE;
+        }
+
+        pushed(value, now);
+        return Action.PUSH;
+    }
+
+    /**
+     * Returns the time until the minimum interval since the last push is elapsed.
+     *
+     * @param now the current time in milliseconds
+     *
+     * @return the remaining time in milliseconds
+     */
+    synchronized long remainingInterval(long now) { return Math.max(0L, lastPushTime + minInterval - now); }
+
+    /**
+     * Takes the value delayed by the minimum interval. The value is registered as pushed value.
+     *
+     * @param now the current time in milliseconds
+     *
+     * @return the delayed value or <tt>null</tt>, if there is nothing to push
+     */
+    synchronized SimpleData takePending(long now) {
+
+        SimpleData result = pending;
+
+        trailingScheduled = false;
+        if (result != null) pushed(result, now);
+
+        return result;
+    }
+
+    /**
+     * Registers a pushed value.
+     *
+     * @param value the value
+     * @param now   the time of the push
+     */
+    private void pushed(SimpleData value, long now) {
+
+        lastPushed = value;
+        lastPushTime = now;
+        pending = null;
+    }
+}
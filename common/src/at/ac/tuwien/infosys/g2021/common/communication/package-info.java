@@ -19,14 +19,35 @@
  * a separate thread within the daemon. At the client side the calling thread is suspended until the answer from the daemon is
  * received. If there is no answer from the daemon within 2 seconds the <tt>ClientEndpoint</tt> assumes, that the daemon has died.
  * It closes the connection to the daemon and changes to the <tt>ISOLATED</tt> state.
+ * <p>
+ * Optionally the daemon serves all TCP/IP client connections with an <tt>{@link at.ac.tuwien.infosys.g2021.common.communication.EventLoop}</tt>.
+ * A single selector thread reads and writes all the connections without blocking. The received messages are interpreted by a
+ * small pool of worker threads (4 by default, look at the system property "<tt>at.ac.tuwien.infosys.g2021.daemon.workers</tt>").
+ * The messages of a connection are still interpreted one after another.
  *
  * <h3>Protocol</h3>
  *
  * Due to simpler debugging, all messages are sent as JSON objects. They are sent on a permanent open TCP/IP stream. Therefore
  * every message is sent as an UTF-8 encoded byte array (look for the <tt>DataOutputStream</tt> documentation of Java).
  * <p>
+ * This is the protocol version 1. Since protocol version 2 the JSON messages are sent in length prefixed frames after the
+ * &lt;establish&gt; - &lt;accepted&gt; handshake. The &lt;push&gt; message is sent as a compact binary record containing an
+ * interned buffer id, the timestamp, the buffer state and the buffer value (look at <tt>{@link at.ac.tuwien.infosys.g2021.common.communication.BinaryInterface}</tt>).
+ * Protocol version 3 adds the bulk messages described below. Protocol version 4 adds the &lt;getHistory&gt; message,
+ * protocol version 5 the &lt;getAggregates&gt; message, protocol version 6 the messages watching conditions and protocol
+ * version 7 the messages subscribing value changes.
+ * The daemon accepts all protocol versions. If a daemon
+ * rejects the protocol version of the client, it names the highest version it supports in the 'version' argument of the
+ * &lt;rejected&gt; message. The client connects again using this version. A daemon, which knows version 1 only, names no
+ * version, and the client connects again using version 1.
+ * <p>
  * All messages have the same structure. The string property 'type' describes the kind of message. These types are shown
  * in the following scenarios. The 'arguments' object contains any additional data to the message.
+ * <p>
+ * A request may carry the optional integer property 'id'. The answer to this request carries the same 'id'. Using
+ * protocol version 2, a &lt;push&gt; message answering a request is sent as binary record containing the request id.
+ * So a client may send many requests without waiting for the answers and the answers are assigned by their ids. Answers
+ * to requests without 'id' have no 'id' too. The scenarios below omit the request ids.
  *
  * <h4>Establishing a Connection</h4>
  *
@@ -102,6 +123,10 @@
  *       |                                       |
  *</pre>
  *
+ * Since protocol version 3 a &lt;queryBuffersByName&gt; or &lt;queryBuffersByMetainfo&gt; message may carry the boolean
+ * argument 'describe'. Then the daemon answers with a &lt;bufferDescriptions&gt; message containing the meta info of all the
+ * matching buffers, so no &lt;queryMetaInfo&gt; message is needed for every single buffer.
+ *
  * <h4>Reading Buffer State and Value</h4>
  *
  * <pre>
@@ -139,6 +164,74 @@
  *       |                                       |
  *</pre>
  *
+ * <h4>Subscribing Buffer Value Changes</h4>
+ *
+ * <pre>
+ *     GBot                                    daemon
+ *       |                                       |
+ *       |&lt;subscribe&gt;                            |
+ *       |--------------------------------------&gt;| The GBot subscribes all value changes of a buffer. The daemon
+ *       |                              &lt;push&gt;   | pushes the current buffer info immediately. If there is no such
+ *       |&lt;--------------------------------------| buffer known by the daemon, this message is ignored at all.
+ *       |                                       |
+ *       |                                       | ...
+ *       |                                       |
+ *       |                              &lt;push&gt;   | Every change of the buffer value or state is pushed. The
+ *       |&lt;--------------------------------------| subscription is not consumed by a push.
+ *       |                                       |
+ *       |                              &lt;push&gt;   |
+ *       |&lt;--------------------------------------|
+ *       |                                       |
+ *       |&lt;unsubscribe&gt;                          |
+ *       |--------------------------------------&gt;| The GBot cancels the subscription. The daemon sends no answer.
+ *       |                                       |
+ *</pre>
+ *
+ * The optional arguments "<tt>minInterval</tt>" and "<tt>deadband</tt>" of the &lt;subscribe&gt; message limit the pushed
+ * value changes. Value changes within the minimum interval (in milliseconds) after a push are delayed and only the latest of
+ * them is pushed at the end of the interval. Values, which differ from the last pushed value less than the deadband, are not
+ * pushed at all. State changes are always pushed immediately. A subscription ends, if the buffer is released.
+ * <p>
+ * The &lt;subscribe&gt; and &lt;unsubscribe&gt; messages need protocol version 7. An older daemon treats them as protocol
+ * violation, so they are never sent to it. Such a client has to request every value change with a &lt;get&gt; message.
+ *
+ * <h4>Watching Conditions</h4>
+ *
+ * <pre>
+ *     GBot                                    daemon
+ *       |                                       |
+ *       |&lt;watch&gt;                                |
+ *       |--------------------------------------&gt;| The GBot watches a condition of a buffer. The daemon
+ *       |                             &lt;event&gt;   | sends the current status of the condition immediately.
+ *       |&lt;--------------------------------------|
+ *       |                                       |
+ *       |                                       | ...
+ *       |                                       |
+ *       |                             &lt;event&gt;   | An event is sent only, if the condition becomes active
+ *       |&lt;--------------------------------------| or inactive. Other value changes are not sent at all.
+ *       |                                       |
+ *       |&lt;unwatch&gt;                              |
+ *       |--------------------------------------&gt;| The GBot cancels the watch. The daemon sends no answer.
+ *       |                                       |
+ *</pre>
+ *
+ * Since protocol version 6 a client may watch conditions instead of subscribing value changes. The &lt;watch&gt; message
+ * contains the buffer name, an id chosen by the client ("<tt>conditionId</tt>") and the condition. A range condition has the
+ * optional limits "<tt>lower</tt>" and "<tt>upper</tt>" and a "<tt>hysteresis</tt>", a state change condition the
+ * property "<tt>stateChange</tt>". The daemon evaluates the condition with every new buffer value, even if the value change
+ * is never pushed. The &lt;event&gt; message contains the id, the new status "<tt>active</tt>" and the buffer value causing
+ * the event. A watch ends, if the buffer is released. Watching an unknown buffer results in a single event reporting the
+ * state <tt>RELEASED</tt>. Talking to an older daemon, the client doesn't watch any condition.
+ *
+ * <h4>Collecting Value Changes</h4>
+ *
+ * The daemon does not push every spontaneous value change on its own. The value changes are collected for a short time window
+ * (5 ms by default, look at the system property "<tt>at.ac.tuwien.infosys.g2021.push.window</tt>") or until a number of
+ * changed buffers is reached (64 by default, look at the system property "<tt>at.ac.tuwien.infosys.g2021.push.batchSize</tt>").
+ * Only the latest value of a buffer is kept. Using protocol version 2, the collected values are sent as one binary
+ * &lt;pushBatch&gt; message. Clients using the protocol version 1 receive a &lt;push&gt; message for every value, but all of them
+ * are written with a single flush of the connection. Collected value changes are always sent before the answer to a request.
+ *
  * <h4>Setting the Buffer Value</h4>
  *
  * <pre>
@@ -158,6 +251,65 @@
  *       |                                       |
  *</pre>
  *
+ * <h4>Bulk Messages</h4>
+ *
+ * Since protocol version 3 many buffers are read or written with a single request. A &lt;getImmediateAll&gt; message
+ * contains a list of buffer names, a &lt;setAll&gt; message contains a list of buffer names and values. The daemon
+ * answers both with one &lt;bufferValues&gt; message containing the current values of the buffers. Unknown buffers and
+ * buffers rejecting the value change are omitted. The &lt;bufferValues&gt; message is sent as binary record.
+ * Talking to an older daemon, the client sends a single request for every buffer without waiting for the answers.
+ *
+ * <h4>Reading the Buffer History</h4>
+ *
+ * <pre>
+ *     GBot                                    daemon
+ *       |                                       |
+ *       |&lt;getHistory&gt;                           | The GBot reads the values of a buffer within a time range.
+ *       |--------------------------------------&gt;| The daemon answers with the values kept in the history of
+ *       |                     &lt;bufferHistory&gt;   | the buffer.
+ *       |&lt;--------------------------------------|
+ *       |                                       |
+ *       |&lt;getHistory&gt;                           |
+ *       |--------------------------------------&gt;| The history of an unknown buffer is rejected.
+ *       |                          &lt;rejected&gt;   |
+ *       |&lt;--------------------------------------|
+ *       |                                       |
+ *</pre>
+ *
+ * A buffer keeps its latest values in a ring, if a history capacity is set in its configuration. The arguments "<tt>from</tt>"
+ * and "<tt>to</tt>" of the &lt;getHistory&gt; message are timestamps in milliseconds. If the optional argument
+ * "<tt>maxPoints</tt>" is less than the number of values within the time range, the daemon splits the values into
+ * "<tt>maxPoints</tt>" consecutive groups and sends one value per group: the average of the group with the timestamp of the
+ * latest value of the group. If the latest value of a group is not in the state <tt>READY</tt>, it is sent unchanged. The
+ * &lt;bufferHistory&gt; message is sent as one binary frame. A buffer keeping no
+ * history has an empty history. Talking to an older daemon, the client assumes an empty history without sending a request.
+ *
+ * <h4>Reading Aggregates</h4>
+ *
+ * <pre>
+ *     GBot                                    daemon
+ *       |                                       |
+ *       |&lt;getAggregates&gt;                        | The GBot reads the aggregates of some buffers within a
+ *       |--------------------------------------&gt;| time range. The daemon answers with the aggregates of
+ *       |                  &lt;bufferAggregates&gt;   | every time window.
+ *       |&lt;--------------------------------------|
+ *       |                                       |
+ *       |&lt;getAggregates&gt;                        |
+ *       |--------------------------------------&gt;| A time window, which is not positive, is rejected.
+ *       |                          &lt;rejected&gt;   |
+ *       |&lt;--------------------------------------|
+ *       |                                       |
+ *</pre>
+ *
+ * A buffer summarizes its values in rollups of <tt>{@link at.ac.tuwien.infosys.g2021.common.BufferConfiguration#ROLLUP_PERIOD}</tt>
+ * milliseconds, if a rollup capacity is set in its configuration. The &lt;getAggregates&gt; message contains a list of buffer
+ * names, the timestamps "<tt>from</tt>" and "<tt>to</tt>" and the length of the time windows "<tt>window</tt>" in milliseconds.
+ * The daemon rounds the window up to a multiple of the rollup period. The time windows start at multiples of the window.
+ * For every time window overlapping the time range, the daemon combines the rollups into the number, the minimum, the maximum
+ * and the average of the values in the state <tt>READY</tt>. The &lt;bufferAggregates&gt; message contains the used window and
+ * a list of the aggregates of every buffer. Unknown buffers are omitted, time windows without any value have no aggregate.
+ * Talking to an older daemon, the client assumes no aggregates without sending a request.
+ *
  * <h4>Reading a buffer configuration</h4>
  *
  * <pre>
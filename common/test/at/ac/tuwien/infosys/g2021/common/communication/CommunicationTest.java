@@ -1,13 +1,34 @@
 package at.ac.tuwien.infosys.g2021.common.communication;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
 import at.ac.tuwien.infosys.g2021.common.BufferDescription;
 import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import com.eclipsesource.json.JsonObject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -37,6 +58,9 @@ public class CommunicationTest implements ValueChangeObserver {
     // The last buffer value received.
     private SimpleData lastValue;
 
+    // All the buffer values received.
+    private final List<SimpleData> receivedValues = Collections.synchronizedList(new ArrayList<>());
+
     /** This is the notification about the lost connection to the daemon. */
     @Override
     public void communicationLost() {}
@@ -47,7 +71,11 @@ public class CommunicationTest implements ValueChangeObserver {
      * @param newValue the new buffer value
      */
     @Override
-    public void valueChanged(SimpleData newValue) { lastValue = newValue; }
+    public void valueChanged(SimpleData newValue) {
+
+        lastValue = newValue;
+        receivedValues.add(newValue);
+    }
 
     /** Setting up the connection. */
     @Before
@@ -304,6 +332,712 @@ public class CommunicationTest implements ValueChangeObserver {
         Thread.sleep(100L);
         assertNull(lastValue);
     }
-}
 
+    /** This test case tests persistent subscriptions of value changes. */
+    @Test
+    public void testSubscriptions() throws InterruptedException {
+
+        SimpleData change = new SimpleData("buffer-b", new Date(), BufferState.INITIALIZING);
+
+        // Subscribing a buffer pushes the current value
+        lastValue = null;
+        client.subscribe("buffer-b");
+        Thread.sleep(100L);
+        assertNotNull(lastValue);
+        assertEquals("buffer-b", lastValue.getBufferName());
+        assertEquals(BufferState.FAULTED, lastValue.getState());
+
+        // Every value change is pushed
+        for (int i = 0; i < 3; i++) {
+            lastValue = null;
+            daemon.spontaneousValueChange(change);
+            Thread.sleep(100L);
+            assertNotNull(lastValue);
+            assertEquals(change.getState(), lastValue.getState());
+        }
 
+        // After cancelling the subscription, no value change is pushed
+        client.unsubscribe("buffer-b");
+        Thread.sleep(100L);
+        lastValue = null;
+        daemon.spontaneousValueChange(change);
+        Thread.sleep(100L);
+        assertNull(lastValue);
+    }
+
+    /** This test case tests the filters of subscriptions. */
+    @Test
+    public void testSubscriptionFilters() throws InterruptedException {
+
+        client.subscribe("buffer-c", 300L, 1.0);
+        Thread.sleep(100L);
+        assertNotNull(lastValue);
+        assertEquals(16.0, lastValue.getValue().doubleValue(), 1.0e-10);
+
+        // Changes within the deadband are not pushed
+        lastValue = null;
+        daemon.spontaneousValueChange(new SimpleData("buffer-c", new Date(), BufferState.READY, 16.5));
+        Thread.sleep(300L);
+        assertNull(lastValue);
+
+        // Changes within the minimum interval are delayed, only the last one is pushed
+        daemon.spontaneousValueChange(new SimpleData("buffer-c", new Date(), BufferState.READY, 18.0));
+        Thread.sleep(10L);
+        daemon.spontaneousValueChange(new SimpleData("buffer-c", new Date(), BufferState.READY, 20.0));
+        Thread.sleep(100L);
+        assertNotNull(lastValue);
+        assertEquals(18.0, lastValue.getValue().doubleValue(), 1.0e-10);
+        lastValue = null;
+        Thread.sleep(400L);
+        assertNotNull(lastValue);
+        assertEquals(20.0, lastValue.getValue().doubleValue(), 1.0e-10);
+
+        // State changes are pushed immediately
+        daemon.spontaneousValueChange(new SimpleData("buffer-c", new Date(), BufferState.READY, 25.0));
+        Thread.sleep(10L);
+        daemon.spontaneousValueChange(new SimpleData("buffer-c", new Date(), BufferState.FAULTED));
+        Thread.sleep(100L);
+        assertEquals(BufferState.FAULTED, lastValue.getState());
+
+        client.unsubscribe("buffer-c");
+    }
+
+    /** This test case tests the collecting of value changes into push batches. */
+    @Test
+    public void testPushBatches() throws InterruptedException {
+
+        client.subscribe("buffer-a");
+        client.subscribe("buffer-c");
+        Thread.sleep(100L);
+
+        // A burst of value changes is pushed in order. The latest value of every buffer is received.
+        receivedValues.clear();
+        for (int i = 1; i <= 100; i++) {
+            daemon.spontaneousValueChange(new SimpleData("buffer-a", new Date(), BufferState.READY, (double)i));
+            daemon.spontaneousValueChange(new SimpleData("buffer-c", new Date(), BufferState.READY, (double)-i));
+        }
+        Thread.sleep(100L);
+
+        double lastA = 0.0;
+        double lastC = 0.0;
+        synchronized (receivedValues) {
+            assertFalse(receivedValues.isEmpty());
+            for (SimpleData value : receivedValues) {
+                if (value.getBufferName().equals("buffer-a")) {
+                    assertTrue(value.getValue().doubleValue() > lastA);
+                    lastA = value.getValue().doubleValue();
+                }
+                else {
+                    assertEquals("buffer-c", value.getBufferName());
+                    assertTrue(value.getValue().doubleValue() < lastC);
+                    lastC = value.getValue().doubleValue();
+                }
+            }
+        }
+        assertEquals(100.0, lastA, 1.0e-10);
+        assertEquals(-100.0, lastC, 1.0e-10);
+
+        client.unsubscribe("buffer-a");
+        client.unsubscribe("buffer-c");
+    }
+
+    /** This test case checks, that a client, which doesn't read its messages, doesn't delay the pushes to other clients. */
+    @Test
+    public void testStalledClient() throws IOException, InterruptedException {
+
+        try (ServerSocket serverSocket = new ServerSocket(0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())) {
+
+            TestDaemonStrategy strategy = new TestDaemonStrategy(server);
+            DaemonEndpoint stalled = new DaemonEndpoint(serverSocket.accept(), strategy);
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            BinaryInterface binary = new BinaryInterface();
+
+            out.writeUTF("{\"type\":\"establish\",\"arguments\":{\"version\":" + CommunicationSettings.version() + "}}");
+            out.flush();
+            in.readUTF();
+
+            // The stalled client subscribes many buffers and never reads any push.
+            int count = CommunicationSettings.pushBatchSize();
+            for (int i = 0; i < count; i++) {
+                strategy.setBufferConfiguration(stalled, "stalled-" + i, new BufferConfiguration(), true);
+                binary.writeJSON(out, "{\"type\":\"subscribe\",\"arguments\":{\"name\":\"stalled-" + i + "\"}}");
+            }
+            out.flush();
+            Thread.sleep(100L);
+
+            // Full batches are pushed until the socket buffers of the stalled client are full. Collecting the value
+            // changes must not wait for the stalled client.
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 1000000; i++) {
+                    stalled.spontaneousValueChange(new SimpleData("stalled-" + (i % count), new Date(), BufferState.READY, (double)i));
+                }
+            });
+            producer.start();
+            producer.join(10000L);
+            assertFalse(producer.isAlive());
+
+            // The other client still gets its pushes.
+            client.subscribe("buffer-b");
+            Thread.sleep(100L);
+            lastValue = null;
+            daemon.spontaneousValueChange(new SimpleData("buffer-b", new Date(), BufferState.INITIALIZING));
+            Thread.sleep(100L);
+            assertNotNull(lastValue);
+            assertEquals("buffer-b", lastValue.getBufferName());
+
+            client.unsubscribe("buffer-b");
+            stalled.disconnectImmediately();
+        }
+    }
+
+    /** This test case checks, that the binary interface keeps the state and the value of buffers in any state. */
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+
+        SimpleData faulted = new SimpleData("buffer-a", 1000L, BufferState.FAULTED, 2.5);
+        SimpleData missing = new SimpleData("buffer-a", 2000L, BufferState.FAULTED);
+        SimpleData notANumber = new SimpleData("buffer-a", 3000L, BufferState.READY, Double.NaN);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BinaryInterface writer = new BinaryInterface();
+        writer.writePush(out, faulted, true);
+        writer.writeBufferHistory(out, "buffer-a", Arrays.asList(faulted, missing, notANumber), 7);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        BinaryInterface reader = new BinaryInterface();
+
+        SimpleData value = reader.read(in).getValue();
+        assertEquals(BufferState.FAULTED, value.getState());
+        assertEquals(1000L, value.getTime());
+        assertEquals(2.5, value.getValue().doubleValue(), 1.0e-10);
+
+        List<SimpleData> values = reader.read(in).getValues();
+        assertEquals(3, values.size());
+        assertEquals(faulted, values.get(0));
+        assertEquals(BufferState.FAULTED, values.get(1).getState());
+        assertFalse(values.get(1).hasValue());
+        assertEquals(BufferState.READY, values.get(2).getState());
+        assertTrue(values.get(2).hasValue());
+        assertTrue(Double.isNaN(values.get(2).doubleValue()));
+    }
+
+    /**
+     * This test case checks, that a frame header announcing a huge frame closes the connection, before the frame is
+     * allocated.
+     */
+    @Test
+    public void testOversizedFrame() throws IOException {
+
+        try (ServerSocket serverSocket = new ServerSocket(0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())) {
+
+            DaemonEndpoint endpoint = new DaemonEndpoint(serverSocket.accept(), new TestDaemonStrategy(server));
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            out.writeUTF("{\"type\":\"establish\",\"arguments\":{\"version\":" + CommunicationSettings.version() + "}}");
+            out.flush();
+            in.readUTF();
+
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeByte(BinaryInterface.JSON);
+            out.flush();
+
+            socket.setSoTimeout(5000);
+            assertEquals(-1, in.read());
+            assertFalse(endpoint.isConnected());
+        }
+    }
+
+    /**
+     * This test case checks, that subscriptions are not sent to a daemon, which knows the legacy protocol only. Such a
+     * daemon treats unknown messages as protocol violation and closes the connection.
+     */
+    @Test
+    public void testSubscriptionsOnLegacyDaemon() throws IOException, InterruptedException {
+
+        // The daemon is replaced by a legacy daemon.
+        client.disconnect();
+        daemon.disconnect();
+        server.shutdown();
+
+        List<String> receivedTypes = Collections.synchronizedList(new ArrayList<>());
+        ServerSocket serverSocket = new ServerSocket(CommunicationSettings.bufferDaemonPort());
+        Thread legacyDaemon = null;
+
+        try {
+            legacyDaemon = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Connection connection = new Connection(serverSocket.accept());
+                        MessageSender answer = new MessageSender(connection);
+
+                        while (connection.isConnected()) {
+                            Message message = connection.receive();
+                            receivedTypes.add(message.getType());
+
+                            switch (message.getType()) {
+                                case JsonInterface.ESTABLISH:
+                                    if (message.getArguments().get(JsonInterface.VERSION).asInt() == CommunicationSettings.legacyVersion()) {
+                                        answer.accepted();
+                                    }
+                                    else {
+                                        answer.rejected("illegal version");
+                                        connection.disconnect();
+                                    }
+                                    break;
+
+                                case JsonInterface.GET:
+                                    String name = message.getArguments().get(JsonInterface.NAME).asString();
+                                    answer.push(new SimpleData(name, new Date(), BufferState.READY, 1.0), true);
+                                    break;
+
+                                case JsonInterface.QUERY_BUFFER_BY_NAME:
+                                    answer.bufferNames(Arrays.asList("buffer-a", "buffer-b"));
+                                    break;
+
+                                case JsonInterface.QUERY_METAINFO:
+                                    name = message.getArguments().get(JsonInterface.NAME).asString();
+                                    answer.bufferMetainfo(name, false, new HashMap<>());
+                                    break;
+
+                                default:
+                                    connection.disconnect();
+                                    break;
+                            }
+                        }
+                    }
+                    catch (IOException e) {
+                        // The client has closed the connection or the test is finished.
+                    }
+                }
+            }, "legacy daemon");
+            legacyDaemon.setDaemon(true);
+            legacyDaemon.start();
+
+            client.connect();
+            assertTrue(client.isConnected());
+            assertFalse(client.hasSubscriptions());
+
+            // The legacy daemon names no version, so the legacy protocol is tried next.
+            assertEquals(2, Collections.frequency(receivedTypes, JsonInterface.ESTABLISH));
+
+            // Subscriptions are not sent
+            assertFalse(client.subscribe("buffer-a", 100L, 1.0));
+            client.unsubscribe("buffer-a");
+
+            // The value changes are requested one by one
+            lastValue = null;
+            client.getOnChange("buffer-a");
+            Thread.sleep(100L);
+            assertNotNull(lastValue);
+            assertEquals("buffer-a", lastValue.getBufferName());
+
+            // The descriptions are queried one by one
+            assertEquals(2, client.queryDescriptionsByName("buffer-.").size());
+            assertEquals(2, Collections.frequency(receivedTypes, JsonInterface.QUERY_METAINFO));
+
+            assertTrue(client.isConnected());
+            assertFalse(receivedTypes.contains(JsonInterface.SUBSCRIBE));
+            assertFalse(receivedTypes.contains(JsonInterface.UNSUBSCRIBE));
+            assertTrue(receivedTypes.contains(JsonInterface.GET));
+
+            client.disconnect();
+        }
+        finally {
+            // The port is released, if the legacy daemon has stopped accepting connections.
+            serverSocket.close();
+            if (legacyDaemon != null) legacyDaemon.join(1000L);
+        }
+    }
+
+    /** This test case checks, that clients using the legacy protocol version get JSON messages only. */
+    @Test
+    public void testLegacyProtocol() throws IOException {
+
+        JsonInterface json = new JsonInterface();
+
+        try (ServerSocket serverSocket = new ServerSocket(0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())) {
+
+            new DaemonEndpoint(serverSocket.accept(), new TestDaemonStrategy(server));
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            // Establishing the connection
+            out.writeUTF("{\"type\":\"establish\",\"arguments\":{\"version\":1}}");
+            out.flush();
+
+            JsonObject answer = json.stringToJSON(in.readUTF());
+            assertEquals(JsonInterface.ACCEPTED, answer.get(JsonInterface.TYPE).asString());
+
+            // Querying a buffer value
+            out.writeUTF("{\"type\":\"getImmediate\",\"arguments\":{\"name\":\"buffer-c\"}}");
+            out.flush();
+
+            answer = json.stringToJSON(in.readUTF());
+            assertEquals(JsonInterface.PUSH, answer.get(JsonInterface.TYPE).asString());
+
+            JsonObject arguments = answer.get(JsonInterface.ARGUMENTS).asObject();
+            assertEquals("buffer-c", arguments.get(JsonInterface.NAME).asString());
+            assertEquals(BufferState.READY.name(), arguments.get(JsonInterface.STATE).asString());
+            assertEquals(16.0, arguments.get(JsonInterface.VALUE).asDouble(), 1.0e-10);
+
+            // Querying many buffer values
+            out.writeUTF("{\"type\":\"getImmediateAll\",\"arguments\":{\"name\":[\"buffer-a\",\"buffer-c\"]}}");
+            out.flush();
+
+            Message message = new Message(json.stringToJSON(in.readUTF()));
+            assertEquals(JsonInterface.BUFFER_VALUES, message.getType());
+            assertEquals(2, message.getValues().size());
+            assertEquals("buffer-a", message.getValues().get(0).getBufferName());
+            assertEquals(16.0, message.getValues().get(1).getValue().doubleValue(), 1.0e-10);
+        }
+    }
+
+    /** This test case checks, that the daemon answers a request with the request id of the request. */
+    @Test
+    public void testRequestIds() throws IOException {
+
+        try (ServerSocket serverSocket = new ServerSocket(0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())) {
+
+            new DaemonEndpoint(serverSocket.accept(), new TestDaemonStrategy(server));
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            BinaryInterface binary = new BinaryInterface();
+
+            // Establishing the connection using the protocol version 2
+            out.writeUTF("{\"type\":\"establish\",\"id\":1,\"arguments\":{\"version\":2}}");
+            out.flush();
+
+            JsonObject answer = new JsonInterface().stringToJSON(in.readUTF());
+            assertEquals(JsonInterface.ACCEPTED, answer.get(JsonInterface.TYPE).asString());
+            assertEquals(1, answer.get(JsonInterface.REQUEST_ID).asInt());
+
+            // Some requests are sent without waiting for the answers.
+            binary.writeJSON(out, "{\"type\":\"getImmediate\",\"id\":7,\"arguments\":{\"name\":\"buffer-c\"}}");
+            binary.writeJSON(out, "{\"type\":\"getBufferConfiguration\",\"id\":8,\"arguments\":{\"name\":\"buffer-n\"}}");
+            binary.writeJSON(out, "{\"type\":\"getImmediate\",\"arguments\":{\"name\":\"buffer-c\"}}");
+            out.flush();
+
+            Message message = binary.read(in);
+            assertEquals(JsonInterface.PUSH, message.getType());
+            assertFalse(message.isSpontaneous());
+            assertEquals(7, message.getRequestId());
+            assertEquals("buffer-c", message.getValue().getBufferName());
+
+            message = binary.read(in);
+            assertEquals(JsonInterface.REJECTED, message.getType());
+            assertEquals(8, message.getRequestId());
+
+            message = binary.read(in);
+            assertEquals(JsonInterface.PUSH, message.getType());
+            assertEquals(0, message.getRequestId());
+        }
+    }
+
+    /** This test case sends requests from several threads without waiting for the answers of the other threads. */
+    @Test
+    public void testConcurrentRequests() throws InterruptedException {
+
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+
+            final int offset = t * 1000;
+
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+
+                    // Every answer must belong to the request of this thread.
+                    SimpleData answer = client.set("buffer-c", (double)(offset + i));
+                    if (answer.getValue() == null || answer.getValue().doubleValue() != offset + i) failures.add("set " + (offset + i));
+
+                    BufferDescription description = client.queryMetainfo("buffer-b");
+                    if (description == null || !"buffer-b".equals(description.getBufferName())) failures.add("queryMetainfo");
+                }
+            }));
+        }
+
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(Collections.emptyList(), failures);
+        assertTrue(client.isConnected());
+    }
+
+    /** This test case sends requests without waiting for the answers. */
+    @Test
+    public void testAsyncRequests() {
+
+        List<CompletableFuture<SimpleData>> answers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) answers.add(client.setAsync("buffer-c", (double)i));
+
+        // The answers are assigned to their requests.
+        for (int i = 0; i < 100; i++) assertEquals((double)i, answers.get(i).join().getValue().doubleValue(), 1.0e-10);
+
+        CompletableFuture<BufferConfiguration> configuration = client.getBufferConfigurationAsync("buffer-a");
+        CompletableFuture<BufferConfiguration> unknown = client.getBufferConfigurationAsync("buffer-n");
+        CompletableFuture<Set<String>> names = client.queryBuffersByNameAsync("[abc]");
+
+        assertNotNull(configuration.join());
+        assertEquals(3, names.join().size());
+
+        try {
+            unknown.join();
+            assertTrue(false);
+        }
+        catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    /** This test case reads and writes many buffers with single requests. */
+    @Test
+    public void testBulkRequests() {
+
+        // Querying buffer descriptions
+        Set<BufferDescription> descriptions = client.queryDescriptionsByName("[abc]");
+        assertEquals(3, descriptions.size());
+        for (BufferDescription description : descriptions) assertEquals(client.queryMetainfo(description.getBufferName()), description);
+
+        assertEquals(client.queryBuffersByMetainfo("se", ".").size(), client.queryDescriptionsByMetainfo("se", ".").size());
+
+        // Reading buffer values
+        Map<String, SimpleData> values = client.getImmediateAll(Arrays.asList("buffer-a", "buffer-c", "buffer-n"));
+        assertEquals(2, values.size());
+        assertEquals(4.0, values.get("buffer-a").getValue().doubleValue(), 1.0e-10);
+        assertEquals(16.0, values.get("buffer-c").getValue().doubleValue(), 1.0e-10);
+
+        // Setting buffer values. A sensor rejects the value change.
+        Map<String, Number> changes = new HashMap<>();
+        changes.put("buffer-a", 1.0);
+        changes.put("buffer-c", 12.0);
+
+        values = client.setAll(changes);
+        assertEquals(1, values.size());
+        assertEquals(12.0, values.get("buffer-c").getValue().doubleValue(), 1.0e-10);
+    }
+
+    /** This test case reads the history of buffers. */
+    @Test
+    public void testHistory() {
+
+        List<SimpleData> history = client.getHistory("buffer-a", 2500L, 5000L, 0);
+        assertEquals(3, history.size());
+        assertEquals("buffer-a", history.get(0).getBufferName());
+        assertEquals(3000L, history.get(0).getTime());
+        assertEquals(3.0, history.get(0).getValue().doubleValue(), 1.0e-10);
+        assertEquals(5.0, history.get(2).getValue().doubleValue(), 1.0e-10);
+
+        assertTrue(client.getHistory("buffer-b", 0L, Long.MAX_VALUE, 0).isEmpty());
+
+        try {
+            client.getHistory("buffer-n", 0L, Long.MAX_VALUE, 0);
+            assertTrue(false);
+        }
+        catch (IllegalArgumentException e) {
+            // The buffer is unknown.
+        }
+    }
+
+    /** This test case checks the JSON encoding of a history, which is used by the protocol version 1. */
+    @Test
+    public void testJsonHistory() throws IOException {
+
+        JsonInterface json = new JsonInterface();
+
+        try (ServerSocket serverSocket = new ServerSocket(0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())) {
+
+            new DaemonEndpoint(serverSocket.accept(), new TestDaemonStrategy(server));
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            out.writeUTF("{\"type\":\"establish\",\"arguments\":{\"version\":1}}");
+            out.flush();
+            assertEquals(JsonInterface.ACCEPTED, json.stringToJSON(in.readUTF()).get(JsonInterface.TYPE).asString());
+
+            out.writeUTF("{\"type\":\"getHistory\",\"arguments\":{\"name\":\"buffer-a\",\"from\":9000,\"to\":20000}}");
+            out.flush();
+
+            Message message = new Message(json.stringToJSON(in.readUTF()));
+            assertEquals(JsonInterface.BUFFER_HISTORY, message.getType());
+            assertEquals(2, message.getValues().size());
+            assertEquals("buffer-a", message.getValues().get(1).getBufferName());
+            assertEquals(10000L, message.getValues().get(1).getTime());
+            assertEquals(10.0, message.getValues().get(1).getValue().doubleValue(), 1.0e-10);
+        }
+    }
+
+    /** This test case reads the aggregates of some buffers. */
+    @Test
+    public void testAggregates() {
+
+        Map<String, List<Aggregate>> aggregates = client.getAggregates(Arrays.asList("buffer-a", "buffer-b", "buffer-n"), 0L, 59999L, 15000L);
+        assertEquals(2, aggregates.size());
+        assertTrue(aggregates.get("buffer-b").isEmpty());
+
+        // The window is a multiple of the rollup period.
+        List<Aggregate> a = aggregates.get("buffer-a");
+        assertEquals(3, a.size());
+        assertEquals("buffer-a", a.get(0).getBufferName());
+        assertEquals(20000L, a.get(1).getStart());
+        assertEquals(20000L, a.get(1).getWindow());
+        assertEquals(10, a.get(1).getCount());
+        assertEquals(1.0, a.get(1).getMinimum(), 1.0e-10);
+        assertEquals(10.0, a.get(1).getMaximum(), 1.0e-10);
+        assertEquals(5.5, a.get(1).getAverage(), 1.0e-10);
+
+        try {
+            client.getAggregates(Arrays.asList("buffer-a"), 0L, 59999L, 0L);
+            assertTrue(false);
+        }
+        catch (IllegalArgumentException e) {
+            // The window is illegal.
+        }
+    }
+
+    /** This test case watches conditions of buffers. */
+    @Test
+    public void testConditions() throws InterruptedException {
+
+        List<ConditionEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        // The current status is sent at once.
+        int id = client.watch("buffer-a", Condition.above(10.0, 1.0), events::add);
+        assertTrue(id > 0);
+        Thread.sleep(100L);
+        assertEquals(1, events.size());
+        assertEquals(id, events.get(0).getId());
+        assertFalse(events.get(0).isActive());
+        assertEquals(4.0, events.get(0).getValue().getValue().doubleValue(), 1.0e-10);
+
+        // The events fired by the daemon are received by the observer of the watch.
+        daemon.conditionChanged(new ConditionEvent(id, new SimpleData("buffer-a", new Date(), BufferState.READY, 12.0), true));
+        Thread.sleep(100L);
+        assertEquals(2, events.size());
+        assertTrue(events.get(1).isActive());
+        assertEquals("buffer-a", events.get(1).getValue().getBufferName());
+
+        // After cancelling the watch, no event is received.
+        client.unwatch(id);
+        daemon.conditionChanged(new ConditionEvent(id, new SimpleData("buffer-a", new Date(), BufferState.READY, 2.0), false));
+        Thread.sleep(100L);
+        assertEquals(2, events.size());
+
+        // The watch of an unknown buffer ends at once.
+        id = client.watch("buffer-n", Condition.stateChange(), events::add);
+        Thread.sleep(100L);
+        assertEquals(3, events.size());
+        assertEquals(id, events.get(2).getId());
+        assertEquals(BufferState.RELEASED, events.get(2).getValue().getState());
+        daemon.conditionChanged(new ConditionEvent(id, new SimpleData("buffer-n", new Date(), BufferState.READY, 2.0), true));
+        Thread.sleep(100L);
+        assertEquals(3, events.size());
+    }
+
+    /** This test case checks the communication with a daemon endpoint served by an event loop. */
+    @Test
+    public void testEventLoop() throws IOException, InterruptedException {
+
+        List<DaemonEndpoint> endpoints = Collections.synchronizedList(new ArrayList<>());
+        EventLoop eventLoop = new EventLoop(0, () -> new TestDaemonStrategy(server), endpoints::add);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), eventLoop.getLocalPort())) {
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            BinaryInterface binary = new BinaryInterface();
+
+            // Establishing the connection using the protocol version 2
+            out.writeUTF("{\"type\":\"establish\",\"arguments\":{\"version\":2}}");
+            out.flush();
+
+            JsonObject answer = new JsonInterface().stringToJSON(in.readUTF());
+            assertEquals(JsonInterface.ACCEPTED, answer.get(JsonInterface.TYPE).asString());
+            assertEquals(1, endpoints.size());
+
+            // Querying a buffer value
+            binary.writeJSON(out, "{\"type\":\"getImmediate\",\"arguments\":{\"name\":\"buffer-c\"}}");
+            out.flush();
+
+            Message message = binary.read(in);
+            assertEquals(JsonInterface.PUSH, message.getType());
+            assertFalse(message.isSpontaneous());
+            assertEquals("buffer-c", message.getValue().getBufferName());
+            assertEquals(16.0, message.getValue().getValue().doubleValue(), 1.0e-10);
+
+            // Subscribing a buffer
+            binary.writeJSON(out, "{\"type\":\"subscribe\",\"arguments\":{\"name\":\"buffer-a\"}}");
+            out.flush();
+
+            message = binary.read(in);
+            assertEquals(JsonInterface.PUSH, message.getType());
+            assertEquals("buffer-a", message.getValue().getBufferName());
+            assertEquals(4.0, message.getValue().getValue().doubleValue(), 1.0e-10);
+
+            endpoints.get(0).spontaneousValueChange(new SimpleData("buffer-a", new Date(), BufferState.READY, 5.0));
+
+            message = binary.read(in);
+            assertEquals(JsonInterface.PUSH, message.getType());
+            assertTrue(message.isSpontaneous());
+            assertEquals(5.0, message.getValue().getValue().doubleValue(), 1.0e-10);
+
+            // Closing the connection
+            binary.writeJSON(out, "{\"type\":\"disconnect\",\"arguments\":{}}");
+            out.flush();
+            Thread.sleep(100L);
+            assertFalse(endpoints.get(0).isConnected());
+        }
+        finally {
+            eventLoop.close();
+        }
+    }
+
+    /** This test case checks, that closing an event loop sends the last messages and closes the connections. */
+    @Test
+    public void testEventLoopClose() throws IOException {
+
+        List<DaemonEndpoint> endpoints = Collections.synchronizedList(new ArrayList<>());
+        EventLoop eventLoop = new EventLoop(0, () -> new TestDaemonStrategy(server), endpoints::add);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), eventLoop.getLocalPort())) {
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            BinaryInterface binary = new BinaryInterface();
+
+            out.writeUTF("{\"type\":\"establish\",\"arguments\":{\"version\":2}}");
+            out.flush();
+            in.readUTF();
+
+            binary.writeJSON(out, "{\"type\":\"subscribe\",\"arguments\":{\"name\":\"buffer-a\"}}");
+            out.flush();
+            assertEquals(JsonInterface.PUSH, binary.read(in).getType());
+
+            // The value change is collected, when the event loop is closed.
+            endpoints.get(0).spontaneousValueChange(new SimpleData("buffer-a", new Date(), BufferState.READY, 6.0));
+            eventLoop.close();
+
+            socket.setSoTimeout(5000);
+            Message message = binary.read(in);
+            assertEquals(JsonInterface.PUSH, message.getType());
+            assertEquals(6.0, message.getValue().getValue().doubleValue(), 1.0e-10);
+            assertEquals(JsonInterface.DISCONNECT, binary.read(in).getType());
+            assertEquals(-1, in.read());
+            assertFalse(endpoints.get(0).isConnected());
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package at.ac.tuwien.infosys.g2021.common.communication;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferClass;
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
 import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -217,6 +224,64 @@ class TestDaemonStrategy implements ClientRequestExecutionStrategy {
     @Override
     public SimpleData bufferValue(DaemonEndpoint conn, String bufferName) { return values.get(bufferName); }
 
+    /**
+     * Returns the history of a buffer. The buffer "buffer-a" has the values 1.0 to 10.0 at the timestamps 1000 to 10000,
+     * all the other buffers keep no history. The maximum number of values is ignored.
+     *
+     * @param conn       the connection
+     * @param bufferName the name of the buffer
+     * @param from       the start of the time range in milliseconds since the epoch, inclusive
+     * @param to         the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints  the maximum number of values, which is 0 for no limit
+     *
+     * @return the values in the order of their timestamps or <tt>null</tt>, is no buffer with this name is known
+     */
+    @Override
+    public List<SimpleData> bufferHistory(DaemonEndpoint conn, String bufferName, long from, long to, int maxPoints) {
+
+        if (!values.containsKey(bufferName)) return null;
+
+        List<SimpleData> result = new ArrayList<>();
+
+        if (bufferName.equals("buffer-a")) {
+            for (int i = 1; i <= 10; i++) {
+                if (i * 1000L >= from && i * 1000L <= to) result.add(new SimpleData(bufferName, i * 1000L, (double)i));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the aggregates of some buffers.
+     *
+     * @param conn        the connection
+     * @param bufferNames the names of the buffers
+     * @param from        the start of the time range in milliseconds since the epoch, inclusive
+     * @param to          the end of the time range in milliseconds since the epoch, inclusive
+     * @param window      the length of a time window in milliseconds
+     *
+     * @return the aggregates in the order of their time windows by buffer name
+     */
+    @Override
+    public Map<String, List<Aggregate>> bufferAggregates(DaemonEndpoint conn, Collection<String> bufferNames, long from, long to, long window) {
+
+        Map<String, List<Aggregate>> result = new LinkedHashMap<>();
+
+        for (String bufferName : bufferNames) {
+            if (!values.containsKey(bufferName)) continue;
+
+            List<Aggregate> aggregates = new ArrayList<>();
+            if (bufferName.equals("buffer-a")) {
+                for (long start = from; start <= to; start += window) aggregates.add(new Aggregate(bufferName, start, window, 10, 1.0, 10.0, 5.5));
+            }
+
+            result.put(bufferName, aggregates);
+        }
+
+        return result;
+    }
+
     /**
      * Sets the value of a buffer.
      *
@@ -249,4 +314,34 @@ class TestDaemonStrategy implements ClientRequestExecutionStrategy {
      */
     @Override
     public boolean removeBuffer(DaemonEndpoint conn, String bufferName) { return configurations.containsKey(bufferName); }
+
+    /**
+     * Watches a condition of a buffer. The current status is sent at once, further events are fired by the test case.
+     *
+     * @param conn       the connection
+     * @param bufferName the name of the buffer
+     * @param id         the id of the watch chosen by the client
+     * @param condition  the condition
+     *
+     * @return <tt>true</tt>, if the buffer is watched now
+     */
+    @Override
+    public boolean watch(DaemonEndpoint conn, String bufferName, int id, Condition condition) {
+
+        SimpleData value = values.get(bufferName);
+
+        if (value == null) return false;
+
+        conn.conditionChanged(new ConditionEvent(id, value, condition.isActive(value, false)));
+        return true;
+    }
+
+    /**
+     * Cancels the watch of a condition.
+     *
+     * @param conn the connection
+     * @param id   the id of the watch chosen by the client
+     */
+    @Override
+    public void unwatch(DaemonEndpoint conn, int id) {}
 }
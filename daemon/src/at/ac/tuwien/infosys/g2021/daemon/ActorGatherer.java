@@ -64,9 +64,10 @@ class ActorGatherer extends Gatherer {
                     setCurrentState(BufferState.FAULTED);
                 }
             }
-
-            return result;
         }
+
+        publish();
+        return result;
     }
 }
 
@@ -3,14 +3,16 @@ package at.ac.tuwien.infosys.g2021.daemon;
 import at.ac.tuwien.infosys.g2021.common.BufferState;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
-import java.util.Date;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * An adapter is an object, that transforms a value to another. Value changes may be initiated
  * by signalling a value change over the <tt>{@link ValueChangeConsumer}</tt>-interface or by any asynchronous
  * other event (eg. the system timer). Changes of the adapter value are signalled over the
- * <tt>{@link ValueChangeConsumer}</tt>-interface.
+ * <tt>{@link ValueChangeConsumer}</tt>-interface. They are signalled after releasing the value lock,
+ * so no lock of an adapter is held while the consumers are working.
  */
 abstract class Adapter extends ValueChangeProducer implements ValueChangeConsumer {
 
@@ -20,17 +22,21 @@ abstract class Adapter extends ValueChangeProducer implements ValueChangeConsume
     // The used configuration
     private Object configuration;
 
-    // The current gatherer value
-    private SimpleData currentValue;
+    // The current adapter value. It is an immutable snapshot, which can be read without locking.
+    private volatile SimpleData currentValue;
 
     // This is the lock object for changing values
     protected final Object valueLock;
 
+    // The supplier of the current value used by publish()
+    private final Supplier<SimpleData> latestValue;
+
     /** Initializing the instance variables. */
     private Adapter() {
 
         valueLock = new Object();
-        currentValue = new SimpleData(new Date(), BufferState.INITIALIZING);
+        latestValue = this::get;
+        currentValue = new SimpleData(System.currentTimeMillis(), BufferState.INITIALIZING);
     }
 
     /**
@@ -57,35 +63,71 @@ abstract class Adapter extends ValueChangeProducer implements ValueChangeConsume
      *
      * @return the current value
      */
-    SimpleData get() {
-
-        synchronized (valueLock) {
-            return currentValue;
-        }
-    }
+    SimpleData get() { return currentValue; }
 
     /**
      * Sets the current value of the adapter
      *
      * @param value the new current value
      */
-    void set(SimpleData value) {
+    void set(SimpleData value) { set(value, false); }
 
-        synchronized (valueLock) {
+    /**
+     * Sets the current value of the adapter. A value equal to the current value is ignored, unless it is forced,
+     * which is used for sending the current value again with a new timestamp.
+     *
+     * @param value  the new current value
+     * @param always <tt>true</tt>, if the value is set even if it is equal to the current value
+     */
+    void set(SimpleData value, boolean always) {
+
+        boolean changed = false;
 
-            if (!currentValue.equals(value)) {
+        synchronized (valueLock) {
+            if (always || !currentValue.equals(value)) {
                 currentValue = value;
-                if (currentValue.getValue() == null) {
-                    logger.fine(String.format("An instance of '%s' distributes the new state %s.",
-                                              getClass().getSimpleName(), value.getState().name()));
-                }
-                else {
-                    logger.fine(String.format("An instance of '%s' distributes the new value %.3f.",
-                                              getClass().getSimpleName(), value.getValue().doubleValue()));
-                }
-                fireValueChange(currentValue);
+                changed = true;
+            }
+        }
+
+        if (changed && logger.isLoggable(Level.FINE)) {
+            if (value.hasValue()) {
+                logger.log(Level.FINE, "An instance of ''{0}'' distributes the new value {1,number,0.000}.",
+                           new Object[] {getClass().getSimpleName(), value.doubleValue()});
+            }
+            else {
+                logger.log(Level.FINE, "An instance of ''{0}'' distributes the new state {1}.",
+                           new Object[] {getClass().getSimpleName(), value.getState().name()});
             }
         }
+
+        if (!Thread.holdsLock(valueLock)) publish();
+    }
+
+    /**
+     * Distributes the current value. Subclasses changing the value while holding the value lock outside of
+     * <tt>{@link #adapt(SimpleData)}</tt> must call this method after releasing the lock.
+     */
+    protected void publish() { fireLatestValue(latestValue); }
+
+    /**
+     * This is the notification of a spontaneous value change. The new input value is adapted and the
+     * resulting value change is distributed.
+     *
+     * @param newValue the new input value
+     */
+    @Override
+    public final void valueChanged(SimpleData newValue) {
+
+        adapt(newValue);
+        publish();
     }
+
+    /**
+     * Calculates the adapter value for a new input value and sets it.
+     *
+     * @param newValue the new input value
+     */
+    abstract void adapt(SimpleData newValue);
 }
 
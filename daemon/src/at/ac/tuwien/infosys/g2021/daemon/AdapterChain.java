@@ -7,7 +7,9 @@ import at.ac.tuwien.infosys.g2021.common.FilteringAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.LowpassAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.ScalingAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import at.ac.tuwien.infosys.g2021.common.ThrottlingAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.TriggeringAdapterConfiguration;
+import at.ac.tuwien.infosys.g2021.common.WindowAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.util.NotYetImplementedError;
 import java.util.ArrayList;
 import java.util.List;
@@ -18,8 +20,9 @@ import java.util.List;
  */
 class AdapterChain extends Adapter {
 
-    // This is the list of assigned adapters.
+    // This is the list of assigned adapters and the first adapter, which receives the input values.
     private List<Adapter> adapters;
+    private volatile Adapter first;
 
     /**
      * Initializing with a given buffer configuration.
@@ -53,10 +56,18 @@ class AdapterChain extends Adapter {
                     toInsert = new ScalingAdapter((ScalingAdapterConfiguration)adapterConfig);
                     break;
 
+                case THROTTLE:
+                    toInsert = new ThrottlingAdapter((ThrottlingAdapterConfiguration)adapterConfig);
+                    break;
+
                 case TRIGGER:
                     toInsert = new TriggeringAdapter((TriggeringAdapterConfiguration)adapterConfig);
                     break;
 
+                case WINDOW:
+                    toInsert = new WindowAdapter((WindowAdapterConfiguration)adapterConfig);
+                    break;
+
                 default:
                     throw new NotYetImplementedError("unknown adapter implementation for adapter class: " +
                                                      adapterConfig.kindOfAdapter().name());
@@ -71,6 +82,7 @@ class AdapterChain extends Adapter {
         // Now we install the producer - consumer dependencies
         for (int i = 1; i < adapters.size(); i++) adapters.get(i - 1).addValueChangeConsumer(adapters.get(i));
         adapters.get(adapters.size() - 1).addValueChangeConsumer(this);
+        first = adapters.get(0);
     }
 
     /**
@@ -81,6 +93,7 @@ class AdapterChain extends Adapter {
     void shutdown() {
 
         synchronized (valueLock) {
+            first = null;
             for (Adapter adapter : adapters) adapter.shutdown();
             adapters.clear();
             super.shutdown();
@@ -88,24 +101,25 @@ class AdapterChain extends Adapter {
     }
 
     /**
-     * Putting a value into the chain. It is routed to the first adapter.
+     * Putting a value into the chain. It is routed to the first adapter. No lock is held, while the value
+     * passes the chain.
      *
      * @param value the input value
      */
     void put(SimpleData value) {
 
-        synchronized (valueLock) {
-            adapters.get(0).valueChanged(value);
-        }
+        Adapter adapter = first;
+        if (adapter != null) adapter.valueChanged(value);
     }
 
     /**
      * This is the notification of a spontaneous value change of the
      * last adapter in the chain. This value becomes the current value
-     * of the whole chain.
+     * of the whole chain. The last adapter distributes only values,
+     * which it has set, so an equal value is a value sent again.
      *
      * @param newValue the new buffer value
      */
     @Override
-    public void valueChanged(SimpleData newValue) { set(newValue); }
+    void adapt(SimpleData newValue) { set(newValue, true); }
 }
@@ -0,0 +1,216 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * This log handler decouples the logging threads from the log output. The log records are put into a ring buffer of
+ * fixed capacity, which is allocated once. A writer thread of its own takes the records from the ring buffer and
+ * publishes them with the target handler, so the logging threads never wait for the formatting and the I/O of the
+ * target handler.
+ * </p>
+ * <p>
+ * If the ring buffer is full, the log record is dropped. The dropped records are counted per subject. The subject of
+ * a record is its first parameter, if it is a string (e.g. the buffer name of a value change message), otherwise its
+ * logger name. As soon as the ring buffer is drained, but at least once a second, a summary of the dropped records of
+ * every subject is written.
+ * </p>
+ * <p>
+ * The capacity of the ring buffer can be set with the system property "<tt>at.ac.tuwien.infosys.g2021.log.capacity</tt>".
+ * A capacity of 0 disables the asynchronous logging.
+ * </p>
+ */
+class AsyncLogHandler extends Handler {
+
+    /** The default capacity of the ring buffer. */
+    final static int CAPACITY_DEFAULT = 4096;
+
+    // The longest time in milliseconds between two summaries of dropped records
+    private final static long SUMMARY_PERIOD = 1000L;
+
+    // The logger.
+    private final static Logger logger = Loggers.getLogger(AsyncLogHandler.class);
+
+    // The handler writing the records
+    private final Handler target;
+
+    // The ring buffer
+    private final BlockingQueue<LogRecord> records;
+
+    // The number of dropped records per subject
+    private final Map<String, AtomicLong> dropped;
+
+    // The writer thread
+    private final Thread writer;
+    private volatile boolean running;
+
+    /**
+     * Starts the asynchronous logging.
+     *
+     * @param t        the handler writing the records
+     * @param capacity the capacity of the ring buffer
+     */
+    AsyncLogHandler(Handler t, int capacity) {
+
+        target = t;
+        records = new ArrayBlockingQueue<>(capacity);
+        dropped = new ConcurrentHashMap<>();
+        running = true;
+
+        // Records not accepted by the target should not occupy the ring buffer.
+        setLevel(t.getLevel());
+
+        writer = new Thread(this::run, "log writer thread");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Returns the capacity of the ring buffer from the system property "<tt>at.ac.tuwien.infosys.g2021.log.capacity</tt>".
+     *
+     * @return the capacity of the ring buffer. A capacity of 0 means, that asynchronous logging is disabled.
+     */
+    static int capacity() {
+
+        int result = CAPACITY_DEFAULT;
+
+        String property = System.getProperty("at.ac.tuwien.infosys.g2021.log.capacity");
+        if (property != null) {
+            try {
+                result = Integer.parseInt(property);
+            }
+            catch (NumberFormatException nfe) {
+                result = -1;
+            }
+
+            if (result < 0) {
+                logger.warning(String.format("'%s' is not a valid log buffer capacity. The default of %d records will be used.", property, CAPACITY_DEFAULT));
+                result = CAPACITY_DEFAULT;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the handler writing the records.
+     *
+     * @return the target handler
+     */
+    Handler getTarget() { return target; }
+
+    /**
+     * Puts a log record into the ring buffer. If the ring buffer is full, the record is dropped.
+     *
+     * @param record the log record
+     */
+    @Override
+    public void publish(LogRecord record) {
+
+        if (!isLoggable(record)) return;
+
+        if (!running) {
+            target.publish(record);
+            return;
+        }
+
+        // The source class is inferred from the stack of the calling thread. Therefore this cannot be done by the writer.
+        record.getSourceClassName();
+
+        if (!records.offer(record)) {
+
+            Object[] parameters = record.getParameters();
+            String subject = parameters != null && parameters.length > 0 && parameters[0] instanceof String
+                             ? (String)parameters[0]
+                             : record.getLoggerName();
+
+            dropped.computeIfAbsent(String.valueOf(subject), s -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /** The implementation of the writer thread. */
+    private void run() {
+
+        long lastSummary = System.currentTimeMillis();
+
+        while (running || !records.isEmpty()) {
+
+            try {
+                LogRecord record = records.poll(100L, TimeUnit.MILLISECONDS);
+                if (record != null) target.publish(record);
+
+                long now = System.currentTimeMillis();
+                if (records.isEmpty() || now - lastSummary >= SUMMARY_PERIOD) {
+                    summarizeDroppedRecords();
+                    target.flush();
+                    lastSummary = now;
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (RuntimeException e) {
+                reportError("A log record cannot be written.", e, 0);
+            }
+        }
+
+        summarizeDroppedRecords();
+    }
+
+    /** Writes a warning for every subject, which has dropped records. */
+    private void summarizeDroppedRecords() {
+
+        for (Iterator<Map.Entry<String, AtomicLong>> i = dropped.entrySet().iterator(); i.hasNext(); ) {
+
+            Map.Entry<String, AtomicLong> entry = i.next();
+            i.remove();
+
+            // Records dropped meanwhile are counted by the removed counter. They are lost for the summary.
+            LogRecord summary = new LogRecord(Level.WARNING, "{0} log records about ''{1}'' have been dropped.");
+            summary.setParameters(new Object[] {entry.getValue().get(), entry.getKey()});
+            summary.setLoggerName(logger.getName());
+            summary.setSourceClassName(AsyncLogHandler.class.getName());
+            summary.setSourceMethodName("run");
+
+            target.publish(summary);
+        }
+    }
+
+    /** Flushes the target handler. The records in the ring buffer are written by the writer thread. */
+    @Override
+    public void flush() { target.flush(); }
+
+    /**
+     * Stops the asynchronous logging. The records in the ring buffer are written before this method returns. Records
+     * published later are written immediately. The target handler isn't closed.
+     */
+    @Override
+    public void close() {
+
+        running = false;
+
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Records put into the ring buffer while the writer was terminating
+        for (LogRecord record = records.poll(); record != null; record = records.poll()) target.publish(record);
+
+        target.flush();
+    }
+}
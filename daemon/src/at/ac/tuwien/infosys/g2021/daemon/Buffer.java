@@ -1,13 +1,20 @@
 package at.ac.tuwien.infosys.g2021.daemon;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferClass;
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
 import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
 import at.ac.tuwien.infosys.g2021.common.util.NotYetImplementedError;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -17,6 +24,16 @@ import java.util.logging.Logger;
  * from the gatherer are put into a chain of adapters and the result is stored as buffer value.
  * A current actor value is the last value put into the buffer. This value is converted by the
  * adapters and then put into the gatherer.
+ * <p>
+ * The current value is an immutable snapshot, which is read without locking. No lock of the buffer
+ * is held, while values pass the adapters or value changes are distributed.
+ * <p>
+ * If the configuration contains a history capacity, the buffer records its latest values in a
+ * <tt>{@link BufferHistory}</tt>. If the configuration contains a rollup capacity, the buffer summarizes
+ * its values in <tt>{@link BufferRollups}</tt>.
+ * <p>
+ * Clients may watch conditions of the buffer. The <tt>{@link BufferConditions}</tt> are evaluated with every new value,
+ * so no crossing of a limit is lost, even if the value change is never distributed to the client.
  */
 class Buffer extends ValueChangeProducer {
 
@@ -55,23 +72,36 @@ class Buffer extends ValueChangeProducer {
     private BufferConfiguration configuration;
 
     // The adapter chain
-    private AdapterChain adapters;
+    private volatile AdapterChain adapters;
     private AdapterListener adapterListener;
 
     // The used gatherer
-    private Gatherer gatherer;
+    private volatile Gatherer gatherer;
     private GathererListener gathererListener;
 
     // The current buffer value
-    private SimpleData currentValue;
+    private volatile SimpleData currentValue;
+
+    // The latest buffer values or null, if the buffer keeps no history
+    private BufferHistory history;
+
+    // The summaries of the latest buffer values or null, if the buffer keeps no rollups
+    private BufferRollups rollups;
+
+    // The watched conditions or null, if no condition is watched
+    private BufferConditions conditions;
 
     // And another object for thread synchronization
     private final Object lock;
 
+    // This supplier is used for publishing, so no method reference is created at every value change
+    private final Supplier<SimpleData> latestValue;
+
     /** Initializing without configuration. */
     private Buffer() {
 
         lock = new Object();
+        latestValue = this::get;
     }
 
     /**
@@ -99,6 +129,8 @@ class Buffer extends ValueChangeProducer {
         this.name = name;
         this.hardwareBuffer = hw;
         this.configuration = config;
+        if (config.getHistoryCapacity() > 0) history = new BufferHistory(config.getHistoryCapacity());
+        if (config.getRollupCapacity() > 0) rollups = new BufferRollups(config.getRollupCapacity());
 
         // Looking for the gatherer
         gatherer = Daemon.get().gatherers().gathererForConfiguration(config.getGatherer());
@@ -152,9 +184,14 @@ class Buffer extends ValueChangeProducer {
             }
 
             // Now the buffer is released
-            setValue(new SimpleData(name, new Date(), BufferState.RELEASED));
-            super.shutdown();
+            setValue(new SimpleData(name, System.currentTimeMillis(), BufferState.RELEASED), false);
+
+            // The watches end with the release.
+            conditions = null;
         }
+
+        publish();
+        super.shutdown();
     }
 
     /**
@@ -166,13 +203,12 @@ class Buffer extends ValueChangeProducer {
      */
     private void adapterValueChanged(SimpleData newValue) {
 
-        synchronized (lock) {
-            if (configuration.getBufferClass() == BufferClass.SENSOR) {
-                setValue(new SimpleData(name, newValue));
-            }
-            else if (configuration.getBufferClass() == BufferClass.ACTOR && gatherer != null) {
-                if (!gatherer.set(newValue.getValue())) takeStateFromGatherer(BufferState.FAULTED);
-            }
+        if (configuration.getBufferClass() == BufferClass.SENSOR) {
+            setValue(new SimpleData(name, newValue), true);
+        }
+        else if (configuration.getBufferClass() == BufferClass.ACTOR) {
+            Gatherer g = gatherer;
+            if (g != null && !g.set(newValue.getValue())) takeStateFromGatherer(BufferState.FAULTED);
         }
     }
 
@@ -185,19 +221,19 @@ class Buffer extends ValueChangeProducer {
      */
     private void gathererValueChanged(SimpleData newValue) {
 
-        synchronized (lock) {
-            if (gatherer != null) {
-                if (configuration.getBufferClass() == BufferClass.SENSOR && adapters != null) {
+        Gatherer g = gatherer;
+        AdapterChain a = adapters;
 
-                    SimpleData gathererValue = gatherer.get();
+        if (g != null && a != null) {
+            if (configuration.getBufferClass() == BufferClass.SENSOR) {
 
-                    adapters.put(new SimpleData(getName(), gathererValue));
-                }
-                else if (configuration.getBufferClass() == BufferClass.ACTOR) {
-                    if (newValue.getState() != BufferState.READY) {
-                        takeStateFromGatherer(BufferState.FAULTED);
-                        adapters.put(get());
-                    }
+                // The value gets the buffer name, when it becomes the buffer value.
+                a.put(g.get());
+            }
+            else if (configuration.getBufferClass() == BufferClass.ACTOR) {
+                if (newValue.getState() != BufferState.READY) {
+                    takeStateFromGatherer(BufferState.FAULTED);
+                    a.put(get());
                 }
             }
         }
@@ -250,44 +286,148 @@ class Buffer extends ValueChangeProducer {
             BufferState state = gatherer == null ? BufferState.RELEASED : gatherer.get().getState();
 
             if (state == BufferState.READY) state = readyState;
-            currentValue = new SimpleData(name, new Date(), state);
+            currentValue = new SimpleData(name, System.currentTimeMillis(), state);
+            record(currentValue);
         }
     }
 
     /**
-     * This sets the new value and distributes the value change.
+     * This sets the new value and distributes the value change. The adapter chain distributes only changed values
+     * or values sent again with a new timestamp, so its values are always taken.
      *
      * @param newValue the new buffer value
+     * @param always   <tt>true</tt>, if the value is set even if it is equal to the current value
      */
-    private void setValue(SimpleData newValue) {
+    private void setValue(SimpleData newValue, boolean always) {
 
-        synchronized (lock) {
-            if (currentValue == null || !currentValue.equals(newValue)) {
+        boolean changed = false;
 
+        synchronized (lock) {
+            if (always || currentValue == null || !currentValue.equals(newValue)) {
                 currentValue = newValue;
-                if (currentValue.getValue() == null) {
-                    logger.info(String.format("The buffer '%s' distributes the new state %s.", name, currentValue.getState().name()));
-                }
-                else {
-                    logger.info(String.format("The buffer '%s' distributes the new value %.3f.", name, currentValue.getValue().doubleValue()));
-                }
-                fireValueChange(currentValue);
+                record(newValue);
+                changed = true;
             }
         }
+
+        if (changed) logValueChange(newValue);
+        if (!Thread.holdsLock(lock)) publish();
     }
 
     /**
-     * Returns the current buffer value.
+     * Records a new buffer value in the history and the rollups and evaluates the watched conditions. This must be done
+     * holding the lock, so the history and the condition events keep the order of the value changes.
      *
-     * @return the current buffer value
+     * @param value the new buffer value
+     */
+    private void record(SimpleData value) {
+
+        if (history != null) history.add(value);
+        if (rollups != null && value.getState() == BufferState.READY && value.hasValue()) rollups.add(value.getTime(), value.doubleValue());
+        if (conditions != null) conditions.evaluate(value);
+    }
+
+    /**
+     * Watches a condition of this buffer. The listener receives the current status of the condition at once and then every
+     * change of the status. It is called holding the lock of the buffer, so it must not block. A watch of the same owner
+     * with the same id is replaced. The watch of a released buffer ends with the event reporting the release.
+     *
+     * @param owner     the owner of the watch
+     * @param id        the id of the watch
+     * @param condition the condition
+     * @param listener  the listener
+     */
+    void watch(Object owner, int id, Condition condition, Consumer<ConditionEvent> listener) {
+
+        synchronized (lock) {
+
+            SimpleData current = currentValue;
+            if (current == null) current = new SimpleData(name, System.currentTimeMillis(), BufferState.INITIALIZING);
+
+            if (conditions == null) conditions = new BufferConditions();
+            conditions.add(owner, id, condition, listener, current);
+
+            if (current.getState() == BufferState.RELEASED) unwatch(owner, id);
+        }
+    }
+
+    /**
+     * Cancels the watch of a condition. If there is no such watch, this method has no effect.
+     *
+     * @param owner the owner of the watch
+     * @param id    the id of the watch
      */
-    SimpleData get() {
+    void unwatch(Object owner, int id) {
 
         synchronized (lock) {
-            return currentValue;
+            if (conditions != null && conditions.remove(owner, id) && conditions.isEmpty()) conditions = null;
+        }
+    }
+
+    /**
+     * Returns the recorded buffer values within a time range.
+     *
+     * @param from      the start of the time range in milliseconds since the epoch, inclusive
+     * @param to        the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints the maximum number of values, which is 0 for no limit
+     *
+     * @return the values in the order of their timestamps, which are empty, if the buffer keeps no history
+     */
+    List<SimpleData> getHistory(long from, long to, int maxPoints) {
+
+        return history == null ? new ArrayList<>() : history.get(name, from, to, maxPoints);
+    }
+
+    /**
+     * Does the history of this buffer contain all the values since a given time?
+     *
+     * @param from the time in milliseconds since the epoch
+     *
+     * @return <tt>true</tt>, if the oldest value of the history is not younger than the given time
+     */
+    boolean historyCovers(long from) { return history != null && history.oldest() <= from; }
+
+    /**
+     * Returns the aggregates of the buffer values within a time range.
+     *
+     * @param from   the start of the time range in milliseconds since the epoch, inclusive
+     * @param to     the end of the time range in milliseconds since the epoch, inclusive
+     * @param window the length of the time windows in milliseconds
+     *
+     * @return the aggregates in the order of their time windows, which are empty, if the buffer keeps no rollups
+     */
+    List<Aggregate> getAggregates(long from, long to, long window) {
+
+        return rollups == null ? new ArrayList<>() : rollups.get(name, from, to, window);
+    }
+
+    /**
+     * Logs a change of the buffer value. The message is formatted by the log handler, and only if the level is enabled.
+     *
+     * @param value the new buffer value
+     */
+    private void logValueChange(SimpleData value) {
+
+        if (!logger.isLoggable(Level.INFO)) return;
+
+        if (value.hasValue()) {
+            logger.log(Level.INFO, "The buffer ''{0}'' distributes the new value {1,number,0.000}.", new Object[] {name, value.doubleValue()});
+        }
+        else {
+            logger.log(Level.INFO, "The buffer ''{0}'' distributes the new state {1}.", new Object[] {name, value.getState().name()});
         }
     }
 
+    /** Distributes the current buffer value. This must be done without holding the lock. */
+    private void publish() { fireLatestValue(latestValue); }
+
+    /**
+     * Returns the current buffer value.
+     *
+     * @return the current buffer value
+     */
+    SimpleData get() { return currentValue; }
+
     /**
      * Puts the current value into the gatherer of an actor.
      *
@@ -296,7 +436,8 @@ class Buffer extends ValueChangeProducer {
      */
     boolean put(Number value) {
 
-        boolean result = false;
+        SimpleData data = null;
+        AdapterChain a = null;
 
         if (configuration.getBufferClass() == BufferClass.ACTOR) {
 
@@ -309,17 +450,19 @@ class Buffer extends ValueChangeProducer {
                     case READY:
                     case FAULTED:
 
-                        SimpleData data = new SimpleData(name, new Date(), BufferState.READY, value);
-
+                        data = new SimpleData(name, System.currentTimeMillis(), BufferState.READY, value);
                         currentValue = data;
-                        adapters.put(data);
-                        result = true;
+                        record(data);
+                        a = adapters;
                         break;
                 }
             }
         }
 
-        return result;
+        if (data == null) return false;
+
+        if (a != null) a.put(data);
+        return true;
     }
 }
 
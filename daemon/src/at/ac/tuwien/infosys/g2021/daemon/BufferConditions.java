@@ -0,0 +1,253 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The conditions watched at a buffer. They are evaluated whenever the buffer value changes, and an event is passed to the
+ * listener of a watch only, if its condition becomes active or inactive.
+ * <p>
+ * A range condition can change its status only, if the value crosses one of its boundaries: the lower or the upper limit
+ * (entering the range) or a limit extended by the hysteresis (leaving the range). Therefore the finite boundaries of all
+ * the range conditions are kept in a sorted array. A change from one ready value to another evaluates only the conditions
+ * with a boundary between the old and the new value, which are found by a binary search. So a buffer watched by many
+ * conditions costs almost nothing, as long as its value doesn't cross any limit. All the conditions are evaluated only,
+ * if the buffer state changes.
+ * <p>
+ * This class is not thread-safe. It is used holding the lock of the buffer. The listeners are called holding this lock
+ * too, so they must not block.
+ */
+class BufferConditions {
+
+    /** A watched condition. */
+    private final static class Watch {
+
+        // The owner and the id of the watch
+        private final Object owner;
+        private final int id;
+
+        // The condition and the listener
+        private final Condition condition;
+        private final Consumer<ConditionEvent> listener;
+
+        // Is the condition active?
+        private boolean active;
+
+        /**
+         * Initialization.
+         *
+         * @param owner     the owner of the watch
+         * @param id        the id of the watch
+         * @param condition the condition
+         * @param listener  the listener
+         */
+        Watch(Object owner, int id, Condition condition, Consumer<ConditionEvent> listener) {
+
+            this.owner = owner;
+            this.id = id;
+            this.condition = condition;
+            this.listener = listener;
+        }
+    }
+
+    // The watches of range conditions and of state change conditions
+    private final List<Watch> ranges;
+    private final List<Watch> stateChanges;
+
+    // The index: the finite boundaries of the range conditions in ascending order and the watch of every boundary
+    private double[] boundaries;
+    private Watch[] watches;
+    private boolean outdated;
+
+    // The last evaluated buffer value
+    private SimpleData last;
+
+    /** Initialization without any condition. */
+    BufferConditions() {
+
+        ranges = new ArrayList<>();
+        stateChanges = new ArrayList<>();
+        boundaries = new double[0];
+        watches = new Watch[0];
+        outdated = false;
+        last = null;
+    }
+
+    /**
+     * Are there no watched conditions?
+     *
+     * @return <tt>true</tt>, if no condition is watched
+     */
+    boolean isEmpty() { return ranges.isEmpty() && stateChanges.isEmpty(); }
+
+    /**
+     * Adds a watch. A watch of the same owner with the same id is replaced. The current status of the condition is passed to
+     * the listener at once.
+     *
+     * @param owner     the owner of the watch
+     * @param id        the id of the watch
+     * @param condition the condition
+     * @param listener  the listener
+     * @param current   the current buffer value
+     */
+    void add(Object owner, int id, Condition condition, Consumer<ConditionEvent> listener, SimpleData current) {
+
+        remove(owner, id);
+
+        Watch watch = new Watch(owner, id, condition, listener);
+        watch.active = condition.isActive(current, false);
+        last = current;
+
+        if (condition.isStateChange()) {
+            stateChanges.add(watch);
+        }
+        else {
+            ranges.add(watch);
+            outdated = true;
+        }
+
+        listener.accept(new ConditionEvent(id, current, watch.active));
+    }
+
+    /**
+     * Removes a watch.
+     *
+     * @param owner the owner of the watch
+     * @param id    the id of the watch
+     *
+     * @return <tt>true</tt>, if the watch has been removed
+     */
+    boolean remove(Object owner, int id) {
+
+        if (remove(stateChanges, owner, id)) return true;
+
+        if (remove(ranges, owner, id)) {
+            outdated = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes a watch from a list.
+     *
+     * @param list  the list of watches
+     * @param owner the owner of the watch
+     * @param id    the id of the watch
+     *
+     * @return <tt>true</tt>, if the watch has been removed
+     */
+    private static boolean remove(List<Watch> list, Object owner, int id) {
+
+        for (Iterator<Watch> i = list.iterator(); i.hasNext(); ) {
+            Watch watch = i.next();
+            if (watch.owner == owner && watch.id == id) {
+                i.remove();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /** Rebuilds the index of the boundaries after adding or removing range conditions. */
+    private void rebuild() {
+
+        List<Double> points = new ArrayList<>();
+        List<Watch> owners = new ArrayList<>();
+
+        for (Watch watch : ranges) {
+
+            Condition c = watch.condition;
+            double h = c.getHysteresis();
+
+            for (double point : new double[] {c.getLower(), c.getUpper(), c.getLower() - h, c.getUpper() + h}) {
+                if (!Double.isInfinite(point)) {
+                    points.add(point);
+                    owners.add(watch);
+                }
+            }
+        }
+
+        // Sorting the positions of the boundaries sorts both arrays the same way.
+        Integer[] order = new Integer[points.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(points.get(a), points.get(b)));
+
+        boundaries = new double[order.length];
+        watches = new Watch[order.length];
+        for (int i = 0; i < order.length; i++) {
+            boundaries[i] = points.get(order[i]);
+            watches[i] = owners.get(order[i]);
+        }
+
+        outdated = false;
+    }
+
+    /**
+     * Evaluates the condition of a watch and notifies the listener about a change of its status.
+     *
+     * @param watch the watch
+     * @param value the new buffer value
+     */
+    private static void evaluate(Watch watch, SimpleData value) {
+
+        boolean active = watch.condition.isActive(value, watch.active);
+
+        if (active != watch.active) {
+            watch.active = active;
+            watch.listener.accept(new ConditionEvent(watch.id, value, active));
+        }
+    }
+
+    /**
+     * Evaluates the conditions for a new buffer value.
+     *
+     * @param value the new buffer value
+     */
+    void evaluate(SimpleData value) {
+
+        SimpleData previous = last;
+        last = value;
+
+        if (previous != null && previous.getState() != value.getState()) {
+            for (Watch watch : stateChanges) {
+                watch.active = value.getState() == BufferState.READY;
+                watch.listener.accept(new ConditionEvent(watch.id, value, watch.active));
+            }
+        }
+
+        if (ranges.isEmpty()) return;
+
+        if (previous != null && previous.getState() == BufferState.READY && previous.hasValue() &&
+            value.getState() == BufferState.READY && value.hasValue()) {
+
+            if (outdated) rebuild();
+
+            double from = Math.min(previous.doubleValue(), value.doubleValue());
+            double to = Math.max(previous.doubleValue(), value.doubleValue());
+
+            // Looking for the first boundary not less than the smaller value
+            int low = 0;
+            int high = boundaries.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (boundaries[middle] < from) low = middle + 1;
+                else high = middle;
+            }
+
+            for (int i = low; i < boundaries.length && boundaries[i] <= to; i++) evaluate(watches[i], value);
+        }
+        else {
+            for (Watch watch : ranges) evaluate(watch, value);
+        }
+    }
+}
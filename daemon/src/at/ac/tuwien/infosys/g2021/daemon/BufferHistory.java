@@ -0,0 +1,215 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The history of a buffer is a ring of fixed capacity containing the latest buffer values. Timestamps, states and values
+ * are kept in primitive arrays, so recording a value allocates no memory. If the ring is full, the oldest value is
+ * overwritten.
+ * <p>
+ * The values are ordered by their timestamps, so a time range is found by binary search. A value older than the latest
+ * recorded value, e.g. after the system clock has been set back, is recorded with the timestamp of the latest value.
+ */
+final class BufferHistory {
+
+    // All the buffer states
+    private final static BufferState[] STATES = BufferState.values();
+
+    // The recorded values. A missing value is kept as NaN.
+    private final long[] timestamps;
+    private final byte[] states;
+    private final double[] values;
+
+    // The array index of the oldest value and the number of recorded values
+    private int first;
+    private int size;
+
+    /**
+     * Initialization of an empty history.
+     *
+     * @param capacity the maximum number of values kept
+     *
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    BufferHistory(int capacity) throws IllegalArgumentException {
+
+        if (capacity <= 0) throw new IllegalArgumentException("history capacity must be positive");
+
+        timestamps = new long[capacity];
+        states = new byte[capacity];
+        values = new double[capacity];
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the maximum number of values kept.
+     *
+     * @return the capacity
+     */
+    int capacity() { return timestamps.length; }
+
+    /**
+     * Returns the number of values kept.
+     *
+     * @return the number of values
+     */
+    synchronized int size() { return size; }
+
+    /**
+     * Returns the array index of a value.
+     *
+     * @param n the position of the value, where 0 is the oldest value
+     *
+     * @return the array index
+     */
+    private int index(int n) {
+
+        int i = first + n;
+        return i < timestamps.length ? i : i - timestamps.length;
+    }
+
+    /**
+     * Records a buffer value. If the ring is full, the oldest value is overwritten.
+     *
+     * @param value the buffer value
+     */
+    void add(SimpleData value) { add(value.getTime(), value.getState().ordinal(), value.doubleValue()); }
+
+    /**
+     * Records a buffer value. If the ring is full, the oldest value is overwritten.
+     *
+     * @param timestamp the timestamp in milliseconds since the epoch
+     * @param state     the ordinal of the buffer state
+     * @param value     the value, which is NaN for no value
+     */
+    synchronized void add(long timestamp, int state, double value) {
+
+        if (size > 0) timestamp = Math.max(timestamp, timestamps[index(size - 1)]);
+
+        int i;
+        if (size < timestamps.length) {
+            i = index(size);
+            size++;
+        }
+        else {
+            i = first;
+            first = index(1);
+        }
+
+        timestamps[i] = timestamp;
+        states[i] = (byte)state;
+        values[i] = value;
+    }
+
+    /**
+     * Returns the timestamp of the oldest value kept.
+     *
+     * @return the timestamp in milliseconds since the epoch or <tt>Long.MAX_VALUE</tt>, if the history is empty
+     */
+    synchronized long oldest() { return size == 0 ? Long.MAX_VALUE : timestamps[first]; }
+
+    /**
+     * Looks for the position of the first value with a timestamp after a given time.
+     *
+     * @param time the time in milliseconds since the epoch
+     *
+     * @return the position, which is the number of values, if there are no younger values
+     */
+    private int after(long time) {
+
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[index(middle)] <= time) low = middle + 1;
+            else high = middle;
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns the recorded values within a time range. If there are more values than requested, the values are split
+     * into consecutive groups of nearly the same size, and one value per group is returned. It is the average of all the
+     * values of the group with the timestamp of the latest value of the group. If the latest value of the group has no
+     * value or a buffer state other than <tt>{@link BufferState#READY}</tt>, it is returned unchanged.
+     *
+     * @param name      the buffer name of the returned values
+     * @param from      the start of the time range in milliseconds since the epoch, inclusive
+     * @param to        the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints the maximum number of values, which is 0 for no limit
+     *
+     * @return the values in the order of their timestamps
+     */
+    synchronized List<SimpleData> get(String name, long from, long to, int maxPoints) {
+
+        int start = from == Long.MIN_VALUE ? 0 : after(from - 1L);
+        int end = after(to);
+        int count = end - start;
+
+        if (count <= 0) return new ArrayList<>();
+
+        if (maxPoints <= 0 || count <= maxPoints) {
+
+            List<SimpleData> result = new ArrayList<>(count);
+            for (int n = start; n < end; n++) {
+                int i = index(n);
+                result.add(sample(name, timestamps[i], states[i], values[i]));
+            }
+
+            return result;
+        }
+
+        List<SimpleData> result = new ArrayList<>(maxPoints);
+        for (int group = 0; group < maxPoints; group++) {
+
+            int groupStart = start + (int)((long)count * group / maxPoints);
+            int groupEnd = start + (int)((long)count * (group + 1) / maxPoints);
+            int last = index(groupEnd - 1);
+
+            double sum = 0.0;
+            int valueCount = 0;
+
+            for (int n = groupStart; n < groupEnd; n++) {
+                double value = values[index(n)];
+                if (!Double.isNaN(value)) {
+                    sum += value;
+                    valueCount++;
+                }
+            }
+
+            if (Double.isNaN(values[last]) || STATES[states[last]] != BufferState.READY) {
+                result.add(sample(name, timestamps[last], states[last], values[last]));
+            }
+            else {
+                result.add(sample(name, timestamps[last], states[last], sum / valueCount));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a buffer value from a recorded value.
+     *
+     * @param name      the buffer name
+     * @param timestamp the timestamp
+     * @param state     the ordinal of the buffer state
+     * @param value     the value, which is NaN for no value
+     *
+     * @return the buffer value
+     */
+    private static SimpleData sample(String name, long timestamp, byte state, double value) {
+
+        BufferState s = STATES[state];
+
+        if (Double.isNaN(value)) return new SimpleData(name, timestamp, s);
+        else if (s == BufferState.READY) return new SimpleData(name, timestamp, value);
+        else return new SimpleData(name, timestamp, s, value);
+    }
+}
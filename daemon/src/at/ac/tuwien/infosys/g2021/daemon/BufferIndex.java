@@ -0,0 +1,417 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * <p>
+ * This is the index of the buffer names and the buffer meta information, which answers the buffer queries without
+ * scanning all the buffers. The queries are regular expressions, which are matched case insensitive and must not match
+ * the whole string. Queries consisting of literal characters only, maybe anchored with "<tt>^</tt>" or "<tt>$</tt>", are
+ * answered without any regular expression: exact and prefix queries by a lookup in sorted maps, suffix and substring
+ * queries by comparing every distinct indexed string. The other queries are compiled once and kept in a bounded cache.
+ * </p>
+ * <p>
+ * This class is thread safe. Queries may run concurrently, updates are exclusive.
+ * </p>
+ */
+class BufferIndex {
+
+    /** The maximum number of compiled regular expressions kept in the cache. */
+    final static int PATTERN_CACHE_SIZE = 64;
+
+    // The characters with a special meaning in regular expressions
+    private final static String META_CHARACTERS = "\\.[]{}()*+?^$|";
+
+    // The kinds of queries
+    private enum Kind { EXACT, PREFIX, SUFFIX, SUBSTRING, REGEX }
+
+    // This inner class is a parsed query.
+    private static class Query {
+
+        // The kind of query and the literal in lower case or the compiled regular expression
+        private final Kind kind;
+        private final String literal;
+        private final Pattern pattern;
+
+        /**
+         * Initialization.
+         *
+         * @param k the kind of query
+         * @param l the literal in lower case
+         * @param p the compiled regular expression
+         */
+        private Query(Kind k, String l, Pattern p) {
+
+            kind = k;
+            literal = l;
+            pattern = p;
+        }
+
+        /**
+         * Matches a string in lower case with the literal of this query.
+         *
+         * @param lower the string in lower case
+         *
+         * @return <tt>true</tt>, if it matches
+         */
+        boolean matchesLiteral(String lower) {
+
+            switch (kind) {
+                case EXACT:
+                    return lower.equals(literal);
+                case PREFIX:
+                    return lower.startsWith(literal);
+                case SUFFIX:
+                    return lower.endsWith(literal);
+                default:
+                    return lower.contains(literal);
+            }
+        }
+    }
+
+    // This inner class maps strings to some data. The strings are grouped by their lower case form.
+    private static class Index<V> {
+
+        // The data with the strings in lower case and the original strings as keys
+        private final NavigableMap<String, Map<String, V>> groups = new TreeMap<>();
+
+        /**
+         * Returns the data of a string.
+         *
+         * @param s the string
+         *
+         * @return the data or <tt>null</tt>, if the string isn't indexed
+         */
+        V get(String s) {
+
+            Map<String, V> group = groups.get(lowerCase(s));
+
+            return group == null ? null : group.get(s);
+        }
+
+        /**
+         * Returns the data of a string. If the string isn't indexed, new data are added.
+         *
+         * @param s       the string
+         * @param factory creates the new data
+         *
+         * @return the data
+         */
+        V computeIfAbsent(String s, Supplier<V> factory) {
+
+            return groups.computeIfAbsent(lowerCase(s), l -> new HashMap<>()).computeIfAbsent(s, o -> factory.get());
+        }
+
+        /**
+         * Removes a string from the index.
+         *
+         * @param s the string
+         */
+        void remove(String s) {
+
+            String lower = lowerCase(s);
+            Map<String, V> group = groups.get(lower);
+
+            if (group != null) {
+                group.remove(s);
+                if (group.isEmpty()) groups.remove(lower);
+            }
+        }
+
+        /**
+         * Is the index empty?
+         *
+         * @return <tt>true</tt>, if no string is indexed
+         */
+        boolean isEmpty() { return groups.isEmpty(); }
+
+        /**
+         * Performs an action with the data of all the strings matching a query.
+         *
+         * @param query  the query
+         * @param action the action
+         */
+        void forMatches(Query query, Consumer<V> action) {
+
+            switch (query.kind) {
+                case EXACT:
+                    Map<String, V> group = groups.get(query.literal);
+                    if (group != null) group.values().forEach(action);
+                    break;
+
+                case PREFIX:
+                    for (Map.Entry<String, Map<String, V>> entry : groups.tailMap(query.literal, true).entrySet()) {
+                        if (!entry.getKey().startsWith(query.literal)) break;
+                        entry.getValue().values().forEach(action);
+                    }
+                    break;
+
+                case REGEX:
+                    for (Map<String, V> strings : groups.values()) {
+                        for (Map.Entry<String, V> entry : strings.entrySet()) {
+                            if (query.pattern.matcher(entry.getKey()).find()) action.accept(entry.getValue());
+                        }
+                    }
+                    break;
+
+                default:
+                    for (Map.Entry<String, Map<String, V>> entry : groups.entrySet()) {
+                        if (query.matchesLiteral(entry.getKey())) entry.getValue().values().forEach(action);
+                    }
+                    break;
+            }
+        }
+    }
+
+    // The buffer names
+    private final Index<Set<String>> names;
+
+    // The buffer names by the topics and the features of their meta information
+    private final Index<Index<Set<String>>> metainfos;
+
+    // The indexed meta information of every buffer
+    private final Map<String, Map<String, String>> indexed;
+
+    // The cache of compiled regular expressions
+    private final Map<String, Pattern> patterns;
+
+    // The lock of the index
+    private final ReadWriteLock lock;
+
+    /** Creates an empty index. */
+    BufferIndex() {
+
+        names = new Index<>();
+        metainfos = new Index<>();
+        indexed = new HashMap<>();
+        patterns = Collections.synchronizedMap(new LinkedHashMap<String, Pattern>(PATTERN_CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) { return size() > PATTERN_CACHE_SIZE; }
+        });
+        lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Converts the ASCII letters of a string to lower case. This is the case folding of case insensitive regular
+     * expressions without the <tt>UNICODE_CASE</tt> flag.
+     *
+     * @param s the string
+     *
+     * @return the string in lower case
+     */
+    private static String lowerCase(String s) {
+
+        char[] result = null;
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                if (result == null) result = s.toCharArray();
+                result[i] = (char)(c + 'a' - 'A');
+            }
+        }
+
+        return result == null ? s : new String(result);
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param regex the regular expression
+     *
+     * @return the query
+     *
+     * @throws PatternSyntaxException if it isn't a valid regular expression
+     */
+    private Query parse(String regex) throws PatternSyntaxException {
+
+        String literal = regex;
+
+        boolean start = literal.startsWith("^");
+        if (start) literal = literal.substring(1);
+
+        boolean end = literal.endsWith("$");
+        if (end) literal = literal.substring(0, literal.length() - 1);
+
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c > 127 || META_CHARACTERS.indexOf(c) >= 0) return new Query(Kind.REGEX, null, compile(regex));
+        }
+
+        literal = lowerCase(literal);
+
+        if (start && end) return new Query(Kind.EXACT, literal, null);
+        else if (start) return new Query(Kind.PREFIX, literal, null);
+        else if (end) return new Query(Kind.SUFFIX, literal, null);
+        else return new Query(Kind.SUBSTRING, literal, null);
+    }
+
+    /**
+     * Returns a compiled regular expression from the cache.
+     *
+     * @param regex the regular expression
+     *
+     * @return the compiled regular expression
+     *
+     * @throws PatternSyntaxException if it isn't a valid regular expression
+     */
+    private Pattern compile(String regex) throws PatternSyntaxException {
+
+        Pattern result = patterns.get(regex);
+
+        if (result == null) {
+            result = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+            patterns.put(regex, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds a buffer to the index. An indexed buffer with the same name is replaced.
+     *
+     * @param name     the buffer name
+     * @param metainfo the meta information of the buffer
+     */
+    void add(String name, Map<String, String> metainfo) {
+
+        Map<String, String> copy = new HashMap<>(metainfo);
+
+        lock.writeLock().lock();
+        try {
+            remove(name);
+
+            names.computeIfAbsent(name, TreeSet::new).add(name);
+            for (Map.Entry<String, String> entry : copy.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    metainfos.computeIfAbsent(entry.getKey(), Index::new).computeIfAbsent(entry.getValue(), TreeSet::new).add(name);
+                }
+            }
+
+            indexed.put(name, copy);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a buffer from the index. If the buffer isn't indexed, this method has no effect.
+     *
+     * @param name the buffer name
+     */
+    void remove(String name) {
+
+        lock.writeLock().lock();
+        try {
+            Map<String, String> metainfo = indexed.remove(name);
+
+            if (metainfo != null) {
+
+                names.remove(name);
+
+                for (Map.Entry<String, String> entry : metainfo.entrySet()) {
+
+                    Index<Set<String>> features = metainfos.get(entry.getKey());
+                    if (features == null) continue;
+
+                    Set<String> buffers = features.get(entry.getValue());
+                    if (buffers != null) {
+                        buffers.remove(name);
+                        if (buffers.isEmpty()) features.remove(entry.getValue());
+                    }
+                    if (features.isEmpty()) metainfos.remove(entry.getKey());
+                }
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes all the buffers from the index. */
+    void clear() {
+
+        lock.writeLock().lock();
+        try {
+            for (String name : new TreeSet<>(indexed.keySet())) remove(name);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Looks for buffers by name.
+     *
+     * @param name a regular expression specifying the buffer name. A simple match satisfy the search condition.
+     *
+     * @return the names of the matching buffers. If the regular expression isn't valid, the result is empty.
+     */
+    Set<String> queryBuffersByName(String name) {
+
+        Set<String> result = new TreeSet<>();
+
+        try {
+            Query query = parse(name);
+
+            lock.readLock().lock();
+            try {
+                names.forMatches(query, result::addAll);
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+        catch (PatternSyntaxException e) {
+            // We just return an empty result set.
+        }
+
+        return result;
+    }
+
+    /**
+     * Looks for buffers by meta information. A buffer matches, if a single topic and its feature match both regular
+     * expressions.
+     *
+     * @param topic   a regular expression specifying the topic. A simple match satisfy the search condition.
+     * @param feature a regular expression specifying the feature. A simple match satisfy the search condition.
+     *
+     * @return the names of the matching buffers. If a regular expression isn't valid, the result is empty.
+     */
+    Set<String> queryBuffersByMetainfo(String topic, String feature) {
+
+        Set<String> result = new TreeSet<>();
+
+        try {
+            Query topicQuery = parse(topic);
+            Query featureQuery = parse(feature);
+
+            lock.readLock().lock();
+            try {
+                metainfos.forMatches(topicQuery, features -> features.forMatches(featureQuery, result::addAll));
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+        catch (PatternSyntaxException e) {
+            // We return an empty result set.
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,181 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
+import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rollups of a buffer are a ring of fixed capacity containing the summaries of the latest buffer values. Every rollup
+ * summarizes the values of <tt>{@link BufferConfiguration#ROLLUP_PERIOD}</tt> milliseconds by their number, minimum,
+ * maximum and sum. A rollup is updated with every buffer value, so aggregates of longer time windows are combined from
+ * a few rollups without looking at any single buffer value. If the ring is full, the oldest rollup is overwritten.
+ * <p>
+ * Only values of the buffer state <tt>READY</tt> are summarized. Periods without any value have no rollup. A value older
+ * than the latest rollup, e.g. after the system clock has been set back, is summarized in the latest rollup.
+ */
+final class BufferRollups {
+
+    // The rollups: the start of the period, the number of values, the minimum, the maximum and the sum of the values
+    private final long[] starts;
+    private final int[] counts;
+    private final double[] minimums;
+    private final double[] maximums;
+    private final double[] sums;
+
+    // The array index of the oldest rollup and the number of rollups
+    private int first;
+    private int size;
+
+    /**
+     * Initialization of empty rollups.
+     *
+     * @param capacity the maximum number of rollups kept
+     *
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    BufferRollups(int capacity) throws IllegalArgumentException {
+
+        if (capacity <= 0) throw new IllegalArgumentException("rollup capacity must be positive");
+
+        starts = new long[capacity];
+        counts = new int[capacity];
+        minimums = new double[capacity];
+        maximums = new double[capacity];
+        sums = new double[capacity];
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of rollups kept.
+     *
+     * @return the number of rollups
+     */
+    synchronized int size() { return size; }
+
+    /**
+     * Returns the array index of a rollup.
+     *
+     * @param n the position of the rollup, where 0 is the oldest rollup
+     *
+     * @return the array index
+     */
+    private int index(int n) {
+
+        int i = first + n;
+        return i < starts.length ? i : i - starts.length;
+    }
+
+    /**
+     * Returns the start of the time window containing a timestamp. Time windows start at multiples of their length.
+     *
+     * @param time   the timestamp in milliseconds since the epoch
+     * @param window the length of the time window in milliseconds
+     *
+     * @return the start of the time window in milliseconds since the epoch
+     */
+    private static long windowStart(long time, long window) { return Math.floorDiv(time, window) * window; }
+
+    /**
+     * Summarizes a buffer value.
+     *
+     * @param timestamp the timestamp in milliseconds since the epoch
+     * @param value     the value
+     */
+    synchronized void add(long timestamp, double value) {
+
+        long start = windowStart(timestamp, BufferConfiguration.ROLLUP_PERIOD);
+        int latest = size == 0 ? -1 : index(size - 1);
+
+        if (latest >= 0 && start <= starts[latest]) {
+            counts[latest]++;
+            minimums[latest] = Math.min(minimums[latest], value);
+            maximums[latest] = Math.max(maximums[latest], value);
+            sums[latest] += value;
+            return;
+        }
+
+        int i;
+        if (size < starts.length) {
+            i = index(size);
+            size++;
+        }
+        else {
+            i = first;
+            first = index(1);
+        }
+
+        starts[i] = start;
+        counts[i] = 1;
+        minimums[i] = value;
+        maximums[i] = value;
+        sums[i] = value;
+    }
+
+    /**
+     * Looks for the position of the first rollup starting after a given time.
+     *
+     * @param time the time in milliseconds since the epoch
+     *
+     * @return the position, which is the number of rollups, if there are no younger rollups
+     */
+    private int after(long time) {
+
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[index(middle)] <= time) low = middle + 1;
+            else high = middle;
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns the aggregates of the time windows within a time range. The length of the time windows is rounded up to
+     * a multiple of the rollup period by <tt>{@link BufferConfiguration#rollupWindow(long)}</tt>. Every time window
+     * overlapping the time range is summarized completely.
+     *
+     * @param name   the buffer name of the returned aggregates
+     * @param from   the start of the time range in milliseconds since the epoch, inclusive
+     * @param to     the end of the time range in milliseconds since the epoch, inclusive
+     * @param window the length of the time windows in milliseconds
+     *
+     * @return the aggregates in the order of their time windows
+     */
+    synchronized List<Aggregate> get(String name, long from, long to, long window) {
+
+        window = BufferConfiguration.rollupWindow(window);
+
+        List<Aggregate> result = new ArrayList<>();
+        if (to < from) return result;
+
+        long last = windowStart(to, window);
+        int end = last > Long.MAX_VALUE - window ? size : after(last + window - 1L);
+
+        int n = from == Long.MIN_VALUE ? 0 : after(windowStart(from, window) - 1L);
+        while (n < end) {
+
+            long start = windowStart(starts[index(n)], window);
+            int count = 0;
+            double minimum = Double.POSITIVE_INFINITY;
+            double maximum = Double.NEGATIVE_INFINITY;
+            double sum = 0.0;
+
+            for (; n < end && starts[index(n)] < start + window; n++) {
+                int i = index(n);
+                count += counts[i];
+                minimum = Math.min(minimum, minimums[i]);
+                maximum = Math.max(maximum, maximums[i]);
+                sum += sums[i];
+            }
+
+            result.add(new Aggregate(name, start, window, count, minimum, maximum, sum / count));
+        }
+
+        return result;
+    }
+}
@@ -1,18 +1,26 @@
 package at.ac.tuwien.infosys.g2021.daemon;
 
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import at.ac.tuwien.infosys.g2021.common.FormulaGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
-/** The set of all known buffers. */
+/**
+ * The set of all known buffers. The buffers also keep the dependency graph of the computed buffers: for every buffer
+ * name the formula gatherers referencing this buffer are known, so a value change is passed only to the formulas
+ * depending on the changed buffer. For every computed buffer the referenced buffer names are known, so a configuration
+ * creating a cyclic dependency is rejected.
+ */
 class Buffers extends ValueChangeProducer implements Component {
 
     // The logger.
@@ -27,22 +35,34 @@ class Buffers extends ValueChangeProducer implements Component {
          * @param newValue the new buffer value
          */
         @Override
-        public void valueChanged(SimpleData newValue) { fireValueChange(newValue); }
+        public void valueChanged(SimpleData newValue) { distribute(newValue); }
     }
 
     // A map of all wellknown buffers
     private Map<String, Buffer> buffers;
     private final Object bufferLock;
 
+    // The index of the buffer names and meta information for the buffer queries
+    private final BufferIndex index;
+
     // The value change listener
     private Listener listener;
 
+    // The formula gatherers by the names of the buffers they reference. This map is read without locking.
+    private final Map<String, List<FormulaGatherer>> dependents;
+
+    // The names of the buffers referenced by the computed buffers
+    private final Map<String, List<String>> references;
+
     /** Initializing the buffers. */
     Buffers() {
 
         buffers = new HashMap<>();
         bufferLock = new Object();
+        index = new BufferIndex();
         listener = new Listener();
+        dependents = new ConcurrentHashMap<>();
+        references = new HashMap<>();
     }
 
     /** This method is called, after creating all necessary instances. */
@@ -56,6 +76,8 @@ class Buffers extends ValueChangeProducer implements Component {
         synchronized (bufferLock) {
             for (Buffer buffer : buffers.values()) buffer.shutdown();
             buffers.clear();
+            index.clear();
+            references.clear();
         }
     }
 
@@ -89,6 +111,16 @@ class Buffers extends ValueChangeProducer implements Component {
         synchronized (bufferLock) {
 
             try {
+                // A computed buffer must not depend on itself.
+                List<String> inputs = null;
+                if (config.getGatherer() instanceof FormulaGathererConfiguration) {
+                    inputs = Formula.compile(((FormulaGathererConfiguration)config.getGatherer()).getExpression()).getReferences();
+                    if (dependsOn(inputs, name)) {
+                        logger.warning(String.format("The buffer '%s' cannot be created, because its formula depends on itself.", name));
+                        return null;
+                    }
+                }
+
                 // Creating a new buffer. If the creation fails, the IllegalArgumentException
                 // is thrown. This is done BEFORE an existing buffer is removed, because the
                 // gatherer should remain opened, if both buffers use the same gatherer.
@@ -99,10 +131,12 @@ class Buffers extends ValueChangeProducer implements Component {
 
                 // Adding the new buffer and distribute its initial value
                 buffers.put(name, result);
+                index.add(name, config.getMetainfo());
+                if (inputs != null) references.put(name, inputs);
                 logger.info(String.format("The buffer '%s' has been created.", name));
 
                 result.addValueChangeConsumer(listener);
-                fireValueChange(result.get());
+                distribute(result.get());
 
                 return result;
             }
@@ -129,6 +163,8 @@ class Buffers extends ValueChangeProducer implements Component {
 
             if (result != null) {
 
+                index.remove(name);
+                references.remove(name);
                 logger.info(String.format("The buffer '%s' has been removed.", name));
 
                 // Shutting down the buffer will cause a state change to BufferState.RELEASED and this
@@ -140,6 +176,77 @@ class Buffers extends ValueChangeProducer implements Component {
         }
     }
 
+    /**
+     * Distributes a buffer value to the value change consumers and to the formula gatherers depending on the buffer.
+     *
+     * @param value the buffer value
+     */
+    private void distribute(SimpleData value) {
+
+        fireValueChange(value);
+
+        List<FormulaGatherer> formulas = dependents.get(value.getBufferName());
+        if (formulas != null) for (FormulaGatherer formula : formulas) formula.inputChanged(value);
+    }
+
+    /**
+     * Does a computed buffer with the given inputs depend on a buffer? This must be called holding the buffer lock.
+     *
+     * @param inputs the names of the buffers referenced by the computed buffer
+     * @param name   the buffer name
+     *
+     * @return <tt>true</tt>, if the buffer is referenced directly or by another computed buffer
+     */
+    private boolean dependsOn(List<String> inputs, String name) {
+
+        Set<String> visited = new HashSet<>();
+        Deque<String> open = new ArrayDeque<>(inputs);
+
+        while (!open.isEmpty()) {
+
+            String input = open.pop();
+
+            if (input.equals(name)) return true;
+            if (visited.add(input)) {
+                List<String> next = references.get(input);
+                if (next != null) open.addAll(next);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Registers a formula gatherer, so it is notified about the value changes of the buffers it references.
+     *
+     * @param formula the formula gatherer
+     */
+    void addDependent(FormulaGatherer formula) {
+
+        for (String name : formula.getReferences()) {
+            dependents.compute(name, (n, formulas) -> {
+                if (formulas == null) formulas = new CopyOnWriteArrayList<>();
+                formulas.add(formula);
+                return formulas;
+            });
+        }
+    }
+
+    /**
+     * Unregisters a formula gatherer.
+     *
+     * @param formula the formula gatherer
+     */
+    void removeDependent(FormulaGatherer formula) {
+
+        for (String name : formula.getReferences()) {
+            dependents.computeIfPresent(name, (n, formulas) -> {
+                formulas.remove(formula);
+                return formulas.isEmpty() ? null : formulas;
+            });
+        }
+    }
+
     /**
      * This method returns a wellknown buffer.
      *
@@ -155,40 +262,17 @@ class Buffers extends ValueChangeProducer implements Component {
     }
 
     /**
-     * This method looks for available buffers.
+     * This method looks for available buffers. The query is answered by the buffer index without locking the buffers.
      *
      * @param name a regular expression specifying the buffer name, which should be scanned. A simple match satisfy
      *             the search condition, the regular expression must not match the whole feature description.
      *
      * @return a collection of all the buffer names matching this query
      */
-    Set<String> queryBuffersByName(String name) {
-
-        Set<String> result = new TreeSet<>();
-
-        synchronized (bufferLock) {
-
-            try {
-
-                Pattern pattern = Pattern.compile(name, Pattern.CASE_INSENSITIVE);
-
-                for (String bufferName : buffers.keySet()) {
-
-                    Matcher match = pattern.matcher(bufferName);
-
-                    if (match.find()) result.add(bufferName);
-                }
-            }
-            catch (PatternSyntaxException e) {
-                // We just return an empty result set.
-            }
-        }
-
-        return result;
-    }
+    Set<String> queryBuffersByName(String name) { return index.queryBuffersByName(name); }
 
     /**
-     * This method looks for available buffers.
+     * This method looks for available buffers. The query is answered by the buffer index without locking the buffers.
      *
      * @param topic   a regular expression specifying the buffer topics, which should be scanned for the wanted features.
      *                These are keys of the buffer meta information. A simple match satisfy
@@ -198,34 +282,5 @@ class Buffers extends ValueChangeProducer implements Component {
      *
      * @return a collection of all the names of those buffers, which matches this query
      */
-    Set<String> queryBuffersByMetainfo(String topic, String feature) {
-
-        Set<String> result = new TreeSet<>();
-
-        synchronized (bufferLock) {
-            try {
-                Pattern topicPattern = Pattern.compile(topic, Pattern.CASE_INSENSITIVE);
-                Pattern featurePattern = Pattern.compile(feature, Pattern.CASE_INSENSITIVE);
-
-                for (Buffer buffer : buffers.values()) {
-                    for (Map.Entry<String, String> metainfo : buffer.getMetainfo().entrySet()) {
-
-                        Matcher topicMatch = topicPattern.matcher(metainfo.getKey());
-                        Matcher featureMatch = featurePattern.matcher(metainfo.getValue());
-
-                        if (topicMatch.find() && featureMatch.find()) {
-                            result.add(buffer.getName());
-                            break;
-                        }
-                    }
-                }
-            }
-            catch (PatternSyntaxException e) {
-                // We return an empty result set.
-            }
-        }
-
-        return result;
-    }
+    Set<String> queryBuffersByMetainfo(String topic, String feature) { return index.queryBuffersByMetainfo(topic, feature); }
 }
-
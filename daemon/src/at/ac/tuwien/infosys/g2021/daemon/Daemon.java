@@ -1,17 +1,28 @@
 package at.ac.tuwien.infosys.g2021.daemon;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.communication.ClientEndpoint;
 import at.ac.tuwien.infosys.g2021.common.communication.ClientRequestExecutionStrategy;
 import at.ac.tuwien.infosys.g2021.common.communication.CommunicationSettings;
 import at.ac.tuwien.infosys.g2021.common.communication.DaemonEndpoint;
+import at.ac.tuwien.infosys.g2021.common.communication.EventLoop;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -21,6 +32,8 @@ import java.util.logging.Logger;
  * command line options. The following options ara available:
  * <ul>
  * <li><b>-stop</b> sends a "shutdown"-message to a running daemon and shuts it down</li>
+ * <li><b>-nio</b> serves all client connections with a single selector thread and a small pool of worker threads
+ * instead of a receiver thread per connection</li>
  * <li><b>-version</b> displays the version and terminates immediately</li>
  * </ul>
  * The class daemon is also the data structure to keep all important parts of the daemon together,
@@ -80,7 +93,13 @@ public class Daemon {
          * @param conn the connection
          */
         @Override
-        public void connectionDied(DaemonEndpoint conn) { removeConnection(conn); }
+        public void connectionDied(DaemonEndpoint conn) {
+
+            Map<Integer, Buffer> watched = watches.remove(conn);
+            if (watched != null) for (Map.Entry<Integer, Buffer> e : watched.entrySet()) e.getValue().unwatch(conn, e.getKey());
+
+            removeConnection(conn);
+        }
 
         /**
          * Exists a buffer with a given name?
@@ -147,6 +166,7 @@ public class Daemon {
                 if (buffers.create(bufferName, config) != null) result = true;
             }
 
+            flushValueChanges();
             return result;
         }
 
@@ -166,6 +186,54 @@ public class Daemon {
             return buffer == null ? null : buffer.get();
         }
 
+        /**
+         * Returns the history of a buffer.
+         *
+         * @param conn       the connection
+         * @param bufferName the name of the buffer
+         * @param from       the start of the time range in milliseconds since the epoch, inclusive
+         * @param to         the end of the time range in milliseconds since the epoch, inclusive
+         * @param maxPoints  the maximum number of values, which is 0 for no limit
+         *
+         * @return the values in the order of their timestamps or <tt>null</tt>, is no buffer with this name is known
+         */
+        @Override
+        public List<SimpleData> bufferHistory(DaemonEndpoint conn, String bufferName, long from, long to, int maxPoints) {
+
+            Buffer buffer = buffers.bufferByName(bufferName);
+            HistoryStore store = historyStore;
+
+            if (buffer == null) return null;
+            if (store == null || buffer.historyCovers(from)) return buffer.getHistory(from, to, maxPoints);
+
+            store.flush();
+            return store.get(bufferName, from, to, maxPoints);
+        }
+
+        /**
+         * Returns the aggregates of some buffers.
+         *
+         * @param conn        the connection
+         * @param bufferNames the names of the buffers
+         * @param from        the start of the time range in milliseconds since the epoch, inclusive
+         * @param to          the end of the time range in milliseconds since the epoch, inclusive
+         * @param window      the length of a time window in milliseconds
+         *
+         * @return the aggregates in the order of their time windows by buffer name
+         */
+        @Override
+        public Map<String, List<Aggregate>> bufferAggregates(DaemonEndpoint conn, Collection<String> bufferNames, long from, long to, long window) {
+
+            Map<String, List<Aggregate>> result = new LinkedHashMap<>();
+
+            for (String bufferName : bufferNames) {
+                Buffer buffer = buffers.bufferByName(bufferName);
+                if (buffer != null) result.put(bufferName, buffer.getAggregates(from, to, window));
+            }
+
+            return result;
+        }
+
         /**
          * Sets the value of a buffer.
          *
@@ -183,6 +251,7 @@ public class Daemon {
 
             if (buffer != null && buffer.put(value)) result = buffer.get();
 
+            flushValueChanges();
             return result;
         }
 
@@ -231,13 +300,64 @@ public class Daemon {
         public boolean removeBuffer(DaemonEndpoint conn, String bufferName) {
 
             Buffer existing = buffers.bufferByName(bufferName);
-            return existing != null && !existing.isHardwareBuffer() && buffers.remove(bufferName) != null;
+            boolean result = existing != null && !existing.isHardwareBuffer() && buffers.remove(bufferName) != null;
+
+            flushValueChanges();
+            return result;
+        }
+
+        /**
+         * Watches a condition of a buffer.
+         *
+         * @param conn       the connection
+         * @param bufferName the name of the buffer
+         * @param id         the id of the watch chosen by the client
+         * @param condition  the condition
+         *
+         * @return <tt>true</tt>, if the buffer is watched now, <tt>false</tt>, if no buffer with this name is known
+         */
+        @Override
+        public boolean watch(DaemonEndpoint conn, String bufferName, int id, Condition condition) {
+
+            Buffer buffer = buffers.bufferByName(bufferName);
+
+            if (buffer == null) return false;
+
+            unwatch(conn, id);
+            watches.computeIfAbsent(conn, c -> new ConcurrentHashMap<>()).put(id, buffer);
+            buffer.watch(conn, id, condition, event -> {
+
+                // The watch of a released buffer ends.
+                if (event.getValue().getState() == BufferState.RELEASED) {
+                    Map<Integer, Buffer> watched = watches.get(conn);
+                    if (watched != null) watched.remove(id, buffer);
+                }
+
+                conn.conditionChanged(event);
+            });
+
+            return true;
+        }
+
+        /**
+         * Cancels the watch of a condition.
+         *
+         * @param conn the connection
+         * @param id   the id of the watch chosen by the client
+         */
+        @Override
+        public void unwatch(DaemonEndpoint conn, int id) {
+
+            Map<Integer, Buffer> watched = watches.get(conn);
+            Buffer buffer = watched == null ? null : watched.remove(id);
+
+            if (buffer != null) buffer.unwatch(conn, id);
         }
     }
 
     /**
      * This is the listener, that receives value changes from all the buffers. They are routed
-     * to the client connections.
+     * to the client connections by the value change dispatcher.
      */
     private class ValueChangeListener implements ValueChangeConsumer {
 
@@ -259,8 +379,11 @@ public class Daemon {
     // The exception handler
     private LastChanceExceptionHandler lastChanceExceptionHandler;
 
+    // The asynchronous log handlers replacing the handlers of the root logger
+    private List<AsyncLogHandler> logHandlers;
+
     // The system timer
-    private Timer timer;
+    private TimingWheel timer;
 
     // All known gatherers
     private Gatherers gatherers;
@@ -268,16 +391,31 @@ public class Daemon {
     // All known buffers
     private Buffers buffers;
 
+    // The dispatcher of buffer value changes to the client connections
+    private ValueChangeDispatcher dispatcher;
+
+    // The history store writing the buffer values to disk, which is null, if it is disabled
+    private volatile HistoryStore historyStore;
+
     // The hardware driver
     private Driver driver;
 
     // A set of connection to the clients.
     private final Set<DaemonEndpoint> connections;
 
+    // The buffers watched by every connection by the ids of the watches
+    private final Map<DaemonEndpoint, Map<Integer, Buffer>> watches;
+
     // The server socket and the thread listening for new connection.
     private ServerSocket socket;
     private ConnectionListener connectionListener;
 
+    // The event loop serving all connections instead of the server socket.
+    private EventLoop eventLoop;
+
+    // Serving the connections with an event loop?
+    private boolean useEventLoop;
+
     // Some test flags set by command line options
     private boolean exitOnShutdown;
     private boolean openSocket;
@@ -286,6 +424,7 @@ public class Daemon {
     private Daemon() {
 
         connections = new CopyOnWriteArraySet<>();
+        watches = new ConcurrentHashMap<>();
     }
 
     /**
@@ -297,6 +436,7 @@ public class Daemon {
 
         exitOnShutdown = true;
         openSocket = true;
+        useEventLoop = false;
 
         // At first the command line arguments are evaluated and handled.
         handleCommandLineArguments(args);
@@ -305,6 +445,9 @@ public class Daemon {
         lastChanceExceptionHandler = new LastChanceExceptionHandler();
         Thread.setDefaultUncaughtExceptionHandler(lastChanceExceptionHandler);
 
+        // The log output is written asynchronously
+        startAsyncLogging();
+
         // Write the configuration items to the logger
         logger.info(String.format("This is the G2021 buffer daemon version '%s'.", VERSION));
         logger.config(String.format("Operating system: %s (%s) version %s",
@@ -315,7 +458,7 @@ public class Daemon {
         logger.config(String.format("Default directory: %s", System.getProperty("user.dir")));
 
         // Now we create all the necessary main parts
-        timer = new Timer(true);
+        timer = new TimingWheel();
         gatherers = new Gatherers();
         buffers = new Buffers();
         driver = new Driver();
@@ -324,16 +467,25 @@ public class Daemon {
         // Now the main parts can work together
         gatherers.initialize();
         buffers.initialize();
-        buffers.addValueChangeConsumer(new ValueChangeListener());
+        dispatcher = new ValueChangeDispatcher(new ValueChangeListener());
+        buffers.addValueChangeConsumer(dispatcher);
+        startHistoryStore();
         driver.initialize();
 
         // At last the server socket is initialized
         if (openSocket) {
             try {
-                socket = new ServerSocket(CommunicationSettings.bufferDaemonPort());
-                socket.setReuseAddress(true);
-                connectionListener = new ConnectionListener();
-                connectionListener.start();
+                if (useEventLoop) {
+                    eventLoop = new EventLoop(CommunicationSettings.bufferDaemonPort(),
+                                              () -> new ClientRequestImplementation(),
+                                              this::addConnection);
+                }
+                else {
+                    socket = new ServerSocket(CommunicationSettings.bufferDaemonPort());
+                    socket.setReuseAddress(true);
+                    connectionListener = new ConnectionListener();
+                    connectionListener.start();
+                }
                 logger.info(String.format("The G2021 buffer daemon listen for incoming connections at port %d.",
                                           CommunicationSettings.bufferDaemonPort()));
             }
@@ -373,6 +525,12 @@ public class Daemon {
             }
         }
 
+        // The event loop accepts no more client connections too.
+        if (eventLoop != null) {
+            eventLoop.close();
+            eventLoop = null;
+        }
+
         // Now the listener thread for incoming connections must die
         try {
             if (connectionListener != null) connectionListener.join();
@@ -419,9 +577,17 @@ public class Daemon {
             gatherers = null;
         }
 
-        // Now the timer thread is stopped
+        // Now the history store, the dispatcher and the timer thread are stopped
+        if (historyStore != null) {
+            historyStore.close();
+            historyStore = null;
+        }
+        if (dispatcher != null) {
+            dispatcher.close();
+            dispatcher = null;
+        }
         if (timer != null) {
-            timer.cancel();
+            timer.close();
             timer = null;
         }
         logger.info("All system resources have been released.");
@@ -429,11 +595,13 @@ public class Daemon {
         // And finally exit the process
         if (exitOnShutdown) {
             logger.info(String.format("Exiting the operation system process with exit code %d.", exitCode));
+            stopAsyncLogging();
             LogManager.getLogManager().reset();
             System.exit(exitCode);
         }
         else {
             logger.info(String.format("The shutdown sequence is done."));
+            stopAsyncLogging();
         }
     }
 
@@ -444,11 +612,11 @@ public class Daemon {
     public void kill() { stop(1); }
 
     /**
-     * Returns the system timer,
+     * Returns the system timer, which is shared by all components of the daemon.
      *
      * @return the timer
      */
-    public Timer timer() { return timer; }
+    public TimingWheel timer() { return timer; }
 
     /**
      * Returns the set of gatherers.
@@ -489,6 +657,68 @@ public class Daemon {
         connections.remove(connection);
     }
 
+    /**
+     * Replaces the handlers of the root logger by asynchronous log handlers, which hand the log records over to the
+     * original handlers.
+     */
+    private void startAsyncLogging() {
+
+        logHandlers = new ArrayList<>();
+
+        int capacity = AsyncLogHandler.capacity();
+        if (capacity == 0) return;
+
+        Logger root = Logger.getLogger("");
+        for (Handler handler : root.getHandlers()) {
+
+            AsyncLogHandler async = new AsyncLogHandler(handler, capacity);
+
+            root.removeHandler(handler);
+            root.addHandler(async);
+            logHandlers.add(async);
+        }
+    }
+
+    /** Opens the history store, if a history directory is configured, and registers it for the buffer value changes. */
+    private void startHistoryStore() {
+
+        File directory = HistoryStore.directory();
+        if (directory == null) return;
+
+        try {
+            historyStore = new HistoryStore(directory, HistoryStore.retention());
+            buffers.addValueChangeConsumer(historyStore);
+            logger.info(String.format("The buffer history is stored in %s.", directory));
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, String.format("The history store in %s cannot be opened. The buffer history is kept in memory only.", directory), e);
+        }
+    }
+
+    /** Writes the pending log records and restores the original handlers of the root logger. */
+    private void stopAsyncLogging() {
+
+        Logger root = Logger.getLogger("");
+        for (AsyncLogHandler async : logHandlers) {
+
+            root.removeHandler(async);
+            root.addHandler(async.getTarget());
+            async.close();
+        }
+
+        logHandlers.clear();
+    }
+
+    /**
+     * Waits until the value changes caused by a client request are delivered to the client connections. These are the
+     * changes of the buffer requested and of all the buffers depending on it.
+     */
+    private void flushValueChanges() {
+
+        ValueChangeDispatcher current = dispatcher;
+        if (current != null) current.flush();
+    }
+
     /**
      * Interprets the command line arguments if given.
      *
@@ -503,6 +733,10 @@ public class Daemon {
                     System.exit(0);
                     break;
 
+                case "-nio":
+                    useEventLoop = true;
+                    break;
+
                 case "-stop":
                     if (shutdownRemoteDaemon()) System.exit(0);
                     else System.exit(1);
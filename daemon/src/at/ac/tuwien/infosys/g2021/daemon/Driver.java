@@ -8,8 +8,13 @@ import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.TimerTask;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Here is the logical driver for the G2021. It uses a hardware dependent hardware driver to access the
@@ -19,6 +24,12 @@ import java.util.TimerTask;
  * <li>to poll the hardware ports and</li>
  * <li>to route the value changes to the gatherers.</li>
  * </ul>
+ * Every sensor port is polled with its own poll interval. All the ports due at the same time are read with a single
+ * call of the hardware driver. The ports of a blocking hardware driver are read by a thread of its own. Ports falling
+ * due, while this thread is busy, are read by its next reading.
+ * <p>
+ * A hardware driver may report the changes of some ports itself. These ports aren't polled, and their changes are
+ * distributed by the thread of the hardware driver at once. If no port is left to poll, there is no timer task at all.
  */
 class Driver implements Component {
 
@@ -26,7 +37,17 @@ class Driver implements Component {
     private HardwareDriverInterface driver;
 
     // The current timer task
-    private TimerTask ticker;
+    private TimingWheel.Task ticker;
+
+    // The poll intervals of the sensor ports with the port name as key
+    private Map<String, Long> pollIntervals;
+
+    // The thread reading the ports of a blocking hardware driver and the flag, whether it is busy
+    private ExecutorService poller;
+    private final AtomicBoolean polling;
+
+    // The ports due for polling, which are not read by the polling thread yet
+    private final Set<String> pendingPorts;
 
     // The last values distributed
     private Map<String, SimpleData> currentValues;
@@ -35,19 +56,73 @@ class Driver implements Component {
     private Map<String, Collection<ValueChangeConsumer>> listeners;
 
     // This inner class is the implementation of the timer task
-    private class Ticker extends TimerTask {
+    private class Ticker implements Runnable {
+
+        // The polling schedule
+        private final PollingSchedule schedule;
+
+        /**
+         * Initialization.
+         *
+         * @param s the polling schedule
+         */
+        Ticker(PollingSchedule s) { schedule = s; }
 
         /** The action to be performed by this timer task. */
         @Override
-        public void run() { poll(); }
+        public void run() {
+
+            Collection<String> ports = schedule.tick();
+
+            if (ports.isEmpty()) return;
+
+            if (poller == null) {
+                poll(ports);
+                return;
+            }
+
+            // If the last reading hasn't finished yet, the ports are read together with the ports of a later tick.
+            synchronized (pendingPorts) {
+                pendingPorts.addAll(ports);
+            }
+
+            if (polling.compareAndSet(false, true)) {
+                poller.execute(() -> {
+                    try {
+                        Collection<String> due;
+
+                        synchronized (pendingPorts) {
+                            due = new ArrayList<>(pendingPorts);
+                            pendingPorts.clear();
+                        }
+
+                        poll(due);
+                    }
+                    finally {
+                        polling.set(false);
+                    }
+                });
+            }
+        }
     }
 
     /** Initialization of the driver. The suitable hardware driver is selected. */
-    Driver() {
+    Driver() { this(HardwareDriverFactory.select()); }
 
-        driver = HardwareDriverFactory.select();
-        ticker = new Ticker();
-        listeners = new HashMap<>();
+    /**
+     * Initialization of the driver using a given hardware driver.
+     *
+     * @param hardwareDriver the hardware driver
+     */
+    Driver(HardwareDriverInterface hardwareDriver) {
+
+        driver = hardwareDriver;
+        ticker = null;
+        pollIntervals = new HashMap<>();
+        poller = null;
+        polling = new AtomicBoolean(false);
+        pendingPorts = new LinkedHashSet<>();
+        listeners = new ConcurrentHashMap<>();
         currentValues = new HashMap<>();
     }
 
@@ -63,8 +138,29 @@ class Driver implements Component {
         // Now the available hardware is scanned and buffers are generated
         driver.getPorts().forEach(this::configureHardwareBuffer);
 
+        // The ports reported by the hardware driver itself needn't be polled.
+        Collection<String> reported = new ArrayList<>(driver.listen(values -> values.forEach(this::distributeValue)));
+        pollIntervals.keySet().removeAll(reported);
+
         // at last a timer task is started, to poll all the values.
-        Daemon.get().timer().scheduleAtFixedRate(ticker, 0L, 1000L);
+        if (driver.isBlocking()) {
+            poller = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "hardware polling thread");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        // The reported ports are read once to get their initial values.
+        if (!reported.isEmpty()) {
+            if (poller == null) poll(reported);
+            else poller.execute(() -> poll(reported));
+        }
+
+        if (!pollIntervals.isEmpty()) {
+            PollingSchedule schedule = new PollingSchedule(pollIntervals);
+            ticker = Daemon.get().timer().scheduleAtFixedRate(new Ticker(schedule), 0L, schedule.getTickPeriod());
+        }
     }
 
     /**
@@ -103,26 +199,40 @@ class Driver implements Component {
             }
 
             listener.add(gatherer);
+            pollIntervals.put(portName, port.getPollInterval());
         }
     }
 
     /**
-     * Distribute value changes to the gatherers.
+     * Distribute value changes to the gatherers. This method is called by the polling thread and by the threads of the
+     * hardware driver reporting changes. A value older than the last value distributed is dropped. The values are
+     * delivered without holding a lock, so a gatherer may get two values of a port concurrently. The sensor gatherer
+     * drops the older one, so it never takes an outdated value after a newer one.
      *
      * @param value the current value
      */
     private void distributeValue(SimpleData value) {
 
         String port = value.getBufferName();
+        Collection<ValueChangeConsumer> consumers = listeners.get(port);
+
+        if (consumers == null) return;
 
-        if (listeners.containsKey(port) && !value.equals(currentValues.get(port))) {
-            listeners.get(port).forEach(listener -> listener.valueChanged(value));
+        synchronized (currentValues) {
+            SimpleData current = currentValues.get(port);
+            if (current != null && (value.getTime() < current.getTime() || value.equals(current))) return;
             currentValues.put(port, value);
         }
+
+        consumers.forEach(listener -> listener.valueChanged(value));
     }
 
-    /** Polls the hardware changes and distributes value changes to the gatherers. */
-    private void poll() { driver.getAll().forEach(this::distributeValue); }
+    /**
+     * Polls the hardware changes and distributes value changes to the gatherers.
+     *
+     * @param ports the names of the ports to read
+     */
+    private void poll(Collection<String> ports) { driver.get(ports).forEach(this::distributeValue); }
 
     /**
      * Sets the output value of actors.
@@ -147,12 +257,19 @@ class Driver implements Component {
     public void shutdown() {
 
         // polling is not necessary any more
-        ticker.cancel();
+        stopPolling();
 
         // close the hardware driver
         driver.shutdown();
     }
 
+    /** Stops the polling timer task and the polling thread. */
+    private void stopPolling() {
+
+        if (ticker != null) ticker.cancel();
+        if (poller != null) poller.shutdown();
+    }
+
     /** This method is called immediately after a shutdown, immediately before the process is stopped. */
     @Override
     public void release() {
@@ -161,7 +278,7 @@ class Driver implements Component {
         listeners.clear();
 
         // polling is not necessary any more
-        ticker.cancel();
+        stopPolling();
 
         // close the hardware driver
         driver.release();
@@ -18,5 +18,5 @@ class DummyAdapter extends Adapter {
      * @param newValue the new buffer value
      */
     @Override
-    public void valueChanged(SimpleData newValue) { set(newValue); }
+    void adapt(SimpleData newValue) { set(newValue); }
 }
@@ -43,16 +43,18 @@ class DummyGatherer extends Gatherer {
     @Override
     boolean set(Number value) {
 
+        boolean result = false;
+
         synchronized (valueLock) {
 
             if (get().getState() == BufferState.READY && value != null) {
                 setCurrentValue(value);
-                return true;
-            }
-            else {
-                return false;
+                result = true;
             }
         }
+
+        publish();
+        return result;
     }
 
     /**
@@ -71,6 +73,8 @@ class DummyGatherer extends Gatherer {
                 setCurrentState(state);
             }
         }
+
+        publish();
     }
 }
 
@@ -22,7 +22,7 @@ class FilteringAdapter extends Adapter {
      * @param newValue the new buffer value
      */
     @Override
-    public void valueChanged(SimpleData newValue) {
+    void adapt(SimpleData newValue) {
 
         synchronized (valueLock) {
 
@@ -33,7 +33,7 @@ class FilteringAdapter extends Adapter {
             }
             else {
                 FilteringAdapterConfiguration config = getConfiguration();
-                double delta = Math.abs(newValue.getValue().doubleValue() - current.getValue().doubleValue());
+                double delta = Math.abs(newValue.doubleValue() - current.doubleValue());
 
                 if (delta >= config.getMinimumDifference()) set(newValue);
             }
@@ -0,0 +1,456 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A formula is the compiled expression of a <tt>{@link FormulaGatherer}</tt>. The expression is parsed once into a tree
+ * of nodes. The referenced buffers are numbered in the order of their first appearance, and the nodes read the buffer
+ * values by this number from an array, so an evaluation needs neither a parser nor a name lookup. Subexpressions
+ * without buffer references are calculated at compile time.
+ * <p>
+ * The grammar is:
+ * <pre>
+ *     expression = term { ( "+" | "-" ) term }
+ *     term       = unary { ( "*" | "/" | "%" ) unary }
+ *     unary      = "-" unary | power
+ *     power      = primary [ "^" unary ]
+ *     primary    = number | name | function "(" expression { "," expression } ")" | "(" expression ")"
+ *     name       = letter { letter | digit | "_" | "." } | "'" { any character except "'" } "'"
+ * </pre>
+ */
+final class Formula {
+
+    /** A node of the expression tree. */
+    private interface Node {
+
+        /**
+         * Calculates the value of the node.
+         *
+         * @param inputs the values of the referenced buffers
+         *
+         * @return the value
+         */
+        double evaluate(double[] inputs);
+    }
+
+    /** A node with a constant value. */
+    private final static class Constant implements Node {
+
+        // The value
+        private final double value;
+
+        Constant(double value) { this.value = value; }
+
+        @Override
+        public double evaluate(double[] inputs) { return value; }
+    }
+
+    // The unary and the variadic functions
+    private final static List<String> UNARY_FUNCTIONS = Arrays.asList("abs", "sqrt", "exp", "log");
+    private final static List<String> VARIADIC_FUNCTIONS = Arrays.asList("min", "max", "sum", "avg");
+
+    // The expression, the root of the tree and the referenced buffer names
+    private final String expression;
+    private final Node root;
+    private final List<String> references;
+    private final Map<String, Integer> numbers;
+
+    // The parser state: the position of the next character
+    private int position;
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression the expression
+     *
+     * @throws IllegalArgumentException if the expression contains a syntax error
+     */
+    private Formula(String expression) throws IllegalArgumentException {
+
+        this.expression = expression;
+        this.references = new ArrayList<>();
+        this.numbers = new HashMap<>();
+        this.position = 0;
+
+        Node result = expression();
+        skipSpaces();
+        if (position < expression.length()) throw error("unexpected character '" + expression.charAt(position) + "'");
+
+        root = result;
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression the expression
+     *
+     * @return the compiled formula
+     *
+     * @throws IllegalArgumentException if the expression contains a syntax error
+     */
+    static Formula compile(String expression) throws IllegalArgumentException {
+
+        if (expression == null) throw new NullPointerException("expression is null");
+
+        return new Formula(expression);
+    }
+
+    /**
+     * Returns the names of the referenced buffers. The position of a name in this list is its number.
+     *
+     * @return the buffer names
+     */
+    List<String> getReferences() { return Collections.unmodifiableList(references); }
+
+    /**
+     * Returns the number of a referenced buffer.
+     *
+     * @param name the buffer name
+     *
+     * @return the number or -1, if the buffer is not referenced
+     */
+    int numberOf(String name) {
+
+        Integer result = numbers.get(name);
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * Calculates the value of the formula.
+     *
+     * @param inputs the values of the referenced buffers in the order of their numbers
+     *
+     * @return the value
+     */
+    double evaluate(double[] inputs) { return root.evaluate(inputs); }
+
+    /**
+     * Returns the expression.
+     *
+     * @return the expression
+     */
+    @Override
+    public String toString() { return expression; }
+
+    /**
+     * Creates the exception for a syntax error.
+     *
+     * @param message the description of the error
+     *
+     * @return the exception
+     */
+    private IllegalArgumentException error(String message) {
+
+        return new IllegalArgumentException(String.format("%s at position %d of '%s'", message, position, expression));
+    }
+
+    /** Skips whitespace. */
+    private void skipSpaces() {
+
+        while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) position++;
+    }
+
+    /**
+     * Reads a character, if it is the next non-whitespace character.
+     *
+     * @param c the expected character
+     *
+     * @return <tt>true</tt>, if the character has been read
+     */
+    private boolean accept(char c) {
+
+        skipSpaces();
+        if (position < expression.length() && expression.charAt(position) == c) {
+            position++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads a character, which must be the next non-whitespace character.
+     *
+     * @param c the expected character
+     */
+    private void expect(char c) { if (!accept(c)) throw error("'" + c + "' expected"); }
+
+    /**
+     * Combines two nodes by a binary operator. Constant operands are calculated at once.
+     *
+     * @param operator the operator
+     * @param left     the left operand
+     * @param right    the right operand
+     *
+     * @return the combined node
+     */
+    private static Node binary(char operator, Node left, Node right) {
+
+        Node result;
+
+        switch (operator) {
+            case '+':
+                result = inputs -> left.evaluate(inputs) + right.evaluate(inputs);
+                break;
+
+            case '-':
+                result = inputs -> left.evaluate(inputs) - right.evaluate(inputs);
+                break;
+
+            case '*':
+                result = inputs -> left.evaluate(inputs) * right.evaluate(inputs);
+                break;
+
+            case '/':
+                result = inputs -> left.evaluate(inputs) / right.evaluate(inputs);
+                break;
+
+            case '%':
+                result = inputs -> left.evaluate(inputs) % right.evaluate(inputs);
+                break;
+
+            default:
+                result = inputs -> Math.pow(left.evaluate(inputs), right.evaluate(inputs));
+        }
+
+        return left instanceof Constant && right instanceof Constant ? new Constant(result.evaluate(null)) : result;
+    }
+
+    /**
+     * Parses an expression.
+     *
+     * @return the node
+     */
+    private Node expression() {
+
+        Node result = term();
+
+        while (true) {
+            if (accept('+')) result = binary('+', result, term());
+            else if (accept('-')) result = binary('-', result, term());
+            else return result;
+        }
+    }
+
+    /**
+     * Parses a term.
+     *
+     * @return the node
+     */
+    private Node term() {
+
+        Node result = unary();
+
+        while (true) {
+            if (accept('*')) result = binary('*', result, unary());
+            else if (accept('/')) result = binary('/', result, unary());
+            else if (accept('%')) result = binary('%', result, unary());
+            else return result;
+        }
+    }
+
+    /**
+     * Parses a negation.
+     *
+     * @return the node
+     */
+    private Node unary() {
+
+        if (accept('-')) {
+            Node operand = unary();
+            return operand instanceof Constant ? new Constant(-operand.evaluate(null)) : inputs -> -operand.evaluate(inputs);
+        }
+
+        return power();
+    }
+
+    /**
+     * Parses a power. The exponent may be negated and the operator is right associative.
+     *
+     * @return the node
+     */
+    private Node power() {
+
+        Node result = primary();
+
+        return accept('^') ? binary('^', result, unary()) : result;
+    }
+
+    /**
+     * Parses a number, a buffer reference, a function call or an expression in parentheses.
+     *
+     * @return the node
+     */
+    private Node primary() {
+
+        skipSpaces();
+        if (position >= expression.length()) throw error("unexpected end of expression");
+
+        char c = expression.charAt(position);
+
+        if (accept('(')) {
+            Node result = expression();
+            expect(')');
+            return result;
+        }
+        else if (c == '\'') {
+            int end = expression.indexOf('\'', position + 1);
+            if (end < 0) throw error("unterminated buffer name");
+            String name = expression.substring(position + 1, end);
+            position = end + 1;
+            return reference(name);
+        }
+        else if (Character.isDigit(c) || c == '.') {
+            return number();
+        }
+        else if (Character.isLetter(c) || c == '_') {
+            int start = position;
+            while (position < expression.length()) {
+                char d = expression.charAt(position);
+                if (!Character.isLetterOrDigit(d) && d != '_' && d != '.') break;
+                position++;
+            }
+            String name = expression.substring(start, position);
+
+            return accept('(') ? function(name) : reference(name);
+        }
+
+        throw error("unexpected character '" + c + "'");
+    }
+
+    /**
+     * Parses a number.
+     *
+     * @return the node
+     */
+    private Node number() {
+
+        int start = position;
+        while (position < expression.length() && (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+            position++;
+        }
+        if (position < expression.length() && (expression.charAt(position) == 'e' || expression.charAt(position) == 'E')) {
+            position++;
+            if (position < expression.length() && (expression.charAt(position) == '+' || expression.charAt(position) == '-')) position++;
+            while (position < expression.length() && Character.isDigit(expression.charAt(position))) position++;
+        }
+
+        try {
+            return new Constant(Double.parseDouble(expression.substring(start, position)));
+        }
+        catch (NumberFormatException e) {
+            position = start;
+            throw error("illegal number");
+        }
+    }
+
+    /**
+     * Creates the node of a buffer reference.
+     *
+     * @param name the buffer name
+     *
+     * @return the node
+     */
+    private Node reference(String name) {
+
+        if (name.isEmpty()) throw error("empty buffer name");
+
+        Integer number = numbers.get(name);
+        if (number == null) {
+            number = references.size();
+            references.add(name);
+            numbers.put(name, number);
+        }
+
+        int n = number;
+        return inputs -> inputs[n];
+    }
+
+    /**
+     * Parses the arguments of a function call. The opening parenthesis has been read.
+     *
+     * @param name the function name
+     *
+     * @return the node
+     */
+    private Node function(String name) {
+
+        List<Node> list = new ArrayList<>();
+        do {
+            list.add(expression());
+        } while (accept(','));
+        expect(')');
+
+        Node[] arguments = list.toArray(new Node[list.size()]);
+        Node result;
+
+        if (UNARY_FUNCTIONS.contains(name)) {
+
+            if (arguments.length != 1) throw error("function '" + name + "' needs one argument");
+            Node argument = arguments[0];
+
+            switch (name) {
+                case "abs":
+                    result = inputs -> Math.abs(argument.evaluate(inputs));
+                    break;
+
+                case "sqrt":
+                    result = inputs -> Math.sqrt(argument.evaluate(inputs));
+                    break;
+
+                case "exp":
+                    result = inputs -> Math.exp(argument.evaluate(inputs));
+                    break;
+
+                default:
+                    result = inputs -> Math.log(argument.evaluate(inputs));
+            }
+        }
+        else if (VARIADIC_FUNCTIONS.contains(name)) {
+
+            switch (name) {
+                case "min":
+                    result = inputs -> {
+                        double value = arguments[0].evaluate(inputs);
+                        for (int i = 1; i < arguments.length; i++) value = Math.min(value, arguments[i].evaluate(inputs));
+                        return value;
+                    };
+                    break;
+
+                case "max":
+                    result = inputs -> {
+                        double value = arguments[0].evaluate(inputs);
+                        for (int i = 1; i < arguments.length; i++) value = Math.max(value, arguments[i].evaluate(inputs));
+                        return value;
+                    };
+                    break;
+
+                case "sum":
+                    result = inputs -> {
+                        double value = 0.0;
+                        for (Node argument : arguments) value += argument.evaluate(inputs);
+                        return value;
+                    };
+                    break;
+
+                default:
+                    result = inputs -> {
+                        double value = 0.0;
+                        for (Node argument : arguments) value += argument.evaluate(inputs);
+                        return value / arguments.length;
+                    };
+            }
+        }
+        else {
+            throw error("unknown function '" + name + "'");
+        }
+
+        for (Node argument : arguments) if (!(argument instanceof Constant)) return result;
+        return new Constant(result.evaluate(null));
+    }
+}
@@ -0,0 +1,142 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.FormulaGathererConfiguration;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is a gatherer calculating its value by a formula over the values of other buffers. The formula is compiled once.
+ * The gatherer is registered at the <tt>{@link Buffers}</tt> as dependent of every referenced buffer, so it is notified
+ * only about value changes of these buffers and calculates the formula immediately within the thread distributing the
+ * value change.
+ * <p>
+ * The value is ready, if all the referenced buffers are ready and the result is a finite number. If a referenced buffer
+ * is faulted or the result is not finite, the gatherer is faulted. Otherwise, e.g. if a referenced buffer does not
+ * exist yet, the gatherer is initializing.
+ */
+class FormulaGatherer extends Gatherer {
+
+    // The compiled formula
+    private final Formula formula;
+
+    // The values and the states of the referenced buffers in the order of their numbers
+    private final double[] inputs;
+    private final BufferState[] states;
+
+    /**
+     * Initializing a formula gatherer.
+     *
+     * @param config the configuration
+     *
+     * @throws IllegalArgumentException if the expression contains a syntax error
+     */
+    FormulaGatherer(FormulaGathererConfiguration config) throws IllegalArgumentException {
+
+        super(config);
+
+        formula = Formula.compile(config.getExpression());
+        inputs = new double[formula.getReferences().size()];
+        states = new BufferState[inputs.length];
+        Arrays.fill(states, BufferState.INITIALIZING);
+
+        setCurrentState(BufferState.INITIALIZING);
+
+        // At first the gatherer is registered, so no value change is lost while the current values are read.
+        Buffers buffers = Daemon.get().buffers();
+        buffers.addDependent(this);
+
+        synchronized (valueLock) {
+            for (int i = 0; i < inputs.length; i++) {
+                Buffer buffer = buffers.bufferByName(formula.getReferences().get(i));
+                if (buffer != null) input(i, buffer.get());
+            }
+            calculate();
+        }
+
+        publish();
+    }
+
+    /** Releases any system resources of the gatherer. */
+    @Override
+    void shutdown() {
+
+        Daemon.get().buffers().removeDependent(this);
+        super.shutdown();
+    }
+
+    /**
+     * Returns the names of the referenced buffers.
+     *
+     * @return the buffer names
+     */
+    List<String> getReferences() { return formula.getReferences(); }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object.
+     */
+    @Override
+    public String toString() { return String.format("%s:%s", getClass().getSimpleName(), formula); }
+
+    /**
+     * Takes the value of a referenced buffer. This must be done holding the value lock.
+     *
+     * @param number the number of the buffer
+     * @param value  the buffer value
+     */
+    private void input(int number, SimpleData value) {
+
+        states[number] = value == null ? BufferState.INITIALIZING : value.getState();
+        if (states[number] == BufferState.READY) {
+            if (value.hasValue()) inputs[number] = value.doubleValue();
+            else states[number] = BufferState.FAULTED;
+        }
+    }
+
+    /** Calculates the formula and sets the gatherer value. This must be done holding the value lock. */
+    private void calculate() {
+
+        BufferState state = BufferState.READY;
+
+        for (BufferState s : states) {
+            if (s == BufferState.FAULTED || s == BufferState.ISOLATED) {
+                state = BufferState.FAULTED;
+                break;
+            }
+            else if (s != BufferState.READY) {
+                state = BufferState.INITIALIZING;
+            }
+        }
+
+        if (state == BufferState.READY) {
+            double value = formula.evaluate(inputs);
+            if (Double.isNaN(value) || Double.isInfinite(value)) setCurrentState(BufferState.FAULTED);
+            else setCurrentValue(value);
+        }
+        else {
+            setCurrentState(state);
+        }
+    }
+
+    /**
+     * This is the notification about a value change of a referenced buffer.
+     *
+     * @param newValue the new buffer value
+     */
+    void inputChanged(SimpleData newValue) {
+
+        int number = formula.numberOf(newValue.getBufferName());
+
+        if (number >= 0) {
+            synchronized (valueLock) {
+                input(number, newValue);
+                calculate();
+            }
+
+            publish();
+        }
+    }
+}
@@ -4,7 +4,8 @@ import at.ac.tuwien.infosys.g2021.common.BufferState;
 import at.ac.tuwien.infosys.g2021.common.GathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
-import java.util.Date;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -19,16 +20,20 @@ abstract class Gatherer extends ValueChangeProducer {
     // The used gatherer configuration
     private GathererConfiguration configuration;
 
-    // The current gatherer value
-    private SimpleData currentValue;
+    // The current gatherer value. It is an immutable snapshot, which can be read without locking.
+    private volatile SimpleData currentValue;
 
-    // This is the lock object for changing values
+    // This is the lock object for changing values. Value changes are distributed after releasing this lock.
     protected final Object valueLock;
 
+    // The supplier of the latest value, created once for all the publications
+    private final Supplier<SimpleData> latestValue;
+
     /** There exists no gatherers without configuration. */
     private Gatherer() {
 
         valueLock = new Object();
+        latestValue = this::get;
     }
 
     /**
@@ -63,12 +68,7 @@ abstract class Gatherer extends ValueChangeProducer {
      *
      * @return the current value. Be careful, this value contains NO usable buffer name.
      */
-    SimpleData get() {
-
-        synchronized (valueLock) {
-            return currentValue;
-        }
-    }
+    SimpleData get() { return currentValue; }
 
     /**
      * Sets the current value of this gatherer. As state, BufferState.READY is assumed.
@@ -77,14 +77,21 @@ abstract class Gatherer extends ValueChangeProducer {
      */
     protected void setCurrentValue(Number value) {
 
+        boolean changed = false;
+
         synchronized (valueLock) {
-            if (currentValue == null || currentValue.getState() != BufferState.READY || !currentValue.getValue().equals(value)) {
-                currentValue = new SimpleData(new Date(), BufferState.READY, value);
-                logger.fine(String.format("An instance of '%s' distributes the new value %.3f.",
-                                          getClass().getSimpleName(), value.doubleValue()));
-                fireValueChange(currentValue);
+            if (currentValue == null || currentValue.getState() != BufferState.READY || currentValue.doubleValue() != value.doubleValue()) {
+                currentValue = new SimpleData("???", System.currentTimeMillis(), BufferState.READY, value);
+                changed = true;
             }
         }
+
+        if (changed && logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "An instance of ''{0}'' distributes the new value {1,number,0.000}.",
+                       new Object[] {getClass().getSimpleName(), value.doubleValue()});
+        }
+
+        if (!Thread.holdsLock(valueLock)) publish();
     }
 
     /**
@@ -94,16 +101,29 @@ abstract class Gatherer extends ValueChangeProducer {
      */
     protected void setCurrentState(BufferState state) {
 
+        boolean changed = false;
+
         synchronized (valueLock) {
             if (currentValue == null || currentValue.getState() != state) {
-                currentValue = new SimpleData(new Date(), state);
-                logger.fine(String.format("An instance of '%s' distributes the new state %s.",
-                                          getClass().getSimpleName(), state.name()));
-                fireValueChange(currentValue);
+                currentValue = new SimpleData(System.currentTimeMillis(), state);
+                changed = true;
             }
         }
+
+        if (changed && logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "An instance of ''{0}'' distributes the new state {1}.",
+                       new Object[] {getClass().getSimpleName(), state.name()});
+        }
+
+        if (!Thread.holdsLock(valueLock)) publish();
     }
 
+    /**
+     * Distributes the current value. Subclasses changing the value while holding the value lock must call this method
+     * after releasing the lock.
+     */
+    protected void publish() { fireLatestValue(latestValue); }
+
     /**
      * Can this gatherer can be used as actor?
      *
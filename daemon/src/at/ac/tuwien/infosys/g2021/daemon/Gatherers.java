@@ -2,6 +2,7 @@ package at.ac.tuwien.infosys.g2021.daemon;
 
 import at.ac.tuwien.infosys.g2021.common.ActorGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.DummyGathererConfiguration;
+import at.ac.tuwien.infosys.g2021.common.FormulaGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.GathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.SensorGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.TestGathererConfiguration;
@@ -100,6 +101,10 @@ class Gatherers implements Component {
                         result = new SensorGatherer((SensorGathererConfiguration)config);
                         break;
 
+                    case FORMULA:
+                        result = new FormulaGatherer((FormulaGathererConfiguration)config);
+                        break;
+
                     default:
                         throw new NotYetImplementedError("unknown gatherer implementation for gatherer class: " +
                                                          config.kindOfGatherer().name());
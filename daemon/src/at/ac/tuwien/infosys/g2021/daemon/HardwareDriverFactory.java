@@ -3,6 +3,7 @@ package at.ac.tuwien.infosys.g2021.daemon;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
 import at.ac.tuwien.infosys.g2021.common.util.PanicError;
 import at.ac.tuwien.infosys.g2021.daemon.drivers.raspberrypii2cdemo.RaspberryPiI2CDemoHardwareDriverImplementation;
+import at.ac.tuwien.infosys.g2021.daemon.drivers.simulation.SimulationHardwareDriverImplementation;
 import at.ac.tuwien.infosys.g2021.daemon.drivers.unittest.UnitTestDriverImplementation;
 import java.util.logging.Logger;
 
@@ -15,12 +16,14 @@ class HardwareDriverFactory {
     /**
      * This array contains all implemented hardware drivers.
      *
-     * There are only a dummy driver to ensure a nonnull driver selection, a test driver for the unit test
-     * and a demo driver for Raspberry Pi, because the original hardware for the G2021 is no longer available.
+     * There are only a dummy driver to ensure a nonnull driver selection, a test driver for the unit test,
+     * a simulation driver for load tests and a demo driver for Raspberry Pi, because the original hardware for
+     * the G2021 is no longer available.
      */
     private final static HardwareDriverInterface[] availableDrivers = {
             new DummyHardwareDriverImplementation(),
             new UnitTestDriverImplementation(),
+            new SimulationHardwareDriverImplementation(),
             new RaspberryPiI2CDemoHardwareDriverImplementation(),
     };
 
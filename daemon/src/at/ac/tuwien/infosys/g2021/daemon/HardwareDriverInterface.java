@@ -2,6 +2,10 @@ package at.ac.tuwien.infosys.g2021.daemon;
 
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /** Every driver for hardware devices must implement this interface. */
 public interface HardwareDriverInterface extends Component {
@@ -45,6 +49,44 @@ public interface HardwareDriverInterface extends Component {
      */
     public Collection<SimpleData> getAll();
 
+    /**
+     * Returns the states and values of some ports. The daemon calls this method with all the ports due for polling at the
+     * same time. The default implementation reads all the ports and drops the unwanted values. A driver, which is able to
+     * read single ports, should override it.
+     *
+     * @param ports the names of the ports to read
+     *
+     * @return the state and value of the ports
+     */
+    public default Collection<SimpleData> get(Collection<String> ports) {
+
+        Set<String> wanted = ports instanceof Set ? (Set<String>)ports : new HashSet<>(ports);
+
+        return getAll().stream()
+                       .filter(value -> wanted.contains(value.getBufferName()))
+                       .collect(Collectors.toList());
+    }
+
+    /**
+     * Does reading the ports block for a long time, e.g. because the ports are read via network? The ports of a
+     * blocking driver are polled by a thread of its own, so other timer tasks of the daemon aren't delayed.
+     *
+     * @return <tt>true</tt>, if reading the ports may block
+     */
+    public default boolean isBlocking() { return false; }
+
+    /**
+     * Registers the listener for port changes. A driver, which detects changes of some sensor ports itself, e.g. by
+     * interrupts or a change feed of the hardware, reports them to this listener as soon as they occur. These ports
+     * are read once after the registration and aren't polled any more. The default implementation reports no ports,
+     * so all the sensor ports are polled.
+     *
+     * @param listener the listener
+     *
+     * @return the names of the ports, whose changes are reported by the driver
+     */
+    public default Collection<String> listen(PortChangeListener listener) { return Collections.emptyList(); }
+
     /**
      * Sets the output of an actor.
      *
@@ -0,0 +1,345 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A history chunk contains consecutive values of a single buffer in a compressed form, which follows the time series
+ * compression of Facebook's Gorilla:
+ * </p>
+ * <ul>
+ * <li>The timestamp of the first value is kept in the chunk header. The timestamps are encoded as difference of the
+ * differences to their predecessors: <tt>'0'</tt> for no difference, <tt>'10'</tt> and 7 bits, <tt>'110'</tt> and
+ * 9 bits, <tt>'1110'</tt> and 12 bits, otherwise <tt>'1111'</tt> and 32 bits.</li>
+ * <li>The buffer state is encoded as <tt>'0'</tt>, if it has not changed, otherwise as <tt>'1'</tt> and the 3 bit
+ * ordinal of the buffer state. The state of the first value is always encoded.</li>
+ * <li>The first value is stored with all its 64 bits. Every further value is XORed with its predecessor. A result of 0
+ * is encoded as <tt>'0'</tt>. If the meaningful bits of the result fit into the window of leading and trailing zeros of
+ * the previous result, <tt>'10'</tt> and the meaningful bits are encoded. Otherwise <tt>'11'</tt>, the number of leading
+ * zeros in 5 bits, the number of meaningful bits in 6 bits and the meaningful bits are encoded. A missing value is NaN.</li>
+ * </ul>
+ * <p>
+ * Timestamps are milliseconds. A value older than its predecessor is recorded with the timestamp of the predecessor.
+ * A slowly changing sensor value needs only a few bits per value. This class is not thread-safe.
+ * </p>
+ */
+final class HistoryChunk {
+
+    /** The number of bytes, after which a chunk is full. */
+    final static int CAPACITY = 4096;
+
+    // The maximum number of bits of a single value: timestamp, state and value
+    private final static int MAX_VALUE_BITS = 4 + 32 + 1 + 3 + 2 + 5 + 6 + 64;
+
+    // The encoded values
+    private final byte[] data;
+    private int bitLength;
+    private int count;
+
+    // The timestamps of the first and the latest value and the latest timestamp difference
+    private long firstTime;
+    private long lastTime;
+    private long lastDelta;
+
+    // The latest buffer state and value
+    private int lastState;
+    private long lastValue;
+
+    // The window of meaningful bits of the latest XORed value
+    private int lastLeading;
+    private int lastTrailing;
+
+    /** Creates an empty chunk. */
+    HistoryChunk() {
+
+        data = new byte[CAPACITY + (MAX_VALUE_BITS + 7) / 8];
+        bitLength = 0;
+        count = 0;
+        firstTime = 0L;
+        lastTime = 0L;
+        lastDelta = 0L;
+        lastState = -1;
+        lastValue = 0L;
+        lastLeading = Integer.MAX_VALUE;
+        lastTrailing = 0;
+    }
+
+    /**
+     * Returns the timestamp of the first value.
+     *
+     * @return the timestamp in milliseconds since the epoch
+     */
+    long getFirstTime() { return firstTime; }
+
+    /**
+     * Returns the timestamp of the latest value.
+     *
+     * @return the timestamp in milliseconds since the epoch
+     */
+    long getLastTime() { return lastTime; }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return the number of values
+     */
+    int size() { return count; }
+
+    /**
+     * Returns the number of bytes used by the encoded values.
+     *
+     * @return the number of bytes
+     */
+    int byteLength() { return (bitLength + 7) / 8; }
+
+    /**
+     * Returns the encoded values. The array may be longer than the encoded values.
+     *
+     * @return the encoded values
+     */
+    byte[] getData() { return data; }
+
+    /**
+     * Is the chunk full?
+     *
+     * @return <tt>true</tt>, if no more values should be added
+     */
+    boolean isFull() { return bitLength >= CAPACITY * 8; }
+
+    /**
+     * Adds a value.
+     *
+     * @param time  the timestamp in milliseconds since the epoch
+     * @param state the ordinal of the buffer state
+     * @param value the value, which is NaN for no value
+     *
+     * @throws IllegalArgumentException if the value is more than 24 days younger than its predecessor
+     */
+    void add(long time, int state, double value) throws IllegalArgumentException {
+
+        if (isFull()) throw new IllegalStateException("chunk is full");
+        if (count > 0 && time - lastTime > Integer.MAX_VALUE) throw new IllegalArgumentException("timestamp too far ahead");
+
+        long bits = Double.doubleToRawLongBits(value);
+
+        if (count == 0) {
+            firstTime = time;
+            writeBits(state, 3);
+            writeBits(bits, 64);
+        }
+        else {
+
+            // The timestamp
+            long delta = Math.max(0L, time - lastTime);
+            long deltaOfDelta = delta - lastDelta;
+
+            if (deltaOfDelta == 0L) {
+                writeBits(0L, 1);
+            }
+            else if (deltaOfDelta >= -64L && deltaOfDelta <= 63L) {
+                writeBits(0b10L, 2);
+                writeBits(deltaOfDelta, 7);
+            }
+            else if (deltaOfDelta >= -256L && deltaOfDelta <= 255L) {
+                writeBits(0b110L, 3);
+                writeBits(deltaOfDelta, 9);
+            }
+            else if (deltaOfDelta >= -2048L && deltaOfDelta <= 2047L) {
+                writeBits(0b1110L, 4);
+                writeBits(deltaOfDelta, 12);
+            }
+            else {
+                writeBits(0b1111L, 4);
+                writeBits(deltaOfDelta, 32);
+            }
+
+            lastDelta = delta;
+            time = lastTime + delta;
+
+            // The buffer state
+            if (state == lastState) {
+                writeBits(0L, 1);
+            }
+            else {
+                writeBits(1L, 1);
+                writeBits(state, 3);
+            }
+
+            // The value
+            long xor = bits ^ lastValue;
+
+            if (xor == 0L) {
+                writeBits(0L, 1);
+            }
+            else {
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+
+                if (leading >= lastLeading && trailing >= lastTrailing) {
+                    writeBits(0b10L, 2);
+                    writeBits(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+                }
+                else {
+                    int meaningful = 64 - leading - trailing;
+
+                    writeBits(0b11L, 2);
+                    writeBits(leading, 5);
+                    writeBits(meaningful == 64 ? 0 : meaningful, 6);
+                    writeBits(xor >>> trailing, meaningful);
+
+                    lastLeading = leading;
+                    lastTrailing = trailing;
+                }
+            }
+        }
+
+        lastTime = time;
+        lastState = state;
+        lastValue = bits;
+        count++;
+    }
+
+    /**
+     * Writes the lowest bits of a number.
+     *
+     * @param bits   the number
+     * @param length the number of bits to write
+     */
+    private void writeBits(long bits, int length) {
+
+        for (int i = length - 1; i >= 0; i--) {
+            if ((bits >>> i & 1L) != 0L) data[bitLength >>> 3] |= (byte)(0x80 >>> (bitLength & 7));
+            bitLength++;
+        }
+    }
+
+    /**
+     * Decodes all the values of this chunk into a history.
+     *
+     * @param history the history
+     */
+    void decode(BufferHistory history) { decode(data, firstTime, count, history); }
+
+    /**
+     * Decodes the values of a chunk into a history.
+     *
+     * @param encoded   the encoded values
+     * @param firstTime the timestamp of the first value
+     * @param count     the number of values
+     * @param history   the history
+     *
+     * @throws IllegalArgumentException if the encoded values are malformed
+     */
+    static void decode(byte[] encoded, long firstTime, int count, BufferHistory history) throws IllegalArgumentException {
+
+        BitReader in = new BitReader(encoded);
+
+        long time = firstTime;
+        long delta = 0L;
+        int state = 0;
+        long value = 0L;
+        int leading = 0;
+        int trailing = 0;
+
+        for (int n = 0; n < count; n++) {
+
+            if (n == 0) {
+                state = (int)in.read(3);
+                value = in.read(64);
+            }
+            else {
+
+                // The timestamp
+                if (in.read(1) == 0L) delta += 0L;
+                else if (in.read(1) == 0L) delta += in.readSigned(7);
+                else if (in.read(1) == 0L) delta += in.readSigned(9);
+                else if (in.read(1) == 0L) delta += in.readSigned(12);
+                else delta += in.readSigned(32);
+
+                time += delta;
+
+                // The buffer state
+                if (in.read(1) != 0L) state = (int)in.read(3);
+
+                // The value
+                if (in.read(1) != 0L) {
+                    if (in.read(1) != 0L) {
+                        leading = (int)in.read(5);
+                        int meaningful = (int)in.read(6);
+                        if (meaningful == 0) meaningful = 64;
+                        trailing = 64 - leading - meaningful;
+                        if (trailing < 0) throw new IllegalArgumentException("malformed chunk");
+                    }
+
+                    value ^= in.read(64 - leading - trailing) << trailing;
+                }
+            }
+
+            history.add(time, state, Double.longBitsToDouble(value));
+        }
+    }
+
+    /**
+     * Returns a copy of the encoded values.
+     *
+     * @return the encoded values
+     */
+    byte[] toByteArray() { return Arrays.copyOf(data, byteLength()); }
+
+    /** This reader reads the bits of encoded values. */
+    private static final class BitReader {
+
+        // The encoded values and the position of the next bit
+        private final byte[] data;
+        private int position;
+
+        /**
+         * Initialization.
+         *
+         * @param d the encoded values
+         */
+        BitReader(byte[] d) {
+
+            data = d;
+            position = 0;
+        }
+
+        /**
+         * Reads some bits.
+         *
+         * @param length the number of bits
+         *
+         * @return the bits read
+         *
+         * @throws IllegalArgumentException if there are not enough bits
+         */
+        long read(int length) throws IllegalArgumentException {
+
+            if (position + length > data.length * 8) throw new IllegalArgumentException("malformed chunk");
+
+            long result = 0L;
+
+            for (int i = 0; i < length; i++) {
+                result = result << 1 | (data[position >>> 3] >>> (7 - (position & 7)) & 1);
+                position++;
+            }
+
+            return result;
+        }
+
+        /**
+         * Reads a number in two's complement.
+         *
+         * @param length the number of bits
+         *
+         * @return the number
+         *
+         * @throws IllegalArgumentException if there are not enough bits
+         */
+        long readSigned(int length) throws IllegalArgumentException {
+
+            long result = read(length);
+            return result << (64 - length) >> (64 - length);
+        }
+    }
+}
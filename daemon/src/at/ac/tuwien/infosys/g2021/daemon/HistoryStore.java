@@ -0,0 +1,815 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * The history store keeps the values of all the buffers on disk. It receives the value changes of the buffers without
+ * blocking. A writer thread of its own compresses the values into {@link HistoryChunk history chunks}, one open chunk per
+ * buffer. If the queue of received values is full, the value is dropped and counted.
+ * </p>
+ * <p>
+ * A chunk is sealed, if it is full or if its first value is older than 15 minutes. A sealed chunk is appended to a
+ * memory-mapped segment file of 1 MiB, and it is never changed later. Every chunk record of a segment file starts with
+ * its length and ends with a CRC32. Once a second, the values added to the open chunks since the last second are
+ * appended as unsealed records, and the segment files are flushed to the disk. An unsealed record is superseded by the
+ * next sealed record of its buffer. A segment file is flushed to the disk, when the next one is started, so only the
+ * records of the latest segment file are checked after a crash, and an incomplete record is removed. The records of the
+ * older segment files are trusted. The unsealed records, which are not superseded, hold the values of the chunks open at
+ * the time of the crash. They are replayed and sealed into the new segment file, and the unsealed records at the end of
+ * the latest segment file are removed. So a crash loses the values of the last second only. After opening the store,
+ * the chunks are always appended to a new segment file.
+ * </p>
+ * <p>
+ * A segment file is deleted as a whole, if its youngest value is older than the retention time. The directory of the
+ * segment files is set with the system property "<tt>at.ac.tuwien.infosys.g2021.history.directory</tt>". The store is
+ * disabled without this property. The retention time in hours is set with the system property
+ * "<tt>at.ac.tuwien.infosys.g2021.history.retention</tt>".
+ * </p>
+ */
+class HistoryStore implements ValueChangeConsumer {
+
+    /** The default retention time in hours. */
+    final static long RETENTION_DEFAULT = 7L * 24L;
+
+    /** The size of a segment file in bytes. */
+    final static int SEGMENT_SIZE = 1 << 20;
+
+    /** The longest time span of a chunk in milliseconds. */
+    final static long CHUNK_SPAN = TimeUnit.MINUTES.toMillis(15L);
+
+    // The capacity of the queue of received values
+    private final static int QUEUE_CAPACITY = 8192;
+
+    // The maximum number of values written at once
+    private final static int BATCH_SIZE = 512;
+
+    // The period of flushing the segment files and the period of removing old segment files in milliseconds
+    private final static long FLUSH_PERIOD = 1000L;
+    private final static long RETENTION_PERIOD = TimeUnit.MINUTES.toMillis(1L);
+
+    // The header of a segment file: a magic number and the format version. The format 1 has no unsealed records.
+    private final static int MAGIC = 0x47324853;
+    private final static int FORMAT = 2;
+    private final static int HEADER_LENGTH = 8;
+
+    // The bytes of a record besides the buffer name and the encoded values: length, name length, first timestamp,
+    // last timestamp, number of values and CRC
+    private final static int RECORD_OVERHEAD = 4 + 2 + 8 + 8 + 4 + 4;
+
+    // The bit of the name length flagging an unsealed record
+    private final static int UNSEALED = 0x8000;
+
+    // The logger.
+    private final static Logger logger = Loggers.getLogger(HistoryStore.class);
+
+    // The directory of the segment files and the retention time in milliseconds
+    private final File directory;
+    private final long retention;
+
+    // The received values, the number of values queued and written and the number of dropped values. Waiting for the
+    // values written is done on the progress monitor.
+    private final BlockingQueue<SimpleData> queue;
+    private final AtomicLong queued;
+    private final AtomicLong processed;
+    private final AtomicLong dropped;
+    private final Object progress;
+
+    // The open chunks, the values of the open chunks not yet written as unsealed records, the sealed chunks of every
+    // buffer and the segment files ordered by their age. The segment written is the last one. All of them are guarded
+    // by the store.
+    private final Map<String, HistoryChunk> open;
+    private final Map<String, HistoryChunk> tails;
+    private final Map<String, List<ChunkReference>> index;
+    private final List<Segment> segments;
+
+    // The writer thread
+    private final Thread writer;
+    private volatile boolean running;
+
+    /**
+     * Opens the history store and starts the writer thread.
+     *
+     * @param dir              the directory of the segment files
+     * @param retentionInHours the retention time in hours
+     *
+     * @throws IOException if the segment files cannot be read or created
+     */
+    HistoryStore(File dir, long retentionInHours) throws IOException {
+
+        directory = dir;
+        retention = TimeUnit.HOURS.toMillis(retentionInHours);
+        queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        queued = new AtomicLong();
+        processed = new AtomicLong();
+        dropped = new AtomicLong();
+        progress = new Object();
+        open = new HashMap<>();
+        tails = new HashMap<>();
+        index = new HashMap<>();
+        segments = new ArrayList<>();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("cannot create the directory " + directory);
+        recover();
+
+        running = true;
+        writer = new Thread(this::run, "history writer thread");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Returns the directory of the segment files from the system property
+     * "<tt>at.ac.tuwien.infosys.g2021.history.directory</tt>".
+     *
+     * @return the directory or <tt>null</tt>, if the history store is disabled
+     */
+    static File directory() {
+
+        String property = System.getProperty("at.ac.tuwien.infosys.g2021.history.directory");
+
+        return property == null || property.trim().isEmpty() ? null : new File(property.trim());
+    }
+
+    /**
+     * Returns the retention time from the system property "<tt>at.ac.tuwien.infosys.g2021.history.retention</tt>".
+     *
+     * @return the retention time in hours
+     */
+    static long retention() {
+
+        long result = RETENTION_DEFAULT;
+
+        String property = System.getProperty("at.ac.tuwien.infosys.g2021.history.retention");
+        if (property != null) {
+            try {
+                result = Long.parseLong(property);
+            }
+            catch (NumberFormatException nfe) {
+                result = -1L;
+            }
+
+            if (result <= 0L) {
+                logger.warning(String.format("'%s' is not a valid history retention time. The default of %d hours will be used.", property, RETENTION_DEFAULT));
+                result = RETENTION_DEFAULT;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * This is the notification of a spontaneous value change. It is queued for the writer thread. If the queue is full,
+     * the value is dropped.
+     *
+     * @param newValue the new buffer value
+     */
+    @Override
+    public void valueChanged(SimpleData newValue) {
+
+        if (!running) return;
+
+        if (queue.offer(newValue)) queued.incrementAndGet();
+        else dropped.incrementAndGet();
+    }
+
+    /**
+     * Returns the stored values of a buffer within a time range. The values are downsampled like the values of the
+     * {@link BufferHistory buffer history}.
+     *
+     * @param name      the buffer name
+     * @param from      the start of the time range in milliseconds since the epoch, inclusive
+     * @param to        the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints the maximum number of values, which is 0 for no limit
+     *
+     * @return the values in the order of their timestamps
+     */
+    List<SimpleData> get(String name, long from, long to, int maxPoints) {
+
+        BufferHistory values;
+
+        synchronized (this) {
+
+            List<ChunkReference> selected = new ArrayList<>();
+            int count = 0;
+
+            for (ChunkReference reference : index.getOrDefault(name, new ArrayList<>())) {
+                if (reference.lastTime >= from && reference.firstTime <= to) {
+                    selected.add(reference);
+                    count += reference.count;
+                }
+            }
+
+            HistoryChunk chunk = open.get(name);
+            if (chunk != null && (chunk.getLastTime() < from || chunk.getFirstTime() > to)) chunk = null;
+            if (chunk != null) count += chunk.size();
+
+            if (count == 0) return new ArrayList<>();
+
+            values = new BufferHistory(count);
+            for (ChunkReference reference : selected) {
+                try {
+                    HistoryChunk.decode(reference.read(), reference.firstTime, reference.count, values);
+                }
+                catch (IllegalArgumentException e) {
+                    logger.log(Level.WARNING, String.format("A history chunk of the buffer '%s' in %s is damaged.", name, reference.segment.file), e);
+                }
+            }
+            if (chunk != null) chunk.decode(values);
+        }
+
+        return values.get(name, from, to, maxPoints);
+    }
+
+    /**
+     * Waits until all the values, which are received before this call, are written into the chunks. If the store
+     * is closed meanwhile, this method returns immediately.
+     */
+    void flush() {
+
+        long target = queued.get();
+
+        synchronized (progress) {
+            try {
+                while (running && processed.get() < target) progress.wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of dropped values.
+     *
+     * @return the number of values dropped, because the queue was full
+     */
+    long droppedValues() { return dropped.get(); }
+
+    /** Closes the store. The received values are written, all the open chunks are sealed and flushed to disk. */
+    void close() {
+
+        running = false;
+        writer.interrupt();
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            try {
+                for (Map.Entry<String, HistoryChunk> entry : open.entrySet()) seal(entry.getKey(), entry.getValue());
+            }
+            catch (IOException e) {
+                logger.log(Level.WARNING, "The open history chunks cannot be written.", e);
+            }
+            finally {
+                open.clear();
+                tails.clear();
+            }
+
+            for (Segment segment : segments) segment.force();
+        }
+    }
+
+    /** The implementation of the writer thread. */
+    private void run() {
+
+        List<SimpleData> batch = new ArrayList<>(BATCH_SIZE);
+        long nextFlush = System.currentTimeMillis() + FLUSH_PERIOD;
+        long nextRetention = System.currentTimeMillis();
+
+        while (running || !queue.isEmpty()) {
+
+            try {
+                SimpleData value = queue.poll(FLUSH_PERIOD, TimeUnit.MILLISECONDS);
+
+                if (value != null) {
+                    batch.add(value);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+
+                    try {
+                        synchronized (this) {
+                            for (SimpleData v : batch) append(v);
+                        }
+                    }
+                    finally {
+                        synchronized (progress) {
+                            processed.addAndGet(batch.size());
+                            progress.notifyAll();
+                        }
+                        batch.clear();
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+
+                if (now >= nextFlush) {
+                    nextFlush = now + FLUSH_PERIOD;
+                    sealExpiredChunks(now);
+                    writeTails();
+                    for (Segment segment : segmentsSnapshot()) segment.force();
+
+                    long count = dropped.getAndSet(0L);
+                    if (count > 0L) logger.warning(String.format("The history store has dropped %d values.", count));
+                }
+
+                if (now >= nextRetention) {
+                    nextRetention = now + RETENTION_PERIOD;
+                    removeExpiredSegments(now);
+                }
+            }
+            catch (InterruptedException e) {
+                // Nothing to do. The running flag is checked.
+            }
+            catch (IOException e) {
+                logger.log(Level.WARNING, "The history store cannot write a segment file.", e);
+            }
+            catch (RuntimeException e) {
+                logger.log(Level.WARNING, "The history store has failed to write the values.", e);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the list of segment files.
+     *
+     * @return the segment files
+     */
+    private synchronized List<Segment> segmentsSnapshot() { return new ArrayList<>(segments); }
+
+    /**
+     * Writes a value into the open chunk of its buffer.
+     *
+     * @param value the buffer value
+     *
+     * @throws IOException if a sealed chunk cannot be written
+     */
+    private void append(SimpleData value) throws IOException {
+
+        String name = value.getBufferName();
+        HistoryChunk chunk = open.get(name);
+
+        if (chunk != null && (chunk.isFull() || value.getTime() - chunk.getFirstTime() >= CHUNK_SPAN)) {
+            open.remove(name);
+            seal(name, chunk);
+            chunk = null;
+        }
+
+        if (chunk == null) {
+            chunk = new HistoryChunk();
+            open.put(name, chunk);
+        }
+
+        // The tail may need a few more bits than the open chunk, because it starts with a complete value.
+        HistoryChunk tail = tails.get(name);
+        if (tail != null && tail.isFull()) {
+            write(name, tail, false);
+            tail = null;
+        }
+
+        if (tail == null) {
+            tail = new HistoryChunk();
+            tails.put(name, tail);
+        }
+
+        chunk.add(value.getTime(), value.getState().ordinal(), value.doubleValue());
+        tail.add(value.getTime(), value.getState().ordinal(), value.doubleValue());
+    }
+
+    /**
+     * Seals all the open chunks, which are started before the longest chunk time span.
+     *
+     * @param now the current time in milliseconds since the epoch
+     *
+     * @throws IOException if a sealed chunk cannot be written
+     */
+    private synchronized void sealExpiredChunks(long now) throws IOException {
+
+        Iterator<Map.Entry<String, HistoryChunk>> iterator = open.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, HistoryChunk> entry = iterator.next();
+
+            if (now - entry.getValue().getFirstTime() >= CHUNK_SPAN) {
+                iterator.remove();
+                seal(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Appends the values added to the open chunks since the last call as unsealed records.
+     *
+     * @throws IOException if an unsealed record cannot be written
+     */
+    private synchronized void writeTails() throws IOException {
+
+        Iterator<Map.Entry<String, HistoryChunk>> iterator = tails.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, HistoryChunk> entry = iterator.next();
+
+            iterator.remove();
+            write(entry.getKey(), entry.getValue(), false);
+        }
+    }
+
+    /**
+     * Appends a chunk to the current segment file as sealed record. The values of the chunk, which are not yet written
+     * as unsealed record, are dropped.
+     *
+     * @param name  the buffer name
+     * @param chunk the chunk
+     *
+     * @throws IOException if the chunk cannot be written
+     */
+    private void seal(String name, HistoryChunk chunk) throws IOException {
+
+        tails.remove(name);
+
+        ChunkReference reference = write(name, chunk, true);
+        if (reference != null) index.computeIfAbsent(name, n -> new ArrayList<>()).add(reference);
+    }
+
+    /**
+     * Appends a chunk record to the current segment file. A new segment file is started, if the record doesn't fit.
+     *
+     * @param name   the buffer name
+     * @param chunk  the chunk
+     * @param sealed <tt>true</tt> for a sealed record, <tt>false</tt> for an unsealed one
+     *
+     * @return the reference to the record or <tt>null</tt>, if the chunk is empty
+     *
+     * @throws IOException if the chunk cannot be written
+     */
+    private ChunkReference write(String name, HistoryChunk chunk, boolean sealed) throws IOException {
+
+        if (chunk.size() == 0) return null;
+
+        byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_OVERHEAD + encodedName.length + chunk.byteLength();
+
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.position + length > segment.buffer.capacity()) {
+            if (segment != null) segment.force();
+            segment = new Segment(segment == null ? 0L : segment.number + 1L, true);
+            segments.add(segment);
+        }
+
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int start = segment.position;
+
+        // The length is written last, so an incomplete record looks like free space.
+        buffer.position(start + 4);
+        buffer.putShort((short)(sealed ? encodedName.length : encodedName.length | UNSEALED));
+        buffer.put(encodedName);
+        buffer.putLong(chunk.getFirstTime());
+        buffer.putLong(chunk.getLastTime());
+        buffer.putInt(chunk.size());
+        int offset = buffer.position();
+        buffer.put(chunk.getData(), 0, chunk.byteLength());
+        buffer.putInt(crc(segment.buffer, start + 4, length - 8));
+        buffer.putInt(start, length - 4);
+
+        segment.position = start + length;
+        segment.lastTime = Math.max(segment.lastTime, chunk.getLastTime());
+        segment.dirty = true;
+
+        return new ChunkReference(segment, offset, chunk.byteLength(), chunk.getFirstTime(), chunk.getLastTime(), chunk.size());
+    }
+
+    /**
+     * Deletes all the segment files, whose youngest value is older than the retention time. The segment file written
+     * is never deleted.
+     *
+     * @param now the current time in milliseconds since the epoch
+     */
+    synchronized void removeExpiredSegments(long now) {
+
+        Iterator<Segment> iterator = segments.iterator();
+
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+
+            if (segment == segments.get(segments.size() - 1) || segment.lastTime >= now - retention) continue;
+
+            iterator.remove();
+            for (List<ChunkReference> references : index.values()) references.removeIf(r -> r.segment == segment);
+            index.values().removeIf(List::isEmpty);
+
+            if (segment.file.delete()) logger.info(String.format("The history segment file %s has expired.", segment.file));
+            else logger.warning(String.format("The expired history segment file %s cannot be deleted.", segment.file));
+        }
+    }
+
+    /**
+     * Reads the existing segment files and builds the index of the chunks. An incomplete record at the end of the
+     * latest segment file is removed. Finally, a new segment file is started, the unsealed records are replayed and
+     * sealed into it, and the unsealed records at the end of the latest segment file are removed.
+     *
+     * @throws IOException if a segment file cannot be read or created
+     */
+    private void recover() throws IOException {
+
+        File[] files = directory.listFiles((dir, name) -> name.matches("history-\\d{10}\\.seg"));
+        if (files == null) throw new IOException("cannot read the directory " + directory);
+        Arrays.sort(files);
+
+        long last = -1L;
+
+        for (File file : files) {
+
+            long number = Long.parseLong(file.getName().substring(8, 18));
+            Segment segment = new Segment(number, false);
+            last = number;
+
+            if (segment.buffer.capacity() < HEADER_LENGTH || segment.buffer.getInt(0) != MAGIC || segment.buffer.getInt(4) < 1 || segment.buffer.getInt(4) > FORMAT) {
+                logger.warning(String.format("The file %s is not a history segment file and will be ignored.", segment.file));
+                continue;
+            }
+
+            segments.add(segment);
+        }
+
+        // The older segment files are complete. Only the records of the latest one are checked.
+        Map<String, List<ChunkReference>> unsealed = new HashMap<>();
+        for (int i = 0; i < segments.size() - 1; i++) scan(segments.get(i), false, unsealed);
+
+        Segment latest = null;
+        int sealedEnd = HEADER_LENGTH;
+
+        if (!segments.isEmpty()) {
+            latest = new Segment(segments.get(segments.size() - 1).number, true);
+            segments.set(segments.size() - 1, latest);
+            sealedEnd = scan(latest, true, unsealed);
+        }
+
+        // The chunks are appended to a new segment file, so an ignored file is never written.
+        segments.add(new Segment(last + 1L, true));
+
+        replay(unsealed);
+
+        if (latest != null) {
+
+            // The unsealed records at the end are replayed now, and the rest is an incomplete record.
+            int removed = 0;
+            for (int i = latest.position; i < latest.buffer.capacity(); i++) {
+                if (latest.buffer.get(i) != 0) {
+                    latest.buffer.put(i, (byte)0);
+                    removed++;
+                }
+            }
+            for (int i = sealedEnd; i < latest.position; i++) latest.buffer.put(i, (byte)0);
+
+            if (removed > 0 || sealedEnd < latest.position) {
+                latest.position = sealedEnd;
+                latest.dirty = true;
+                latest.force();
+            }
+            if (removed > 0) logger.warning(String.format("An incomplete history chunk has been removed from %s.", latest.file));
+        }
+    }
+
+    /**
+     * Replays the unsealed records, which are not superseded by a sealed one. Their values are sealed into the segment
+     * file written, so they supersede the unsealed records.
+     *
+     * @param unsealed the unsealed records of every buffer in the order of writing
+     *
+     * @throws IOException if a chunk cannot be written
+     */
+    private void replay(Map<String, List<ChunkReference>> unsealed) throws IOException {
+
+        int count = 0;
+
+        for (Map.Entry<String, List<ChunkReference>> entry : unsealed.entrySet()) {
+
+            String name = entry.getKey();
+            BufferHistory values = new BufferHistory(entry.getValue().stream().mapToInt(reference -> reference.count).sum());
+
+            for (ChunkReference reference : entry.getValue()) {
+                try {
+                    HistoryChunk.decode(reference.read(), reference.firstTime, reference.count, values);
+                }
+                catch (IllegalArgumentException e) {
+                    logger.log(Level.WARNING, String.format("An unsealed history chunk of the buffer '%s' in %s is damaged.", name, reference.segment.file), e);
+                }
+            }
+
+            for (SimpleData value : values.get(name, Long.MIN_VALUE, Long.MAX_VALUE, 0)) {
+                append(value);
+                count++;
+            }
+        }
+
+        for (Map.Entry<String, HistoryChunk> entry : open.entrySet()) seal(entry.getKey(), entry.getValue());
+        open.clear();
+        tails.clear();
+
+        if (count > 0) {
+            segments.get(segments.size() - 1).force();
+            logger.info(String.format("%d values of the open history chunks have been recovered.", count));
+        }
+    }
+
+    /**
+     * Reads the chunk records of a segment file until the free space or an invalid record is found. The sealed records
+     * are added to the index. The unsealed records are collected, and a sealed record of a buffer drops the unsealed
+     * records of the buffer collected before.
+     *
+     * @param segment  the segment file
+     * @param verify   <tt>true</tt>, if the CRC of every record is checked, <tt>false</tt> if only the lengths are
+     *                 followed
+     * @param unsealed the unsealed records of every buffer
+     *
+     * @return the position after the last sealed record
+     */
+    private int scan(Segment segment, boolean verify, Map<String, List<ChunkReference>> unsealed) {
+
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int position = HEADER_LENGTH;
+        int sealedEnd = HEADER_LENGTH;
+
+        while (position + RECORD_OVERHEAD <= buffer.capacity()) {
+
+            int length = buffer.getInt(position) + 4;
+            if (length < RECORD_OVERHEAD || position + length > buffer.capacity()) break;
+            if (verify && buffer.getInt(position + length - 4) != crc(buffer, position + 4, length - 8)) break;
+
+            buffer.position(position + 4);
+            int nameLength = buffer.getShort() & 0xffff;
+            byte[] encodedName = new byte[nameLength & ~UNSEALED];
+            if (encodedName.length > length - RECORD_OVERHEAD) break;
+            buffer.get(encodedName);
+            long firstTime = buffer.getLong();
+            long lastTime = buffer.getLong();
+            int count = buffer.getInt();
+            int offset = buffer.position();
+
+            String name = new String(encodedName, StandardCharsets.UTF_8);
+            ChunkReference reference = new ChunkReference(segment, offset, length - RECORD_OVERHEAD - encodedName.length, firstTime, lastTime, count);
+
+            if ((nameLength & UNSEALED) == 0) {
+                index.computeIfAbsent(name, n -> new ArrayList<>()).add(reference);
+                unsealed.remove(name);
+                sealedEnd = position + length;
+            }
+            else unsealed.computeIfAbsent(name, n -> new ArrayList<>()).add(reference);
+
+            segment.lastTime = Math.max(segment.lastTime, lastTime);
+            position += length;
+        }
+
+        segment.position = position;
+        return sealedEnd;
+    }
+
+    /**
+     * Calculates the CRC32 of some bytes.
+     *
+     * @param buffer the bytes
+     * @param start  the position of the first byte
+     * @param length the number of bytes
+     *
+     * @return the CRC32
+     */
+    private static int crc(ByteBuffer buffer, int start, int length) {
+
+        ByteBuffer range = buffer.duplicate();
+        range.limit(start + length);
+        range.position(start);
+
+        CRC32 crc = new CRC32();
+        crc.update(range);
+
+        return (int)crc.getValue();
+    }
+
+    /** A segment file mapped into memory. */
+    private final class Segment {
+
+        // The file, its sequence number and its content
+        final File file;
+        final long number;
+        final MappedByteBuffer buffer;
+
+        // The position of the free space, the timestamp of the youngest value and a flag for unflushed changes
+        int position;
+        long lastTime;
+        boolean dirty;
+
+        /**
+         * Opens or creates a segment file.
+         *
+         * @param n        the sequence number
+         * @param writable <tt>true</tt>, if chunks are appended to this segment file
+         *
+         * @throws IOException if the file cannot be mapped into memory
+         */
+        Segment(long n, boolean writable) throws IOException {
+
+            number = n;
+            file = new File(directory, String.format("history-%010d.seg", n));
+            position = HEADER_LENGTH;
+            lastTime = Long.MIN_VALUE;
+            dirty = false;
+
+            boolean created = !file.exists();
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r")) {
+                if (writable && raf.length() < SEGMENT_SIZE) raf.setLength(SEGMENT_SIZE);
+                buffer = raf.getChannel().map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0L, raf.length());
+            }
+
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, FORMAT);
+                dirty = true;
+            }
+        }
+
+        /** Writes the changes of the segment file to the disk. */
+        void force() {
+
+            if (dirty && !buffer.isReadOnly()) buffer.force();
+            dirty = false;
+        }
+    }
+
+    /** The reference to a sealed chunk in a segment file. */
+    private static final class ChunkReference {
+
+        // The segment file, the position and the length of the encoded values
+        final Segment segment;
+        final int offset;
+        final int length;
+
+        // The timestamps of the first and the last value and the number of values
+        final long firstTime;
+        final long lastTime;
+        final int count;
+
+        /**
+         * Initialization.
+         *
+         * @param s      the segment file
+         * @param o      the position of the encoded values
+         * @param l      the length of the encoded values
+         * @param first  the timestamp of the first value
+         * @param last   the timestamp of the last value
+         * @param n      the number of values
+         */
+        ChunkReference(Segment s, int o, int l, long first, long last, int n) {
+
+            segment = s;
+            offset = o;
+            length = l;
+            firstTime = first;
+            lastTime = last;
+            count = n;
+        }
+
+        /**
+         * Reads the encoded values.
+         *
+         * @return the encoded values
+         */
+        byte[] read() {
+
+            byte[] result = new byte[length];
+            ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(offset);
+            buffer.get(result);
+
+            return result;
+        }
+    }
+}
@@ -3,8 +3,6 @@ package at.ac.tuwien.infosys.g2021.daemon;
 import at.ac.tuwien.infosys.g2021.common.BufferState;
 import at.ac.tuwien.infosys.g2021.common.LowpassAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
-import java.util.Date;
-import java.util.TimerTask;
 
 /**
  * A lowpass adapter acts as lowpass filter. LowpassAdapter instances will be triggered
@@ -17,16 +15,8 @@ import java.util.TimerTask;
  */
 class LowpassAdapter extends Adapter {
 
-    /** This internal class makes the updates. */
-    private class Updater extends TimerTask {
-
-        /** The action to be performed by this timer task. */
-        @Override
-        public void run() { update(); }
-    }
-
     // This is the current timer task
-    private Updater updater;
+    private TimingWheel.Task updater;
 
     // The last value sent
     private double lastValueSent;
@@ -42,10 +32,9 @@ class LowpassAdapter extends Adapter {
         super(configuration);
 
         lastValueSent = 0.0;
-        currentInputValue = new SimpleData(new Date(), BufferState.INITIALIZING);
+        currentInputValue = new SimpleData(System.currentTimeMillis(), BufferState.INITIALIZING);
 
-        updater = new Updater();
-        Daemon.get().timer().scheduleAtFixedRate(updater, 1000L, 1000L);
+        updater = Daemon.get().timer().scheduleAtFixedRate(this::update, 1000L, 1000L);
     }
 
     /** Releases any system resources of the adapter. */
@@ -68,13 +57,15 @@ class LowpassAdapter extends Adapter {
             if (currentInputValue.getState() == BufferState.READY) {
 
                 LowpassAdapterConfiguration config = getConfiguration();
-                double currentValue = currentInputValue.getValue().doubleValue();
+                double currentValue = currentInputValue.doubleValue();
 
                 lastValueSent = currentValue + config.getInterpolationFactor() * (lastValueSent - currentValue);
 
-                set(new SimpleData(new Date(), BufferState.READY, lastValueSent));
+                set(new SimpleData(System.currentTimeMillis(), lastValueSent));
             }
         }
+
+        publish();
     }
 
     /**
@@ -84,7 +75,7 @@ class LowpassAdapter extends Adapter {
      * @param newValue the new buffer value
      */
     @Override
-    public void valueChanged(SimpleData newValue) {
+    void adapt(SimpleData newValue) {
 
         synchronized (valueLock) {
             currentInputValue = newValue;
@@ -93,7 +84,7 @@ class LowpassAdapter extends Adapter {
             }
             else if (get().getState() != BufferState.READY) {
                 lastValueSent = 0.0;
-                set(new SimpleData(newValue.getTimestamp(), BufferState.READY, lastValueSent));
+                set(new SimpleData(newValue.getTime(), lastValueSent));
             }
         }
     }
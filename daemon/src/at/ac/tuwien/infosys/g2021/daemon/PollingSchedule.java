@@ -0,0 +1,113 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This is the schedule for polling the hardware ports. Every port has a poll interval of its own. The schedule
+ * works with a fixed tick period, which is the greatest common divisor of all the poll intervals. At every tick the
+ * ports, which are due, are returned as one group, so the hardware driver can read them with a single call.
+ * <p>
+ * This class is not thread safe. It is used by the polling timer task only.
+ */
+class PollingSchedule {
+
+    /** The smallest tick period in milliseconds. Poll intervals are rounded up to a multiple of this period. */
+    final static long MIN_TICK_PERIOD = 10L;
+
+    // This inner class is a group of ports having the same poll interval.
+    private static class Group {
+
+        // The ports of this group
+        private final List<String> ports;
+
+        // The poll interval in ticks and the number of ticks until the next polling
+        private final long interval;
+        private long remaining;
+
+        /**
+         * Initialization.
+         *
+         * @param i the poll interval in ticks
+         */
+        Group(long i) {
+
+            ports = new ArrayList<>();
+            interval = i;
+            remaining = 0L;
+        }
+    }
+
+    // The groups of ports
+    private final Collection<Group> groups;
+
+    // The tick period
+    private final long tickPeriod;
+
+    /**
+     * Initialization of the schedule.
+     *
+     * @param pollIntervals the poll intervals in milliseconds with the port names as keys
+     */
+    PollingSchedule(Map<String, Long> pollIntervals) {
+
+        Map<Long, List<String>> portsByInterval = new TreeMap<>();
+        for (Map.Entry<String, Long> entry : pollIntervals.entrySet()) {
+
+            long interval = (Math.max(entry.getValue(), 1L) + MIN_TICK_PERIOD - 1L) / MIN_TICK_PERIOD * MIN_TICK_PERIOD;
+            portsByInterval.computeIfAbsent(interval, i -> new ArrayList<>()).add(entry.getKey());
+        }
+
+        long period = 0L;
+        for (long interval : portsByInterval.keySet()) period = gcd(period, interval);
+        tickPeriod = period == 0L ? PortDescription.DEFAULT_POLL_INTERVAL : period;
+
+        groups = new ArrayList<>();
+        for (Map.Entry<Long, List<String>> entry : portsByInterval.entrySet()) {
+
+            Group group = new Group(entry.getKey() / tickPeriod);
+            group.ports.addAll(entry.getValue());
+            groups.add(group);
+        }
+    }
+
+    /**
+     * Returns the greatest common divisor of two numbers.
+     *
+     * @param a the first number
+     * @param b the second number
+     *
+     * @return the greatest common divisor
+     */
+    private static long gcd(long a, long b) { return b == 0L ? a : gcd(b, a % b); }
+
+    /**
+     * Returns the time between two ticks.
+     *
+     * @return the tick period in milliseconds
+     */
+    long getTickPeriod() { return tickPeriod; }
+
+    /**
+     * Advances the schedule by one tick and returns the ports to poll now. At the first tick all the ports are due.
+     *
+     * @return the names of the ports due for polling. This collection may be empty.
+     */
+    Collection<String> tick() {
+
+        Collection<String> result = new ArrayList<>();
+
+        for (Group group : groups) {
+            if (group.remaining == 0L) {
+                result.addAll(group.ports);
+                group.remaining = group.interval;
+            }
+            group.remaining--;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,19 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.Collection;
+
+/**
+ * A hardware driver, which detects changes of its ports itself, reports them to this listener instead of waiting
+ * for the next polling.
+ */
+public interface PortChangeListener {
+
+    /**
+     * This is the notification about changed ports. It may be called by any thread of the hardware driver, but it
+     * must not be called holding a lock needed by the other methods of the hardware driver.
+     *
+     * @param values the new states and values of the changed ports
+     */
+    public void portsChanged(Collection<SimpleData> values);
+}
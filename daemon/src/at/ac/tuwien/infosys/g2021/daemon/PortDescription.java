@@ -6,10 +6,14 @@ import java.util.Map;
 /** The description of a hardware port. */
 public class PortDescription {
 
+    /** The poll interval of a port in milliseconds, if the driver does not specify another one. */
+    public final static long DEFAULT_POLL_INTERVAL = 1000L;
+
     // The data
     private String portName;
     private PortClass portClass;
     private Map<String, String> metaData;
+    private long pollInterval;
 
     /** No instance creation without data! */
     private PortDescription() {}
@@ -21,15 +25,27 @@ public class PortDescription {
      * @param c the port class
      * @param m the port meta data
      */
-    public PortDescription(String n, PortClass c, Map<String, String> m) {
+    public PortDescription(String n, PortClass c, Map<String, String> m) { this(n, c, m, DEFAULT_POLL_INTERVAL); }
+
+    /**
+     * Initialization of the data container.
+     *
+     * @param n the port name
+     * @param c the port class
+     * @param m the port meta data
+     * @param i the poll interval in milliseconds
+     */
+    public PortDescription(String n, PortClass c, Map<String, String> m, long i) {
 
         this();
 
         if (n == null) throw new NullPointerException("port name is null");
+        if (i <= 0L) throw new IllegalArgumentException("poll interval is not positive");
 
         portName = n;
         portClass = c;
         metaData = m == null ? new HashMap<>() : m;
+        pollInterval = i;
     }
 
     /**
@@ -95,6 +111,13 @@ public class PortDescription {
      *         assigned to the port, but the result will never be <tt>null</tt>.
      */
     public Map<String, String> getPortMetainfo() { return metaData; }
+
+    /**
+     * This method returns the time between two readings of the port. It is used for sensor ports only.
+     *
+     * @return the poll interval in milliseconds
+     */
+    public long getPollInterval() { return pollInterval; }
 }
 
 
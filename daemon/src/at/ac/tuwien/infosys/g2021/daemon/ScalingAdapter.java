@@ -26,7 +26,7 @@ class ScalingAdapter extends Adapter {
      * @param newValue the new buffer value
      */
     @Override
-    public void valueChanged(SimpleData newValue) {
+    void adapt(SimpleData newValue) {
 
         synchronized (valueLock) {
 
@@ -37,10 +37,9 @@ class ScalingAdapter extends Adapter {
 
                 ScalingAdapterConfiguration config = getConfiguration();
                 SimpleData current = get();
-                double in = newValue.getValue().doubleValue();
+                double in = newValue.doubleValue();
 
-                set(new SimpleData(newValue.getTimestamp(),
-                                   BufferState.READY,
+                set(new SimpleData(newValue.getTime(),
                                    in * in * config.getA() + in * config.getB() + config.getC()));
             }
         }
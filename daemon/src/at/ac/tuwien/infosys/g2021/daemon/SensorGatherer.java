@@ -7,6 +7,9 @@ import at.ac.tuwien.infosys.g2021.common.SimpleData;
 /** This is a gatherer, that communicate with the driver to read values from a sensor. */
 class SensorGatherer extends Gatherer implements ValueChangeConsumer {
 
+    // The timestamp of the last port value taken. It is guarded by the value lock.
+    private long portTime;
+
     /**
      * Initializing a dummy gatherer.
      *
@@ -15,6 +18,7 @@ class SensorGatherer extends Gatherer implements ValueChangeConsumer {
     SensorGatherer(SensorGathererConfiguration config) {
 
         super(config);
+        portTime = Long.MIN_VALUE;
         setCurrentState(BufferState.FAULTED);
     }
 
@@ -40,15 +44,24 @@ class SensorGatherer extends Gatherer implements ValueChangeConsumer {
     boolean canUseAsActor() { return false; }
 
     /**
-     * This is the notification of a spontaneous value change.
+     * This is the notification of a spontaneous value change. The driver delivers the port values without locking, so
+     * a value older than the last one taken is dropped.
      *
      * @param newValue the new buffer value
      */
     @Override
     public void valueChanged(SimpleData newValue) {
 
-        if (newValue.getState() == BufferState.READY) setCurrentValue(newValue.getValue());
-        else setCurrentState(newValue.getState());
+        synchronized (valueLock) {
+
+            if (newValue.getTime() < portTime) return;
+            portTime = newValue.getTime();
+
+            if (newValue.getState() == BufferState.READY) setCurrentValue(newValue.getValue());
+            else setCurrentState(newValue.getState());
+        }
+
+        publish();
     }
 }
 
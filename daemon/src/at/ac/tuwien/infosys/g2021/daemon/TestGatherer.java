@@ -2,7 +2,6 @@ package at.ac.tuwien.infosys.g2021.daemon;
 
 import at.ac.tuwien.infosys.g2021.common.BufferState;
 import at.ac.tuwien.infosys.g2021.common.TestGathererConfiguration;
-import java.util.TimerTask;
 
 /**
  * This is a test gatherer. This gatherer increments the current value by 0.1 every second. If the current value exceeds 1.0,
@@ -10,16 +9,8 @@ import java.util.TimerTask;
  */
 class TestGatherer extends Gatherer {
 
-    /** This internal class makes the updates. */
-    private class Updater extends TimerTask {
-
-        /** The action to be performed by this timer task. */
-        @Override
-        public void run() { update(); }
-    }
-
     // This is the current timer task
-    private Updater updater;
+    private TimingWheel.Task updater;
 
     /**
      * Initializing a dummy gatherer.
@@ -31,8 +22,7 @@ class TestGatherer extends Gatherer {
         super(config);
         setCurrentValue(0.0);
 
-        updater = new Updater();
-        Daemon.get().timer().scheduleAtFixedRate(updater, 1000L, 1000L);
+        updater = Daemon.get().timer().scheduleAtFixedRate(this::update, 1000L, 1000L);
     }
 
     /**
@@ -62,12 +52,14 @@ class TestGatherer extends Gatherer {
 
             if (get().getState() == BufferState.READY) {
 
-                double value = get().getValue().doubleValue();
+                double value = get().doubleValue();
 
                 if (value < 0.9999999999) setCurrentValue(value + 0.1);
                 else setCurrentValue(value - 1.0);
             }
         }
+
+        publish();
     }
 
     /**
@@ -88,15 +80,17 @@ class TestGatherer extends Gatherer {
     @Override
     boolean set(Number value) {
 
+        boolean result = false;
+
         synchronized (valueLock) {
 
             if (get().getState() == BufferState.READY && value != null) {
                 setCurrentValue(value);
-                return true;
-            }
-            else {
-                return false;
+                result = true;
             }
         }
+
+        publish();
+        return result;
     }
 }
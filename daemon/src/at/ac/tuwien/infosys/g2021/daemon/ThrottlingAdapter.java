@@ -0,0 +1,168 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import at.ac.tuwien.infosys.g2021.common.ThrottlingAdapterConfiguration;
+
+/**
+ * A throttling adapter limits the rate of the output values. An input value received within the minimum interval after
+ * the last output value is kept as pending value and sent by the system timer, when the interval has elapsed. A newer
+ * input value replaces the pending value, so always the latest value is sent. Input values within the relative deadband
+ * of the last output value are suppressed. If no value has been sent for the maximum silence, the current value is sent
+ * again with a new timestamp, so the consumers can tell a stable value from a dead one. Changes of the buffer state are
+ * sent immediately.
+ */
+class ThrottlingAdapter extends Adapter {
+
+    // The timer tasks sending the pending value and the heartbeat
+    private TimingWheel.Task trailer;
+    private TimingWheel.Task heartbeat;
+
+    // The time of the last output value and the pending value, which is null, if there is no pending value
+    private long lastSent;
+    private SimpleData pending;
+
+    // Is the adapter shut down?
+    private boolean closed;
+
+    /**
+     * Initialization
+     *
+     * @param configuration The configuration
+     */
+    ThrottlingAdapter(ThrottlingAdapterConfiguration configuration) {
+
+        super(configuration);
+
+        lastSent = 0L;
+        pending = null;
+        closed = false;
+    }
+
+    /** Releases any system resources of the adapter. */
+    @Override
+    void shutdown() {
+
+        synchronized (valueLock) {
+            closed = true;
+            pending = null;
+            cancelTrailer();
+            if (heartbeat != null) {
+                heartbeat.cancel();
+                heartbeat = null;
+            }
+        }
+
+        super.shutdown();
+    }
+
+    /** Cancels the timer task sending the pending value. */
+    private void cancelTrailer() {
+
+        if (trailer != null) {
+            trailer.cancel();
+            trailer = null;
+        }
+    }
+
+    /**
+     * Sends an output value. This must be done holding the value lock.
+     *
+     * @param value  the output value
+     * @param always <tt>true</tt>, if the value is sent even if it is equal to the current value
+     */
+    private void send(SimpleData value, boolean always) {
+
+        ThrottlingAdapterConfiguration config = getConfiguration();
+
+        set(value, always);
+        lastSent = System.currentTimeMillis();
+        pending = null;
+        cancelTrailer();
+
+        if (config.getMaximumSilence() > 0L && !closed) {
+            if (heartbeat != null) heartbeat.cancel();
+            heartbeat = Daemon.get().timer().schedule(this::beat, config.getMaximumSilence());
+        }
+    }
+
+    /**
+     * Is a value within the deadband of the last output value?
+     *
+     * @param value   the value
+     * @param current the last output value
+     *
+     * @return <tt>true</tt>, if the value is suppressed
+     */
+    private boolean withinDeadband(double value, double current) {
+
+        ThrottlingAdapterConfiguration config = getConfiguration();
+
+        return value == current || Math.abs(value - current) < config.getDeadband() / 100.0 * Math.abs(current);
+    }
+
+    /** Sends the pending value, when the minimum interval has elapsed. */
+    private void trail() {
+
+        synchronized (valueLock) {
+            trailer = null;
+            if (pending != null) send(pending, false);
+        }
+
+        publish();
+    }
+
+    /** Sends the current value again, when the maximum silence has elapsed. */
+    private void beat() {
+
+        synchronized (valueLock) {
+
+            heartbeat = null;
+
+            if (pending != null) {
+                send(pending, false);
+            }
+            else if (!closed) {
+                SimpleData current = get();
+                send(new SimpleData(current.getBufferName(), System.currentTimeMillis(), current.getState(), current.getValue()), true);
+            }
+        }
+
+        publish();
+    }
+
+    /**
+     * This is the notification of a spontaneous value change. State changes are sent immediately, value changes are
+     * limited in their rate.
+     *
+     * @param newValue the new buffer value
+     */
+    @Override
+    void adapt(SimpleData newValue) {
+
+        synchronized (valueLock) {
+
+            SimpleData current = get();
+
+            if (newValue.getState() != BufferState.READY || current.getState() != BufferState.READY) {
+                if (!newValue.equals(current)) send(newValue, false);
+            }
+            else if (withinDeadband(newValue.doubleValue(), current.doubleValue())) {
+                pending = null;
+                cancelTrailer();
+            }
+            else {
+                ThrottlingAdapterConfiguration config = getConfiguration();
+                long delay = lastSent + config.getMinimumInterval() - System.currentTimeMillis();
+
+                if (delay <= 0L) {
+                    send(newValue, false);
+                }
+                else {
+                    pending = newValue;
+                    if (trailer == null && !closed) trailer = Daemon.get().timer().schedule(this::trail, delay);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,607 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * This is the scheduler service of the daemon. It is a hierarchical timing wheel: a single tick thread advances a wheel
+ * of slots every tick (10 ms). Tasks due in the near future are kept in the slots of the lowest wheel level, tasks due
+ * later are kept in the higher levels and cascade down as the time passes. Scheduling and cancelling a task are done in
+ * constant time, no matter how many tasks are scheduled.
+ * </p>
+ * <p>
+ * All periodic tasks sharing the same period and being due at the same tick are run together. They occupy a single entry
+ * of the wheel, so thousands of tasks with a period of one second, which are started at once, cost one wheel operation per
+ * second. The task bodies are run by a pool
+ * of worker threads. The default of 2 worker threads can be overridden with the system property
+ * "<tt>at.ac.tuwien.infosys.g2021.timer.workers</tt>". A periodic task is never run concurrently with itself. If it is
+ * still running when it is due again, this run is skipped.
+ * </p>
+ * <p>
+ * The wheel measures its lag, i.e. the delay between the time a task is due and the time its body is started.
+ * </p>
+ */
+public class TimingWheel {
+
+    /** This is the handle of a scheduled task. */
+    public interface Task {
+
+        /** Cancels the task. If the task is running, the current run is completed. */
+        public void cancel();
+
+        /**
+         * Is this task cancelled?
+         *
+         * @return <tt>true</tt>, if the task was cancelled or a one-shot task was already started
+         */
+        public boolean isCancelled();
+    }
+
+    // This inner class is an entry of a wheel slot. The entries of a slot build a doubly linked list.
+    private abstract class Entry {
+
+        // The tick, when this entry expires
+        long deadline;
+
+        // The list links. An entry without slot isn't scheduled.
+        Entry previous;
+        Entry next;
+        Entry[] slot;
+
+        /** The entry is due. This is called by the tick thread holding the lock of the wheel. */
+        abstract void expire();
+    }
+
+    // This inner class is a scheduled task.
+    private class ScheduledTask extends Entry implements Task {
+
+        // The task body and its period in ticks. A period of 0 describes a one-shot task.
+        private final Runnable action;
+        private final long period;
+
+        // The time in milliseconds, when the current run is due
+        private volatile long due;
+
+        // Is the task running or cancelled?
+        private final AtomicBoolean running;
+        private volatile boolean cancelled;
+
+        // The group of tasks with the same period and the number of its runs to skip after joining it
+        private Period group;
+        private long skip;
+
+        /**
+         * Initialization.
+         *
+         * @param a the task body
+         * @param p the period in ticks
+         */
+        ScheduledTask(Runnable a, long p) {
+
+            action = a;
+            period = p;
+            running = new AtomicBoolean(false);
+            cancelled = false;
+            group = null;
+            skip = 0L;
+        }
+
+        /** The delay of a one-shot task has expired. Periodic tasks are kept by their group and never expire. */
+        @Override
+        void expire() {
+
+            cancelled = true;
+            taskCount--;
+            submit(this, tickTime(deadline));
+        }
+
+        /** Cancels the task. */
+        @Override
+        public void cancel() { TimingWheel.this.cancel(this); }
+
+        /**
+         * Is this task cancelled?
+         *
+         * @return <tt>true</tt>, if the task was cancelled or a one-shot task was already started
+         */
+        @Override
+        public boolean isCancelled() { return cancelled; }
+
+        /** Runs the task body. This is done by a worker thread. */
+        void run() {
+
+            try {
+                lagMeasured(System.currentTimeMillis() - due);
+                action.run();
+            }
+            catch (Exception e) {
+                logger.log(Level.WARNING, "A scheduled task has failed.", e);
+            }
+            finally {
+                running.set(false);
+            }
+        }
+    }
+
+    // This inner class is the group of all periodic tasks sharing the same period and phase. The tasks are kept in insertion order.
+    private class Period extends Entry {
+
+        // The period in ticks, the phase (the deadlines modulo the period) and the tasks
+        private final long period;
+        private final long phase;
+        private final Set<ScheduledTask> tasks;
+
+        /**
+         * Initialization.
+         *
+         * @param p the period in ticks
+         * @param f the phase
+         */
+        Period(long p, long f) {
+
+            period = p;
+            phase = f;
+            tasks = new LinkedHashSet<>();
+        }
+
+        /** The tasks of this group are due. */
+        @Override
+        void expire() {
+
+            long time = tickTime(deadline);
+
+            for (ScheduledTask task : tasks) {
+                if (task.skip > 0L) task.skip--;
+                else submit(task, time);
+            }
+
+            insert(this, deadline + period);
+        }
+    }
+
+    // The logger.
+    private final static Logger logger = Loggers.getLogger(TimingWheel.class);
+
+    /** The duration of a tick in milliseconds. */
+    public final static long TICK = 10L;
+
+    // The number of slots of a wheel level as power of 2 and the number of levels.
+    private final static int SLOT_BITS = 6;
+    private final static int SLOTS = 1 << SLOT_BITS;
+    private final static int LEVELS = 4;
+
+    // The default number of worker threads.
+    private final static int WORKERS_DEFAULT = 2;
+
+    // The slots of all levels. A slot is the sentinel of a doubly linked list of entries.
+    private final Entry[][] slots;
+
+    // The groups of periodic tasks with the period in ticks and the phase as keys
+    private final Map<Long, Map<Long, Period>> periods;
+
+    // The start time of the wheel and the last tick processed
+    private final long startTime;
+    private long currentTick;
+
+    // The number of scheduled tasks
+    private int taskCount;
+
+    // The tick thread and the workers
+    private final Thread tickThread;
+    private final ExecutorService workers;
+    private volatile boolean running;
+
+    // The lag metrics in milliseconds
+    private volatile long lastLag;
+    private volatile long maxLag;
+    private volatile long tickLag;
+
+    /** Starts a new timing wheel. */
+    public TimingWheel() {
+
+        slots = new Entry[LEVELS][];
+        for (int level = 0; level < LEVELS; level++) {
+            slots[level] = new Entry[SLOTS];
+            for (int index = 0; index < SLOTS; index++) {
+
+                Entry sentinel = new Entry() {
+                    @Override
+                    void expire() {}
+                };
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+                slots[level][index] = sentinel;
+            }
+        }
+
+        periods = new HashMap<>();
+        startTime = System.currentTimeMillis();
+        currentTick = 0L;
+        taskCount = 0;
+        running = true;
+
+        workers = Executors.newFixedThreadPool(workers(), r -> {
+            Thread worker = new Thread(r, "timer worker thread");
+            worker.setDaemon(true);
+            return worker;
+        });
+
+        tickThread = new Thread(this::run, "timer thread");
+        tickThread.setDaemon(true);
+        tickThread.start();
+    }
+
+    /**
+     * Returns the number of worker threads from the system property "<tt>at.ac.tuwien.infosys.g2021.timer.workers</tt>".
+     *
+     * @return the number of worker threads
+     */
+    private static int workers() {
+
+        int result = WORKERS_DEFAULT;
+
+        String property = System.getProperty("at.ac.tuwien.infosys.g2021.timer.workers");
+        if (property != null) {
+            try {
+                result = Integer.parseInt(property);
+            }
+            catch (NumberFormatException nfe) {
+                result = -1;
+            }
+
+            if (result < 1) {
+                logger.warning(String.format("'%s' is not a valid number of timer workers. The default of %d workers will be used.", property, WORKERS_DEFAULT));
+                result = WORKERS_DEFAULT;
+            }
+        }
+
+        logger.config(String.format("The timer uses %d worker threads.", result));
+
+        return result;
+    }
+
+    /**
+     * Converts a duration in milliseconds to ticks. The duration is rounded up.
+     *
+     * @param millis the duration in milliseconds
+     *
+     * @return the number of ticks
+     */
+    private static long ticks(long millis) { return (Math.max(millis, 0L) + TICK - 1L) / TICK; }
+
+    /**
+     * Returns the time of a tick.
+     *
+     * @param tick the tick
+     *
+     * @return the time in milliseconds
+     */
+    private long tickTime(long tick) { return startTime + tick * TICK; }
+
+    /**
+     * Returns the first tick after a delay.
+     *
+     * @param delay the delay in milliseconds
+     *
+     * @return the tick
+     */
+    private long deadline(long delay) { return ticks(System.currentTimeMillis() - startTime + delay); }
+
+    /**
+     * Schedules a one-shot task.
+     *
+     * @param action the task body
+     * @param delay  the delay in milliseconds
+     *
+     * @return the handle of the task
+     */
+    public Task schedule(Runnable action, long delay) {
+
+        ScheduledTask task = new ScheduledTask(action, 0L);
+
+        synchronized (this) {
+            taskCount++;
+            insert(task, deadline(delay));
+        }
+
+        return task;
+    }
+
+    /**
+     * Schedules a periodic task. The task is run the first time after the initial delay and then repeatedly with the
+     * given period. A task without initial delay is run immediately.
+     *
+     * @param action the task body
+     * @param delay  the initial delay in milliseconds
+     * @param period the period in milliseconds
+     *
+     * @return the handle of the task
+     */
+    public Task scheduleAtFixedRate(Runnable action, long delay, long period) {
+
+        if (period <= 0L) throw new IllegalArgumentException("period is not positive");
+
+        ScheduledTask task = new ScheduledTask(action, Math.max(ticks(period), 1L));
+
+        synchronized (this) {
+
+            taskCount++;
+
+            if (delay <= 0L) {
+                join(task, deadline(period));
+                submit(task, System.currentTimeMillis());
+            }
+            else {
+                join(task, deadline(delay));
+            }
+        }
+
+        return task;
+    }
+
+    /**
+     * Cancels a task.
+     *
+     * @param task the task
+     */
+    private synchronized void cancel(ScheduledTask task) {
+
+        if (task.cancelled) return;
+
+        task.cancelled = true;
+        taskCount--;
+
+        Period group = task.group;
+        if (group == null) {
+            remove(task);
+        }
+        else if (group.tasks.remove(task) && group.tasks.isEmpty()) {
+
+            remove(group);
+
+            Map<Long, Period> phases = periods.get(group.period);
+            phases.remove(group.phase);
+            if (phases.isEmpty()) periods.remove(group.period);
+        }
+    }
+
+    /**
+     * A periodic task joins the group of tasks with the same period and phase. This is done with the lock of the wheel held.
+     *
+     * @param task  the task
+     * @param first the tick of the first run
+     */
+    private void join(ScheduledTask task, long first) {
+
+        first = Math.max(first, currentTick + 1L);
+
+        Map<Long, Period> phases = periods.computeIfAbsent(task.period, p -> new HashMap<>());
+        Period group = phases.get(first % task.period);
+        if (group == null) {
+            group = new Period(task.period, first % task.period);
+            phases.put(group.phase, group);
+            insert(group, first);
+        }
+        else {
+            task.skip = first > group.deadline ? (first - group.deadline) / task.period : 0L;
+        }
+
+        task.group = group;
+        group.tasks.add(task);
+    }
+
+    /**
+     * Hands a task over to the workers.
+     *
+     * @param task the task
+     * @param due  the time in milliseconds, when the task is due
+     */
+    private void submit(ScheduledTask task, long due) {
+
+        if (!running || !task.running.compareAndSet(false, true)) return;
+
+        task.due = due;
+
+        try {
+            workers.execute(task::run);
+        }
+        catch (RejectedExecutionException e) {
+            task.running.set(false);
+        }
+    }
+
+    /**
+     * Puts an entry into the suitable slot. This is done with the lock of the wheel held.
+     *
+     * @param entry    the entry
+     * @param deadline the tick, when the entry expires
+     */
+    private void insert(Entry entry, long deadline) {
+
+        entry.deadline = Math.max(deadline, currentTick + 1L);
+
+        // Looking for the lowest level, whose slots cover the deadline
+        int level = 0;
+        int index = -1;
+        while (level < LEVELS) {
+
+            int shift = level * SLOT_BITS;
+            if ((entry.deadline >> shift) - (currentTick >> shift) < SLOTS) {
+                index = (int)((entry.deadline >> shift) & (SLOTS - 1));
+                break;
+            }
+
+            level++;
+        }
+
+        // The deadline is beyond the highest level. The entry will be cascaded again later.
+        if (index < 0) {
+            level = LEVELS - 1;
+            index = (int)(((currentTick >> (level * SLOT_BITS)) + SLOTS - 1) & (SLOTS - 1));
+        }
+
+        Entry sentinel = slots[level][index];
+        entry.slot = slots[level];
+        entry.previous = sentinel.previous;
+        entry.next = sentinel;
+        sentinel.previous.next = entry;
+        sentinel.previous = entry;
+    }
+
+    /**
+     * Removes an entry from its slot. This is done with the lock of the wheel held.
+     *
+     * @param entry the entry
+     */
+    private void remove(Entry entry) {
+
+        if (entry.slot == null) return;
+
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+        entry.previous = null;
+        entry.next = null;
+        entry.slot = null;
+    }
+
+    /**
+     * Takes all the entries out of a slot.
+     *
+     * @param level the wheel level
+     * @param index the slot index
+     *
+     * @return the first entry of the detached list or <tt>null</tt>, if the slot is empty
+     */
+    private Entry detach(int level, int index) {
+
+        Entry sentinel = slots[level][index];
+        if (sentinel.next == sentinel) return null;
+
+        Entry first = sentinel.next;
+        sentinel.previous.next = null;
+        sentinel.next = sentinel;
+        sentinel.previous = sentinel;
+
+        return first;
+    }
+
+    /** Processes the next tick. This is done by the tick thread with the lock of the wheel held. */
+    private void advance() {
+
+        currentTick++;
+
+        // Entries of the higher levels are moved down, when the lower level has completed a round.
+        for (int level = 1; level < LEVELS; level++) {
+
+            int shift = level * SLOT_BITS;
+            if ((currentTick & ((1L << shift) - 1L)) != 0L) break;
+
+            Entry entry = detach(level, (int)((currentTick >> shift) & (SLOTS - 1)));
+            while (entry != null) {
+                Entry next = entry.next;
+                entry.slot = null;
+                insert(entry, entry.deadline);
+                entry = next;
+            }
+        }
+
+        // Now the entries of the current tick expire.
+        Entry entry = detach(0, (int)(currentTick & (SLOTS - 1)));
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.slot = null;
+            entry.previous = null;
+            entry.next = null;
+            entry.expire();
+            entry = next;
+        }
+    }
+
+    /** The implementation of the tick thread. */
+    private void run() {
+
+        while (running) {
+
+            long next;
+            synchronized (this) {
+                next = tickTime(currentTick + 1L);
+            }
+
+            long now = System.currentTimeMillis();
+            if (now < next) {
+                try {
+                    Thread.sleep(next - now);
+                }
+                catch (InterruptedException e) {
+                    // The wheel is closed.
+                }
+                continue;
+            }
+
+            // The missed ticks are processed one after another.
+            tickLag = now - next;
+            synchronized (this) {
+                while (running && tickTime(currentTick + 1L) <= now) advance();
+            }
+        }
+    }
+
+    /**
+     * A task body is started.
+     *
+     * @param lag the delay in milliseconds
+     */
+    private void lagMeasured(long lag) {
+
+        lastLag = lag;
+        if (lag > maxLag) maxLag = lag;
+    }
+
+    /** Stops the wheel. No more tasks are started. */
+    public void close() {
+
+        running = false;
+        tickThread.interrupt();
+        workers.shutdown();
+
+        logger.fine(String.format("The timer terminates now. The maximum lag was %d ms.", maxLag));
+    }
+
+    /**
+     * Returns the number of scheduled tasks, which are not cancelled.
+     *
+     * @return the number of tasks
+     */
+    public synchronized int getTaskCount() { return taskCount; }
+
+    /**
+     * Returns the lag of the last task started, i.e. the delay between the time it was due and the time it was started.
+     *
+     * @return the lag in milliseconds
+     */
+    public long getLastLag() { return lastLag; }
+
+    /**
+     * Returns the greatest lag of all tasks started.
+     *
+     * @return the lag in milliseconds
+     */
+    public long getMaxLag() { return maxLag; }
+
+    /**
+     * Returns the delay of the tick thread at its last wake-up. A growing tick lag indicates an overloaded system.
+     *
+     * @return the lag in milliseconds
+     */
+    public long getTickLag() { return tickLag; }
+}
@@ -27,7 +27,7 @@ class TriggeringAdapter extends Adapter {
      * @param newValue the new buffer value
      */
     @Override
-    public void valueChanged(SimpleData newValue) {
+    void adapt(SimpleData newValue) {
 
         synchronized (valueLock) {
 
@@ -44,31 +44,26 @@ class TriggeringAdapter extends Adapter {
             }
             else {
 
-                double in = newValue.getValue().doubleValue();
+                double in = newValue.doubleValue();
 
                 // After the input is getting ready, a lower output value is assumed. Therefore
                 // the upper output value is only set, if the input value is greater than the upper threshold.
                 // In every cases an input value change is done.
                 if (current.getState() != BufferState.READY) {
-                    set(new SimpleData(newValue.getTimestamp(),
-                                       BufferState.READY,
+                    set(new SimpleData(newValue.getTime(),
                                        in >= upperThreshold ? config.getUpperOutput() : config.getLowerOutput()));
                 }
 
                 // If the input is greater then the upper threshold, the output value is the upper value.
                 // This may cause a value change sent to the consumers.
                 else if (in >= upperThreshold) {
-                    set(new SimpleData(newValue.getTimestamp(),
-                                       BufferState.READY,
-                                       config.getUpperOutput()));
+                    set(new SimpleData(newValue.getTime(), config.getUpperOutput()));
                 }
 
                 // If the input is less then the lower threshold, the output value is the lower value.
                 // This may cause a value change sent to the consumers.
                 else if (in <= lowerThreshold) {
-                    set(new SimpleData(newValue.getTimestamp(),
-                                       BufferState.READY,
-                                       config.getLowerOutput()));
+                    set(new SimpleData(newValue.getTime(), config.getLowerOutput()));
                 }
 
                 // If the input value is between upper and lower threshold, no changes are communicated!
@@ -0,0 +1,187 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This dispatcher decouples the buffers from the consumers of their value changes. A value change is handed over without
+ * blocking and delivered by a thread of its own, so a slow consumer (e.g. a client connection writing to its socket) never
+ * delays the buffers. The value changes of a buffer are delivered in the order of their change. If a buffer changes again
+ * before its last value change was delivered, only the latest value is delivered.
+ * <p>
+ * A client request changing a buffer expects the resulting value changes to be pushed before its answer. These are not
+ * only the changes of the buffer requested, but also the changes of the dependent buffers, e.g. a sensor sharing the
+ * gatherer of an actor or a formula using the buffer. Therefore the request handling waits with {@link #flush()} until
+ * all the value changes handed over meanwhile are delivered.
+ */
+class ValueChangeDispatcher implements ValueChangeConsumer {
+
+    // The logger.
+    private final static Logger logger = Loggers.getLogger(ValueChangeDispatcher.class);
+
+    // The consumer of the value changes
+    private final ValueChangeConsumer consumer;
+
+    // The undelivered value change of every buffer, the buffer names in the order of their changes and the value change
+    // delivered now
+    private final Map<String, Change> pending;
+    private final Queue<String> order;
+    private volatile Change current;
+
+    // The delivering thread
+    private final Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Starts the dispatcher.
+     *
+     * @param c the consumer of the value changes
+     */
+    ValueChangeDispatcher(ValueChangeConsumer c) {
+
+        consumer = c;
+        pending = new ConcurrentHashMap<>();
+        order = new ConcurrentLinkedQueue<>();
+        current = null;
+        running = true;
+
+        thread = new Thread(this::run, "value change dispatcher thread");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * This is the notification of a spontaneous value change. It is queued for delivery.
+     *
+     * @param newValue the new buffer value
+     */
+    @Override
+    public void valueChanged(SimpleData newValue) {
+
+        Change added = new Change(newValue);
+        Change change = pending.merge(newValue.getBufferName(), added, (undelivered, a) -> undelivered.replace(newValue));
+
+        if (change == added) {
+            order.add(newValue.getBufferName());
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /** The implementation of the delivering thread. */
+    private void run() {
+
+        while (running) {
+
+            String name = order.poll();
+
+            if (name == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            // The change is the current one before it leaves the pending changes, so a flush always finds it.
+            Change change = pending.get(name);
+            if (change == null) continue;
+            current = change;
+            pending.remove(name);
+
+            try {
+                consumer.valueChanged(change.value);
+            }
+            catch (Exception e) {
+                logger.log(Level.WARNING, "A value change cannot be delivered.", e);
+            }
+            finally {
+                current = null;
+                change.delivered.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Waits until all the value changes, which are handed over before this call, are delivered. The value changes handed
+     * over later are not waited for. If the dispatcher is closed meanwhile, this method returns immediately.
+     */
+    void flush() {
+
+        // The delivering thread must never wait for itself.
+        if (Thread.currentThread() == thread) return;
+
+        // The pending changes are collected before the current one. A change leaving the pending changes meanwhile is
+        // the current one or already delivered.
+        List<CompletableFuture<Void>> changes = new ArrayList<>();
+        for (Change change : pending.values()) changes.add(change.delivered);
+
+        Change delivering = current;
+        if (delivering != null) changes.add(delivering.delivered);
+
+        if (changes.isEmpty() || !running) return;
+
+        try {
+            CompletableFuture.allOf(changes.toArray(new CompletableFuture<?>[changes.size()])).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            // Impossible, the changes are always completed normally.
+        }
+    }
+
+    /** Stops the dispatcher. Undelivered value changes are dropped. */
+    void close() {
+
+        running = false;
+        LockSupport.unpark(thread);
+
+        // Nobody must wait for a dropped value change.
+        Change delivering = current;
+        if (delivering != null) delivering.delivered.complete(null);
+        pending.values().forEach(change -> change.delivered.complete(null));
+    }
+
+    /** An undelivered value change of a buffer. */
+    private static final class Change {
+
+        // The latest value of the buffer. It is replaced only while the change is pending.
+        volatile SimpleData value;
+
+        // Completed, when the value is delivered
+        final CompletableFuture<Void> delivered;
+
+        /**
+         * Initialization.
+         *
+         * @param v the value
+         */
+        Change(SimpleData v) {
+
+            value = v;
+            delivered = new CompletableFuture<>();
+        }
+
+        /**
+         * Replaces the value by a newer one.
+         *
+         * @param v the newer value
+         *
+         * @return this change
+         */
+        Change replace(SimpleData v) {
+
+            value = v;
+            return this;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package at.ac.tuwien.infosys.g2021.daemon;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /** This is an abstract class, which can notify <tt>{@link ValueChangeConsumer}s</tt> about value changes. */
 abstract class ValueChangeProducer {
@@ -10,10 +12,16 @@ abstract class ValueChangeProducer {
     // The list of value change consumers
     private List<ValueChangeConsumer> consumers;
 
+    // The number of pending publications of the latest value and the last value published
+    private final AtomicInteger publications;
+    private SimpleData published;
+
     /** There exists no gatherers without configuration. */
     protected ValueChangeProducer() {
 
         consumers = new CopyOnWriteArrayList<>();
+        publications = new AtomicInteger(0);
+        published = null;
     }
 
     /**
@@ -48,6 +56,27 @@ abstract class ValueChangeProducer {
      */
     protected void fireValueChange(SimpleData value) { for (ValueChangeConsumer consumer : consumers) consumer.valueChanged(value); }
 
+    /**
+     * Distributes the latest value of this producer. This method must not be called holding a lock. Concurrent calls
+     * are serialized without locking: the first caller distributes the values, while the other callers return immediately.
+     * The latest value is read again after every distribution, so the consumers always receive the values in the order
+     * of their change, but intermediate values may be skipped.
+     *
+     * @param latest returns the latest value
+     */
+    protected void fireLatestValue(Supplier<SimpleData> latest) {
+
+        if (publications.getAndIncrement() != 0) return;
+
+        do {
+            SimpleData value = latest.get();
+            if (value != null && value != published) {
+                published = value;
+                fireValueChange(value);
+            }
+        } while (publications.decrementAndGet() != 0);
+    }
+
     /** Stops distributing. */
     void shutdown() { consumers.clear(); }
 }
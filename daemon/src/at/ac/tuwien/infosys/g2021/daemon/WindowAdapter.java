@@ -0,0 +1,313 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import at.ac.tuwien.infosys.g2021.common.WindowAdapterConfiguration;
+
+/**
+ * A window adapter calculates a statistic over a sliding window of the latest input values. Every input value is
+ * added to the window and the oldest values are removed in constant time, no matter how long the window is:
+ * <ul>
+ *     <li>the minimum and the maximum are the head of a monotonic queue of the values in the window,</li>
+ *     <li>the mean and the variance are updated incrementally with Welford's method and</li>
+ *     <li>the rate of change is calculated from the oldest and the latest value.</li>
+ * </ul>
+ * A time window keeps the input values received within its time span, but the latest input value is always part of
+ * the window, because it is still the current input value. If an emit interval is configured, the statistic is sent
+ * by the system timer at this cadence, otherwise with every input value. Input states other than
+ * <tt>{@link BufferState#READY}</tt> are sent immediately and empty the window.
+ */
+class WindowAdapter extends Adapter {
+
+    // After this number of updates the mean and the variance are recalculated from the values in the window, so
+    // rounding errors of the incremental updates cannot accumulate.
+    private final static int RECOMPUTE_PERIOD = 1 << 16;
+
+    /** A growing ring of long values, which is used as double ended queue. */
+    private final static class LongRing {
+
+        // The elements, the array index of the first element and the number of elements
+        private long[] elements = new long[16];
+        private int head;
+        private int size;
+
+        /**
+         * Returns the array index of an element.
+         *
+         * @param n the position of the element, where 0 is the first element
+         *
+         * @return the array index
+         */
+        private int index(int n) { return (head + n) & (elements.length - 1); }
+
+        int size() { return size; }
+
+        long get(int n) { return elements[index(n)]; }
+
+        long first() { return elements[head]; }
+
+        long last() { return elements[index(size - 1)]; }
+
+        void addLast(long element) {
+
+            if (size == elements.length) {
+                long[] grown = new long[elements.length << 1];
+                for (int n = 0; n < size; n++) grown[n] = get(n);
+                elements = grown;
+                head = 0;
+            }
+
+            elements[index(size)] = element;
+            size++;
+        }
+
+        void removeFirst() {
+
+            head = index(1);
+            size--;
+        }
+
+        void removeLast() { size--; }
+
+        void clear() {
+
+            head = 0;
+            size = 0;
+        }
+    }
+
+    // This is the timer task sending the statistic, if an emit interval is configured.
+    private TimingWheel.Task emitter;
+
+    // The timestamps and values in the window and the sequence number of the oldest value
+    private final LongRing times;
+    private final LongRing values;
+    private long firstSequence;
+
+    // The monotonic queues of sequence numbers. The values of the minimum queue are ascending and the values of the
+    // maximum queue are descending, so the head of each queue is the minimum or maximum of the window.
+    private final LongRing minimumQueue;
+    private final LongRing maximumQueue;
+
+    // The mean and the sum of the squared differences from the mean
+    private double mean;
+    private double squares;
+    private int updates;
+
+    /**
+     * Initialization
+     *
+     * @param configuration The configuration
+     */
+    WindowAdapter(WindowAdapterConfiguration configuration) {
+
+        super(configuration);
+
+        times = new LongRing();
+        values = new LongRing();
+        minimumQueue = new LongRing();
+        maximumQueue = new LongRing();
+        clear();
+
+        if (configuration.getEmitInterval() > 0L) {
+            emitter = Daemon.get().timer().scheduleAtFixedRate(this::update,
+                                                               configuration.getEmitInterval(),
+                                                               configuration.getEmitInterval());
+        }
+    }
+
+    /** Releases any system resources of the adapter. */
+    @Override
+    void shutdown() {
+
+        if (emitter != null) {
+            emitter.cancel();
+            emitter = null;
+        }
+
+        super.shutdown();
+    }
+
+    /**
+     * Returns a value of the window.
+     *
+     * @param sequence the sequence number of the value
+     *
+     * @return the value
+     */
+    private double value(long sequence) { return Double.longBitsToDouble(values.get((int)(sequence - firstSequence))); }
+
+    /** Removes all values from the window. */
+    private void clear() {
+
+        firstSequence += times.size();
+        times.clear();
+        values.clear();
+        minimumQueue.clear();
+        maximumQueue.clear();
+        mean = 0.0;
+        squares = 0.0;
+        updates = 0;
+    }
+
+    /**
+     * Adds a value to the window.
+     *
+     * @param time  the timestamp of the value
+     * @param value the value
+     */
+    private void add(long time, double value) {
+
+        // A value older than its predecessor gets the timestamp of the predecessor.
+        if (times.size() > 0) time = Math.max(time, times.last());
+
+        long sequence = firstSequence + times.size();
+        times.addLast(time);
+        values.addLast(Double.doubleToRawLongBits(value));
+
+        while (minimumQueue.size() > 0 && value(minimumQueue.last()) >= value) minimumQueue.removeLast();
+        minimumQueue.addLast(sequence);
+        while (maximumQueue.size() > 0 && value(maximumQueue.last()) <= value) maximumQueue.removeLast();
+        maximumQueue.addLast(sequence);
+
+        double difference = value - mean;
+        mean += difference / times.size();
+        squares += difference * (value - mean);
+
+        if (++updates >= RECOMPUTE_PERIOD) recompute();
+    }
+
+    /** Removes the oldest value from the window. */
+    private void removeFirst() {
+
+        double value = value(firstSequence);
+
+        if (minimumQueue.first() == firstSequence) minimumQueue.removeFirst();
+        if (maximumQueue.first() == firstSequence) maximumQueue.removeFirst();
+
+        times.removeFirst();
+        values.removeFirst();
+        firstSequence++;
+
+        if (times.size() <= 1) {
+            mean = times.size() == 0 ? 0.0 : value(firstSequence);
+            squares = 0.0;
+        }
+        else {
+            double difference = value - mean;
+            mean -= difference / times.size();
+            squares = Math.max(0.0, squares - difference * (value - mean));
+        }
+
+        if (++updates >= RECOMPUTE_PERIOD) recompute();
+    }
+
+    /** Recalculates the mean and the variance from the values in the window. */
+    private void recompute() {
+
+        int count = values.size();
+        double sum = 0.0;
+        for (int n = 0; n < count; n++) sum += Double.longBitsToDouble(values.get(n));
+
+        mean = count > 0 ? sum / count : 0.0;
+        squares = 0.0;
+        for (int n = 0; n < count; n++) {
+            double difference = Double.longBitsToDouble(values.get(n)) - mean;
+            squares += difference * difference;
+        }
+
+        updates = 0;
+    }
+
+    /**
+     * Removes the values, which are no longer part of the window.
+     *
+     * @param now the current time
+     */
+    private void evict(long now) {
+
+        WindowAdapterConfiguration config = getConfiguration();
+
+        if (config.getWindowCount() > 0) {
+            while (times.size() > config.getWindowCount()) removeFirst();
+        }
+        else {
+            while (times.size() > 1 && times.first() <= now - config.getWindowTime()) removeFirst();
+        }
+    }
+
+    /**
+     * Calculates the configured statistic over the values in the window.
+     *
+     * @return the statistic
+     */
+    private double statistic() {
+
+        WindowAdapterConfiguration config = getConfiguration();
+        int count = times.size();
+
+        switch (config.getFunction()) {
+            case MINIMUM:
+                return value(minimumQueue.first());
+
+            case MAXIMUM:
+                return value(maximumQueue.first());
+
+            case VARIANCE:
+                return squares / count;
+
+            case STANDARD_DEVIATION:
+                return Math.sqrt(squares / count);
+
+            case RATE:
+                long duration = times.last() - times.first();
+                return duration > 0L ? (value(firstSequence + count - 1) - value(firstSequence)) * 1000.0 / duration : 0.0;
+
+            default:
+                return mean;
+        }
+    }
+
+    /** A value update forced from the system timer. */
+    private void update() {
+
+        synchronized (valueLock) {
+
+            if (times.size() > 0) {
+                long now = System.currentTimeMillis();
+                evict(now);
+                set(new SimpleData(now, statistic()));
+            }
+        }
+
+        publish();
+    }
+
+    /**
+     * This is the notification of a spontaneous value change. The input value is added to the window. If no emit
+     * interval is configured or the adapter becomes ready, the statistic is sent.
+     *
+     * @param newValue the new buffer value
+     */
+    @Override
+    void adapt(SimpleData newValue) {
+
+        synchronized (valueLock) {
+
+            if (newValue.getState() != BufferState.READY) {
+                clear();
+                set(newValue);
+            }
+            else {
+                WindowAdapterConfiguration config = getConfiguration();
+
+                add(newValue.getTime(), newValue.doubleValue());
+                evict(newValue.getTime());
+
+                if (config.getEmitInterval() == 0L || get().getState() != BufferState.READY) {
+                    set(new SimpleData(newValue.getTime(), statistic()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers;
+
+/**
+ * The compiled value correction of a port: a linearization followed by a polynomial correction. The configuration
+ * is compiled once, so converting a raw value does as little work as possible:
+ * <ul>
+ * <li>The slope of every segment of the linearization is calculated in advance, and the segment of a value is found
+ *     by a binary search, if the segment limits are sorted.</li>
+ * <li>The polynomial is evaluated by the Horner scheme.</li>
+ * <li>Optionally, the converted values of an integer range of raw values, e.g. the range of an ADC, are stored in a
+ *     lookup table.</li>
+ * </ul>
+ * Instances are immutable.
+ */
+public final class Calibration {
+
+    /** The largest lookup table supported. */
+    public final static int MAX_TABLE_SIZE = 65536;
+
+    /** The calibration without any correction. */
+    public final static Calibration IDENTITY = new Calibration(null, null, null, null, null);
+
+    // The segment limits of the raw values, the corrected values at these limits and the slopes of the segments.
+    // The last limit is repeated, as the linearization always did.
+    private final double[] limits;
+    private final double[] steps;
+    private final double[] slopes;
+
+    // Are the limits sorted, so the segments can be found by a binary search?
+    private final boolean sorted;
+
+    // The coefficients of the polynomial a0, a1, a2, ...
+    private final double[] coefficients;
+
+    // The converted values of the raw values 0 .. table.length - 1
+    private final double[] table;
+
+    /**
+     * Initialization.
+     *
+     * @param limits       the segment limits or <tt>null</tt>
+     * @param steps        the corrected values at the limits or <tt>null</tt>
+     * @param slopes       the slopes of the segments or <tt>null</tt>
+     * @param coefficients the coefficients of the polynomial or <tt>null</tt>
+     * @param table        the lookup table or <tt>null</tt>
+     */
+    private Calibration(double[] limits, double[] steps, double[] slopes, double[] coefficients, double[] table) {
+
+        this.limits = limits;
+        this.steps = steps;
+        this.slopes = slopes;
+        this.coefficients = coefficients;
+        this.table = table;
+
+        boolean ascending = true;
+        if (limits != null) {
+            for (int i = 1; i < limits.length && ascending; i++) ascending = limits[i - 1] <= limits[i];
+        }
+        sorted = ascending;
+    }
+
+    /**
+     * Compiles a value correction.
+     *
+     * @param linCoffs  the raw values at the segment limits of the linearization or <tt>null</tt>, if there is no
+     *                  linearization
+     * @param linSteps  the corrected values at the segment limits, which must have the same length as <tt>linCoffs</tt>
+     * @param polyCoffs the coefficients a0, a1, a2, ... of the polynomial or <tt>null</tt>, if there is no polynomial
+     *                  correction
+     *
+     * @return the compiled calibration
+     *
+     * @throws IllegalArgumentException if the linearization is inconsistent
+     */
+    public static Calibration compile(double[] linCoffs, double[] linSteps, double[] polyCoffs) throws IllegalArgumentException {
+
+        double[] limits = null;
+        double[] steps = null;
+        double[] slopes = null;
+
+        if (linCoffs != null) {
+
+            if (linSteps == null || linCoffs.length != linSteps.length || linCoffs.length == 0) {
+                throw new IllegalArgumentException("misconfigured linearization");
+            }
+
+            int n = linCoffs.length;
+            limits = new double[n + 1];
+            steps = new double[n + 1];
+            System.arraycopy(linCoffs, 0, limits, 0, n);
+            System.arraycopy(linSteps, 0, steps, 0, n);
+            limits[n] = limits[n - 1];
+            steps[n] = steps[n - 1];
+
+            slopes = new double[n + 1];
+            for (int i = 1; i <= n; i++) slopes[i] = (steps[i] - steps[i - 1]) / (limits[i] - limits[i - 1]);
+        }
+
+        double[] coefficients = polyCoffs == null || polyCoffs.length == 0 ? null : polyCoffs.clone();
+
+        return new Calibration(limits, steps, slopes, coefficients, null);
+    }
+
+    /**
+     * Returns this calibration with a lookup table for the raw values <tt>0 .. max</tt>. Other raw values are
+     * converted as usual.
+     *
+     * @param max the largest raw value in the table
+     *
+     * @return the calibration with a lookup table
+     *
+     * @throws IllegalArgumentException if the table would be larger than {@link #MAX_TABLE_SIZE}
+     */
+    public Calibration withLookupTable(int max) throws IllegalArgumentException {
+
+        if (max < 0 || max >= MAX_TABLE_SIZE) throw new IllegalArgumentException("invalid size of the lookup table");
+
+        double[] values = new double[max + 1];
+        for (int i = 0; i <= max; i++) values[i] = polynomial(linearize(i));
+
+        return new Calibration(limits, steps, slopes, coefficients, values);
+    }
+
+    /**
+     * Is there a lookup table?
+     *
+     * @return <tt>true</tt>, if there is a lookup table
+     */
+    public boolean hasLookupTable() { return table != null; }
+
+    /**
+     * Linearization of a value. Below the first segment limit, the first segment is extrapolated, above the last limit,
+     * the last corrected value is returned.
+     *
+     * @param r The value, which has to be corrected.
+     *
+     * @return The new value.
+     */
+    public double linearize(double r) {
+
+        if (limits == null) return r;
+
+        // Looking for the first segment, whose upper limit is not less than the value
+        int segment;
+        if (sorted) {
+            int low = 1;
+            int high = limits.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (!(limits[middle] >= r)) low = middle + 1;
+                else high = middle;
+            }
+            segment = low;
+        }
+        else {
+            segment = 1;
+            while (segment < limits.length && !(r <= limits[segment])) segment++;
+        }
+
+        if (segment == limits.length) return steps[steps.length - 1];
+        return (r - limits[segment - 1]) * slopes[segment] + steps[segment - 1];
+    }
+
+    /**
+     * Polynomial correction of a value.
+     *
+     * @param r The value, which has to be corrected.
+     *
+     * @return The new value.
+     */
+    public double polynomial(double r) {
+
+        if (coefficients == null) return r;
+
+        double result = coefficients[coefficients.length - 1];
+        for (int i = coefficients.length - 2; i >= 0; i--) result = result * r + coefficients[i];
+
+        return result;
+    }
+
+    /**
+     * Converts a raw value: it is linearized and corrected by the polynomial.
+     *
+     * @param raw the raw value
+     *
+     * @return the converted value
+     */
+    public double convert(double raw) {
+
+        if (table != null) {
+            int i = (int)raw;
+            if (i == raw && i >= 0 && i < table.length) return table[i];
+        }
+
+        return polynomial(linearize(raw));
+    }
+
+    /**
+     * Converts many raw values.
+     *
+     * @param raw the raw values
+     * @param out the array receiving the converted values, which may be the same as <tt>raw</tt>
+     *
+     * @throws IllegalArgumentException if <tt>out</tt> is shorter than <tt>raw</tt>
+     */
+    public void convert(double[] raw, double[] out) throws IllegalArgumentException {
+
+        if (out.length < raw.length) throw new IllegalArgumentException("the output array is too short");
+
+        for (int i = 0; i < raw.length; i++) out[i] = convert(raw[i]);
+    }
+}
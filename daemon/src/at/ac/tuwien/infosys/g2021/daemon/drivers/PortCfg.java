@@ -2,6 +2,7 @@ package at.ac.tuwien.infosys.g2021.daemon.drivers;
 
 import at.ac.tuwien.infosys.g2021.common.util.Unit;
 import at.ac.tuwien.infosys.g2021.daemon.PortClass;
+import at.ac.tuwien.infosys.g2021.daemon.PortDescription;
 import com.eclipsesource.json.JsonObject;
 
 import java.util.*;
@@ -36,6 +37,8 @@ import java.util.*;
  *              This config is optional.</li>
  * <li><tt><font color="blue">hwCfg</font></tt>: Necessary data for communication to the physical sensor and interpredating the bits which holds the sensor value.
  *              This config data is specific to the hardware.
+ *              The optional parameter <tt>pollInterval</tt> is the time in milliseconds between two readings of a sensor,
+ *              the default is 1000 ms.
  *              This config is mandatory.</li>
  * <li><tt><font color="blue">valCorr</font></tt>: Finally, the configurations data for postpreperation of the sensor value.
  *              currently there exists 2 types of correction: (1) linearization and (2) polynomial correction.
@@ -52,17 +55,8 @@ public class PortCfg {
     HashMap<String,String> valCorr  = new HashMap<String,String>();   // Specific info for correction of the value
 
 
-    /** Indicates wether linearization is configured or not. */
-    private boolean linearization = false;
-    /** The steps for the linearization */
-    private double s[] = null;
-    /** coefficients for the linearization */
-    private double c[] = null;
-
-    /** Indicates wether coefficients for a polynominal correction are defined. */
-    private boolean polynom = false;
-    /** coefficients for the polynominal correction. */
-    private double p[] = null;
+    /** The compiled linearization and polynominal correction. */
+    private Calibration calibration = Calibration.IDENTITY;
 
 
     static HashMap<String,PortCfg> allCfgs = new HashMap<String,PortCfg>();
@@ -73,7 +67,7 @@ public class PortCfg {
      * @param state indicates if this configuration is active or inactive
      * @param portClass indicates the type of port
      */
-    PortCfg(String name, boolean state, int portClass ) {
+    protected PortCfg(String name, boolean state, int portClass ) {
         this.name = name;
         this.state = state;
         this.portClass = PortClass.get(portClass);
@@ -149,11 +143,24 @@ public class PortCfg {
     public HashMap<String,Object> getHwCfg() {    return hwCfg; }
     public HashMap<String,String> getValCorr() {  return valCorr; }
 
+    /** Returns the time between two readings of this port.
+     * @return the poll interval in milliseconds from the <tt>hwCfg</tt> parameter <tt>pollInterval</tt> or the default interval,
+     *         if this parameter is missing or invalid.
+     */
+    public long getPollInterval() {
+        try {
+            long interval = Long.parseLong(((String) hwCfg.get("pollInterval")).trim());
+            if( interval > 0 ) return interval;
+        }
+        catch( NullPointerException | ClassCastException | NumberFormatException e ) {} // OK, take the default.
+        return PortDescription.DEFAULT_POLL_INTERVAL;
+    }
+
     void setName( String name ) { this.name = name; }
     void setState( boolean state ) { this.state = state; }
     void setPortClassKey( int portClassKey ) { this.portClass = PortClass.get(portClassKey); }
     void setPortClass( PortClass portClass ) { this.portClass = portClass; }
-    void setMetaInfo( HashMap<String,String> metaInfo ) { this.metaInfo = metaInfo; }
+    public void setMetaInfo( HashMap<String,String> metaInfo ) { this.metaInfo = metaInfo; }
     void setHwCfg( HashMap<String,Object> hwCfg ) { this.hwCfg = hwCfg; }
     void setValCorr( HashMap<String,String> valCorr ) { this.valCorr = valCorr; }
 
@@ -161,6 +168,10 @@ public class PortCfg {
     /** prepare the postcorrection of the value */
     public void doPrepare() {
 
+        double c[] = null;
+        double s[] = null;
+        double p[] = null;
+
         // Linearization
         String linCoffs = (String) valCorr.get("linCoffs");
         String linSteps = (String) valCorr.get("linSteps");
@@ -172,13 +183,10 @@ public class PortCfg {
                 System.err.println("Port " + getName() + ": Misconfigured linearization.");
             } else {
                 // Prepare numeric values
-                c = new double[cs.length + 1];
-                s = new double[cs.length + 1];
+                c = new double[cs.length];
+                s = new double[ss.length];
                 for (int i = 0; i < cs.length; i++) c[i] = Double.valueOf(cs[i]);
-                c[cs.length] = c[cs.length - 1];
                 for (int i = 0; i < ss.length; i++) s[i] = Double.valueOf(ss[i]);
-                s[cs.length] = s[cs.length - 1];
-                linearization = true;
             }
         }
 
@@ -189,53 +197,52 @@ public class PortCfg {
             if (sns.length != 0) {      // If the list of coefficients is empty, keep the old value
                 p = new double[sns.length];
                 for (int i = 0; i < sns.length; i++) p[i] = Double.valueOf(sns[i]);
-                polynom = true;
             }
         }
+
+        // Both corrections are compiled once, so converting a value costs as little as possible.
+        calibration = Calibration.compile(c, s, p);
     }
 
 
+    /** Returns the compiled value correction of this port.
+     * @return the calibration.
+     */
+    public Calibration getCalibration() { return calibration; }
+
+
+    /** Replaces the compiled value correction of this port, e.g. by a calibration with a lookup table.
+     * @param calibration the new calibration.
+     */
+    protected void setCalibration( Calibration calibration ) { this.calibration = calibration; }
+
+
     /** Linearization of the value
      * @param r The value, which has to be corrected.
      * @return The new value.
      */
-    public double linearizer( double r ) {
+    public double linearizer( double r ) { return calibration.linearize(r); }
 
-        if( !linearization ) return r;  // Do it only if configured
 
-        // calculate the linearized value
-        double res = s[s.length-1];   // If r is above the highes Bereich
-        for (int i = 1; i < c.length; i++) { // ein Bereich ist:  c[i-1] .. c[i]
-            if (r <= c[i]) {    //  es gilt:  c[i-1] < c[i]     es gilt:  c[i-1] < value < c[i]
-                //    |---  % von value im Bereich  ---|   |- Stufenbreite-|   |-Offset der Stufe-|
-                res = (r - c[i - 1]) / (c[i] - c[i - 1]) * (s[i] - s[i - 1]) + s[i - 1];
-                break;  // The result is found.
-            }
-        }
-        return res;
-    }
+    /** Polynom correction of the value
+     * @param r The value, which has to be corrected.
+     * @return The new value.
+     */
+    public double polynominizer( double r ) { return calibration.polynomial(r); }
 
 
-    /** Polynom correction of the value
+    /** Correction of the value: the linearization followed by the polynom correction.
      * @param r The value, which has to be corrected.
      * @return The new value.
      */
-    public double polynominizer( double r ) {
-
-        if( !polynom ) return r;    // Do it only if configured
-
-        double res = 0;
-        for (int i = 0; i < p.length; i++) {  // Loop each term of the polynom
-            if (i == 0) res = p[0];
-            else if (i == 1) res += p[1] * r;
-            else {                  // i >= 2
-                double h = r;       // calculate r^n
-                for (int j = 1; j < i; j++) h *= r;
-                res += p[i] * h;    // add the term (an * r^n) to the sum
-            }
-        }
-        return res;
-    }
+    public double convert( double r ) { return calibration.convert(r); }
+
+
+    /** Correction of many values of this port.
+     * @param raw The values, which have to be corrected.
+     * @param out The array receiving the corrected values.
+     */
+    public void convert( double[] raw, double[] out ) { calibration.convert(raw, out); }
 
 
     /**
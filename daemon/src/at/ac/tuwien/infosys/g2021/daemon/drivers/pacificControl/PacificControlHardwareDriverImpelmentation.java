@@ -6,13 +6,11 @@ import at.ac.tuwien.infosys.g2021.common.util.Loggers;
 import at.ac.tuwien.infosys.g2021.daemon.HardwareDriverInterface;
 import at.ac.tuwien.infosys.g2021.daemon.PortClass;
 import at.ac.tuwien.infosys.g2021.daemon.PortDescription;
-import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
-import com.pi4j.io.i2c.I2CBus;
-import com.pi4j.io.i2c.I2CFactory;
 
 import java.io.*;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
@@ -31,14 +29,22 @@ import java.util.logging.Logger;
  *    ...
  * ] }
  * </pre>
+ * The values are polled with conditional HTTP requests. If the G2021 answers with an <tt>ETag</tt> or a
+ * <tt>Last-Modified</tt> header, the next request contains <tt>If-None-Match</tt> or <tt>If-Modified-Since</tt>, and
+ * an unchanged point list isn't sent again. Every response is read completely and closed, so the HTTP connection is
+ * kept alive and reused by the next request. The point list is read by a streaming reader, which looks up the
+ * configured ports only.
  */
 public class PacificControlHardwareDriverImpelmentation implements HardwareDriverInterface {
 
     /** The logger */
     private final static Logger logger = Loggers.getLogger(PacificControlHardwareDriverImpelmentation.class);
 
+    /** An object for thread synchronization */
+    private final Object lock = new Object();
+
     /** The name of the file which holds the configuration */
-    private String cfgFileName = "portCfg.json";
+    private String cfgFileName;
 
     /** The url to read data from sedona */
     private URL url;
@@ -55,12 +61,40 @@ public class PacificControlHardwareDriverImpelmentation implements HardwareDrive
     /** The default value for interval if the config results in an error or is zero or negativ. */
     private int defaultInterval = 30;
 
-    private int   intervalCount =  0;
-
 
     /** All defined and available sensors/actors - ports */
     private HashMap<String,PortPC> allPorts = new HashMap<String,PortPC>();
 
+    /** The ports in the order of their values */
+    private PortPC[] ports = new PortPC[0];
+
+    /** The index of every port name */
+    private Map<String,Integer> portIndex = new HashMap<>();
+
+    /** The last values and states read from the url */
+    private double[] values = new double[0];
+    private BufferState[] states = new BufferState[0];
+
+    /** Are the last values valid, so they can be used, if the point list isn't modified? */
+    private boolean cached = false;
+
+    /** The validators of the last point list sent by the url */
+    private String entityTag = null;
+    private String lastModified = null;
+
+    /** The reader of the point list */
+    private final PointListReader pointListReader = new PointListReader();
+
+    /** Creating the driver instance. */
+    public PacificControlHardwareDriverImpelmentation() { this("portCfg.json"); }
+
+    /**
+     * Creating the driver instance with another configuration file.
+     *
+     * @param cfgFileName the name of the configuration file
+     */
+    PacificControlHardwareDriverImpelmentation(String cfgFileName) { this.cfgFileName = cfgFileName; }
+
     /**
      * Is this a suitable hardware driver and can this driver work with the current hardware?
      */
@@ -81,6 +115,14 @@ public class PacificControlHardwareDriverImpelmentation implements HardwareDrive
     @Override
     public String getName() { return "Driver for Pacific Control G2021 interface"; }
 
+    /**
+     * Reading the ports needs a http request, so this driver is polled by a thread of its own.
+     *
+     * @return <tt>true</tt>
+     */
+    @Override
+    public boolean isBlocking() { return true; }
+
     /**
      * All chips (defined in ChipSet) are checked for reachability.
      * If a chip is reachable, it is referenced in 'chips'.
@@ -101,9 +143,10 @@ public class PacificControlHardwareDriverImpelmentation implements HardwareDrive
         JsonObject jsonObj = null;
         try {
             URLConnection connection = url.openConnection();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
-            try { jsonObj = JsonObject.readFrom( reader ); }
+            InputStream in = connection.getInputStream();
+            try { jsonObj = JsonObject.readFrom( new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)) ); }
             catch( IOException ioe ) { logger.config("Error in reading configuration for PacificControl."); }
+            finally { consume( in ); }
         }
         catch (Exception e) {
             logger.config("Error in reading config for PacificControl from url " + url.toString() );
@@ -112,6 +155,77 @@ public class PacificControlHardwareDriverImpelmentation implements HardwareDrive
     }
 
 
+    /**
+     * Reads the values of the ports from the url. The request is conditional, if the last values are valid. This
+     * method is called holding the lock.
+     *
+     * @return <tt>true</tt>, if the values and states of the ports are valid
+     */
+    private boolean readValuesFromUrl() {
+
+        try {
+            URLConnection connection = url.openConnection();
+
+            if( connection instanceof HttpURLConnection ) {
+                HttpURLConnection http = (HttpURLConnection) connection;
+
+                if( cached ) {
+                    if( entityTag != null ) http.setRequestProperty( "If-None-Match", entityTag );
+                    if( lastModified != null ) http.setRequestProperty( "If-Modified-Since", lastModified );
+                }
+
+                int status = http.getResponseCode();
+                if( status == HttpURLConnection.HTTP_NOT_MODIFIED && cached ) {
+                    consume( http.getInputStream() );
+                    return true;
+                }
+                if( status != HttpURLConnection.HTTP_OK ) {
+                    consume( http.getErrorStream() );
+                    throw new IOException( "HTTP status " + status );
+                }
+
+                entityTag = http.getHeaderField( "ETag" );
+                lastModified = http.getHeaderField( "Last-Modified" );
+            }
+
+            cached = false;
+            InputStream in = connection.getInputStream();
+            try { pointListReader.read( new InputStreamReader(in, StandardCharsets.UTF_8), portIndex, values, states ); }
+            finally { consume( in ); }
+            cached = true;
+            return true;
+        }
+        catch( IOException e ) {
+            logger.config("Error in reading values for PacificControl from url " + url.toString() + ": " + e.getMessage() );
+            cached = false;
+            entityTag = null;
+            lastModified = null;
+            return false;
+        }
+    }
+
+
+    /**
+     * Reads the rest of a response and closes it. A HTTP connection can be reused only, if the response is read
+     * completely.
+     *
+     * @param in the response or <tt>null</tt>
+     */
+    private static void consume( InputStream in ) {
+
+        if( in == null ) return;
+        try {
+            byte[] buffer = new byte[4096];
+            while( in.read( buffer ) >= 0 ) {}
+        }
+        catch( IOException e ) {}   // The connection isn't reused.
+        finally {
+            try { in.close(); }
+            catch( IOException e ) {}
+        }
+    }
+
+
     /**
      * Requests a set action to an actor with a http request.
      *
@@ -134,11 +248,12 @@ public class PacificControlHardwareDriverImpelmentation implements HardwareDrive
         JsonObject jsonObj = null;
         try {
             URL u = new URL( urlSet.toString() + "?" + port + "&" + value.doubleValue() + "&" + priority );
-            System.out.println( "===>>> urlSet = " + u + " <<<===" );
+            logger.fine( "Setting " + port + " with url " + u );
             URLConnection connection = u.openConnection();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
-            try { jsonObj = JsonObject.readFrom( reader ); }
+            InputStream in = connection.getInputStream();
+            try { jsonObj = JsonObject.readFrom( new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)) ); }
             catch( IOException ioe ) { logger.config("Error in setting values for PacificControl."); }
+            finally { consume( in ); }
         }
         catch (Exception e) {
             logger.config("Error in setting value for PacificControl with url " + urlSet.toString() );
@@ -201,7 +316,7 @@ public class PacificControlHardwareDriverImpelmentation implements HardwareDrive
                 }
             }
             if( ! found ) {                 // the
-                System.err.println("Config-File " + cfgFileName + ": Missing config for PacificControl.");
+                logger.config("Config-File " + cfgFileName + ": Missing config for PacificControl.");
                 return result;
             }
         }
@@ -248,7 +363,7 @@ public class PacificControlHardwareDriverImpelmentation implements HardwareDrive
                     catch( Exception e ) {} // don't care
 
                     allPorts.put(portCfg.getName(), portCfg);
-                    result.add( new PortDescription( name, PortClass.get(portClass), metaInfo));
+                    result.add( new PortDescription( name, PortClass.get(portClass), metaInfo, interval * 1000L));
                     logger.fine( "PortCfg " + portCfg.getName() + portCfg.dump());
                 }
                 else {
@@ -261,6 +376,17 @@ public class PacificControlHardwareDriverImpelmentation implements HardwareDrive
                 continue;
             }
         }
+
+        // Prepare the index of the port names for reading the values.
+        synchronized (lock) {
+            ports = allPorts.values().toArray(new PortPC[allPorts.size()]);
+            portIndex = new HashMap<>();
+            for( int i = 0; i < ports.length; i++ ) { portIndex.put( ports[i].getName(), i ); }
+            values = new double[ports.length];
+            states = new BufferState[ports.length];
+            cached = false;
+        }
+
         return result;
     };
 
@@ -275,53 +401,18 @@ public class PacificControlHardwareDriverImpelmentation implements HardwareDrive
 
         Collection<SimpleData> result = new ArrayList<>();
         Date now = new Date();
-        if( intervalCount == 0 ) {
-            JsonObject jsonObj = getValuesFromUrl();
-            if( jsonObj == null ) {             // No fresh values are available - all are invalid
-                for( PortPC port : allPorts.values() ) {
-                    result.add(new SimpleData( port.getName(), now, BufferState.FAULTED));
+
+        synchronized (lock) {
+            boolean available = readValuesFromUrl();
+            for( int i = 0; i < ports.length; i++ ) {
+                if( available && states[i] == BufferState.READY ) {
+                    result.add(new SimpleData(ports[i].getName(), now, BufferState.READY, values[i]));
                 }
-            }
-            else {                              // Some fresh values are available :-)
-                JsonArray values = jsonObj.get("list").asArray();
-                for( PortPC port : allPorts.values() ) {    // Look for desired names
-                    String name = port.getName();
-                    boolean found = false;  // Search the name in all available names
-                    for( int i = 0; i < values.size(); i++ ) {
-                        if ( values.get(i).asObject().get("name").asString().equals( name ) ) {
-                            found = true;   // The desired name is found - look for the value now
-
-                            try {           // Check validity of this entry
-                                if( ! values.get(i).asObject().get( "valid" ).asBoolean() ) {
-                                    System.out.println( "===>>> value of name '" + name + "' is invalid <<<===" );
-                                    result.add(new SimpleData(port.getName(), now, BufferState.FAULTED));
-                                    continue;
-                                }
-                            }
-                            catch( Exception e ) {} // No attribute valid available - assuming valid=true
-
-                            try {           // Read the value
-                                double value = values.get(i).asObject().get("value").asDouble();
-                                result.add(new SimpleData(name, now, BufferState.READY, value));
-                                System.out.println("===>>> name '" + name + "' = " + value + " <<<===");
-                                continue;
-                            }
-                            catch( Exception e ) {  // correct value missing
-                                System.out.println( "===>>> name '" + name + "' has no correct value <<<===" );
-                                result.add(new SimpleData(port.getName(), now, BufferState.FAULTED));
-                           }
-                        }
-                    }
-                    if( !found ) {          // The desired name is not included or value is not readable
-                        System.out.println( "===>>> name '" + name + "' not included <<<===" );
-                        result.add(new SimpleData(port.getName(), now, BufferState.FAULTED));
-                    }
+                else {                      // No fresh value is available, the value is invalid or the name is not included
+                    result.add(new SimpleData(ports[i].getName(), now, BufferState.FAULTED));
                 }
             }
         }
-        if( intervalCount > interval ) { intervalCount = 0; }
-        else { intervalCount++; }
-
         return result;
     }
 
@@ -0,0 +1,347 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.pacificControl;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A streaming reader of the point list sent by the G2021.
+ * <pre>
+ * { "list" : [
+ *      { "name" : "AI22", "type" : 3, "unit" : "3", "valid" : true, "value" : 21.5 },
+ *      ...
+ * ] }
+ * </pre>
+ * The document is not parsed into a tree. The reader walks through the characters once, and only the points
+ * with a configured name are looked up in the index of the ports. The values of all the other points are skipped,
+ * without creating any objects for them.
+ * <p>
+ * This class is not thread-safe.
+ */
+class PointListReader {
+
+    /** The size of the character buffer */
+    private final static int BUFFER_SIZE = 8192;
+
+    /** The source of the characters */
+    private Reader in;
+
+    /** The character buffer */
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    /** Reused buffers for the keys, names and values */
+    private final StringBuilder key;
+    private final StringBuilder name;
+    private final StringBuilder number;
+
+    /** Initialization. */
+    PointListReader() {
+
+        buffer = new char[BUFFER_SIZE];
+        key = new StringBuilder();
+        name = new StringBuilder();
+        number = new StringBuilder();
+    }
+
+    /**
+     * Reads a point list. Every port not included in the point list is faulted.
+     *
+     * @param in     the source of the point list
+     * @param index  the index of every port name
+     * @param values the values of the ports
+     * @param states the states of the ports
+     *
+     * @throws IOException if the point list is not readable or not a valid JSON document
+     */
+    void read(Reader in, Map<String,Integer> index, double[] values, BufferState[] states) throws IOException {
+
+        this.in = in;
+        position = 0;
+        limit = 0;
+
+        Arrays.fill(states, BufferState.FAULTED);
+
+        try {
+            expect(next(), '{');
+            int c = next();
+            if (c == '}') return;
+
+            while (true) {
+                expect(c, '"');
+                readString(key);
+                expect(next(), ':');
+
+                c = next();
+                if ("list".contentEquals(key) && c == '[') readList(index, values, states);
+                else skipValue(c);
+
+                c = next();
+                if (c == '}') return;
+                expect(c, ',');
+                c = next();
+            }
+        }
+        finally {
+            this.in = null;
+        }
+    }
+
+    /**
+     * Reads the array of points. The opening bracket is read already.
+     *
+     * @param index  the index of every port name
+     * @param values the values of the ports
+     * @param states the states of the ports
+     *
+     * @throws IOException if the point list is not readable or not a valid JSON document
+     */
+    private void readList(Map<String,Integer> index, double[] values, BufferState[] states) throws IOException {
+
+        int c = next();
+        if (c == ']') return;
+
+        while (true) {
+            if (c == '{') readPoint(index, values, states);
+            else skipValue(c);
+
+            c = next();
+            if (c == ']') return;
+            expect(c, ',');
+            c = next();
+        }
+    }
+
+    /**
+     * Reads a point. The opening brace is read already.
+     *
+     * @param index  the index of every port name
+     * @param values the values of the ports
+     * @param states the states of the ports
+     *
+     * @throws IOException if the point list is not readable or not a valid JSON document
+     */
+    private void readPoint(Map<String,Integer> index, double[] values, BufferState[] states) throws IOException {
+
+        boolean named = false;
+        boolean valid = true;
+        boolean numeric = false;
+
+        int c = next();
+        if (c == '}') return;
+
+        while (true) {
+            expect(c, '"');
+            readString(key);
+            expect(next(), ':');
+
+            c = next();
+            if (c == '"' && "name".contentEquals(key)) {
+                readString(name);
+                named = true;
+            }
+            else if (c == 'f' && "valid".contentEquals(key)) {
+                skipValue(c);
+                valid = false;
+            }
+            else if ((c == '-' || (c >= '0' && c <= '9')) && "value".contentEquals(key)) {
+                readNumber(c);
+                numeric = true;
+            }
+            else {
+                skipValue(c);
+            }
+
+            c = next();
+            if (c == '}') break;
+            expect(c, ',');
+            c = next();
+        }
+
+        if (!named) return;
+
+        Integer port = index.get(name.toString());
+        if (port == null) return;
+
+        if (valid && numeric) {
+            try {
+                values[port] = Double.parseDouble(number.toString());
+                states[port] = BufferState.READY;
+            }
+            catch (NumberFormatException e) {
+                states[port] = BufferState.FAULTED;
+            }
+        }
+        else {
+            states[port] = BufferState.FAULTED;
+        }
+    }
+
+    /**
+     * Returns the next character without skipping whitespace.
+     *
+     * @return the character or -1 at the end of the input
+     *
+     * @throws IOException if the input is not readable
+     */
+    private int read() throws IOException {
+
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+
+        return buffer[position++];
+    }
+
+    /**
+     * Returns the next character, which is not whitespace.
+     *
+     * @return the character
+     *
+     * @throws IOException if the input is not readable or at its end
+     */
+    private int next() throws IOException {
+
+        int c;
+        do { c = read(); } while (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+
+        if (c < 0) throw new IOException("unexpected end of the point list");
+        return c;
+    }
+
+    /**
+     * Checks a character.
+     *
+     * @param c        the character read
+     * @param expected the expected character
+     *
+     * @throws IOException if the character is not the expected one
+     */
+    private static void expect(int c, char expected) throws IOException {
+
+        if (c != expected) throw new IOException("'" + expected + "' expected in the point list, but found '" + (char)c + "'");
+    }
+
+    /**
+     * Reads a string. The opening quote is read already.
+     *
+     * @param result the buffer receiving the contents of the string
+     *
+     * @throws IOException if the input is not readable or the string is invalid
+     */
+    private void readString(StringBuilder result) throws IOException {
+
+        result.setLength(0);
+
+        while (true) {
+            int c = read();
+            if (c < 0) throw new IOException("unterminated string in the point list");
+            if (c == '"') return;
+
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'b': result.append('\b'); break;
+                    case 'f': result.append('\f'); break;
+                    case 'n': result.append('\n'); break;
+                    case 'r': result.append('\r'); break;
+                    case 't': result.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) throw new IOException("invalid escape sequence in the point list");
+                            code = (code << 4) | digit;
+                        }
+                        result.append((char)code);
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/': result.append((char)c); break;
+                    default: throw new IOException("invalid escape sequence in the point list");
+                }
+            }
+            else {
+                result.append((char)c);
+            }
+        }
+    }
+
+    /**
+     * Reads a number into the number buffer.
+     *
+     * @param first the first character of the number
+     *
+     * @throws IOException if the input is not readable
+     */
+    private void readNumber(int first) throws IOException {
+
+        number.setLength(0);
+        number.append((char)first);
+
+        while (true) {
+            int c = read();
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                number.append((char)c);
+            }
+            else {
+                if (c >= 0) position--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skips a value.
+     *
+     * @param first the first character of the value
+     *
+     * @throws IOException if the input is not readable or the value is invalid
+     */
+    private void skipValue(int first) throws IOException {
+
+        switch (first) {
+            case '"':
+                while (true) {
+                    int c = read();
+                    if (c < 0) throw new IOException("unterminated string in the point list");
+                    if (c == '"') return;
+                    if (c == '\\') read();
+                }
+
+            case '{':
+            case '[':
+                int depth = 1;
+                while (depth > 0) {
+                    int c = next();
+                    if (c == '{' || c == '[') depth++;
+                    else if (c == '}' || c == ']') depth--;
+                    else if (c == '"') skipValue(c);
+                }
+                return;
+
+            default:
+                if (first != '-' && (first < '0' || first > '9') && first != 't' && first != 'f' && first != 'n') {
+                    throw new IOException("unexpected character '" + (char)first + "' in the point list");
+                }
+                // Skipping the characters of a number or a literal
+                while (true) {
+                    int c = read();
+                    if (c < 0) return;
+                    if (!Character.isLetterOrDigit(c) && c != '.' && c != '+' && c != '-') {
+                        position--;
+                        return;
+                    }
+                }
+        }
+    }
+}
@@ -2,12 +2,8 @@ package at.ac.tuwien.infosys.g2021.daemon.drivers.pacificControl;
 
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
 import at.ac.tuwien.infosys.g2021.daemon.drivers.PortCfg;
-import at.ac.tuwien.infosys.g2021.daemon.drivers.raspberrypii2cdemo.RaspberryPiI2CDemoHardwareDriverImplementation;
 import com.eclipsesource.json.JsonObject;
-import com.pi4j.io.i2c.I2CBus;
-import com.pi4j.io.i2c.I2CDevice;
 
-import java.io.IOException;
 import java.util.logging.Logger;
 
 /**
@@ -0,0 +1,70 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.raspberrypii2cdemo;
+
+import java.io.IOException;
+
+/**
+ * The access to the devices on an I2C bus. The devices are addressed by their bus address. An implementation may open
+ * the bus lazily on the first access, and it must open it again on the next access, after an <tt>IOException</tt> was
+ * thrown.
+ * <p>
+ * Implementations need not be thread-safe. The driver uses the bus holding its lock.
+ */
+interface I2CBusAccess {
+
+    /**
+     * Opens the bus, if it isn't open yet.
+     *
+     * @throws IOException if the bus is not available
+     */
+    public void open() throws IOException;
+
+    /**
+     * Reads a single byte from a device.
+     *
+     * @param address the bus address of the device
+     *
+     * @return the byte read
+     *
+     * @throws IOException if the device is not readable
+     */
+    public int read(int address) throws IOException;
+
+    /**
+     * Reads a block of bytes from a device.
+     *
+     * @param address the bus address of the device
+     * @param buffer  the buffer receiving the bytes
+     * @param offset  the position of the first byte in the buffer
+     * @param size    the number of bytes to read
+     *
+     * @return the number of bytes read
+     *
+     * @throws IOException if the device is not readable
+     */
+    public int read(int address, byte[] buffer, int offset, int size) throws IOException;
+
+    /**
+     * Writes a single byte to a device.
+     *
+     * @param address the bus address of the device
+     * @param data    the byte to write
+     *
+     * @throws IOException if the device is not writable
+     */
+    public void write(int address, byte data) throws IOException;
+
+    /**
+     * Writes a block of bytes to a device.
+     *
+     * @param address the bus address of the device
+     * @param buffer  the buffer holding the bytes
+     * @param offset  the position of the first byte in the buffer
+     * @param size    the number of bytes to write
+     *
+     * @throws IOException if the device is not writable
+     */
+    public void write(int address, byte[] buffer, int offset, int size) throws IOException;
+
+    /** Closes the bus. It is opened again on the next access. */
+    public void close();
+}
@@ -0,0 +1,183 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.raspberrypii2cdemo;
+
+import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CDevice;
+import com.pi4j.io.i2c.I2CFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * The access to an I2C bus of the Raspberry Pi using Pi4J. Opening the bus is expensive, so the bus and the handles of
+ * its devices are opened once and kept. They are closed after an <tt>IOException</tt> only, and the next access
+ * connects to the bus again.
+ */
+class Pi4jI2CBusAccess implements I2CBusAccess {
+
+    /** The logger */
+    private final static Logger logger = Loggers.getLogger(RaspberryPiI2CDemoHardwareDriverImplementation.class);
+
+    /** The number of the bus */
+    private final int busNumber;
+
+    /** The bus, if it is open */
+    private I2CBus bus;
+
+    /** The devices opened on this bus */
+    private final Map<Integer, I2CDevice> devices;
+
+    /**
+     * Initialization.
+     *
+     * @param busNumber the number of the bus
+     */
+    Pi4jI2CBusAccess(int busNumber) {
+
+        this.busNumber = busNumber;
+        this.bus = null;
+        this.devices = new HashMap<>();
+    }
+
+    /**
+     * Opens the bus, if it isn't open yet.
+     *
+     * @throws IOException if the bus is not available
+     */
+    @Override
+    public void open() throws IOException {
+
+        if (bus == null) {
+            bus = I2CFactory.getInstance(busNumber);
+            logger.fine("The I2C bus " + busNumber + " is opened.");
+        }
+    }
+
+    /**
+     * Returns the handle of a device.
+     *
+     * @param address the bus address of the device
+     *
+     * @return the device
+     *
+     * @throws IOException if the bus is not available
+     */
+    private I2CDevice device(int address) throws IOException {
+
+        I2CDevice device = devices.get(address);
+
+        if (device == null) {
+            open();
+            device = bus.getDevice(address);
+            devices.put(address, device);
+        }
+
+        return device;
+    }
+
+    /**
+     * Reads a single byte from a device.
+     *
+     * @param address the bus address of the device
+     *
+     * @return the byte read
+     *
+     * @throws IOException if the device is not readable
+     */
+    @Override
+    public int read(int address) throws IOException {
+
+        try {
+            return device(address).read();
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a block of bytes from a device.
+     *
+     * @param address the bus address of the device
+     * @param buffer  the buffer receiving the bytes
+     * @param offset  the position of the first byte in the buffer
+     * @param size    the number of bytes to read
+     *
+     * @return the number of bytes read
+     *
+     * @throws IOException if the device is not readable
+     */
+    @Override
+    public int read(int address, byte[] buffer, int offset, int size) throws IOException {
+
+        try {
+            return device(address).read(buffer, offset, size);
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a single byte to a device.
+     *
+     * @param address the bus address of the device
+     * @param data    the byte to write
+     *
+     * @throws IOException if the device is not writable
+     */
+    @Override
+    public void write(int address, byte data) throws IOException {
+
+        try {
+            device(address).write(data);
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a block of bytes to a device.
+     *
+     * @param address the bus address of the device
+     * @param buffer  the buffer holding the bytes
+     * @param offset  the position of the first byte in the buffer
+     * @param size    the number of bytes to write
+     *
+     * @throws IOException if the device is not writable
+     */
+    @Override
+    public void write(int address, byte[] buffer, int offset, int size) throws IOException {
+
+        try {
+            device(address).write(buffer, offset, size);
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** Closes the bus. It is opened again on the next access. */
+    @Override
+    public void close() {
+
+        devices.clear();
+
+        if (bus != null) {
+            try {
+                bus.close();
+            }
+            catch (IOException e) {
+                logger.fine("The I2C bus " + busNumber + " cannot be closed: " + e.getMessage());
+            }
+            bus = null;
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package at.ac.tuwien.infosys.g2021.daemon.drivers.raspberrypii2cdemo;
 
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import at.ac.tuwien.infosys.g2021.daemon.drivers.Calibration;
 import at.ac.tuwien.infosys.g2021.daemon.drivers.PortCfg;
 import com.eclipsesource.json.JsonObject;
-import com.pi4j.io.i2c.I2CBus;
-import com.pi4j.io.i2c.I2CDevice;
 
 import java.io.IOException;
 import java.util.logging.Logger;
@@ -25,7 +24,8 @@ import java.util.logging.Logger;
  *              "<font color="blue">i2cMuxAddr</font>" : "<i>0x70</i>",
  *              "<font color="blue">i2cMuxCmd</font>"  : "<i>0x04</i>",
  *              "<font color="blue">i2cAddr</font>"    : "<i>0x51</i>",
- *              "<font color="blue">bitWeight</font>"  : "<i>16,32,64,128,0,0,0,0,0,0,0,0,1,2,4,8</i>" },
+ *              "<font color="blue">bitWeight</font>"  : "<i>16,32,64,128,0,0,0,0,0,0,0,0,1,2,4,8</i>",
+ *              "<font color="blue">lookupTable</font>" : "<i>true</i>" },
  *      ...
  *      }
  * ] }
@@ -47,6 +47,9 @@ import java.util.logging.Logger;
  *              This config is mandatory.</li>
  * <li><tt><font color="blue">bitWeight</font></tt>: A list of weights. The number of entries defines the number of Bytes read from the sensor device.
  *              This config is optional - the default is: "<tt>1, 2, 4, 8, 16, 32, 64, 128</tt>"</li>
+ * <li><tt><font color="blue">lookupTable</font></tt>: <tt>true</tt> means, the corrected values of all the possible sensor
+ *              values are calculated in advance and stored in a table. This is possible, if all the bit weights are
+ *              non-negative integers and their sum is less than 65536. This config is optional - the default is <tt>false</tt>.</li>
  * </ul>
  */
 public class PortRpiI2c extends PortCfg {
@@ -64,7 +67,7 @@ public class PortRpiI2c extends PortCfg {
     private double d[] = new double[] { 1.0, 2.0, 4.0, 8.0, 16.0, 23.0, 64.0, 128.0 };
 
 
-    PortRpiI2c(JsonObject jsonObj, I2CBus i2cBus) {
+    PortRpiI2c(JsonObject jsonObj, I2CBusAccess i2cBus) {
         super( jsonObj );
         prepare( i2cBus );
     }
@@ -74,7 +77,7 @@ public class PortRpiI2c extends PortCfg {
      *
      * @param i2cBus The I2C bus on which the I2C device resides.
      */
-    void prepare( I2CBus i2cBus ) {
+    void prepare( I2CBusAccess i2cBus ) {
 
         // Calculate the number of bytes to read from the I2C chip.
         // It is assumed, the parameter bitWeight consists of n times 8 elements - n >= 1
@@ -93,7 +96,7 @@ public class PortRpiI2c extends PortCfg {
         if (muxAddr != null && muxAddr.length() > 0 && muxCmd != null && muxCmd.length() > 0) {
             for (int i = 1; i < imax + 1 && !muxDefined; i++) {
                 try {
-                    i2cBus.getDevice(Integer.decode(muxAddr)).write(Byte.decode(muxCmd));
+                    i2cBus.write(Integer.decode(muxAddr), Byte.decode(muxCmd));
                     muxDefined = true;
                     logger.info("Port " + name + ": The muxDevice " + muxAddr + " is reachable.");
                 } catch (IOException ioe) {
@@ -115,8 +118,7 @@ public class PortRpiI2c extends PortCfg {
             for (int i = 1; i < imax + 1 && !addrDefined; i++) {
                 String addr = (String) hwCfg.get("i2cAddr");
                 try {
-                    I2CDevice device = i2cBus.getDevice(Integer.decode(addr));
-                    device.read();
+                    i2cBus.read(Integer.decode(addr));
                     addrDefined = true;
                     logger.fine("Port " + name + ": The device " + addr + " is reachable.");
                     break;
@@ -132,6 +134,18 @@ public class PortRpiI2c extends PortCfg {
         }
         // prepare postprocessing of the value
         doPrepare();
+
+        // The weighted bits of an ADC are integers in a small range, so the corrected values can be stored in a table.
+        if ("true".equals(hwCfg.get("lookupTable"))) {
+            double max = 0.0;
+            boolean integral = true;
+            for (double weight : d) {
+                integral &= weight >= 0.0 && weight == Math.rint(weight);
+                max += weight;
+            }
+            if (integral && max < Calibration.MAX_TABLE_SIZE) setCalibration(getCalibration().withLookupTable((int) max));
+            else logger.config("Port " + name + ": A lookup table is not possible for the bit weights.");
+        }
     }
 
 
@@ -143,7 +157,7 @@ public class PortRpiI2c extends PortCfg {
      * @param i2cBus The I2C bus on which the I2C device resides.
      * @return The Bytes received from the I2C device.
      */
-    byte[] getValue( I2CBus i2cBus ) throws Exception {
+    byte[] getValue( I2CBusAccess i2cBus ) throws Exception {
 
         if( ! addrDefined ) throw new Exception( "Port " + name + ": I2C-address is not defined in config." );
 
@@ -152,7 +166,7 @@ public class PortRpiI2c extends PortCfg {
             String muxAddr = (String) hwCfg.get("i2cMuxAddr");
             String muxCmd = (String) hwCfg.get("i2cMuxCmd");
             try {
-                i2cBus.getDevice(Integer.decode(muxAddr)).write(Byte.decode(muxCmd));
+                i2cBus.write(Integer.decode(muxAddr), Byte.decode(muxCmd));
             }
             catch (IOException e) {
                 throw new Exception( "Port " + name + ": The i2cMux is not reachable." );
@@ -162,7 +176,7 @@ public class PortRpiI2c extends PortCfg {
         double r = 0;
         byte[] buffer = new byte[ lng ];
         int read = -1;
-        try { read = i2cBus.getDevice(Integer.decode((String) hwCfg.get("i2cAddr"))).read(buffer, 0, lng); }
+        try { read = i2cBus.read(getAddress(), buffer, 0, lng); }
         catch (IOException e) {
             throw new Exception("Port " + name + ": The device is not reachable.");
         }
@@ -178,7 +192,7 @@ public class PortRpiI2c extends PortCfg {
      * @param i2cBus The I2C bus on which the I2C device resides.
      * @param value The value that should be set.
      */
-    void setValue( I2CBus i2cBus, Number value ) throws Exception {
+    void setValue( I2CBusAccess i2cBus, Number value ) throws Exception {
 
         // check portClass --> is it a DO?
 
@@ -199,7 +213,7 @@ public class PortRpiI2c extends PortCfg {
         if( value.doubleValue() < 0.5 ) for (int i = 0; i < lng; i++) b[i] &= ~k[i];
         else              for (int i = 0; i < lng; i++) b[i] |=  k[i];
 
-        i2cBus.getDevice(Integer.decode((String) hwCfg.get("i2cAddr"))).write( b, 0, b.length );
+        i2cBus.write( getAddress(), b, 0, b.length );
     }
 
 
@@ -209,6 +223,48 @@ public class PortRpiI2c extends PortCfg {
     int getByteLng() { return lng; }
 
 
+    /** Is the I2C device of this port reachable?
+     * @return <tt>true</tt>, if the I2C device has been found on the bus.
+     */
+    boolean isReachable() { return addrDefined; }
+
+
+    /** Returns the I2C address of the device.
+     * @return the bus address.
+     */
+    int getAddress() { return Integer.decode((String) hwCfg.get("i2cAddr")); }
+
+
+    /** Is the I2C device behind a reachable I2C multiplexer?
+     * @return <tt>true</tt>, if the multiplexer must be set before accessing the device.
+     */
+    boolean hasMultiplexer() { return muxDefined; }
+
+
+    /** Returns the I2C address of the multiplexer. This is valid only, if a multiplexer is defined.
+     * @return the bus address of the multiplexer.
+     */
+    int getMultiplexerAddress() { return Integer.decode((String) hwCfg.get("i2cMuxAddr")); }
+
+
+    /** Returns the command selecting the device at the multiplexer. This is valid only, if a multiplexer is defined.
+     * @return the multiplexer command.
+     */
+    byte getMultiplexerCommand() { return Byte.decode((String) hwCfg.get("i2cMuxCmd")); }
+
+
+    /** Calculates the port value from the bytes received from the I2C device.
+     * The bits are weighted, linearized and corrected by the polynom.
+     * @param buffer The Bytes received from the I2C device. It may be longer than the number of Bytes of this port.
+     * @return The value of the port.
+     */
+    double convert( byte[] buffer ) {
+
+        // Weighting the bits, then the linearisation and the polynom correction y = a0 + a1*r + a2*r^2 + ...
+        return convert(bitWeighter(buffer));
+    }
+
+
     /** The received bits are weighted
      * Use the bit-weight for interpretation of the bits.
      * @param buffer The Bytes received from the I2C device.
@@ -8,7 +8,6 @@ import at.ac.tuwien.infosys.g2021.daemon.PortDescription;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 import com.pi4j.io.i2c.I2CBus;
-import com.pi4j.io.i2c.I2CFactory;
 
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -16,24 +15,92 @@ import java.io.IOException;
 import java.util.*;
 import java.util.logging.Logger;
 
-/** This is a dummy implementation. It guarantees the existence of at least one usable driver on every hardware. */
+/**
+ * This is a dummy implementation. It guarantees the existence of at least one usable driver on every hardware.
+ * <p>
+ * The I2C bus is opened once and kept open, until an I/O error occurs. The ports are grouped by their I2C devices.
+ * A poll reads every device with one block read, which is long enough for all the ports of this device. The devices
+ * are read in the order of their multiplexer settings, and the multiplexer is set only, if the next device needs
+ * another setting.
+ */
 public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareDriverInterface {
 
+    /** An I2C device and the ports read from it. */
+    private final static class Device {
+
+        /** The multiplexer setting or -1, if there is no multiplexer */
+        private final int multiplexerSetting;
+
+        /** The bus address */
+        private final int address;
+
+        /** The ports of this device */
+        private final List<PortRpiI2c> ports;
+
+        /** The number of bytes to read from the device */
+        private int length;
+
+        /**
+         * Initialization.
+         *
+         * @param port the first port of the device
+         */
+        Device(PortRpiI2c port) {
+
+            multiplexerSetting = multiplexerSetting(port);
+            address = port.getAddress();
+            ports = new ArrayList<>();
+            length = 0;
+        }
+
+        /**
+         * Adds a port to this device.
+         *
+         * @param port the port
+         */
+        void add(PortRpiI2c port) {
+
+            ports.add(port);
+            length = Math.max(length, port.getByteLng());
+        }
+    }
+
     /** The logger */
     private final static Logger logger = Loggers.getLogger(RaspberryPiI2CDemoHardwareDriverImplementation.class);
 
     /** An object for thread synchronization */
     private final Object lock;
 
+    /** The I2C bus */
+    private final I2CBusAccess i2cBus;
+
+    /** The name of the configuration file */
+    private final String cfgFileName;
+
     /** All defined and available sensors/actors - ports */
     private HashMap<String,PortRpiI2c> allPorts = new HashMap<String,PortRpiI2c>();
 
-    /** The selection of the adc multiplexer. */
+    /** The I2C devices of the ports in the order of their multiplexer settings */
+    private List<Device> devices = new ArrayList<>();
+
+    /** The selection of the adc multiplexer or -1, if it is unknown. */
     private int currentMultiplexerSetting;
 
     /** Creating the driver instance. */
-    public RaspberryPiI2CDemoHardwareDriverImplementation() {
+    public RaspberryPiI2CDemoHardwareDriverImplementation() { this(new Pi4jI2CBusAccess(I2CBus.BUS_1), "portCfg.json"); }
+
+    /**
+     * Creating the driver instance for a given bus.
+     *
+     * @param i2cBus      the I2C bus
+     * @param cfgFileName the name of the configuration file
+     */
+    RaspberryPiI2CDemoHardwareDriverImplementation(I2CBusAccess i2cBus, String cfgFileName) {
+
         lock = new Object();
+        this.i2cBus = i2cBus;
+        this.cfgFileName = cfgFileName;
+        currentMultiplexerSetting = -1;
     }
 
 
@@ -58,7 +125,7 @@ public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareD
     public boolean isSuitable() {
 
         try {
-            I2CBus i2cBus = I2CFactory.getInstance( I2CBus.BUS_1 );
+            synchronized (lock) { i2cBus.open(); }
             return true;
         }
         catch (Throwable e) {  // This call throws an exception if there is no device.
@@ -98,7 +165,6 @@ public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareD
 
         ArrayList<PortRpiI2c> portCfgs = new ArrayList<PortRpiI2c>();
         JsonObject jsonObj = null;
-        String cfgFileName = "portCfg.json";
 
         // Read data from file.
         try {
@@ -115,7 +181,7 @@ public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareD
 
         // Read the port-configuration from JSON-object
         try {
-            I2CBus i2cBus = I2CFactory.getInstance(I2CBus.BUS_1);
+            i2cBus.open();
             for( JsonValue value : jsonObj.get("portCfg").asArray() ) {
                 PortRpiI2c portCfg = new PortRpiI2c( value.asObject(), i2cBus );
                 if( portCfg.getName() != null ) { portCfgs.add( portCfg ); }
@@ -135,6 +201,21 @@ public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareD
     }
 
 
+    /* *** m u l t i p l e x e r  S e t t i n g ***/
+    /**
+     * Returns the multiplexer setting of a port as one number.
+     *
+     * @param port the port
+     *
+     * @return the multiplexer address and command or -1, if the port has no multiplexer
+     */
+    private static int multiplexerSetting(PortRpiI2c port) {
+
+        if (!port.hasMultiplexer()) return -1;
+        return (port.getMultiplexerAddress() << 8) | (port.getMultiplexerCommand() & 0xff);
+    }
+
+
     /* *** g e t  P o r t s ***/
     /**
      * Returns the available ports and their properties.
@@ -145,9 +226,9 @@ public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareD
 
         // All found and active sensors/actors are collected here.
         Collection<PortDescription> result = new ArrayList<>();
+        Map<Long,Device> found = new HashMap<>();
 
-        try {
-            I2CBus i2cBus = I2CFactory.getInstance(I2CBus.BUS_1);
+        synchronized (lock) {
 
             // Find all defined Actors/Sensors
             for (PortRpiI2c portCfg : getPortCfgs()) {
@@ -158,32 +239,34 @@ public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareD
                 // Check if the sensor/actor is active
                 if (!portCfg.getState()) continue;
 
-                System.out.println(portCfg.dump());
+                logger.fine(portCfg.dump());
 
                 double r = 0;
-                byte[] b = null;
                 try {
-                    b = portCfg.getValue(i2cBus);       // read the bits from the i2c-device/chip
+                    r = portCfg.convert(portCfg.getValue(i2cBus));      // read the bits from the i2c-device/chip
                 } catch (Exception e) {
-                    System.err.println( e.getMessage() );
-                    // e.printStackTrace();
+                    logger.config( e.getMessage() );
                     continue;
                 }
-                r = portCfg.bitWeighter(b);             // Weighting the bits
-                r = portCfg.linearizer(r);              // Now the linearisation - correction of the characteristic
-                r = portCfg.polynominizer(r);           // Polynom correction y = a0 + a1*r + a2*r^2 + ...
-                System.out.println(portCfg.getName() + "=" + r);
+                logger.fine(portCfg.getName() + "=" + r);
 
                 // All tests are successful -> keep this portCfg.
                 allPorts.put(portCfg.getName(), portCfg);
-                result.add(new PortDescription(portCfg.getName(), portCfg.getPortClass(), portCfg.getMetaInfo()));
+                result.add(new PortDescription(portCfg.getName(), portCfg.getPortClass(), portCfg.getMetaInfo(), portCfg.getPollInterval()));
+
+                // Group the ports by their devices
+                long key = ((long) multiplexerSetting(portCfg) << 16) | portCfg.getAddress();
+                found.computeIfAbsent(key, k -> new Device(portCfg)).add(portCfg);
             }
-            logger.config(String.format( "There are %d I\u00B2C ports known.", result.size()) );
-        }
-        catch( IOException ioe ) {
-            logger.config("I2C-Bus not available.");
-            System.exit( -61 );
+
+            devices = new ArrayList<>(found.values());
+            devices.sort(Comparator.comparingInt((Device d) -> d.multiplexerSetting).thenComparingInt(d -> d.address));
+
+            // Reading the ports has changed the multiplexer.
+            currentMultiplexerSetting = -1;
         }
+
+        logger.config(String.format( "There are %d I\u00B2C ports on %d devices known.", result.size(), devices.size()) );
         return result;
     }
 
@@ -195,33 +278,88 @@ public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareD
      * @return the state and value of all available ports
      */
     @Override
-    public Collection<SimpleData> getAll() {
+    public Collection<SimpleData> getAll() { return get(allPorts.keySet()); }
+
+
+    /* *** r e a d ***/
+    /**
+     * Reads the bytes of a device. The multiplexer is set, if the device needs another setting. This method is called
+     * holding the lock.
+     *
+     * @param device the device
+     *
+     * @return the bytes read
+     *
+     * @throws IOException if the device is not readable
+     */
+    private byte[] read(Device device) throws IOException {
+
+        if (device.multiplexerSetting >= 0 && device.multiplexerSetting != currentMultiplexerSetting) {
+            currentMultiplexerSetting = -1;
+            i2cBus.write(device.multiplexerSetting >> 8, (byte) device.multiplexerSetting);
+            currentMultiplexerSetting = device.multiplexerSetting;
+        }
+
+        byte[] buffer = new byte[device.length];
+        int read = i2cBus.read(device.address, buffer, 0, buffer.length);
+
+        return read == buffer.length ? buffer : Arrays.copyOf(buffer, Math.max(read, 0));
+    }
+
+
+    /* *** g e t ***/
+    /**
+     * Returns the states and values of some ports. Only the devices of the requested ports are read from the I2C bus,
+     * every device with one block read.
+     *
+     * @param ports the names of the ports to read
+     *
+     * @return the state and value of the ports
+     */
+    @Override
+    public Collection<SimpleData> get(Collection<String> ports) {
 
         Collection<SimpleData> result = new ArrayList<>();
+        Set<String> requested = new HashSet<>(ports);
+        Map<Device,byte[]> received = new HashMap<>();
         Date now = new Date();
 
         synchronized (lock) {
 
-            try {
-                I2CBus i2cBus = I2CFactory.getInstance(I2CBus.BUS_1);
-                for (PortRpiI2c port : allPorts.values()) {
-                    try {
-                        byte[] b = port.getValue(i2cBus);
-                        double value = port.bitWeighter(b);
-                        value = port.linearizer(value);
-                        value = port.polynominizer(value);
-                        result.add(new SimpleData(port.getName(), now, BufferState.READY, value));
-                        logger.fine( port.getName() + "=" + value);
-                    } catch (Exception e) {
-                        result.add(new SimpleData(port.getName(), now, BufferState.FAULTED));
+            for (Device device : devices) {
+                for (PortRpiI2c port : device.ports) {
+                    if (requested.contains(port.getName())) {
+                        try {
+                            received.put(device, read(device));
+                        }
+                        catch (IOException e) {
+                            currentMultiplexerSetting = -1;
+                            logger.fine("The I2C device " + device.address + " is not readable: " + e.getMessage());
+                        }
+                        break;
                     }
                 }
             }
-            catch(IOException ioe) {
-                logger.config("I2CBus not available.");
-                System.exit( -62 );
+        }
+
+        // The values are calculated without holding the lock.
+        for (Device device : devices) {
+
+            byte[] buffer = received.get(device);
+
+            for (PortRpiI2c port : device.ports) {
+                if (!requested.remove(port.getName())) continue;
+                if (buffer == null || buffer.length < port.getByteLng()) {
+                    result.add(new SimpleData(port.getName(), now, BufferState.FAULTED));
+                }
+                else {
+                    double value = port.convert(buffer);
+                    result.add(new SimpleData(port.getName(), now, BufferState.READY, value));
+                    logger.fine( port.getName() + "=" + value);
+                }
             }
         }
+
         return result;
     }
 
@@ -240,14 +378,19 @@ public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareD
     @Override
     public boolean set(String port, Number value) throws UnsupportedOperationException {
 
-
-        try {
-            allPorts.get(port).setValue( I2CFactory.getInstance( I2CBus.BUS_1 ), value);
-            return true;
-        }
-        catch( Exception e ) {
-            logger.config("Error while setting new value: " + e.getMessage());
-            return false;
+        synchronized (lock) {
+            try {
+                allPorts.get(port).setValue(i2cBus, value);
+                return true;
+            }
+            catch( Exception e ) {
+                logger.config("Error while setting new value: " + e.getMessage());
+                return false;
+            }
+            finally {
+                // Setting the port may have changed the multiplexer.
+                currentMultiplexerSetting = -1;
+            }
         }
     }
 
@@ -261,5 +404,8 @@ public class RaspberryPiI2CDemoHardwareDriverImplementation implements HardwareD
     /* *** r e l e a s e ***/
     /** This method is called immediately after a shutdown, immediately before the process is stopped. */
     @Override
-    public void release() {}
-}
\ No newline at end of file
+    public void release() {
+
+        synchronized (lock) { i2cBus.close(); }
+    }
+}
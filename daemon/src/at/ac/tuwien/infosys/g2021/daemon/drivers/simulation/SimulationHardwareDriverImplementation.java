@@ -0,0 +1,495 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.simulation;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import at.ac.tuwien.infosys.g2021.common.util.Loggers;
+import at.ac.tuwien.infosys.g2021.daemon.HardwareDriverInterface;
+import at.ac.tuwien.infosys.g2021.daemon.PortClass;
+import at.ac.tuwien.infosys.g2021.daemon.PortDescription;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * This driver simulates a large number of ports for load tests. It is used, if the system property
+ * "at.ac.tuwien.infosys.g2021.simulation" contains the name of a simulation file.
+ * <pre>
+ * { "simulation" : [
+ *    { "name" : "S", "count" : 50000, "portClass" : 3, "waveform" : "sine",
+ *      "changeRate" : 1.0, "pollInterval" : 1000, "amplitude" : 10.0, "offset" : 0.0, "period" : 60000, "seed" : 1 },
+ *    ...
+ * ] }
+ * </pre>
+ * Every entry defines a group of ports. The ports are named by the <tt>name</tt> of the group followed by their
+ * number, e.g. <tt>S0</tt> .. <tt>S49999</tt>. Up to {@link #MAX_PORTS} ports can be simulated.
+ * <ul>
+ * <li><tt>name</tt>: The prefix of the port names. This config is mandatory.</li>
+ * <li><tt>count</tt>: The number of ports. This config is mandatory.</li>
+ * <li><tt>portClass</tt>: The type of the ports <tt>1=DI 2=DO 3=AI 4=AO</tt>. The default is <tt>3</tt>. Digital
+ *              inputs are <tt>1</tt>, if the waveform is above the offset. Outputs keep the value set last.</li>
+ * <li><tt>waveform</tt>: One of <tt>sine</tt>, <tt>randomWalk</tt>, <tt>step</tt> or <tt>burst</tt>. The default
+ *              is <tt>sine</tt>.</li>
+ * <li><tt>changeRate</tt>: The number of value changes per second of every port. The default is <tt>1.0</tt>.</li>
+ * <li><tt>pollInterval</tt>: The poll interval of the ports in milliseconds. The default is 1000 ms.</li>
+ * <li><tt>amplitude</tt>, <tt>offset</tt>: The range of the values is <tt>offset - amplitude</tt> ..
+ *              <tt>offset + amplitude</tt>. The defaults are <tt>1.0</tt> and <tt>0.0</tt>.</li>
+ * <li><tt>period</tt>: The period of a sine wave in milliseconds. The default is 60000 ms.</li>
+ * <li><tt>seed</tt>: The seed of the random numbers. The default is <tt>0</tt>.</li>
+ * </ul>
+ * The values are calculated, when they are read. The time is divided into ticks of the length
+ * <tt>1 / changeRate</tt>, and every port has a random phase, so the ports of a group don't change at the same time.
+ * The random numbers are calculated by hashing the seed, the port number and the tick, so no random number generator
+ * is stored per port and the values of the stateless waveforms only depend on the time. Only a random walk keeps its
+ * last value.
+ */
+public class SimulationHardwareDriverImplementation implements HardwareDriverInterface {
+
+    /** The maximum number of simulated ports. */
+    public final static int MAX_PORTS = 100000;
+
+    /** The number of ticks of a burst window. */
+    final static int BURST_LENGTH = 10;
+
+    /** The probability of a burst window to contain a burst. */
+    final static double BURST_PROBABILITY = 0.1;
+
+    /** The step of a random walk per tick as fraction of the amplitude. */
+    final static double WALK_STEP = 0.1;
+
+    /** The logger */
+    private final static Logger logger = Loggers.getLogger(SimulationHardwareDriverImplementation.class);
+
+    /** A group of simulated ports with the same properties. */
+    private final static class Group {
+
+        // The name and the number of ports
+        private String name;
+        private int count;
+
+        // The port class, the waveform and the poll interval
+        private PortClass portClass;
+        private Waveform waveform;
+        private long pollInterval;
+
+        // The length of a tick in milliseconds
+        private double tickLength;
+
+        // The range of the values
+        private double amplitude;
+        private double offset;
+
+        // The period of a sine wave in ticks
+        private double ticksPerPeriod;
+
+        // The seed of the random numbers
+        private long seed;
+
+        // The meta information of the ports
+        private Map<String, String> metainfo;
+    }
+
+    /** An object for thread synchronization */
+    private final Object lock;
+
+    /** The name of the simulation file or <tt>null</tt>, if it is taken from the system property */
+    private final String fileName;
+
+    /** The groups of ports */
+    private Group[] groups;
+
+    /** The name of every port */
+    private String[] names;
+
+    /** The group of every port */
+    private Group[] groupOf;
+
+    /** The random phase of every port in milliseconds */
+    private double[] phases;
+
+    /** The last value of every random walk and every output */
+    private double[] values;
+
+    /** The last tick of every random walk */
+    private long[] ticks;
+
+    /** The number of every port name */
+    private Map<String, Integer> index;
+
+    /** Creating the driver instance. */
+    public SimulationHardwareDriverImplementation() { this(null); }
+
+    /**
+     * Creating the driver instance with a given simulation file.
+     *
+     * @param fileName the name of the simulation file
+     */
+    SimulationHardwareDriverImplementation(String fileName) {
+
+        lock = new Object();
+        this.fileName = fileName;
+        groups = null;
+    }
+
+    /**
+     * Returns the name of the driver for logging purposes.
+     *
+     * @return the name of the driver
+     */
+    @Override
+    public String getName() { return "Simulation driver"; }
+
+    /**
+     * Is this a suitable hardware driver and can this driver work with the current hardware?
+     * <p>
+     * This method is used to select the current hardware driver of the daemon. It must not throw an exception
+     * in any case! If this methods return <tt>false</tt>, no other methods of this driver are called.
+     * <p>
+     * This driver is used, if the system property "at.ac.tuwien.infosys.g2021.simulation" contains the name of a
+     * valid simulation file.
+     *
+     * @return <tt>true</tt>, if this is a suitable driver
+     */
+    @Override
+    public boolean isSuitable() {
+
+        String name = fileName != null ? fileName : System.getProperty("at.ac.tuwien.infosys.g2021.simulation");
+        if (name == null || name.isEmpty()) return false;
+
+        try (Reader reader = new FileReader(name)) {
+            configure(JsonObject.readFrom(reader));
+            return true;
+        }
+        catch (IOException | RuntimeException e) {
+            logger.config("The simulation file '" + name + "' is not usable: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Is this hardware driver is the best choice for this hardware? If this method returns <tt>false</tt> and another
+     * driver is also suitable, the other driver will be used.
+     *
+     * @return <tt>true</tt>, if this driver is the best choice
+     */
+    @Override
+    public boolean isBestChoice() { return true; }
+
+    /**
+     * Reads a number from a JSON object.
+     *
+     * @param object       the JSON object
+     * @param name         the name of the number
+     * @param defaultValue the value used, if the number is missing
+     *
+     * @return the number
+     */
+    private static double number(JsonObject object, String name, double defaultValue) {
+
+        JsonValue value = object.get(name);
+        return value == null ? defaultValue : value.asDouble();
+    }
+
+    /**
+     * Creates the ports of a simulation.
+     *
+     * @param simulation the simulation
+     *
+     * @throws IllegalArgumentException if the simulation is invalid
+     * @throws UnsupportedOperationException if a value of the simulation has the wrong type
+     */
+    void configure(JsonObject simulation) throws IllegalArgumentException, UnsupportedOperationException {
+
+        List<Group> result = new ArrayList<>();
+        Map<String, Integer> ports = new HashMap<>();
+        int total = 0;
+
+        JsonValue entries = simulation.get("simulation");
+        if (entries == null) throw new IllegalArgumentException("no simulation defined");
+
+        for (JsonValue entry : entries.asArray()) {
+
+            JsonObject object = entry.asObject();
+            Group group = new Group();
+
+            JsonValue name = object.get("name");
+            if (name == null) throw new IllegalArgumentException("a group of ports has no name");
+            group.name = name.asString();
+
+            group.count = (int)number(object, "count", 0.0);
+            if (group.count <= 0) throw new IllegalArgumentException("the port count of '" + group.name + "' is not positive");
+            total += group.count;
+            if (total > MAX_PORTS) throw new IllegalArgumentException("more than " + MAX_PORTS + " ports defined");
+
+            int portClass = (int)number(object, "portClass", 3.0);
+            if (portClass < 1 || portClass > 4) throw new IllegalArgumentException("invalid port class " + portClass);
+            group.portClass = PortClass.get(portClass);
+
+            JsonValue waveform = object.get("waveform");
+            group.waveform = waveform == null ? Waveform.SINE : Waveform.forName(waveform.asString());
+
+            double changeRate = number(object, "changeRate", 1.0);
+            if (!(changeRate > 0.0)) throw new IllegalArgumentException("the change rate of '" + group.name + "' is not positive");
+            group.tickLength = 1000.0 / changeRate;
+
+            group.pollInterval = (long)number(object, "pollInterval", PortDescription.DEFAULT_POLL_INTERVAL);
+            if (group.pollInterval <= 0L) throw new IllegalArgumentException("the poll interval of '" + group.name + "' is not positive");
+
+            group.amplitude = number(object, "amplitude", 1.0);
+            group.offset = number(object, "offset", 0.0);
+
+            double period = number(object, "period", 60000.0);
+            if (!(period > 0.0)) throw new IllegalArgumentException("the period of '" + group.name + "' is not positive");
+            group.ticksPerPeriod = period / group.tickLength;
+
+            group.seed = (long)number(object, "seed", 0.0);
+
+            group.metainfo = new HashMap<>();
+            group.metainfo.put("type", PortClass.toString(group.portClass));
+            group.metainfo.put("waveform", group.waveform.getName());
+            group.metainfo.put("description", "simulated port of group " + group.name);
+
+            for (int i = 0; i < group.count; i++) {
+                if (ports.put(group.name + i, ports.size()) != null) {
+                    throw new IllegalArgumentException("the port name '" + group.name + i + "' is not unique");
+                }
+            }
+
+            result.add(group);
+        }
+
+        // Now the ports are created.
+        synchronized (lock) {
+
+            groups = result.toArray(new Group[result.size()]);
+            names = new String[total];
+            groupOf = new Group[total];
+            phases = new double[total];
+            values = new double[total];
+            ticks = new long[total];
+            index = ports;
+
+            int port = 0;
+            for (Group group : groups) {
+                for (int i = 0; i < group.count; i++, port++) {
+                    names[port] = group.name + i;
+                    groupOf[port] = group;
+                    phases[port] = random(group.seed, port, -1L) * group.tickLength;
+                    values[port] = group.offset;
+                    ticks[port] = Long.MIN_VALUE;
+                }
+            }
+        }
+    }
+
+    /** This method is called, after creating all necessary instances. */
+    @Override
+    public void initialize() {}
+
+    /**
+     * Returns the available ports and their properties.
+     *
+     * @return the port properties
+     */
+    @Override
+    public Collection<PortDescription> getPorts() {
+
+        Collection<PortDescription> result = new ArrayList<>();
+
+        synchronized (lock) {
+            for (int port = 0; port < names.length; port++) {
+                Group group = groupOf[port];
+                result.add(new PortDescription(names[port], group.portClass, group.metainfo, group.pollInterval));
+            }
+        }
+
+        logger.config(String.format("There are %d simulated ports in %d groups.", result.size(), groups.length));
+        return result;
+    }
+
+    /**
+     * Returns the states and values of all available ports.
+     *
+     * @return the state and value of all available ports
+     */
+    @Override
+    public Collection<SimpleData> getAll() {
+
+        long now = System.currentTimeMillis();
+
+        synchronized (lock) {
+            Collection<SimpleData> result = new ArrayList<>(names.length);
+            for (int port = 0; port < names.length; port++) result.add(value(port, now));
+            return result;
+        }
+    }
+
+    /**
+     * Returns the states and values of some ports. Only the requested ports are calculated.
+     *
+     * @param ports the names of the ports to read
+     *
+     * @return the state and value of the ports
+     */
+    @Override
+    public Collection<SimpleData> get(Collection<String> ports) {
+
+        long now = System.currentTimeMillis();
+
+        synchronized (lock) {
+            Collection<SimpleData> result = new ArrayList<>(ports.size());
+            for (String name : ports) {
+                Integer port = index.get(name);
+                if (port != null) result.add(value(port, now));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns a uniformly distributed random number. It is calculated by hashing its arguments with the finalizer of
+     * SplitMix64, so the same arguments return the same number.
+     *
+     * @param seed the seed
+     * @param port the port number
+     * @param tick the tick
+     *
+     * @return the random number in the range [0, 1)
+     */
+    static double random(long seed, int port, long tick) {
+
+        long z = seed * 0x9e3779b97f4a7c15L + port;
+        z = z * 0x9e3779b97f4a7c15L + tick;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Calculates the value of a port. This method is called holding the lock.
+     *
+     * @param port the port number
+     * @param time the time in milliseconds
+     *
+     * @return the state and value of the port
+     */
+    SimpleData value(int port, long time) {
+
+        Group group = groupOf[port];
+
+        if (group.portClass.isActor()) return new SimpleData(names[port], time, BufferState.READY, values[port]);
+
+        long tick = (long)Math.floor((time + phases[port]) / group.tickLength);
+        double value;
+
+        switch (group.waveform) {
+            case SINE:
+                value = group.offset + group.amplitude * Math.sin(2.0 * Math.PI * (tick / group.ticksPerPeriod + random(group.seed, port, -2L)));
+                break;
+
+            case STEP:
+                value = (tick & 1L) == 0L ? group.offset - group.amplitude : group.offset + group.amplitude;
+                break;
+
+            case BURST:
+                if (random(group.seed, port, -3L - Math.floorDiv(tick, BURST_LENGTH)) < BURST_PROBABILITY) {
+                    value = group.offset + group.amplitude * (2.0 * random(group.seed, port, tick) - 1.0);
+                }
+                else {
+                    value = group.offset;
+                }
+                break;
+
+            default:
+                value = walk(port, group, tick);
+        }
+
+        if (group.portClass == PortClass.DIGITAL_INPUT) {
+            return new SimpleData(names[port], time, BufferState.READY, value > group.offset ? 1 : 0);
+        }
+        else {
+            return new SimpleData(names[port], time, BufferState.READY, value);
+        }
+    }
+
+    /**
+     * Continues a random walk up to a tick. The steps of the skipped ticks are combined into a single step, which has
+     * the same variance. The walk is reflected at the limits of the value range.
+     *
+     * @param port  the port number
+     * @param group the group of the port
+     * @param tick  the current tick
+     *
+     * @return the value of the random walk
+     */
+    private double walk(int port, Group group, long tick) {
+
+        long last = ticks[port];
+
+        if (last == Long.MIN_VALUE) {
+            ticks[port] = tick;
+        }
+        else if (tick > last) {
+
+            double step = WALK_STEP * group.amplitude * Math.sqrt(3.0 * (tick - last));
+            double value = values[port] - group.offset + step * (2.0 * random(group.seed, port, tick) - 1.0);
+            double limit = Math.abs(group.amplitude);
+
+            // Reflecting the walk at the limits
+            if (limit > 0.0) {
+                double width = 4.0 * limit;
+                value = ((value + limit) % width + width) % width;
+                value = (value > 2.0 * limit ? width - value : value) - limit;
+            }
+            else {
+                value = 0.0;
+            }
+
+            values[port] = group.offset + value;
+            ticks[port] = tick;
+        }
+
+        return values[port];
+    }
+
+    /**
+     * Sets the output of an actor.
+     *
+     * @param port  the name of the port
+     * @param value the new output value
+     *
+     * @return <tt>true</tt>, if the port was set correctly
+     *
+     * @throws UnsupportedOperationException if the port is not known or a sensor port
+     */
+    @Override
+    public boolean set(String port, Number value) throws UnsupportedOperationException {
+
+        synchronized (lock) {
+
+            Integer number = index.get(port);
+            if (number == null || !groupOf[number].portClass.isActor()) throw new UnsupportedOperationException("no such actor");
+
+            values[number] = groupOf[number].portClass == PortClass.DIGITAL_OUTPUT ? (Math.round(value.floatValue()) == 0 ? 0.0 : 1.0)
+                                                                                    : value.doubleValue();
+            return true;
+        }
+    }
+
+    /** This method is called, whenever a shutdown sequence is initiated. */
+    @Override
+    public void shutdown() {}
+
+    /** This method is called immediately after a shutdown, immediately before the process is stopped. */
+    @Override
+    public void release() {}
+}
@@ -0,0 +1,52 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.simulation;
+
+/** The waveforms of simulated ports. */
+public enum Waveform {
+
+    /** A sine wave around the offset. */
+    SINE("sine"),
+
+    /** A random walk between offset - amplitude and offset + amplitude. */
+    RANDOM_WALK("randomWalk"),
+
+    /** A square wave switching between offset - amplitude and offset + amplitude at every change. */
+    STEP("step"),
+
+    /** The offset, interrupted by bursts of random values. */
+    BURST("burst");
+
+    // The name used in the configuration
+    private final String name;
+
+    /**
+     * Initialization.
+     *
+     * @param n the name used in the configuration
+     */
+    Waveform(String n) { name = n; }
+
+    /**
+     * Returns the name used in the configuration.
+     *
+     * @return the name
+     */
+    public String getName() { return name; }
+
+    /**
+     * Returns the waveform with a name used in the configuration.
+     *
+     * @param name the name
+     *
+     * @return the waveform
+     *
+     * @throws IllegalArgumentException if there is no waveform with this name
+     */
+    public static Waveform forName(String name) throws IllegalArgumentException {
+
+        for (Waveform waveform : values()) {
+            if (waveform.name.equals(name)) return waveform;
+        }
+
+        throw new IllegalArgumentException("unknown waveform '" + name + "'");
+    }
+}
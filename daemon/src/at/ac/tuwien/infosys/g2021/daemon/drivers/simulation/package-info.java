@@ -0,0 +1,4 @@
+/**
+ * This driver simulates a large number of ports for load tests. It is NOT designed for production environments!
+ */
+package at.ac.tuwien.infosys.g2021.daemon.drivers.simulation;
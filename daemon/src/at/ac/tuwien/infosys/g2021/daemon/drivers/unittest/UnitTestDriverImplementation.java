@@ -3,20 +3,28 @@ package at.ac.tuwien.infosys.g2021.daemon.drivers.unittest;
 import at.ac.tuwien.infosys.g2021.common.BufferState;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.daemon.HardwareDriverInterface;
+import at.ac.tuwien.infosys.g2021.daemon.PortChangeListener;
 import at.ac.tuwien.infosys.g2021.daemon.PortClass;
 import at.ac.tuwien.infosys.g2021.daemon.PortDescription;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
-/** This is a driver implementation used for unit tests. */
+/**
+ * This is a driver implementation used for unit tests. The changes of the digital input "INT" are reported like
+ * interrupts, all the other sensor ports are polled.
+ */
 public class UnitTestDriverImplementation implements HardwareDriverInterface {
 
     // All the port values.
     private Map<String, SimpleData> values;
 
+    // The listener for changes of the digital input "INT"
+    private volatile PortChangeListener listener;
+
     /** Creating the driver instance. */
     public UnitTestDriverImplementation() {
 
@@ -61,10 +69,12 @@ public class UnitTestDriverImplementation implements HardwareDriverInterface {
         values.put("AO", new SimpleData("AO", new Date(), BufferState.READY, 0.0));
         values.put("DI", new SimpleData("DI", new Date(), BufferState.READY, 0));
         values.put("DO", new SimpleData("DO", new Date(), BufferState.READY, 0));
+        values.put("INT", new SimpleData("INT", new Date(), BufferState.READY, 0));
     }
 
     /**
-     * Returns the available ports and their properties.
+     * Returns the available ports and their properties. The digital input "DI" is polled every 100 ms, the changes of
+     * the digital input "INT" are reported, and all the other ports use the default poll interval.
      *
      * @return the port properties
      */
@@ -77,7 +87,12 @@ public class UnitTestDriverImplementation implements HardwareDriverInterface {
 
         metainfo = new HashMap<>();
         metainfo.put("type", "DI");
-        port = new PortDescription("DI", PortClass.DIGITAL_INPUT, metainfo);
+        port = new PortDescription("DI", PortClass.DIGITAL_INPUT, metainfo, 100L);
+        result.add(port);
+
+        metainfo = new HashMap<>();
+        metainfo.put("type", "INT");
+        port = new PortDescription("INT", PortClass.DIGITAL_INPUT, metainfo);
         result.add(port);
 
         metainfo = new HashMap<>();
@@ -106,6 +121,31 @@ public class UnitTestDriverImplementation implements HardwareDriverInterface {
     @Override
     public Collection<SimpleData> getAll() { return values.values(); }
 
+    /**
+     * Registers the listener for port changes. The changes of the digital input "INT" are reported.
+     *
+     * @param listener the listener
+     *
+     * @return the name of the reported digital input
+     */
+    @Override
+    public Collection<String> listen(PortChangeListener listener) {
+
+        this.listener = listener;
+        return Collections.singletonList("INT");
+    }
+
+    /**
+     * Reports the change of a port, if it is the digital input "INT".
+     *
+     * @param port the name of the changed port
+     */
+    private void report(String port) {
+
+        PortChangeListener l = listener;
+        if (l != null && port.equals("INT")) l.portsChanged(Collections.singletonList(values.get(port)));
+    }
+
     /**
      * Sets the output of an actor.
      *
@@ -148,7 +188,7 @@ public class UnitTestDriverImplementation implements HardwareDriverInterface {
     public SimpleData getPortValue(String port) { return values.get(port); }
 
     /** Returns a port value.
-     * @param port One of <tt>AI</tt> or <tt>AO</tt> or <tt>DI</tt> or <tt>DO</tt>.
+     * @param port One of <tt>AI</tt> or <tt>AO</tt> or <tt>DI</tt> or <tt>DO</tt> or <tt>INT</tt>.
      * */
     public void disturbPort(String port) {
 
@@ -157,7 +197,9 @@ public class UnitTestDriverImplementation implements HardwareDriverInterface {
             case "AO":
             case "DI":
             case "DO":
+            case "INT":
                 values.put(port, new SimpleData(port, new Date(), BufferState.FAULTED));
+                report(port);
                 break;
         }
     }
@@ -178,7 +220,9 @@ public class UnitTestDriverImplementation implements HardwareDriverInterface {
 
             case "DI":
             case "DO":
+            case "INT":
                 values.put(port, new SimpleData(port, new Date(), BufferState.READY, Math.round(value.floatValue()) == 0 ? 0 : 1));
+                report(port);
                 break;
         }
     }
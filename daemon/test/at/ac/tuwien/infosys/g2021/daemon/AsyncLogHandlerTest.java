@@ -0,0 +1,117 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the asynchronous log handler. */
+public class AsyncLogHandlerTest {
+
+    // The records written by the target handler and a gate blocking the target handler
+    private List<LogRecord> written;
+    private CountDownLatch gate;
+
+    // The test object
+    private AsyncLogHandler handler;
+
+    /** Setting up the test object. */
+    @Before
+    public void setUp() {
+
+        written = new CopyOnWriteArrayList<>();
+        gate = new CountDownLatch(1);
+
+        handler = new AsyncLogHandler(new Handler() {
+
+            @Override
+            public void publish(LogRecord record) {
+
+                try {
+                    gate.await(5L, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.add(record);
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        }, 2);
+    }
+
+    /** Removing the test object. */
+    @After
+    public void tearDown() {
+
+        gate.countDown();
+        handler.close();
+    }
+
+    /**
+     * Creates a log record about a buffer.
+     *
+     * @param buffer the buffer name
+     * @param i      a sequence number
+     *
+     * @return the log record
+     */
+    private static LogRecord record(String buffer, int i) {
+
+        LogRecord result = new LogRecord(Level.INFO, "The buffer ''{0}'' distributes the new value {1}.");
+        result.setParameters(new Object[] {buffer, i});
+
+        return result;
+    }
+
+    /** The records are written in the order of their publication. */
+    @Test
+    public void testOrder() {
+
+        gate.countDown();
+
+        handler.publish(record("a", 1));
+        handler.publish(record("b", 2));
+        handler.close();
+
+        assertEquals(2, written.size());
+        assertEquals(1, written.get(0).getParameters()[1]);
+        assertEquals(2, written.get(1).getParameters()[1]);
+    }
+
+    /** A blocked target handler doesn't block the logging threads. The dropped records are summarized. */
+    @Test
+    public void testDropping() throws Exception {
+
+        // The writer thread takes the first record and waits.
+        handler.publish(record("a", 0));
+        Thread.sleep(100L);
+
+        long start = System.currentTimeMillis();
+        for (int i = 1; i <= 10; i++) handler.publish(record("a", i));
+        assertTrue(System.currentTimeMillis() - start < 1000L);
+        assertTrue(written.isEmpty());
+
+        gate.countDown();
+        handler.close();
+
+        // The first record, two records of the ring buffer and the summary of 8 dropped records
+        assertEquals(4, written.size());
+        assertEquals(Level.WARNING, written.get(3).getLevel());
+        assertEquals(8L, written.get(3).getParameters()[0]);
+        assertEquals("a", written.get(3).getParameters()[1]);
+    }
+}
@@ -0,0 +1,139 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the conditions watched at a buffer. */
+public class BufferConditionsTest {
+
+    // The test object
+    private BufferConditions conditions;
+
+    // The events received
+    private List<ConditionEvent> events;
+
+    /** Setting up the test object. */
+    @Before
+    public void setUp() {
+
+        conditions = new BufferConditions();
+        events = new ArrayList<>();
+    }
+
+    /**
+     * Creates a buffer value.
+     *
+     * @param value the value
+     *
+     * @return the ready buffer value
+     */
+    private static SimpleData ready(double value) { return new SimpleData("b", System.currentTimeMillis(), BufferState.READY, value); }
+
+    /** A range is entered at its limits and left beyond the hysteresis. */
+    @Test
+    public void testRange() {
+
+        conditions.add(this, 1, Condition.range(10.0, 20.0, 1.0), events::add, ready(5.0));
+        assertEquals(1, events.size());
+        assertFalse(events.get(0).isActive());
+
+        conditions.evaluate(ready(9.0));
+        assertEquals(1, events.size());
+
+        conditions.evaluate(ready(10.0));
+        assertEquals(2, events.size());
+        assertTrue(events.get(1).isActive());
+        assertEquals(10.0, events.get(1).getValue().doubleValue(), 1.0e-10);
+
+        // Jittering within the hysteresis causes no events.
+        for (int i = 0; i < 10; i++) conditions.evaluate(ready(i % 2 == 0 ? 9.5 : 10.5));
+        assertEquals(2, events.size());
+
+        conditions.evaluate(ready(20.9));
+        assertEquals(2, events.size());
+
+        conditions.evaluate(ready(21.1));
+        assertEquals(3, events.size());
+        assertFalse(events.get(2).isActive());
+
+        // Jumping across the whole range causes no event.
+        conditions.evaluate(ready(0.0));
+        assertEquals(3, events.size());
+
+        conditions.evaluate(ready(15.0));
+        assertEquals(4, events.size());
+        assertTrue(events.get(3).isActive());
+    }
+
+    /** Only the conditions with a crossed boundary change, and every condition reports its own id. */
+    @Test
+    public void testManyConditions() {
+
+        for (int i = 0; i < 1000; i++) conditions.add(this, i, Condition.above(i, 0.5), events::add, ready(-1.0));
+        assertEquals(1000, events.size());
+        events.clear();
+
+        conditions.evaluate(ready(99.9));
+        assertEquals(100, events.size());
+        for (ConditionEvent event : events) {
+            assertTrue(event.isActive());
+            assertTrue(event.getId() < 100);
+        }
+        events.clear();
+
+        conditions.evaluate(ready(49.7));
+        assertEquals(49, events.size());
+        for (ConditionEvent event : events) {
+            assertFalse(event.isActive());
+            assertTrue(event.getId() >= 51);
+        }
+        events.clear();
+
+        // Removed conditions are not evaluated any more.
+        for (int i = 0; i < 1000; i += 2) assertTrue(conditions.remove(this, i));
+        assertFalse(conditions.remove(this, 0));
+        conditions.evaluate(ready(1000.0));
+        assertEquals(475, events.size());
+    }
+
+    /** State changes are reported by state change conditions and deactivate the range conditions. */
+    @Test
+    public void testStateChanges() {
+
+        conditions.add(this, 1, Condition.stateChange(), events::add, ready(1.0));
+        conditions.add(this, 2, Condition.below(5.0, 0.0), events::add, ready(1.0));
+        assertTrue(events.get(0).isActive());
+        assertTrue(events.get(1).isActive());
+        events.clear();
+
+        conditions.evaluate(ready(2.0));
+        assertTrue(events.isEmpty());
+
+        conditions.evaluate(new SimpleData("b", System.currentTimeMillis(), BufferState.FAULTED));
+        assertEquals(2, events.size());
+        assertEquals(1, events.get(0).getId());
+        assertFalse(events.get(0).isActive());
+        assertEquals(2, events.get(1).getId());
+        assertFalse(events.get(1).isActive());
+        events.clear();
+
+        conditions.evaluate(ready(3.0));
+        assertEquals(2, events.size());
+        assertTrue(events.get(0).isActive());
+        assertTrue(events.get(1).isActive());
+
+        conditions.remove(this, 1);
+        conditions.remove(this, 2);
+        assertTrue(conditions.isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the buffer history. */
+public class BufferHistoryTest {
+
+    // The test object
+    private BufferHistory history;
+
+    /** Setting up the test object with a capacity of 10 values. */
+    @Before
+    public void setUp() { history = new BufferHistory(10); }
+
+    /** Reads the values within a time range. */
+    @Test
+    public void testRange() {
+
+        for (int i = 1; i <= 5; i++) history.add(new SimpleData("b", i * 100L, (double)i));
+
+        List<SimpleData> values = history.get("b", 200L, 400L, 0);
+        assertEquals(3, values.size());
+        assertEquals("b", values.get(0).getBufferName());
+        assertEquals(200L, values.get(0).getTime());
+        assertEquals(4.0, values.get(2).doubleValue(), 1.0e-10);
+
+        assertEquals(2, history.get("b", 350L, 1000L, 0).size());
+        assertTrue(history.get("b", 600L, 1000L, 0).isEmpty());
+        assertTrue(history.get("b", 400L, 300L, 0).isEmpty());
+        assertEquals(5, history.get("b", Long.MIN_VALUE, Long.MAX_VALUE, 0).size());
+    }
+
+    /** The oldest values are overwritten, if the ring is full. */
+    @Test
+    public void testOverflow() {
+
+        for (int i = 1; i <= 25; i++) history.add(new SimpleData("b", i * 100L, (double)i));
+
+        List<SimpleData> values = history.get("b", 0L, Long.MAX_VALUE, 0);
+        assertEquals(10, history.size());
+        assertEquals(10, values.size());
+        assertEquals(16.0, values.get(0).doubleValue(), 1.0e-10);
+        assertEquals(25.0, values.get(9).doubleValue(), 1.0e-10);
+
+        values = history.get("b", 1700L, 1900L, 0);
+        assertEquals(3, values.size());
+        assertEquals(1700L, values.get(0).getTime());
+    }
+
+    /** Many values are downsampled to averages. */
+    @Test
+    public void testDownsampling() {
+
+        for (int i = 1; i <= 10; i++) history.add(new SimpleData("b", i * 100L, (double)i));
+
+        List<SimpleData> values = history.get("b", 0L, Long.MAX_VALUE, 3);
+        assertEquals(3, values.size());
+        assertEquals(300L, values.get(0).getTime());
+        assertEquals(2.0, values.get(0).doubleValue(), 1.0e-10);
+        assertEquals(600L, values.get(1).getTime());
+        assertEquals(5.0, values.get(1).doubleValue(), 1.0e-10);
+        assertEquals(1000L, values.get(2).getTime());
+        assertEquals(8.5, values.get(2).doubleValue(), 1.0e-10);
+    }
+
+    /** State changes are kept and a group ending with a fault is not averaged. */
+    @Test
+    public void testStates() {
+
+        history.add(new SimpleData("b", 100L, 1.0));
+        history.add(new SimpleData("b", 200L, BufferState.FAULTED));
+        history.add(new SimpleData("b", 300L, 3.0));
+        history.add(new SimpleData("b", 400L, BufferState.FAULTED));
+
+        List<SimpleData> values = history.get("b", 0L, Long.MAX_VALUE, 0);
+        assertEquals(BufferState.FAULTED, values.get(1).getState());
+        assertFalse(values.get(1).hasValue());
+
+        values = history.get("b", 0L, Long.MAX_VALUE, 2);
+        assertEquals(BufferState.FAULTED, values.get(0).getState());
+        assertEquals(BufferState.FAULTED, values.get(1).getState());
+        assertEquals(400L, values.get(1).getTime());
+
+        history.add(new SimpleData("b", 500L, 5.0));
+        values = history.get("b", 0L, Long.MAX_VALUE, 1);
+        assertEquals(BufferState.READY, values.get(0).getState());
+        assertEquals(3.0, values.get(0).doubleValue(), 1.0e-10);
+    }
+
+    /** A value with an older timestamp keeps the order of the history. */
+    @Test
+    public void testClockSetBack() {
+
+        history.add(new SimpleData("b", 500L, 1.0));
+        history.add(new SimpleData("b", 100L, 2.0));
+
+        List<SimpleData> values = history.get("b", 500L, 500L, 0);
+        assertEquals(2, values.size());
+        assertEquals(2.0, values.get(1).doubleValue(), 1.0e-10);
+    }
+}
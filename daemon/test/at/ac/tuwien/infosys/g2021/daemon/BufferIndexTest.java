@@ -0,0 +1,104 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the buffer index. */
+public class BufferIndexTest {
+
+    // The test object
+    private BufferIndex index;
+
+    /**
+     * Creates a meta information.
+     *
+     * @param entries topics and features in turn
+     *
+     * @return the meta information
+     */
+    private static Map<String, String> metainfo(String... entries) {
+
+        Map<String, String> result = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) result.put(entries[i], entries[i + 1]);
+
+        return result;
+    }
+
+    /**
+     * Creates an expected query result.
+     *
+     * @param names the buffer names
+     *
+     * @return the query result
+     */
+    private static TreeSet<String> names(String... names) { return new TreeSet<>(Arrays.asList(names)); }
+
+    /** Setting up the test object. */
+    @Before
+    public void setUp() {
+
+        index = new BufferIndex();
+        index.add("Kitchen.Temperature", metainfo("sensor", "yes", "Room", "kitchen", "unit", "C"));
+        index.add("kitchen.light", metainfo("actor", "yes", "room", "Kitchen"));
+        index.add("hall.temperature", metainfo("sensor", "yes", "room", "hall", "unit", "C"));
+    }
+
+    /** Literal and anchored queries of buffer names. */
+    @Test
+    public void testLiteralNameQueries() {
+
+        assertEquals(names("hall.temperature"), index.queryBuffersByName("^hall\\.temperature$"));
+        assertEquals(names("Kitchen.Temperature", "kitchen.light"), index.queryBuffersByName("^KITCHEN"));
+        assertEquals(names("Kitchen.Temperature", "hall.temperature"), index.queryBuffersByName("temperature$"));
+        assertEquals(names("Kitchen.Temperature", "hall.temperature"), index.queryBuffersByName("temp"));
+        assertEquals(names("Kitchen.Temperature", "kitchen.light", "hall.temperature"), index.queryBuffersByName(""));
+        assertEquals(names(), index.queryBuffersByName("^temp"));
+    }
+
+    /** Regular expressions and invalid queries of buffer names. */
+    @Test
+    public void testRegexNameQueries() {
+
+        assertEquals(names("kitchen.light", "hall.temperature"), index.queryBuffersByName("(hall|light)"));
+        assertEquals(names("Kitchen.Temperature", "hall.temperature"), index.queryBuffersByName("^[a-z]+\\.t"));
+        assertEquals(Collections.emptySet(), index.queryBuffersByName("(unbalanced"));
+    }
+
+    /** Queries of the meta information. Topic and feature must match the same entry. */
+    @Test
+    public void testMetainfoQueries() {
+
+        assertEquals(names("Kitchen.Temperature", "hall.temperature"), index.queryBuffersByMetainfo("^sensor$", "^yes$"));
+        assertEquals(names("Kitchen.Temperature", "kitchen.light"), index.queryBuffersByMetainfo("^room$", "kitchen"));
+        assertEquals(names("Kitchen.Temperature", "kitchen.light", "hall.temperature"), index.queryBuffersByMetainfo("o", "."));
+        assertEquals(names(), index.queryBuffersByMetainfo("unit", "kitchen"));
+        assertEquals(names("hall.temperature"), index.queryBuffersByMetainfo("r.*m", "^h"));
+        assertEquals(Collections.emptySet(), index.queryBuffersByMetainfo("[", "yes"));
+    }
+
+    /** Replaced and removed buffers are updated in the index. */
+    @Test
+    public void testUpdates() {
+
+        index.add("kitchen.light", metainfo("actor", "no"));
+        assertEquals(names("Kitchen.Temperature"), index.queryBuffersByMetainfo("^room$", "kitchen"));
+        assertEquals(names(), index.queryBuffersByMetainfo("actor", "yes"));
+        assertEquals(names("kitchen.light"), index.queryBuffersByMetainfo("actor", "no"));
+
+        index.remove("Kitchen.Temperature");
+        assertEquals(names("kitchen.light"), index.queryBuffersByName("kitchen"));
+        assertEquals(names("hall.temperature"), index.queryBuffersByMetainfo("unit", "c"));
+
+        index.clear();
+        assertTrue(index.queryBuffersByName("").isEmpty());
+        assertTrue(index.queryBuffersByMetainfo("", "").isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
+import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the buffer rollups. */
+public class BufferRollupsTest {
+
+    // The test object
+    private BufferRollups rollups;
+
+    /** Setting up the test object with a capacity of 30 rollups. */
+    @Before
+    public void setUp() { rollups = new BufferRollups(30); }
+
+    /** Values of one rollup period are summarized in one rollup. */
+    @Test
+    public void testRollup() {
+
+        for (int i = 0; i < 10; i++) rollups.add(i * 1000L, (double)i);
+
+        assertEquals(1, rollups.size());
+
+        List<Aggregate> aggregates = rollups.get("b", 0L, 9999L, 10000L);
+        assertEquals(1, aggregates.size());
+        assertEquals("b", aggregates.get(0).getBufferName());
+        assertEquals(0L, aggregates.get(0).getStart());
+        assertEquals(10, aggregates.get(0).getCount());
+        assertEquals(0.0, aggregates.get(0).getMinimum(), 1.0e-10);
+        assertEquals(9.0, aggregates.get(0).getMaximum(), 1.0e-10);
+        assertEquals(4.5, aggregates.get(0).getAverage(), 1.0e-10);
+    }
+
+    /** Rollups are combined into longer time windows. */
+    @Test
+    public void testWindows() {
+
+        // One value per second for two minutes
+        for (int i = 0; i < 120; i++) rollups.add(i * 1000L, (double)i);
+
+        List<Aggregate> aggregates = rollups.get("b", 0L, 119999L, 60000L);
+        assertEquals(2, aggregates.size());
+        assertEquals(60000L, aggregates.get(1).getStart());
+        assertEquals(60000L, aggregates.get(1).getWindow());
+        assertEquals(60, aggregates.get(1).getCount());
+        assertEquals(60.0, aggregates.get(1).getMinimum(), 1.0e-10);
+        assertEquals(119.0, aggregates.get(1).getMaximum(), 1.0e-10);
+        assertEquals(89.5, aggregates.get(1).getAverage(), 1.0e-10);
+
+        // Every window overlapping the time range is complete.
+        aggregates = rollups.get("b", 70000L, 80000L, 60000L);
+        assertEquals(1, aggregates.size());
+        assertEquals(60, aggregates.get(0).getCount());
+
+        // The window is rounded up to the rollup period.
+        aggregates = rollups.get("b", 0L, 119999L, 25000L);
+        assertEquals(30000L, aggregates.get(0).getWindow());
+        assertEquals(4, aggregates.size());
+
+        assertTrue(rollups.get("b", 200000L, 300000L, 60000L).isEmpty());
+        assertTrue(rollups.get("b", 60000L, 0L, 60000L).isEmpty());
+    }
+
+    /** Periods without values have no rollup and no aggregate. */
+    @Test
+    public void testGaps() {
+
+        rollups.add(5000L, 1.0);
+        rollups.add(125000L, 3.0);
+
+        assertEquals(2, rollups.size());
+
+        List<Aggregate> aggregates = rollups.get("b", 0L, Long.MAX_VALUE, 60000L);
+        assertEquals(2, aggregates.size());
+        assertEquals(0L, aggregates.get(0).getStart());
+        assertEquals(120000L, aggregates.get(1).getStart());
+    }
+
+    /** The oldest rollups are overwritten, if the ring is full. */
+    @Test
+    public void testOverflow() {
+
+        for (int i = 0; i < 40; i++) rollups.add(i * BufferConfiguration.ROLLUP_PERIOD, 1.0);
+
+        assertEquals(30, rollups.size());
+
+        List<Aggregate> aggregates = rollups.get("b", Long.MIN_VALUE, Long.MAX_VALUE, BufferConfiguration.ROLLUP_PERIOD);
+        assertEquals(30, aggregates.size());
+        assertEquals(10L * BufferConfiguration.ROLLUP_PERIOD, aggregates.get(0).getStart());
+    }
+
+    /** A value older than the latest rollup is summarized in the latest rollup. */
+    @Test
+    public void testClockSetBack() {
+
+        rollups.add(50000L, 1.0);
+        rollups.add(10000L, 3.0);
+
+        assertEquals(1, rollups.size());
+        assertEquals(2.0, rollups.get("b", 50000L, 50000L, 10000L).get(0).getAverage(), 1.0e-10);
+    }
+}
@@ -1,16 +1,22 @@
 package at.ac.tuwien.infosys.g2021.daemon;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferClass;
 import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
 import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
+import at.ac.tuwien.infosys.g2021.common.ConditionEvent;
 import at.ac.tuwien.infosys.g2021.common.DummyGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.ScalingAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -60,6 +66,8 @@ public class BufferTest {
         sensorConfig.getMetainfo().put("sensor", "yes");
         sensorConfig.getAdapterChain().add(new ScalingAdapterConfiguration(0.0, 0.5, 0.0));
         sensorConfig.setGatherer(new DummyGathererConfiguration());
+        sensorConfig.setHistoryCapacity(16);
+        sensorConfig.setRollupCapacity(16);
         sensor = new Buffer("sensor", sensorConfig);
         sensor.addValueChangeConsumer(new Listener());
     }
@@ -132,5 +140,71 @@ public class BufferTest {
         assertEquals(10.5, sensor.get().getValue().doubleValue(), 1.0e-6);
         assertEquals(10.5, lastValue.getValue().doubleValue(), 1.0e-6);
     }
-}
 
+    /** Tests the history of the buffer values. */
+    @Test
+    public void testHistory() {
+
+        actor.put(10.0);
+        actor.put(20.0);
+
+        // The actor keeps no history. The sensor has recorded its initial value and both value changes.
+        assertTrue(actor.getHistory(0L, Long.MAX_VALUE, 0).isEmpty());
+
+        List<SimpleData> history = sensor.getHistory(0L, Long.MAX_VALUE, 0);
+        assertEquals(3, history.size());
+        assertEquals("sensor", history.get(2).getBufferName());
+        assertEquals(10.5, history.get(1).getValue().doubleValue(), 1.0e-6);
+        assertEquals(20.5, history.get(2).getValue().doubleValue(), 1.0e-6);
+        assertEquals(sensor.get(), history.get(2));
+    }
+
+    /** Tests the aggregates of the buffer values. */
+    @Test
+    public void testAggregates() {
+
+        actor.put(10.0);
+        actor.put(20.0);
+
+        // The actor keeps no rollups. The sensor has summarized all its values in a single window.
+        assertTrue(actor.getAggregates(0L, Long.MAX_VALUE, 60000L).isEmpty());
+
+        long ready = sensor.getHistory(0L, Long.MAX_VALUE, 0).stream().filter(v -> v.getState() == BufferState.READY).count();
+
+        List<Aggregate> aggregates = sensor.getAggregates(0L, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertEquals(1, aggregates.size());
+        assertEquals("sensor", aggregates.get(0).getBufferName());
+        assertEquals(ready, aggregates.get(0).getCount());
+        assertEquals(20.5, aggregates.get(0).getMaximum(), 1.0e-6);
+    }
+
+    /** Tests watching a condition of a buffer. */
+    @Test
+    public void testConditions() {
+
+        List<ConditionEvent> events = new ArrayList<>();
+
+        actor.put(10.0);
+        sensor.watch(this, 1, Condition.above(15.0, 1.0), events::add);
+        assertEquals(1, events.size());
+        assertFalse(events.get(0).isActive());
+
+        // The sensor value becomes 20.5 and enters the range.
+        actor.put(20.0);
+        assertEquals(2, events.size());
+        assertTrue(events.get(1).isActive());
+        assertEquals(20.5, events.get(1).getValue().getValue().doubleValue(), 1.0e-6);
+
+        // 14.5 is within the hysteresis, 7.5 leaves the range.
+        actor.put(14.0);
+        assertEquals(2, events.size());
+        actor.put(7.0);
+        assertEquals(3, events.size());
+        assertFalse(events.get(2).isActive());
+
+        // After cancelling the watch, no event is received.
+        sensor.unwatch(this, 1);
+        actor.put(20.0);
+        assertEquals(3, events.size());
+    }
+}
@@ -5,17 +5,89 @@ import at.ac.tuwien.infosys.g2021.common.BufferState;
 import at.ac.tuwien.infosys.g2021.common.SensorGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.daemon.drivers.unittest.UnitTestDriverImplementation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 /** This is the test of the actor gatherer */
 public class DriverTest {
 
+    /**
+     * A blocking hardware driver, whose readings last until they are permitted. The port "SLOW-F" is polled every
+     * 100 ms, the port "SLOW-S" every 500 ms.
+     */
+    private static class BlockingDriver implements HardwareDriverInterface {
+
+        // The ports of every reading started
+        private final BlockingQueue<Collection<String>> readings = new LinkedBlockingQueue<>();
+
+        // The permits to finish a reading
+        private final Semaphore permits = new Semaphore(0);
+
+        @Override
+        public boolean isSuitable() { return true; }
+
+        @Override
+        public boolean isBestChoice() { return true; }
+
+        @Override
+        public String getName() { return "Blocking Hardware Driver for Unit Tests"; }
+
+        @Override
+        public Collection<PortDescription> getPorts() {
+
+            return Arrays.asList(new PortDescription("SLOW-F", PortClass.DIGITAL_INPUT, Collections.emptyMap(), 100L),
+                                 new PortDescription("SLOW-S", PortClass.DIGITAL_INPUT, Collections.emptyMap(), 500L));
+        }
+
+        @Override
+        public Collection<SimpleData> getAll() {
+
+            return Arrays.asList(new SimpleData("SLOW-F", new Date(), BufferState.READY, 0),
+                                 new SimpleData("SLOW-S", new Date(), BufferState.READY, 0));
+        }
+
+        @Override
+        public Collection<SimpleData> get(Collection<String> ports) {
+
+            readings.add(new ArrayList<>(ports));
+            permits.acquireUninterruptibly();
+            return HardwareDriverInterface.super.get(ports);
+        }
+
+        @Override
+        public boolean isBlocking() { return true; }
+
+        @Override
+        public boolean set(String port, Number value) throws UnsupportedOperationException {
+
+            throw new UnsupportedOperationException("no such port");
+        }
+
+        @Override
+        public void initialize() {}
+
+        @Override
+        public void shutdown() {}
+
+        @Override
+        public void release() {}
+    }
+
     /** Setting up the test object. */
     @Before
     public void setUp() throws Exception {
@@ -124,6 +196,152 @@ public class DriverTest {
         assertEquals(-12.0, value.getValue().doubleValue(), 1.0e-6);
     }
 
+    /** Test a port with a short poll interval */
+    @Test
+    public void testFastPolling() throws Exception {
+
+        UnitTestDriverImplementation driver = (UnitTestDriverImplementation)HardwareDriverFactory.select();
+        Buffer fast = Daemon.get().buffers().bufferByName("DI");
+        Buffer slow = Daemon.get().buffers().bufferByName("AI");
+
+        driver.setPortValue("DI", 1);
+        driver.setPortValue("AI", 21.0);
+
+        Thread.sleep(300L);
+
+        assertEquals(1, fast.get().getValue().intValue());
+        assertEquals(0.0, slow.get().getValue().doubleValue(), 1.0e-6);
+
+        Thread.sleep(900L);
+
+        assertEquals(21.0, slow.get().getValue().doubleValue(), 1.0e-6);
+    }
+
+    /**
+     * A hardware driver reporting the changes of the port "REP". A change is reported, while the port is read for its
+     * initial value. The initial value read is older than the reported value.
+     */
+    private static class ReportingDriver implements HardwareDriverInterface {
+
+        // The listener for port changes
+        private PortChangeListener listener;
+
+        @Override
+        public boolean isSuitable() { return true; }
+
+        @Override
+        public boolean isBestChoice() { return true; }
+
+        @Override
+        public String getName() { return "Reporting Hardware Driver for Unit Tests"; }
+
+        @Override
+        public Collection<PortDescription> getPorts() {
+
+            return Collections.singletonList(new PortDescription("REP", PortClass.DIGITAL_INPUT, Collections.emptyMap()));
+        }
+
+        @Override
+        public Collection<SimpleData> getAll() {
+
+            long now = System.currentTimeMillis();
+            SimpleData initial = new SimpleData("REP", new Date(now - 1000L), BufferState.READY, 0);
+
+            listener.portsChanged(Collections.singletonList(new SimpleData("REP", new Date(now), BufferState.READY, 1)));
+            return Collections.singletonList(initial);
+        }
+
+        @Override
+        public Collection<String> listen(PortChangeListener l) {
+
+            listener = l;
+            return Collections.singletonList("REP");
+        }
+
+        @Override
+        public boolean set(String port, Number value) throws UnsupportedOperationException {
+
+            throw new UnsupportedOperationException("no such port");
+        }
+
+        @Override
+        public void initialize() {}
+
+        @Override
+        public void shutdown() {}
+
+        @Override
+        public void release() {}
+    }
+
+    /** Test, that a port falling due during a slow reading of a blocking driver is not skipped */
+    @Test
+    public void testBlockingDriver() throws Exception {
+
+        BlockingDriver hardware = new BlockingDriver();
+        Driver driver = new Driver(hardware);
+
+        driver.initialize();
+
+        try {
+            // The first reading contains all the ports. It lasts until the slow port is due again.
+            Collection<String> ports = hardware.readings.poll(1L, TimeUnit.SECONDS);
+            assertNotNull(ports);
+            assertTrue(ports.contains("SLOW-F"));
+            assertTrue(ports.contains("SLOW-S"));
+
+            Thread.sleep(700L);
+            hardware.permits.release();
+
+            // The next reading contains the slow port, although it fell due during the first reading.
+            ports = hardware.readings.poll(1L, TimeUnit.SECONDS);
+            assertNotNull(ports);
+            assertTrue(ports.contains("SLOW-F"));
+            assertTrue(ports.contains("SLOW-S"));
+        }
+        finally {
+            hardware.permits.release(100);
+            driver.shutdown();
+        }
+    }
+
+    /** Test a port, whose changes are reported by the hardware driver */
+    @Test
+    public void testReportedChanges() throws Exception {
+
+        UnitTestDriverImplementation driver = (UnitTestDriverImplementation)HardwareDriverFactory.select();
+        Buffer reported = Daemon.get().buffers().bufferByName("INT");
+
+        assertFalse(reported.isActor());
+        assertEquals(BufferState.READY, reported.get().getState());
+        assertEquals(0, reported.get().getValue().intValue());
+
+        // The change is distributed at once, without waiting for a polling.
+        driver.setPortValue("INT", 1);
+        assertEquals(1, reported.get().getValue().intValue());
+
+        driver.disturbPort("INT");
+        assertEquals(BufferState.FAULTED, reported.get().getState());
+    }
+
+    /** Test, that an initial value doesn't overwrite a newer value reported in the meantime */
+    @Test
+    public void testReportedDuringInitialRead() throws Exception {
+
+        Driver driver = new Driver(new ReportingDriver());
+
+        driver.initialize();
+
+        try {
+            SimpleData value = Daemon.get().buffers().bufferByName("REP").get();
+            assertEquals(BufferState.READY, value.getState());
+            assertEquals(1, value.getValue().intValue());
+        }
+        finally {
+            driver.shutdown();
+        }
+    }
+
     /** Test output changes */
     @Test
     public void testOutputChanges() throws Exception {
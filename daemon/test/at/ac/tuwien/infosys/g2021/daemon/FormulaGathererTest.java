@@ -0,0 +1,135 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferClass;
+import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.DummyGathererConfiguration;
+import at.ac.tuwien.infosys.g2021.common.FormulaGathererConfiguration;
+import at.ac.tuwien.infosys.g2021.common.GathererConfiguration;
+import at.ac.tuwien.infosys.g2021.common.ScalingAdapterConfiguration;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/** This is the test of the formula gatherer */
+public class FormulaGathererTest extends AbstractGathererTester<FormulaGatherer> {
+
+    /**
+     * Creates a sensor buffer configuration.
+     *
+     * @param gatherer the gatherer configuration
+     * @param factor   the scaling factor of the gatherer value
+     *
+     * @return the buffer configuration
+     */
+    private static BufferConfiguration sensor(GathererConfiguration gatherer, double factor) {
+
+        BufferConfiguration result = new BufferConfiguration();
+        result.setBufferClass(BufferClass.SENSOR);
+        result.getAdapterChain().add(new ScalingAdapterConfiguration(0.0, factor, 0.0));
+        result.setGatherer(gatherer);
+
+        return result;
+    }
+
+    /** Sets the value of the dummy gatherer, which is the input of the buffers "a" and "b". */
+    private static void setInput(double value) {
+
+        ((DummyGatherer)Daemon.get().gatherers().gathererForConfiguration(new DummyGathererConfiguration())).set(value);
+    }
+
+    /**
+     * Creates the test object. The buffer "a" has the value of a dummy gatherer and the buffer "b" has the double value.
+     *
+     * @return the test object
+     */
+    @Override
+    protected FormulaGatherer initializeTestObject() {
+
+        Daemon.get().buffers().create("a", sensor(new DummyGathererConfiguration(), 1.0));
+        Daemon.get().buffers().create("b", sensor(new DummyGathererConfiguration(), 2.0));
+
+        FormulaGatherer result = new FormulaGatherer(new FormulaGathererConfiguration("a * b + 1"));
+
+        result.addValueChangeConsumer(getValueChangeConsumer());
+        return result;
+    }
+
+    /** Is a formula gatherer an actor? */
+    @Test
+    public void testActor() { assertFalse(getTestObject().canUseAsActor()); }
+
+    /** The formula is calculated with every value change of a referenced buffer. */
+    @Test
+    public void testValueChanges() {
+
+        checkValue(getTestObject().get(), 1.0);
+        assertNull(lastValueReceived());
+
+        setInput(3.0);
+        checkValue(getTestObject().get(), 19.0);
+        checkValue(lastValueReceived(), 19.0);
+    }
+
+    /** The formula is ready, if all the referenced buffers are ready. */
+    @Test
+    public void testStates() {
+
+        FormulaGatherer gatherer = new FormulaGatherer(new FormulaGathererConfiguration("a + c"));
+
+        try {
+            // The buffer "c" doesn't exist
+            checkState(gatherer.get(), BufferState.INITIALIZING);
+
+            Daemon.get().buffers().create("c", sensor(new DummyGathererConfiguration(), 10.0));
+            setInput(1.0);
+            checkValue(gatherer.get(), 11.0);
+
+            Daemon.get().buffers().remove("c");
+            checkState(gatherer.get(), BufferState.INITIALIZING);
+
+            ((DummyGatherer)Daemon.get().gatherers().gathererForConfiguration(new DummyGathererConfiguration())).set(BufferState.FAULTED);
+            checkState(gatherer.get(), BufferState.FAULTED);
+        }
+        finally {
+            gatherer.shutdown();
+        }
+    }
+
+    /** A result, which is not finite, is a fault. */
+    @Test
+    public void testDivisionByZero() {
+
+        FormulaGatherer gatherer = new FormulaGatherer(new FormulaGathererConfiguration("1 / a"));
+
+        try {
+            checkState(gatherer.get(), BufferState.FAULTED);
+
+            setInput(4.0);
+            checkValue(gatherer.get(), 0.25);
+        }
+        finally {
+            gatherer.shutdown();
+        }
+    }
+
+    /** Computed buffers are calculated from other computed buffers, but they must not depend on themselves. */
+    @Test
+    public void testComputedBuffers() {
+
+        Buffers buffers = Daemon.get().buffers();
+
+        assertNotNull(buffers.create("sum", sensor(new FormulaGathererConfiguration("a + b"), 1.0)));
+        assertNotNull(buffers.create("power", sensor(new FormulaGathererConfiguration("sum * 'sum'"), 1.0)));
+        setInput(2.0);
+        checkValue(buffers.bufferByName("power").get(), 36.0);
+
+        assertNull(buffers.create("x", sensor(new FormulaGathererConfiguration("x + 1"), 1.0)));
+        assertNull(buffers.create("a", sensor(new FormulaGathererConfiguration("power / 2"), 1.0)));
+        assertNull(buffers.create("y", sensor(new FormulaGathererConfiguration("a +"), 1.0)));
+        assertNull(buffers.bufferByName("x"));
+        assertNotNull(buffers.bufferByName("a"));
+    }
+}
@@ -0,0 +1,93 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/** This is the test of the compiled formulas. */
+public class FormulaTest {
+
+    /**
+     * Compiles and calculates an expression.
+     *
+     * @param expression the expression
+     * @param inputs     the values of the referenced buffers
+     *
+     * @return the value
+     */
+    private static double evaluate(String expression, double... inputs) { return Formula.compile(expression).evaluate(inputs); }
+
+    /**
+     * Verifies, that an expression cannot be compiled.
+     *
+     * @param expression the expression
+     */
+    private static void assertSyntaxError(String expression) {
+
+        try {
+            Formula.compile(expression);
+            fail("syntax error expected: " + expression);
+        }
+        catch (IllegalArgumentException e) {
+            // That's expected.
+        }
+    }
+
+    /** The operators have the usual precedence. */
+    @Test
+    public void testOperators() {
+
+        assertEquals(7.0, evaluate("1 + 2 * 3"), 0.0);
+        assertEquals(9.0, evaluate("(1 + 2) * 3"), 0.0);
+        assertEquals(-1.0, evaluate("1 - 2"), 0.0);
+        assertEquals(2.0, evaluate("10 / 4 - 0.5"), 0.0);
+        assertEquals(1.0, evaluate("10 % 3"), 0.0);
+        assertEquals(512.0, evaluate("2 ^ 3 ^ 2"), 0.0);
+        assertEquals(-4.0, evaluate("-2 ^ 2"), 0.0);
+        assertEquals(0.5, evaluate("2 ^ -1"), 0.0);
+        assertEquals(1500.0, evaluate("1.5e3"), 0.0);
+    }
+
+    /** The functions. */
+    @Test
+    public void testFunctions() {
+
+        assertEquals(3.0, evaluate("abs(-3)"), 0.0);
+        assertEquals(4.0, evaluate("sqrt(16)"), 0.0);
+        assertEquals(1.0, evaluate("exp(0) * log(exp(1))"), 1.0e-12);
+        assertEquals(-1.0, evaluate("min(3, -1, 2)"), 0.0);
+        assertEquals(3.0, evaluate("max(3, -1, 2)"), 0.0);
+        assertEquals(4.0, evaluate("sum(3, -1, 2)"), 0.0);
+        assertEquals(2.5, evaluate("avg(voltage, current)", 2.0, 3.0), 0.0);
+    }
+
+    /** Buffer references are numbered in the order of their first appearance. */
+    @Test
+    public void testReferences() {
+
+        Formula formula = Formula.compile("voltage * current + 'voltage L1' - voltage + room_1.temperature");
+
+        assertEquals(Arrays.asList("voltage", "current", "voltage L1", "room_1.temperature"), formula.getReferences());
+        assertEquals(1, formula.numberOf("current"));
+        assertEquals(-1, formula.numberOf("power"));
+        assertEquals(10.0 * 2.0 + 7.0 - 10.0 + 21.0, formula.evaluate(new double[] {10.0, 2.0, 7.0, 21.0}), 0.0);
+    }
+
+    /** Syntax errors are detected at compile time. */
+    @Test
+    public void testSyntaxErrors() {
+
+        assertSyntaxError("");
+        assertSyntaxError("1 +");
+        assertSyntaxError("(1 + 2");
+        assertSyntaxError("1 2");
+        assertSyntaxError("'voltage");
+        assertSyntaxError("''");
+        assertSyntaxError("foo(1)");
+        assertSyntaxError("abs(1, 2)");
+        assertSyntaxError("1..2");
+        assertSyntaxError("a # b");
+    }
+}
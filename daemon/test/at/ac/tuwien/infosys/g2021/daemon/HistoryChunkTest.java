@@ -0,0 +1,107 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the compressed history chunks. */
+public class HistoryChunkTest {
+
+    /**
+     * Decodes a chunk into a list of values.
+     *
+     * @param chunk the chunk
+     *
+     * @return the values
+     */
+    private static List<SimpleData> decode(HistoryChunk chunk) {
+
+        BufferHistory history = new BufferHistory(chunk.size());
+        HistoryChunk.decode(chunk.toByteArray(), chunk.getFirstTime(), chunk.size(), history);
+
+        return history.get("b", Long.MIN_VALUE, Long.MAX_VALUE, 0);
+    }
+
+    /** Random timestamps, states and values are restored exactly. */
+    @Test
+    public void testRoundTrip() {
+
+        Random random = new Random(4711L);
+        HistoryChunk chunk = new HistoryChunk();
+        long[] times = new long[300];
+        int[] states = new int[times.length];
+        double[] values = new double[times.length];
+
+        long time = 1000000L;
+        for (int i = 0; i < times.length; i++) {
+            switch (i % 5) {
+                case 0:  time += 1000L; break;
+                case 1:  time += 1000L + random.nextInt(100); break;
+                case 2:  time += random.nextInt(100000); break;
+                case 3:  time += 1L << 30; break;
+                default: time += 0L;
+            }
+            times[i] = time;
+            values[i] = i % 23 == 0 ? Double.NaN : i % 3 == 0 ? values[Math.max(0, i - 1)] : random.nextGaussian() * 1000.0;
+            states[i] = i % 17 == 0 || Double.isNaN(values[i]) ? BufferState.FAULTED.ordinal() : BufferState.READY.ordinal();
+            chunk.add(times[i], states[i], values[i]);
+        }
+
+        List<SimpleData> decoded = decode(chunk);
+        assertEquals(times.length, decoded.size());
+
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(times[i], decoded.get(i).getTime());
+            assertEquals(BufferState.values()[states[i]], decoded.get(i).getState());
+            if (Double.isNaN(values[i])) assertFalse(decoded.get(i).hasValue());
+            else assertEquals(values[i], decoded.get(i).doubleValue(), 0.0);
+        }
+    }
+
+    /** Regular timestamps and slowly changing values need only a few bits. */
+    @Test
+    public void testCompression() {
+
+        HistoryChunk chunk = new HistoryChunk();
+
+        for (int i = 0; i < 1000; i++) chunk.add(i * 1000L, BufferState.READY.ordinal(), 20.0 + (i / 100) * 0.5);
+
+        assertTrue(chunk.byteLength() < 400);
+        assertFalse(chunk.isFull());
+        assertEquals(999000L, chunk.getLastTime());
+    }
+
+    /** A value older than its predecessor gets the timestamp of the predecessor. */
+    @Test
+    public void testClockSetBack() {
+
+        HistoryChunk chunk = new HistoryChunk();
+        chunk.add(5000L, BufferState.READY.ordinal(), 1.0);
+        chunk.add(3000L, BufferState.READY.ordinal(), 2.0);
+        chunk.add(6000L, BufferState.READY.ordinal(), 3.0);
+
+        List<SimpleData> decoded = decode(chunk);
+        assertEquals(5000L, decoded.get(1).getTime());
+        assertEquals(6000L, decoded.get(2).getTime());
+    }
+
+    /** A chunk is full after its capacity. */
+    @Test
+    public void testFull() {
+
+        Random random = new Random(42L);
+        HistoryChunk chunk = new HistoryChunk();
+
+        int count = 0;
+        while (!chunk.isFull()) chunk.add(count++ * 1000L, BufferState.READY.ordinal(), random.nextDouble());
+
+        assertTrue(chunk.byteLength() >= HistoryChunk.CAPACITY);
+        assertEquals(count, decode(chunk).size());
+    }
+}
@@ -0,0 +1,275 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the history store. */
+public class HistoryStoreTest {
+
+    /** The directory of the segment files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // The test object
+    private HistoryStore store;
+
+    /**
+     * Setting up the test object.
+     *
+     * @throws Exception if the store cannot be opened
+     */
+    @Before
+    public void setUp() throws Exception { store = new HistoryStore(folder.getRoot(), 1L); }
+
+    /** Closing the test object. */
+    @After
+    public void tearDown() { if (store != null) store.close(); }
+
+    /**
+     * Writes values of a buffer, one per second.
+     *
+     * @param name  the buffer name
+     * @param start the timestamp of the first value
+     * @param count the number of values
+     */
+    private void write(String name, long start, int count) {
+
+        for (int i = 0; i < count; i++) store.valueChanged(new SimpleData(name, start + i * 1000L, (double)i));
+        store.flush();
+    }
+
+    /**
+     * Returns the segment files.
+     *
+     * @return the segment files
+     */
+    private File[] segmentFiles() { return folder.getRoot().listFiles((dir, name) -> name.endsWith(".seg")); }
+
+    /**
+     * Copies the segment files, as they would be found after a crash.
+     *
+     * @param from the directory of the segment files
+     *
+     * @return the directory of the copies
+     *
+     * @throws IOException if the segment files cannot be copied
+     */
+    private File crash(File from) throws IOException {
+
+        File result = folder.newFolder();
+        for (File file : from.listFiles((dir, name) -> name.endsWith(".seg"))) Files.copy(file.toPath(), new File(result, file.getName()).toPath());
+
+        return result;
+    }
+
+    /** The values of the open chunks can be read. */
+    @Test
+    public void testOpenChunks() {
+
+        write("a", 1000L, 10);
+        write("b", 1000L, 5);
+
+        List<SimpleData> values = store.get("a", 3000L, 5000L, 0);
+        assertEquals(3, values.size());
+        assertEquals("a", values.get(0).getBufferName());
+        assertEquals(2.0, values.get(0).doubleValue(), 0.0);
+
+        assertEquals(5, store.get("b", 0L, Long.MAX_VALUE, 0).size());
+        assertTrue(store.get("c", 0L, Long.MAX_VALUE, 0).isEmpty());
+        assertEquals(2, store.get("a", 0L, Long.MAX_VALUE, 2).size());
+    }
+
+    /**
+     * The sealed chunks are read again after reopening the store.
+     *
+     * @throws Exception if the store cannot be opened
+     */
+    @Test
+    public void testReopen() throws Exception {
+
+        // Three chunks of 15 minutes and an open one
+        write("a", 0L, 3000);
+        store.valueChanged(new SimpleData("a", 3000000L, BufferState.FAULTED));
+        store.close();
+
+        store = new HistoryStore(folder.getRoot(), 1L);
+
+        List<SimpleData> values = store.get("a", 0L, Long.MAX_VALUE, 0);
+        assertEquals(3001, values.size());
+        assertEquals(2999.0, values.get(2999).doubleValue(), 0.0);
+        assertEquals(BufferState.FAULTED, values.get(3000).getState());
+        assertFalse(values.get(3000).hasValue());
+
+        values = store.get("a", 1000000L, 1002000L, 0);
+        assertEquals(3, values.size());
+        assertEquals(1000.0, values.get(0).doubleValue(), 0.0);
+    }
+
+    /**
+     * An incomplete chunk at the end of the latest segment file is removed.
+     *
+     * @throws Exception if the segment file cannot be changed
+     */
+    @Test
+    public void testRecovery() throws Exception {
+
+        // Recent values, so the segment files don't expire
+        long start = System.currentTimeMillis();
+        write("a", start, 1000);
+        store.close();
+        store = null;
+
+        // A record, which is only partially written, follows the chunk records.
+        File file = segmentFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+
+            long position = 8L;
+            raf.seek(position);
+            int length;
+            while ((length = raf.readInt()) != 0) {
+                position += 4L + length;
+                raf.seek(position);
+            }
+
+            raf.seek(position);
+            raf.writeInt(500);
+            raf.writeShort(1);
+            raf.writeByte('a');
+            raf.writeLong(start + 2000000L);
+        }
+
+        store = new HistoryStore(folder.getRoot(), 1L);
+        assertEquals(1000, store.get("a", 0L, Long.MAX_VALUE, 0).size());
+
+        // The removed record doesn't disturb the next one.
+        write("a", start + 2000000L, 10);
+        store.close();
+
+        store = new HistoryStore(folder.getRoot(), 1L);
+        assertEquals(1010, store.get("a", 0L, Long.MAX_VALUE, 0).size());
+    }
+
+    /**
+     * The values of the open chunks are written once a second and recovered after a crash, but never twice.
+     *
+     * @throws Exception if the store cannot be opened
+     */
+    @Test
+    public void testCrash() throws Exception {
+
+        // Recent values, so the chunks don't expire
+        long start = System.currentTimeMillis();
+        write("a", start, 10);
+        write("b", start, 5);
+        Thread.sleep(1500L);
+        write("a", start + 10000L, 3);
+        Thread.sleep(1500L);
+
+        File crashed = crash(folder.getRoot());
+        HistoryStore recovered = new HistoryStore(crashed, 1L);
+        try {
+            assertEquals(13, recovered.get("a", 0L, Long.MAX_VALUE, 0).size());
+            assertEquals(5, recovered.get("b", 0L, Long.MAX_VALUE, 0).size());
+
+            // The recovered values are sealed, so crashing again doesn't replay them once more.
+            HistoryStore again = new HistoryStore(crash(crashed), 1L);
+            try {
+                assertEquals(13, again.get("a", 0L, Long.MAX_VALUE, 0).size());
+                assertEquals(5, again.get("b", 0L, Long.MAX_VALUE, 0).size());
+            }
+            finally {
+                again.close();
+            }
+        }
+        finally {
+            recovered.close();
+        }
+
+        recovered = new HistoryStore(crashed, 1L);
+        try {
+            List<SimpleData> values = recovered.get("a", 0L, Long.MAX_VALUE, 0);
+            assertEquals(13, values.size());
+            assertEquals(2.0, values.get(12).doubleValue(), 0.0);
+        }
+        finally {
+            recovered.close();
+        }
+    }
+
+    /**
+     * A file with an invalid header, which is the latest one, is ignored and never written.
+     *
+     * @throws Exception if the file cannot be created
+     */
+    @Test(timeout = 10000L)
+    public void testInvalidLatestFile() throws Exception {
+
+        // Recent values, so the segment files don't expire
+        long start = System.currentTimeMillis();
+        write("a", start, 1000);
+        store.close();
+        store = null;
+
+        File foreign = new File(folder.getRoot(), "history-0000000009.seg");
+        try (RandomAccessFile raf = new RandomAccessFile(foreign, "rw")) {
+            raf.writeLong(0x0102030405060708L);
+        }
+
+        store = new HistoryStore(folder.getRoot(), 1L);
+        assertEquals(1000, store.get("a", 0L, Long.MAX_VALUE, 0).size());
+
+        write("a", start + 2000000L, 10);
+        store.close();
+
+        store = new HistoryStore(folder.getRoot(), 1L);
+        assertEquals(1010, store.get("a", 0L, Long.MAX_VALUE, 0).size());
+        assertEquals(8L, foreign.length());
+    }
+
+    /**
+     * Expired segment files are deleted except the one written.
+     *
+     * @throws Exception if the store cannot be opened
+     */
+    @Test
+    public void testRetention() throws Exception {
+
+        // Random values need many segment files
+        Random random = new Random(1L);
+        for (int i = 0; i < 300000; i++) {
+            store.valueChanged(new SimpleData("a", i * 10L, random.nextDouble()));
+            if (i % 5000 == 0) store.flush();
+        }
+        store.flush();
+        store.close();
+        store = new HistoryStore(folder.getRoot(), 1L);
+
+        int files = segmentFiles().length;
+        assertTrue(files > 1);
+        assertEquals(300000, store.get("a", 0L, Long.MAX_VALUE, 0).size());
+
+        // One hour after the first segment file
+        store.removeExpiredSegments(3600000L + 1500000L);
+        assertTrue(segmentFiles().length < files);
+        assertTrue(store.get("a", 0L, Long.MAX_VALUE, 0).size() < 300000);
+
+        // Much later all the complete segment files are gone.
+        store.removeExpiredSegments(Long.MAX_VALUE / 2L);
+        assertEquals(1, segmentFiles().length);
+    }
+}
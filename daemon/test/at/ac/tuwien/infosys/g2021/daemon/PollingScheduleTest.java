@@ -0,0 +1,67 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the polling schedule. */
+public class PollingScheduleTest {
+
+    /** Ports without a schedule. */
+    @Test
+    public void testNoPorts() {
+
+        PollingSchedule schedule = new PollingSchedule(new HashMap<>());
+
+        assertEquals(PortDescription.DEFAULT_POLL_INTERVAL, schedule.getTickPeriod());
+        assertTrue(schedule.tick().isEmpty());
+    }
+
+    /** Ports with different poll intervals. */
+    @Test
+    public void testGrouping() {
+
+        Map<String, Long> intervals = new HashMap<>();
+        intervals.put("slow", 1000L);
+        intervals.put("fast", 250L);
+        intervals.put("fast too", 250L);
+
+        PollingSchedule schedule = new PollingSchedule(intervals);
+        assertEquals(250L, schedule.getTickPeriod());
+
+        // At first all the ports are due
+        assertEquals(new HashSet<>(Arrays.asList("slow", "fast", "fast too")), new HashSet<>(schedule.tick()));
+
+        // Now only the fast ports are polled, until the slow one is due again
+        for (int i = 1; i < 4; i++) assertEquals(new HashSet<>(Arrays.asList("fast", "fast too")), new HashSet<>(schedule.tick()));
+        assertEquals(3, schedule.tick().size());
+    }
+
+    /** Poll intervals are rounded to the minimal tick period. */
+    @Test
+    public void testRounding() {
+
+        Map<String, Long> intervals = new HashMap<>();
+        intervals.put("a", 333L);
+        intervals.put("b", 1L);
+
+        PollingSchedule schedule = new PollingSchedule(intervals);
+        assertEquals(PollingSchedule.MIN_TICK_PERIOD, schedule.getTickPeriod());
+
+        // "a" is polled every 340 ms
+        int count = 0;
+        for (int i = 0; i < 34; i++) {
+            Collection<String> ports = schedule.tick();
+            assertTrue(ports.contains("b"));
+            if (ports.contains("a")) count++;
+        }
+        assertEquals(1, count);
+        assertTrue(schedule.tick().contains("a"));
+    }
+}
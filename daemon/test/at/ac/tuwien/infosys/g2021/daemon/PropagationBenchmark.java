@@ -0,0 +1,101 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferClass;
+import at.ac.tuwien.infosys.g2021.common.BufferConfiguration;
+import at.ac.tuwien.infosys.g2021.common.DummyGathererConfiguration;
+import at.ac.tuwien.infosys.g2021.common.ScalingAdapterConfiguration;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This benchmark measures the heap allocated per propagated value change. An actor buffer writes to a dummy gatherer
+ * and a sensor buffer reads from the same gatherer. Both buffers have a scaling adapter. Every change runs through
+ * the actor, the gatherer, the sensor and the value change consumers of the sensor.
+ * <p>
+ * The allocated bytes of all the threads are summed up, so the work of the value change dispatcher is included. This
+ * benchmark is not a unit test. It is started with
+ * <pre>
+ *     java at.ac.tuwien.infosys.g2021.daemon.PropagationBenchmark [number of changes]
+ * </pre>
+ */
+public class PropagationBenchmark {
+
+    // The number of value changes, which aren't measured
+    private final static int WARM_UP = 100000;
+
+    // The number of value changes received
+    private static volatile long received;
+
+    /**
+     * Returns the number of bytes allocated by all the living threads so far.
+     *
+     * @return the allocated bytes
+     */
+    private static long allocatedBytes() {
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+        long result = 0L;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) result += Math.max(bytes, 0L);
+
+        return result;
+    }
+
+    /**
+     * Propagates a number of value changes.
+     *
+     * @param actor the buffer, which gets the changes
+     * @param count the number of changes
+     */
+    private static void propagate(Buffer actor, int count) {
+
+        for (int i = 0; i < count; i++) actor.put(i & 0x3ff);
+    }
+
+    /**
+     * The benchmark.
+     *
+     * @param args the number of measured value changes may be given as argument
+     *
+     * @throws Exception if the benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        // The console output would distort the measurement.
+        Logger.getLogger("").setLevel(Level.OFF);
+        Daemon.main(new String[] {"-<unit-test>: don-t-exit-on-shutdown", "-<unit-test>: don-t-open-socket"});
+
+        BufferConfiguration actorConfig = new BufferConfiguration();
+        actorConfig.setBufferClass(BufferClass.ACTOR);
+        actorConfig.getAdapterChain().add(new ScalingAdapterConfiguration(0.0, 2.0, 1.0));
+        actorConfig.setGatherer(new DummyGathererConfiguration());
+        Buffer actor = new Buffer("actor", actorConfig);
+
+        BufferConfiguration sensorConfig = new BufferConfiguration();
+        sensorConfig.setBufferClass(BufferClass.SENSOR);
+        sensorConfig.getAdapterChain().add(new ScalingAdapterConfiguration(0.0, 0.5, 0.0));
+        sensorConfig.setGatherer(new DummyGathererConfiguration());
+        Buffer sensor = new Buffer("sensor", sensorConfig);
+        sensor.addValueChangeConsumer((SimpleData newValue) -> received++);
+
+        propagate(actor, WARM_UP);
+
+        long before = allocatedBytes();
+        long start = System.nanoTime();
+        propagate(actor, count);
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedBytes() - before;
+
+        System.out.printf("%d value changes propagated in %.1f ms%n", count, elapsed / 1.0e6);
+        System.out.printf("%.1f bytes allocated per value change%n", (double)bytes / count);
+        System.out.printf("%d value changes received by the sensor consumer%n", received);
+
+        actor.shutdown();
+        sensor.shutdown();
+        Daemon.get().stop();
+    }
+}
@@ -62,6 +62,21 @@ public class SensorGathererTest extends AbstractGathererTester<SensorGatherer> {
         assertEquals(driverValue, answer);
     }
 
+    /** A port value older than the last one, e.g. delivered late by a concurrent polling, is dropped. */
+    @Test
+    public void testOutdatedValue() {
+
+        long now = System.currentTimeMillis();
+        SimpleData newer = new SimpleData("XXX", new Date(now), BufferState.READY, 2.0);
+
+        getTestObject().valueChanged(newer);
+        getTestObject().valueChanged(new SimpleData("XXX", new Date(now - 1000L), BufferState.READY, 1.0));
+        assertEquals(newer, getTestObject().get());
+
+        getTestObject().valueChanged(new SimpleData("XXX", new Date(now - 500L), BufferState.FAULTED));
+        assertEquals(newer, getTestObject().get());
+    }
+
     /** Test setting gatherer values. */
     @Test
     public void testSet() {
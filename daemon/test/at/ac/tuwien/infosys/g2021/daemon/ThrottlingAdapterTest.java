@@ -0,0 +1,76 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.ThrottlingAdapterConfiguration;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the throttling adapter */
+public class ThrottlingAdapterTest extends AbstractAdapterTester<ThrottlingAdapter> {
+
+    /**
+     * Creates the test object with a minimum interval of 300 ms, a heartbeat after 1 sec and a deadband of 1%.
+     *
+     * @return the test object
+     */
+    @Override
+    protected ThrottlingAdapter initializeTestObject() {
+
+        ThrottlingAdapter result = new ThrottlingAdapter(new ThrottlingAdapterConfiguration(300L, 1000L, 1.0));
+
+        result.addValueChangeConsumer(getValueChangeConsumer());
+        return result;
+    }
+
+    /** Test setting adapter values. */
+    @Test
+    public void test() throws InterruptedException {
+
+        // Initial state
+        checkValue(getTestObject().get(), BufferState.INITIALIZING);
+
+        // The first value is a state change and sent immediately.
+        simulateInput(100.0);
+        checkValueChange(100.0);
+
+        // Values within the minimum interval are delayed and the latest value wins.
+        simulateInput(110.0);
+        simulateInput(120.0);
+        checkValue(getTestObject().get(), 100.0);
+        assertNull(lastValueReceived());
+        Thread.sleep(500L);
+        checkValueChange(120.0);
+
+        // Values within the deadband are suppressed.
+        Thread.sleep(400L);
+        simulateInput(120.5);
+        checkValue(getTestObject().get(), 120.0);
+        assertNull(lastValueReceived());
+
+        // A state change is sent immediately.
+        simulateInput(BufferState.FAULTED);
+        checkValueChange(BufferState.FAULTED);
+        simulateInput(130.0);
+        checkValueChange(130.0);
+    }
+
+    /** The current value is sent again after the maximum silence. */
+    @Test
+    public void testHeartbeat() throws InterruptedException {
+
+        simulateInput(5.0);
+        checkValueChange(5.0);
+        long sent = getTestObject().get().getTime();
+
+        Thread.sleep(1500L);
+        checkValueChange(5.0);
+        assertTrue(getTestObject().get().getTime() >= sent + 1000L);
+
+        // A value within the deadband is suppressed until the next heartbeat.
+        simulateInput(5.01);
+        Thread.sleep(200L);
+        assertNull(lastValueReceived());
+    }
+}
@@ -0,0 +1,133 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the timing wheel. */
+public class TimingWheelTest {
+
+    // The test object
+    private TimingWheel wheel;
+
+    /** Setting up the test object. */
+    @Before
+    public void setUp() { wheel = new TimingWheel(); }
+
+    /** Removing the test object. */
+    @After
+    public void tearDown() { wheel.close(); }
+
+    /** One-shot tasks. */
+    @Test
+    public void testSchedule() throws Exception {
+
+        AtomicLong started = new AtomicLong(0L);
+        long scheduled = System.currentTimeMillis();
+
+        TimingWheel.Task task = wheel.schedule(() -> started.set(System.currentTimeMillis()), 100L);
+        assertEquals(1, wheel.getTaskCount());
+        assertFalse(task.isCancelled());
+
+        Thread.sleep(300L);
+
+        assertTrue(started.get() - scheduled >= 100L);
+        assertTrue(task.isCancelled());
+        assertEquals(0, wheel.getTaskCount());
+
+        // A cancelled task isn't run.
+        AtomicInteger count = new AtomicInteger(0);
+        task = wheel.schedule(count::incrementAndGet, 100L);
+        task.cancel();
+        assertEquals(0, wheel.getTaskCount());
+
+        Thread.sleep(300L);
+
+        assertEquals(0, count.get());
+    }
+
+    /** A one-shot task, which is kept in a higher level of the wheel. */
+    @Test
+    public void testCascading() throws Exception {
+
+        AtomicLong started = new AtomicLong(0L);
+        long scheduled = System.currentTimeMillis();
+
+        wheel.schedule(() -> started.set(System.currentTimeMillis()), 1500L);
+
+        Thread.sleep(1300L);
+        assertEquals(0L, started.get());
+
+        Thread.sleep(500L);
+        assertTrue(started.get() - scheduled >= 1500L);
+        assertTrue(started.get() - scheduled < 1700L);
+    }
+
+    /** Periodic tasks sharing the same period. */
+    @Test
+    public void testScheduleAtFixedRate() throws Exception {
+
+        AtomicInteger immediate = new AtomicInteger(0);
+        AtomicInteger delayed = new AtomicInteger(0);
+
+        TimingWheel.Task first = wheel.scheduleAtFixedRate(immediate::incrementAndGet, 0L, 100L);
+        TimingWheel.Task second = wheel.scheduleAtFixedRate(delayed::incrementAndGet, 300L, 100L);
+        assertEquals(2, wheel.getTaskCount());
+
+        Thread.sleep(250L);
+        assertEquals(3, immediate.get());
+        assertEquals(0, delayed.get());
+
+        Thread.sleep(200L);
+        assertEquals(5, immediate.get());
+        assertEquals(2, delayed.get());
+
+        first.cancel();
+        assertTrue(first.isCancelled());
+        assertEquals(1, wheel.getTaskCount());
+
+        Thread.sleep(200L);
+        assertEquals(5, immediate.get());
+        assertEquals(4, delayed.get());
+
+        second.cancel();
+        assertEquals(0, wheel.getTaskCount());
+    }
+
+    /** Many tasks with the same period. */
+    @Test
+    public void testManyTasks() throws Exception {
+
+        AtomicInteger count = new AtomicInteger(0);
+        TimingWheel.Task[] tasks = new TimingWheel.Task[10000];
+
+        for (int i = 0; i < tasks.length; i++) tasks[i] = wheel.scheduleAtFixedRate(count::incrementAndGet, 50L, 200L);
+        assertEquals(tasks.length, wheel.getTaskCount());
+
+        Thread.sleep(150L);
+        assertEquals(tasks.length, count.get());
+        assertTrue(wheel.getMaxLag() >= 0L);
+
+        for (TimingWheel.Task task : tasks) task.cancel();
+        assertEquals(0, wheel.getTaskCount());
+    }
+
+    /** A failing task doesn't stop the wheel. */
+    @Test
+    public void testFailure() throws Exception {
+
+        AtomicInteger count = new AtomicInteger(0);
+
+        wheel.schedule(() -> { throw new IllegalStateException("test"); }, 10L);
+        wheel.schedule(count::incrementAndGet, 50L);
+
+        Thread.sleep(200L);
+        assertEquals(1, count.get());
+    }
+}
@@ -0,0 +1,161 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the value change dispatcher. */
+public class ValueChangeDispatcherTest {
+
+    // The test object
+    private ValueChangeDispatcher dispatcher;
+
+    // The delivered values and a gate blocking the consumer
+    private List<SimpleData> delivered;
+    private CountDownLatch gate;
+
+    /** Setting up the test object. */
+    @Before
+    public void setUp() {
+
+        delivered = new CopyOnWriteArrayList<>();
+        gate = new CountDownLatch(1);
+
+        dispatcher = new ValueChangeDispatcher(value -> {
+            try {
+                gate.await(5L, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(value);
+        });
+    }
+
+    /** Removing the test object. */
+    @After
+    public void tearDown() { dispatcher.close(); }
+
+    /**
+     * Creates a value.
+     *
+     * @param name  the buffer name
+     * @param value the buffer value
+     *
+     * @return the value
+     */
+    private static SimpleData value(String name, double value) { return new SimpleData(name, new Date(), BufferState.READY, value); }
+
+    /** A slow consumer doesn't block the producers, and only the latest values are delivered. */
+    @Test
+    public void testConflation() throws Exception {
+
+        SimpleData a1 = value("a", 1.0);
+        SimpleData a2 = value("a", 2.0);
+        SimpleData a3 = value("a", 3.0);
+        SimpleData b1 = value("b", 1.0);
+
+        long start = System.currentTimeMillis();
+
+        dispatcher.valueChanged(a1);
+        Thread.sleep(100L);
+
+        // Now the consumer is blocked by the first value.
+        dispatcher.valueChanged(a2);
+        dispatcher.valueChanged(b1);
+        dispatcher.valueChanged(a3);
+        assertTrue(System.currentTimeMillis() - start < 1000L);
+        assertTrue(delivered.isEmpty());
+
+        gate.countDown();
+        Thread.sleep(100L);
+
+        assertEquals(Arrays.asList(a1, a3, b1), delivered);
+    }
+
+    /** Flushing waits until the value handed over is delivered. */
+    @Test
+    public void testFlush() throws Exception {
+
+        dispatcher.valueChanged(value("a", 1.0));
+        dispatcher.valueChanged(value("b", 1.0));
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(200L);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            gate.countDown();
+        }).start();
+
+        long start = System.currentTimeMillis();
+        dispatcher.flush();
+
+        assertTrue(System.currentTimeMillis() - start >= 150L);
+        assertEquals(2, delivered.size());
+    }
+
+    /** Flushing waits for the value changes of all the buffers, e.g. for the sensor sharing the gatherer of an actor set. */
+    @Test
+    public void testFlushDependentBuffers() throws Exception {
+
+        SimpleData actor = value("actor", 10.0);
+        SimpleData sensor = value("sensor", 10.5);
+
+        // The consumer is blocked by the actor.
+        dispatcher.valueChanged(actor);
+        Thread.sleep(100L);
+        dispatcher.valueChanged(sensor);
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(200L);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            gate.countDown();
+        }).start();
+
+        long start = System.currentTimeMillis();
+        dispatcher.flush();
+
+        assertTrue(System.currentTimeMillis() - start >= 150L);
+        assertEquals(Arrays.asList(actor, sensor), delivered);
+    }
+
+    /** Closing the dispatcher releases the waiting threads. */
+    @Test(timeout = 3000L)
+    public void testFlushClosed() throws Exception {
+
+        dispatcher.valueChanged(value("a", 1.0));
+        Thread.sleep(100L);
+        dispatcher.valueChanged(value("b", 1.0));
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(200L);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dispatcher.close();
+        }).start();
+
+        dispatcher.flush();
+        assertTrue(delivered.isEmpty());
+    }
+}
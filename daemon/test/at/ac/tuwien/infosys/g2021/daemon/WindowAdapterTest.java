@@ -0,0 +1,204 @@
+package at.ac.tuwien.infosys.g2021.daemon;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import at.ac.tuwien.infosys.g2021.common.WindowAdapterConfiguration;
+import at.ac.tuwien.infosys.g2021.common.WindowAdapterConfiguration.Function;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/** This is the test of the window adapter */
+public class WindowAdapterTest extends AbstractAdapterTester<WindowAdapter> {
+
+    /**
+     * Creates the test object, which is the maximum of the last 3 input values.
+     *
+     * @return the test object
+     */
+    @Override
+    protected WindowAdapter initializeTestObject() {
+
+        WindowAdapter result = new WindowAdapter(new WindowAdapterConfiguration(Function.MAXIMUM, 0L, 3, 0L));
+
+        result.addValueChangeConsumer(getValueChangeConsumer());
+        return result;
+    }
+
+    /**
+     * Creates an adapter with a time window, which sends a value with every input.
+     *
+     * @param function the statistic
+     * @param time     the time span of the window
+     *
+     * @return the adapter
+     */
+    private static WindowAdapter timeWindow(Function function, long time) {
+
+        return new WindowAdapter(new WindowAdapterConfiguration(function, time, 0, 0L));
+    }
+
+    /**
+     * Sends an input value with a given timestamp to an adapter and returns its output value.
+     *
+     * @param adapter the adapter
+     * @param time    the timestamp of the input value
+     * @param value   the input value
+     *
+     * @return the output value
+     */
+    private static double input(WindowAdapter adapter, long time, double value) {
+
+        adapter.valueChanged(new SimpleData(time, value));
+        return adapter.get().doubleValue();
+    }
+
+    /** Test of a count window. */
+    @Test
+    public void test() {
+
+        // Initial state
+        checkValue(getTestObject().get(), BufferState.INITIALIZING);
+
+        simulateInput(2.0);
+        checkValueChange(2.0);
+        simulateInput(5.0);
+        checkValueChange(5.0);
+
+        // An unchanged maximum is not distributed.
+        simulateInput(1.0);
+        checkValue(getTestObject().get(), 5.0);
+        assertNull(lastValueReceived());
+        simulateInput(3.0);
+        assertNull(lastValueReceived());
+
+        // Now the 5.0 leaves the window.
+        simulateInput(0.0);
+        checkValueChange(3.0);
+
+        // Any change to another state is distributed immediately and empties the window
+        simulateInput(BufferState.FAULTED);
+        checkValueChange(BufferState.FAULTED);
+        simulateInput(BufferState.FAULTED);
+        assertNull(lastValueReceived());
+
+        simulateInput(-1.0);
+        checkValueChange(-1.0);
+    }
+
+    /** The minimum and the maximum of a time window are the same as the ones calculated by brute force. */
+    @Test
+    public void testMinimumMaximum() {
+
+        WindowAdapter minimum = timeWindow(Function.MINIMUM, 10000L);
+        WindowAdapter maximum = timeWindow(Function.MAXIMUM, 10000L);
+        Random random = new Random(4711L);
+        long[] times = new long[2000];
+        double[] values = new double[times.length];
+
+        try {
+            for (int i = 0; i < times.length; i++) {
+
+                times[i] = i == 0 ? 1000000L : times[i - 1] + random.nextInt(500);
+                values[i] = random.nextInt(100);
+
+                double expectedMinimum = Double.POSITIVE_INFINITY;
+                double expectedMaximum = Double.NEGATIVE_INFINITY;
+                for (int j = i; j >= 0 && (j == i || times[j] > times[i] - 10000L); j--) {
+                    expectedMinimum = Math.min(expectedMinimum, values[j]);
+                    expectedMaximum = Math.max(expectedMaximum, values[j]);
+                }
+
+                assertEquals(expectedMinimum, input(minimum, times[i], values[i]), 0.0);
+                assertEquals(expectedMaximum, input(maximum, times[i], values[i]), 0.0);
+            }
+        }
+        finally {
+            minimum.shutdown();
+            maximum.shutdown();
+        }
+    }
+
+    /** The mean, the variance and the standard deviation of a time window. */
+    @Test
+    public void testMoments() {
+
+        WindowAdapter mean = timeWindow(Function.MEAN, 30000L);
+        WindowAdapter variance = timeWindow(Function.VARIANCE, 30000L);
+        WindowAdapter deviation = timeWindow(Function.STANDARD_DEVIATION, 30000L);
+
+        try {
+            long time = 0L;
+            for (int i = 0; i < 100000; i++) {
+                time += 1000L;
+                double value = 1.0e6 + i % 4;
+                input(mean, time, value);
+                input(variance, time, value);
+                input(deviation, time, value);
+            }
+
+            // The last 30 values are 1.0e6 plus 2, 3, 0, 1, ..., 2, 3 with a sum of 47 and a sum of squares of 111.
+            assertEquals(1.0e6 + 47.0 / 30.0, mean.get().doubleValue(), 1.0e-6);
+            assertEquals(111.0 / 30.0 - (47.0 / 30.0) * (47.0 / 30.0), variance.get().doubleValue(), 1.0e-6);
+            assertEquals(Math.sqrt(variance.get().doubleValue()), deviation.get().doubleValue(), 1.0e-9);
+
+            // The latest value is kept, even if it is older than the time span.
+            assertEquals(7.0, input(mean, time + 100000L, 7.0), 0.0);
+            assertEquals(0.0, input(variance, time + 100000L, 7.0), 0.0);
+        }
+        finally {
+            mean.shutdown();
+            variance.shutdown();
+            deviation.shutdown();
+        }
+    }
+
+    /** The rate of change is the change per second within the window. */
+    @Test
+    public void testRate() {
+
+        WindowAdapter rate = timeWindow(Function.RATE, 60000L);
+
+        try {
+            assertEquals(0.0, input(rate, 0L, 10.0), 0.0);
+            assertEquals(0.5, input(rate, 10000L, 15.0), 1.0e-10);
+            assertEquals(0.25, input(rate, 40000L, 20.0), 1.0e-10);
+
+            // The first two values leave the window.
+            assertEquals(1.0 / 30.0, input(rate, 70000L, 21.0), 1.0e-10);
+        }
+        finally {
+            rate.shutdown();
+        }
+    }
+
+    /** An adapter with an emit interval sends the statistic on its cadence. */
+    @Test
+    public void testEmitInterval() throws InterruptedException {
+
+        WindowAdapter adapter = new WindowAdapter(new WindowAdapterConfiguration(Function.MEAN, 60000L, 0, 200L));
+        adapter.addValueChangeConsumer(getValueChangeConsumer());
+
+        try {
+            // The first value is sent immediately.
+            adapter.valueChanged(new SimpleData(System.currentTimeMillis(), 2.0));
+            checkValue(lastValueReceived(), 2.0);
+            clearLastValueReceived();
+
+            // Further values are sent by the timer.
+            adapter.valueChanged(new SimpleData(System.currentTimeMillis(), 4.0));
+            assertNull(lastValueReceived());
+            Thread.sleep(500L);
+            checkValue(lastValueReceived(), 3.0);
+
+            // States are sent immediately.
+            adapter.valueChanged(new SimpleData(System.currentTimeMillis(), BufferState.FAULTED));
+            checkValue(lastValueReceived(), BufferState.FAULTED);
+        }
+        finally {
+            adapter.shutdown();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers;
+
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the compiled value corrections. */
+public class CalibrationTest {
+
+    // A linearization of the documentation
+    private final static double[] COFFS = {0.0, 1.020, 6.120, 12.75, 19.125, 25.500, 31.875, 40.035, 65.025, 105.060, 128.775, 168.300, 200.940, 255.0};
+    private final static double[] STEPS = {0.0, 10.00, 20.00, 30.00, 40.000, 50.000, 60.000, 70.000, 75.000, 80.000, 85.000, 90.000, 95.000, 100.0};
+
+    /**
+     * The linearization as it was calculated before compiling it.
+     *
+     * @param coffs the segment limits
+     * @param steps the corrected values at the limits
+     * @param r     the value
+     *
+     * @return the linearized value
+     */
+    private static double linearizer(double[] coffs, double[] steps, double r) {
+
+        double[] c = new double[coffs.length + 1];
+        double[] s = new double[steps.length + 1];
+        System.arraycopy(coffs, 0, c, 0, coffs.length);
+        System.arraycopy(steps, 0, s, 0, steps.length);
+        c[coffs.length] = c[coffs.length - 1];
+        s[steps.length] = s[steps.length - 1];
+
+        double res = s[s.length - 1];
+        for (int i = 1; i < c.length; i++) {
+            if (r <= c[i]) {
+                res = (r - c[i - 1]) / (c[i] - c[i - 1]) * (s[i] - s[i - 1]) + s[i - 1];
+                break;
+            }
+        }
+        return res;
+    }
+
+    /** The binary search finds the same segments as a linear search. */
+    @Test
+    public void testLinearization() {
+
+        Calibration calibration = Calibration.compile(COFFS, STEPS, null);
+        Random random = new Random(42L);
+
+        for (int i = 0; i < 10000; i++) {
+            double r = random.nextDouble() * 300.0 - 20.0;
+            assertEquals(linearizer(COFFS, STEPS, r), calibration.linearize(r), 1.0e-9);
+        }
+        for (double r : COFFS) assertEquals(linearizer(COFFS, STEPS, r), calibration.linearize(r), 1.0e-9);
+
+        assertEquals(100.0, calibration.linearize(1000.0), 0.0);
+        assertEquals(100.0, calibration.linearize(Double.NaN), 0.0);
+        assertEquals(-10.0 / 1.02, calibration.linearize(-1.0), 1.0e-9);
+
+        // Unsorted limits are searched linearly, as always.
+        double[] coffs = {0.0, 10.0, 5.0, 20.0};
+        double[] steps = {0.0, 1.0, 2.0, 3.0};
+        Calibration unsorted = Calibration.compile(coffs, steps, null);
+        for (double r = -5.0; r < 25.0; r += 0.25) assertEquals(linearizer(coffs, steps, r), unsorted.linearize(r), 1.0e-9);
+
+        try {
+            Calibration.compile(new double[] {1.0, 2.0}, new double[] {1.0}, null);
+            throw new AssertionError("an inconsistent linearization has been compiled");
+        }
+        catch (IllegalArgumentException e) {}
+    }
+
+    /** The polynomial is evaluated by the Horner scheme. */
+    @Test
+    public void testPolynomial() {
+
+        Calibration calibration = Calibration.compile(null, null, new double[] {-20.0, 0.7, 0.01, -0.001});
+
+        for (double r = -50.0; r <= 50.0; r += 0.5) {
+            assertEquals(-20.0 + 0.7 * r + 0.01 * r * r - 0.001 * r * r * r, calibration.polynomial(r), 1.0e-9);
+        }
+
+        assertEquals(3.0, Calibration.compile(null, null, new double[] {3.0}).polynomial(17.0), 0.0);
+        assertEquals(17.0, Calibration.IDENTITY.convert(17.0), 0.0);
+    }
+
+    /** A lookup table returns the same values, and many values are converted at once. */
+    @Test
+    public void testLookupTable() {
+
+        Calibration calibration = Calibration.compile(COFFS, STEPS, new double[] {-20.0, 0.7});
+        Calibration table = calibration.withLookupTable(255);
+
+        assertFalse(calibration.hasLookupTable());
+        assertTrue(table.hasLookupTable());
+
+        double[] raw = new double[300];
+        for (int i = 0; i < raw.length; i++) raw[i] = i - 10 + (i % 7 == 0 ? 0.5 : 0.0);
+
+        double[] expected = new double[raw.length];
+        double[] converted = new double[raw.length];
+        for (int i = 0; i < raw.length; i++) expected[i] = -20.0 + 0.7 * linearizer(COFFS, STEPS, raw[i]);
+
+        calibration.convert(raw, converted);
+        for (int i = 0; i < raw.length; i++) assertEquals(expected[i], converted[i], 1.0e-9);
+
+        table.convert(raw, raw);
+        for (int i = 0; i < raw.length; i++) assertEquals(expected[i], raw[i], 1.0e-9);
+
+        try {
+            calibration.withLookupTable(Calibration.MAX_TABLE_SIZE);
+            throw new AssertionError("a too large lookup table has been created");
+        }
+        catch (IllegalArgumentException e) {}
+    }
+}
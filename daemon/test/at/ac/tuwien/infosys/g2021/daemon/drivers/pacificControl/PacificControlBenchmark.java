@@ -0,0 +1,103 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.pacificControl;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This benchmark measures the polls of the Pacific Control driver against a local HTTP server sending a point list
+ * with 5000 points. The point list is changed before every poll in the first run, so every poll transfers and reads
+ * the whole point list. It isn't changed in the second run, so every poll is answered with "304 Not Modified".
+ * <p>
+ * The time and the heap allocated by the polling thread are measured per poll. This benchmark is not a unit test.
+ * It is started with
+ * <pre>
+ *     java at.ac.tuwien.infosys.g2021.daemon.drivers.pacificControl.PacificControlBenchmark [number of polls]
+ * </pre>
+ */
+public class PacificControlBenchmark {
+
+    // The number of points
+    private final static int POINTS = 5000;
+
+    // The number of polls, which aren't measured
+    private final static int WARM_UP = 50;
+
+    /**
+     * Returns the number of bytes allocated by the current thread so far.
+     *
+     * @return the allocated bytes
+     */
+    private static long allocatedBytes() {
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Polls the driver and prints the time and the heap allocated per poll.
+     *
+     * @param title    the title of the run
+     * @param driver   the driver
+     * @param server   the server
+     * @param count    the number of polls
+     * @param changing should the point list be changed before every poll?
+     */
+    private static void poll(String title, PacificControlHardwareDriverImpelmentation driver, PointListServer server,
+                             int count, boolean changing) {
+
+        String[] documents = {PointListServer.pointList(POINTS, 0.0), PointListServer.pointList(POINTS, 1.0)};
+
+        for (int i = 0; i < WARM_UP; i++) {
+            if (changing) server.setPoints(documents[i & 1]);
+            driver.getAll();
+        }
+
+        long nanos = 0L;
+        long bytes = 0L;
+        for (int i = 0; i < count; i++) {
+            if (changing) server.setPoints(documents[i & 1]);
+            long startBytes = allocatedBytes();
+            long start = System.nanoTime();
+            driver.getAll();
+            nanos += System.nanoTime() - start;
+            bytes += allocatedBytes() - startBytes;
+        }
+
+        System.out.printf("%-24s %8.3f ms/poll %10d bytes/poll%n", title, nanos / 1.0e6 / count, bytes / count);
+    }
+
+    /**
+     * The benchmark.
+     *
+     * @param args the number of measured polls may be given as argument
+     *
+     * @throws Exception if the benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+
+        // The console output would distort the measurement.
+        Logger.getLogger("").setLevel(Level.OFF);
+
+        PointListServer server = new PointListServer();
+        server.setPoints(PointListServer.pointList(POINTS, 0.0));
+        File configuration = server.configuration();
+
+        try {
+            PacificControlHardwareDriverImpelmentation driver = new PacificControlHardwareDriverImpelmentation(configuration.getPath());
+            System.out.printf("%d ports configured%n", driver.getPorts().size());
+
+            poll("changed point list", driver, server, count, true);
+            poll("unchanged point list", driver, server, count, false);
+
+            System.out.printf("%d requests on %d connections%n", server.getRequests(), server.getConnections());
+        }
+        finally {
+            server.stop();
+            configuration.delete();
+        }
+    }
+}
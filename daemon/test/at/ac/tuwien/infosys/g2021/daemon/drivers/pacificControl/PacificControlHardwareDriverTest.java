@@ -0,0 +1,106 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.pacificControl;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import java.io.File;
+import java.util.Collection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the Pacific Control driver using a local HTTP server. */
+public class PacificControlHardwareDriverTest {
+
+    // The test objects
+    private PointListServer server;
+    private File configuration;
+    private PacificControlHardwareDriverImpelmentation driver;
+
+    /** Setting up the test object. */
+    @Before
+    public void setUp() throws Exception {
+
+        server = new PointListServer();
+        server.setPoints(PointListServer.pointList(100, 0.5));
+        configuration = server.configuration();
+        driver = new PacificControlHardwareDriverImpelmentation(configuration.getPath());
+        assertEquals(100, driver.getPorts().size());
+    }
+
+    /** Removing the test object. */
+    @After
+    public void tearDown() {
+
+        driver.release();
+        server.stop();
+        assertTrue(configuration.delete());
+    }
+
+    /**
+     * Returns the value of a port.
+     *
+     * @param values the values
+     * @param name   the name of the port
+     *
+     * @return the value
+     */
+    private static SimpleData valueOf(Collection<SimpleData> values, String name) {
+
+        for (SimpleData value : values) if (value.getBufferName().equals(name)) return value;
+        throw new AssertionError("no value of port " + name);
+    }
+
+    /** An unchanged point list isn't sent again, and the connection is reused. */
+    @Test
+    public void testConditionalRequests() {
+
+        for (int i = 0; i < 5; i++) {
+            Collection<SimpleData> values = driver.getAll();
+            assertEquals(100, values.size());
+            assertEquals(BufferState.READY, valueOf(values, "P0").getState());
+            assertEquals(0.5, valueOf(values, "P0").doubleValue(), 1.0e-10);
+            assertEquals(99.5, valueOf(values, "P99").doubleValue(), 1.0e-10);
+        }
+
+        // The point list is sent for the configuration and the first poll only.
+        assertEquals(6, server.getRequests());
+        assertEquals(2, server.getSent());
+        assertEquals(1, server.getConnections());
+
+        server.setPoints(PointListServer.pointList(100, 10.0));
+        assertEquals(10.0, valueOf(driver.getAll(), "P0").doubleValue(), 1.0e-10);
+        assertEquals(3, server.getSent());
+    }
+
+    /** Invalid and missing points are faulted, other points are ignored. */
+    @Test
+    public void testInvalidPoints() {
+
+        server.setPoints("{ \"time\" : { \"a\" : [1, 2, null] },\n" +
+                         "  \"list\" : [\n" +
+                         "    { \"value\" : -1.5e1, \"name\" : \"P1\" },\n" +
+                         "    { \"name\" : \"P2\", \"valid\" : false, \"value\" : 2.0 },\n" +
+                         "    { \"name\" : \"P3\", \"value\" : \"3.0\" },\n" +
+                         "    { \"name\" : \"P\\u0034\", \"value\" : 4 },\n" +
+                         "    { \"name\" : \"unknown\", \"value\" : [5, { \"x\" : \"]\" }] }\n" +
+                         "] }");
+
+        Collection<SimpleData> values = driver.getAll();
+        assertEquals(100, values.size());
+        assertEquals(-15.0, valueOf(values, "P1").doubleValue(), 1.0e-10);
+        assertEquals(BufferState.FAULTED, valueOf(values, "P2").getState());
+        assertEquals(BufferState.FAULTED, valueOf(values, "P3").getState());
+        assertEquals(4.0, valueOf(values, "P4").doubleValue(), 1.0e-10);
+        assertEquals(BufferState.FAULTED, valueOf(values, "P5").getState());
+
+        // A corrupt point list faults all the ports.
+        server.setPoints("{ \"list\" : [ { \"name\" : \"P1\", \"value\" : 1 }");
+        for (SimpleData value : driver.getAll()) assertEquals(BufferState.FAULTED, value.getState());
+
+        server.setPoints(PointListServer.pointList(100, 0.0));
+        assertEquals(1.0, valueOf(driver.getAll(), "P1").doubleValue(), 1.0e-10);
+    }
+}
@@ -0,0 +1,163 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.pacificControl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/** A local HTTP server sending a point list like the G2021. The point list has an entity tag. */
+class PointListServer {
+
+    // The server
+    private final HttpServer server;
+
+    // The point list and its version
+    private volatile byte[] document;
+    private volatile String entityTag;
+    private int version;
+
+    // The number of requests, the number of point lists sent and the ports of the clients
+    private volatile int requests;
+    private volatile int sent;
+    private final Set<Integer> clients;
+
+    /**
+     * Starts the server on a free port.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    PointListServer() throws IOException {
+
+        clients = new HashSet<>();
+        setPoints("{ \"list\" : [] }");
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/list", this::handle);
+        server.start();
+    }
+
+    /**
+     * Answers a request.
+     *
+     * @param exchange the request and its response
+     *
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try (InputStream in = exchange.getRequestBody()) {
+            while (in.read() >= 0) {}
+        }
+
+        byte[] body = document;
+        String tag = entityTag;
+
+        synchronized (clients) {
+            requests++;
+            clients.add(exchange.getRemoteAddress().getPort());
+        }
+
+        if (tag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+        }
+        else {
+            sent++;
+            exchange.getResponseHeaders().set("ETag", tag);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) { out.write(body); }
+        }
+
+        exchange.close();
+    }
+
+    /**
+     * Replaces the point list.
+     *
+     * @param json the new point list
+     */
+    synchronized void setPoints(String json) {
+
+        document = json.getBytes(StandardCharsets.UTF_8);
+        entityTag = "\"" + (++version) + "\"";
+    }
+
+    /**
+     * Creates a point list.
+     *
+     * @param count the number of points
+     * @param base  the value of the first point
+     *
+     * @return the point list
+     */
+    static String pointList(int count, double base) {
+
+        StringBuilder result = new StringBuilder("{ \"list\" : [\n");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) result.append(",\n");
+            result.append("  { \"name\" : \"P").append(i).append("\", \"type\" : 3, \"unit\" : \"3\", \"description\" : \"point \\\"")
+                  .append(i).append("\\\"\", \"valid\" : true, \"value\" : ").append(base + i).append(" }");
+        }
+        return result.append("\n], \"time\" : \"2016-05-20T10:00:00\" }").toString();
+    }
+
+    /**
+     * Writes a configuration file for the driver.
+     *
+     * @return the configuration file
+     *
+     * @throws IOException if the file cannot be written
+     */
+    File configuration() throws IOException {
+
+        File result = File.createTempFile("portCfg", ".json");
+        try (Writer writer = new FileWriter(result)) {
+            writer.write("{ \"portCfg\" : [\n" +
+                         "  { \"hwCfg\" : { \"connection\" : \"pacificControl\", \"url\" : \"" + url() + "\", \"interval\" : 1 } }\n" +
+                         "] }\n");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the url of the point list.
+     *
+     * @return the url
+     */
+    String url() { return "http://localhost:" + server.getAddress().getPort() + "/list"; }
+
+    /**
+     * Returns the number of requests received.
+     *
+     * @return the number of requests
+     */
+    int getRequests() { return requests; }
+
+    /**
+     * Returns the number of point lists sent.
+     *
+     * @return the number of responses with a point list
+     */
+    int getSent() { return sent; }
+
+    /**
+     * Returns the number of client connections used.
+     *
+     * @return the number of connections
+     */
+    int getConnections() {
+
+        synchronized (clients) { return clients.size(); }
+    }
+
+    /** Stops the server. */
+    void stop() { server.stop(0); }
+}
@@ -0,0 +1,215 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.raspberrypii2cdemo;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import at.ac.tuwien.infosys.g2021.daemon.PortDescription;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the Raspberry Pi I2C driver using an I2C bus in memory. */
+public class RaspberryPiI2CDemoHardwareDriverTest {
+
+    /** An I2C bus in memory. */
+    private static class MemoryI2CBus implements I2CBusAccess {
+
+        // The contents of the devices
+        private final Map<Integer, byte[]> devices = new HashMap<>();
+
+        // Is the bus open?
+        private boolean open = false;
+
+        // The number of accesses
+        private int opened = 0;
+        private int reads = 0;
+        private int writes = 0;
+
+        // Fails the next read?
+        private boolean failing = false;
+
+        private void access(int address) throws IOException {
+
+            open();
+            if (!devices.containsKey(address)) {
+                close();
+                throw new IOException("no device at " + address);
+            }
+        }
+
+        @Override
+        public void open() {
+
+            if (!open) {
+                open = true;
+                opened++;
+            }
+        }
+
+        @Override
+        public int read(int address) throws IOException {
+
+            access(address);
+            return devices.get(address)[0];
+        }
+
+        @Override
+        public int read(int address, byte[] buffer, int offset, int size) throws IOException {
+
+            access(address);
+            reads++;
+            if (failing) {
+                failing = false;
+                close();
+                throw new IOException("bus error");
+            }
+
+            byte[] data = devices.get(address);
+            int read = Math.min(size, data.length);
+            System.arraycopy(data, 0, buffer, offset, read);
+            return read;
+        }
+
+        @Override
+        public void write(int address, byte data) throws IOException {
+
+            access(address);
+            writes++;
+        }
+
+        @Override
+        public void write(int address, byte[] buffer, int offset, int size) throws IOException {
+
+            access(address);
+            writes++;
+            System.arraycopy(buffer, offset, devices.get(address), 0, size);
+        }
+
+        @Override
+        public void close() { open = false; }
+    }
+
+    // The test objects
+    private MemoryI2CBus bus;
+    private RaspberryPiI2CDemoHardwareDriverImplementation driver;
+    private File configuration;
+
+    /** Setting up the test object. */
+    @Before
+    public void setUp() throws Exception {
+
+        bus = new MemoryI2CBus();
+        bus.devices.put(0x70, new byte[] {0});                  // the multiplexer
+        bus.devices.put(0x48, new byte[] {0x05, 0x01});         // a device with two registers
+        bus.devices.put(0x51, new byte[] {0x10});               // a device behind the multiplexer
+
+        configuration = File.createTempFile("portCfg", ".json");
+        try (Writer writer = new FileWriter(configuration)) {
+            writer.write("{ \"portCfg\" : [\n" +
+                         "  { \"name\" : \"low\", \"portClass\" : 3, \"active\" : true,\n" +
+                         "    \"hwCfg\" : { \"connection\" : \"I2C\", \"i2cAddr\" : \"0x48\" } },\n" +
+                         "  { \"name\" : \"word\", \"portClass\" : 3, \"active\" : true,\n" +
+                         "    \"hwCfg\" : { \"connection\" : \"I2C\", \"i2cAddr\" : \"0x48\", \"bitWeight\" : \"1,2,4,8,16,32,64,128,256,512,1024,2048,4096,8192,16384,32768\", \"lookupTable\" : \"true\" },\n" +
+                         "    \"valCorr\" : { \"polyCoffs\" : \"1, 2\" } },\n" +
+                         "  { \"name\" : \"muxed\", \"portClass\" : 3, \"active\" : true,\n" +
+                         "    \"hwCfg\" : { \"connection\" : \"I2C\", \"i2cMuxAddr\" : \"0x70\", \"i2cMuxCmd\" : \"0x04\", \"i2cAddr\" : \"0x51\", \"bitWeight\" : \"1,2,4,8,16,32,64,128\" } },\n" +
+                         "  { \"name\" : \"missing\", \"portClass\" : 3, \"active\" : true,\n" +
+                         "    \"hwCfg\" : { \"connection\" : \"I2C\", \"i2cAddr\" : \"0x60\" } }\n" +
+                         "] }\n");
+        }
+
+        driver = new RaspberryPiI2CDemoHardwareDriverImplementation(bus, configuration.getPath());
+    }
+
+    /** Removing the test object. */
+    @After
+    public void tearDown() {
+
+        driver.release();
+        assertTrue(configuration.delete());
+    }
+
+    /**
+     * Returns the value of a port.
+     *
+     * @param values the values
+     * @param name   the name of the port
+     *
+     * @return the value
+     */
+    private static SimpleData valueOf(Collection<SimpleData> values, String name) {
+
+        for (SimpleData value : values) if (value.getBufferName().equals(name)) return value;
+        throw new AssertionError("no value of port " + name);
+    }
+
+    /** Every device is read with one block read, and the bus is opened once. */
+    @Test
+    public void testGroupedReads() {
+
+        assertTrue(driver.isSuitable());
+
+        Collection<PortDescription> ports = driver.getPorts();
+        assertEquals(3, ports.size());
+
+        // The first poll sets the multiplexer.
+        bus.writes = 0;
+        driver.getAll();
+        assertEquals(1, bus.writes);
+
+        bus.opened = 0;
+        bus.reads = 0;
+        bus.writes = 0;
+        for (int i = 0; i < 10; i++) {
+
+            Collection<SimpleData> values = driver.getAll();
+            assertEquals(3, values.size());
+            assertEquals(5.0, valueOf(values, "low").doubleValue(), 1.0e-10);
+            assertEquals(1.0 + 2.0 * 261.0, valueOf(values, "word").doubleValue(), 1.0e-10);
+            assertEquals(16.0, valueOf(values, "muxed").doubleValue(), 1.0e-10);
+        }
+
+        assertEquals(0, bus.opened);
+        assertEquals(20, bus.reads);
+        assertEquals(0, bus.writes);
+
+        // Only the device of the requested port is read.
+        bus.reads = 0;
+        Collection<SimpleData> values = driver.get(Arrays.asList("muxed", "unknown"));
+        assertEquals(1, values.size());
+        assertEquals(16.0, valueOf(values, "muxed").doubleValue(), 1.0e-10);
+        assertEquals(1, bus.reads);
+    }
+
+    /** A failing device faults its ports, and the bus is opened again on the next poll. */
+    @Test
+    public void testReconnect() {
+
+        driver.getPorts();
+        driver.getAll();
+        bus.opened = 0;
+
+        bus.failing = true;
+        Collection<SimpleData> values = driver.getAll();
+        assertEquals(BufferState.FAULTED, valueOf(values, "low").getState());
+        assertEquals(BufferState.FAULTED, valueOf(values, "word").getState());
+        assertEquals(BufferState.READY, valueOf(values, "muxed").getState());
+        assertEquals(1, bus.opened);
+
+        values = driver.getAll();
+        assertEquals(BufferState.READY, valueOf(values, "low").getState());
+        assertEquals(BufferState.READY, valueOf(values, "word").getState());
+        assertEquals(BufferState.READY, valueOf(values, "muxed").getState());
+        assertEquals(1, bus.opened);
+    }
+}
@@ -0,0 +1,165 @@
+package at.ac.tuwien.infosys.g2021.daemon.drivers.simulation;
+
+import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.SimpleData;
+import at.ac.tuwien.infosys.g2021.daemon.PortClass;
+import at.ac.tuwien.infosys.g2021.daemon.PortDescription;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** This is the test of the simulation driver. */
+public class SimulationHardwareDriverTest {
+
+    // The simulation file
+    private File simulation;
+
+    /** Removing the simulation file. */
+    @After
+    public void tearDown() {
+
+        if (simulation != null) assertTrue(simulation.delete());
+    }
+
+    /**
+     * Creates a driver for a simulation.
+     *
+     * @param groups the JSON objects of the port groups
+     *
+     * @return the driver
+     *
+     * @throws IOException if the simulation file cannot be written
+     */
+    private SimulationHardwareDriverImplementation driver(String... groups) throws IOException {
+
+        if (simulation == null) simulation = File.createTempFile("simulation", ".json");
+        try (Writer writer = new FileWriter(simulation)) {
+            writer.write("{ \"simulation\" : [" + String.join(",\n", groups) + "] }");
+        }
+
+        return new SimulationHardwareDriverImplementation(simulation.getPath());
+    }
+
+    /** The ports are created as configured. */
+    @Test
+    public void testPorts() throws Exception {
+
+        SimulationHardwareDriverImplementation driver = driver(
+                "{ \"name\" : \"A\", \"count\" : 3 }",
+                "{ \"name\" : \"D\", \"count\" : 2, \"portClass\" : 1, \"waveform\" : \"step\", \"pollInterval\" : 100 }",
+                "{ \"name\" : \"O\", \"count\" : 1, \"portClass\" : 4, \"offset\" : 5.0 }");
+        assertTrue(driver.isSuitable());
+
+        Map<String, PortDescription> ports = new HashMap<>();
+        for (PortDescription port : driver.getPorts()) ports.put(port.getPortName(), port);
+
+        assertEquals(6, ports.size());
+        assertEquals(PortClass.ANALOG_INPUT, ports.get("A2").getPortClass());
+        assertEquals(PortDescription.DEFAULT_POLL_INTERVAL, ports.get("A2").getPollInterval());
+        assertEquals(PortClass.DIGITAL_INPUT, ports.get("D1").getPortClass());
+        assertEquals(100L, ports.get("D1").getPollInterval());
+        assertEquals("step", ports.get("D1").getPortMetainfo().get("waveform"));
+
+        assertEquals(6, driver.getAll().size());
+        Collection<SimpleData> values = driver.get(Arrays.asList("O0", "unknown"));
+        assertEquals(1, values.size());
+        assertEquals(5.0, values.iterator().next().getValue().doubleValue(), 1.0e-10);
+
+        assertTrue(driver.set("O0", 7.5));
+        assertEquals(7.5, driver.get(Arrays.asList("O0")).iterator().next().getValue().doubleValue(), 1.0e-10);
+
+        try {
+            driver.set("A0", 1.0);
+            throw new AssertionError("an input has been set");
+        }
+        catch (UnsupportedOperationException e) {}
+    }
+
+    /** Invalid simulations aren't used. */
+    @Test
+    public void testInvalidSimulations() throws Exception {
+
+        assertFalse(driver("{ \"name\" : \"A\", \"count\" : 100001 }").isSuitable());
+        assertFalse(driver("{ \"name\" : \"A\", \"count\" : 60000 }", "{ \"name\" : \"B\", \"count\" : 60000 }").isSuitable());
+        assertFalse(driver("{ \"name\" : \"A\", \"count\" : 10 }", "{ \"name\" : \"A\", \"count\" : 10 }").isSuitable());
+        assertFalse(driver("{ \"name\" : \"A\", \"count\" : 10, \"waveform\" : \"saw\" }").isSuitable());
+        assertFalse(driver("{ \"name\" : \"A\", \"count\" : 10, \"changeRate\" : 0 }").isSuitable());
+        assertFalse(driver("{ \"count\" : 10 }").isSuitable());
+        assertFalse(new SimulationHardwareDriverImplementation().isSuitable());
+    }
+
+    /** The values change with the configured rate, and the same seed gives the same values. */
+    @Test
+    public void testWaveforms() throws Exception {
+
+        String[] groups = {
+                "{ \"name\" : \"sine\", \"count\" : 100, \"changeRate\" : 2.0, \"amplitude\" : 10.0, \"seed\" : 7 }",
+                "{ \"name\" : \"walk\", \"count\" : 100, \"waveform\" : \"randomWalk\", \"changeRate\" : 2.0, \"amplitude\" : 10.0, \"offset\" : 50.0 }",
+                "{ \"name\" : \"step\", \"count\" : 100, \"waveform\" : \"step\", \"changeRate\" : 2.0, \"amplitude\" : 1.0 }",
+                "{ \"name\" : \"burst\", \"count\" : 100, \"waveform\" : \"burst\", \"changeRate\" : 2.0, \"amplitude\" : 10.0 }"};
+
+        SimulationHardwareDriverImplementation driver = driver(groups);
+        assertTrue(driver.isSuitable());
+        SimulationHardwareDriverImplementation twin = driver(groups);
+        assertTrue(twin.isSuitable());
+
+        int[] changes = new int[4];
+        int bursts = 0;
+        SimpleData[] last = new SimpleData[400];
+
+        // 100 seconds in steps of 100 ms
+        for (long time = 0L; time < 100000L; time += 100L) {
+            for (int port = 0; port < 400; port++) {
+
+                SimpleData value = driver.value(port, time);
+                assertEquals(value, twin.value(port, time));
+                assertEquals(BufferState.READY, value.getState());
+
+                double v = value.getValue().doubleValue();
+                switch (port / 100) {
+                    case 0: assertTrue(v >= -10.0 && v <= 10.0); break;
+                    case 1: assertTrue(v >= 40.0 && v <= 60.0); break;
+                    case 2: assertEquals(1.0, Math.abs(v), 1.0e-10); break;
+                    case 3:
+                        assertTrue(v >= -10.0 && v <= 10.0);
+                        if (v != 0.0) bursts++;
+                        break;
+                }
+
+                if (last[port] != null && !value.equals(last[port])) changes[port / 100]++;
+                last[port] = value;
+            }
+        }
+
+        // Every port changes at most twice a second.
+        for (int change : changes) assertTrue(change <= 100 * 200);
+        assertEquals(100 * 200, changes[2], 100);
+        assertTrue(changes[0] > 100 * 150);
+        assertTrue(changes[1] > 100 * 150);
+        assertTrue(bursts > 0 && bursts < 1000 * 100 / 4);
+    }
+
+    /** Reading 100000 ports is cheap. */
+    @Test
+    public void testManyPorts() throws Exception {
+
+        SimulationHardwareDriverImplementation driver = driver(
+                "{ \"name\" : \"S\", \"count\" : 50000 }",
+                "{ \"name\" : \"W\", \"count\" : 50000, \"waveform\" : \"randomWalk\" }");
+        assertTrue(driver.isSuitable());
+        assertEquals(SimulationHardwareDriverImplementation.MAX_PORTS, driver.getPorts().size());
+
+        for (int i = 0; i < 10; i++) assertEquals(SimulationHardwareDriverImplementation.MAX_PORTS, driver.getAll().size());
+    }
+}
@@ -1,16 +1,29 @@
 package at.ac.tuwien.infosys.g2021.intf;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferDescription;
+import at.ac.tuwien.infosys.g2021.common.Condition;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.communication.ClientEndpoint;
+import at.ac.tuwien.infosys.g2021.common.communication.ConditionObserver;
 import at.ac.tuwien.infosys.g2021.common.communication.ValueChangeObserver;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * This is an abstract implementation of classes communicating with a client endpoint. It manages the connection with the
  * client endpoint and implements the buffer queries.
+ * <p>
+ * The blocking methods wait for their asynchronous counterparts. The futures returned by the asynchronous methods are
+ * completed by the communication threads of the client endpoint.
  */
 abstract class AbstractClientImplementation implements ValueChangeObserver {
 
@@ -99,6 +112,41 @@ abstract class AbstractClientImplementation implements ValueChangeObserver {
         releaseClientEndpoint();
     }
 
+    /**
+     * Waits for the completion of a future. If the future completes exceptionally, the causing exception is thrown.
+     *
+     * @param result the pending result
+     * @param <T>    the type of the result
+     *
+     * @return the result
+     */
+    static <T> T await(CompletableFuture<T> result) {
+
+        try {
+            return result.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            else throw e;
+        }
+    }
+
+    /**
+     * Creates a future, which is already completed exceptionally.
+     *
+     * @param e   the exception
+     * @param <T> the type of the result
+     *
+     * @return the future
+     */
+    static <T> CompletableFuture<T> failed(RuntimeException e) {
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(e);
+
+        return result;
+    }
+
     /**
      * This method looks for available buffers.
      *
@@ -107,26 +155,22 @@ abstract class AbstractClientImplementation implements ValueChangeObserver {
      *
      * @return a collection of all the buffers matching this query
      */
-    Set<BufferDescription> queryBuffersByName(String bufferName) {
-
-        Set<BufferDescription> result = new HashSet<>();
-        ClientEndpoint endpoint = getConnectedClientEndpoint();
-
-        if (endpoint != null) {
+    Set<BufferDescription> queryBuffersByName(String bufferName) { return await(queryBuffersByNameAsync(bufferName)); }
 
-            Set<String> names = endpoint.queryBuffersByName(bufferName);
+    /**
+     * This method looks for available buffers without waiting for the daemon.
+     *
+     * @param bufferName a regular expression specifying the buffer name, which should be scanned. A simple match satisfy
+     *                   the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending collection of all the buffers matching this query
+     */
+    CompletableFuture<Set<BufferDescription>> queryBuffersByNameAsync(String bufferName) {
 
-            for (String name : names) {
-                try {
-                    result.add(getBufferDescription(name));
-                }
-                catch (IllegalArgumentException e) {
-                    // This buffer may be removed by the buffer manager. Therefore the exception is ignored.
-                }
-            }
-        }
+        ClientEndpoint endpoint = getConnectedClientEndpoint();
 
-        return result;
+        if (endpoint != null) return endpoint.queryDescriptionsByNameAsync(bufferName);
+        else return CompletableFuture.completedFuture(new HashSet<>());
     }
 
     /**
@@ -139,26 +183,24 @@ abstract class AbstractClientImplementation implements ValueChangeObserver {
      *
      * @return a collection of all the buffers matching this query
      */
-    Set<BufferDescription> queryBuffersByMetainfo(String topic, String feature) {
-
-        Set<BufferDescription> result = new HashSet<>();
-        ClientEndpoint endpoint = getConnectedClientEndpoint();
-
-        if (endpoint != null) {
+    Set<BufferDescription> queryBuffersByMetainfo(String topic, String feature) { return await(queryBuffersByMetainfoAsync(topic, feature)); }
 
-            Set<String> names = endpoint.queryBuffersByMetainfo(topic, feature);
+    /**
+     * This method looks for available buffers without waiting for the daemon.
+     *
+     * @param topic   a regular expression specifying the buffer topics, which should be scanned for the wanted features. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole topic name.
+     * @param feature a regular expression specifying the buffer features, which should be scanned. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending collection of all the buffers matching this query
+     */
+    CompletableFuture<Set<BufferDescription>> queryBuffersByMetainfoAsync(String topic, String feature) {
 
-            for (String name : names) {
-                try {
-                    result.add(getBufferDescription(name));
-                }
-                catch (IllegalArgumentException e) {
-                    // This buffer may be removed by the buffer manager. Therefore the exception is ignored.
-                }
-            }
-        }
+        ClientEndpoint endpoint = getConnectedClientEndpoint();
 
-        return result;
+        if (endpoint != null) return endpoint.queryDescriptionsByMetainfoAsync(topic, feature);
+        else return CompletableFuture.completedFuture(new HashSet<>());
     }
 
     /**
@@ -170,17 +212,126 @@ abstract class AbstractClientImplementation implements ValueChangeObserver {
      *
      * @throws IllegalArgumentException if there exists no buffer with the given buffer name
      */
-    BufferDescription getBufferDescription(String name) throws IllegalArgumentException {
+    BufferDescription getBufferDescription(String name) throws IllegalArgumentException { return await(getBufferDescriptionAsync(name)); }
+
+    /**
+     * This method returns the meta information of a buffer without waiting for the daemon.
+     *
+     * @param name the name of a buffer
+     *
+     * @return the pending buffer meta information, which completes exceptionally with an <tt>IllegalArgumentException</tt>,
+     *         if there exists no buffer with the given buffer name
+     */
+    CompletableFuture<BufferDescription> getBufferDescriptionAsync(String name) {
 
         ClientEndpoint endpoint = getConnectedClientEndpoint();
 
-        if (endpoint != null) {
+        if (endpoint == null) return failed(new IllegalArgumentException("unknown buffer '" + name + "'"));
 
-            BufferDescription metaData = endpoint.queryMetainfo(name);
+        return endpoint.queryMetainfoAsync(name).thenApply(metaData -> {
             if (metaData != null) return metaData;
-        }
+            else throw new IllegalArgumentException("unknown buffer '" + name + "'");
+        });
+    }
+
+    /**
+     * This method reads the history of a buffer.
+     *
+     * @param name      the name of a buffer
+     * @param from      the start of the time range in milliseconds since the epoch, inclusive
+     * @param to        the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints the maximum number of values, which is 0 for no limit
+     *
+     * @return the buffer values in the order of their timestamps
+     *
+     * @throws IllegalArgumentException if there exists no buffer with the given buffer name
+     */
+    List<SimpleData> getHistory(String name, long from, long to, int maxPoints) throws IllegalArgumentException {
+
+        return await(getHistoryAsync(name, from, to, maxPoints));
+    }
+
+    /**
+     * This method reads the history of a buffer without waiting for the daemon.
+     *
+     * @param name      the name of a buffer
+     * @param from      the start of the time range in milliseconds since the epoch, inclusive
+     * @param to        the end of the time range in milliseconds since the epoch, inclusive
+     * @param maxPoints the maximum number of values, which is 0 for no limit
+     *
+     * @return the pending buffer values, which completes exceptionally with an <tt>IllegalArgumentException</tt>,
+     *         if there exists no buffer with the given buffer name
+     */
+    CompletableFuture<List<SimpleData>> getHistoryAsync(String name, long from, long to, int maxPoints) {
+
+        ClientEndpoint endpoint = getConnectedClientEndpoint();
+
+        if (endpoint != null) return endpoint.getHistoryAsync(name, from, to, maxPoints);
+        else return CompletableFuture.completedFuture(new ArrayList<>());
+    }
+
+    /**
+     * This method reads the aggregates of some buffers.
+     *
+     * @param names  the names of the buffers
+     * @param from   the start of the time range in milliseconds since the epoch, inclusive
+     * @param to     the end of the time range in milliseconds since the epoch, inclusive
+     * @param window the length of a time window in milliseconds
+     *
+     * @return the aggregates in the order of their time windows by buffer name
+     *
+     * @throws IllegalArgumentException if the length of the time window is not positive
+     */
+    Map<String, List<Aggregate>> getAggregates(Collection<String> names, long from, long to, long window) throws IllegalArgumentException {
+
+        return await(getAggregatesAsync(names, from, to, window));
+    }
+
+    /**
+     * This method reads the aggregates of some buffers without waiting for the daemon.
+     *
+     * @param names  the names of the buffers
+     * @param from   the start of the time range in milliseconds since the epoch, inclusive
+     * @param to     the end of the time range in milliseconds since the epoch, inclusive
+     * @param window the length of a time window in milliseconds
+     *
+     * @return the pending aggregates, which completes exceptionally with an <tt>IllegalArgumentException</tt>,
+     *         if the length of the time window is not positive
+     */
+    CompletableFuture<Map<String, List<Aggregate>>> getAggregatesAsync(Collection<String> names, long from, long to, long window) {
+
+        ClientEndpoint endpoint = getConnectedClientEndpoint();
+
+        if (endpoint != null) return endpoint.getAggregatesAsync(names, from, to, window);
+        else return CompletableFuture.completedFuture(new LinkedHashMap<>());
+    }
+
+    /**
+     * This method watches a condition of a buffer.
+     *
+     * @param name      the name of a buffer
+     * @param condition the condition
+     * @param observer  the observer receiving the events
+     *
+     * @return the id of the watch, which is 0, if the daemon cannot watch conditions
+     */
+    int watch(String name, Condition condition, ConditionObserver observer) {
+
+        ClientEndpoint endpoint = getConnectedClientEndpoint();
+
+        return endpoint == null ? 0 : endpoint.watch(name, condition, observer);
+    }
+
+    /**
+     * This method cancels the watch of a condition.
+     *
+     * @param id the id of the watch
+     */
+    void unwatch(int id) {
+
+        ClientEndpoint endpoint = getConnectedClientEndpoint();
 
-        throw new IllegalArgumentException("unknown buffer '" + name + "'");
+        if (endpoint != null) endpoint.unwatch(id);
     }
 
     /**
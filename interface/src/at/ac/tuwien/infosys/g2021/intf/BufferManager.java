@@ -6,6 +6,7 @@ import at.ac.tuwien.infosys.g2021.common.communication.ClientEndpoint;
 import at.ac.tuwien.infosys.g2021.common.communication.ValueChangeObserver;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /** The BufferManager is used to create, configure and delete buffers. */
@@ -48,12 +49,21 @@ public class BufferManager {
          * @throws java.lang.IllegalArgumentException
          *          if the buffer is unknown
          */
-        BufferConfiguration get(String name) throws IllegalArgumentException {
+        BufferConfiguration get(String name) throws IllegalArgumentException { return await(getAsync(name)); }
+
+        /**
+         * This method returns the configuration of a buffer without waiting for the daemon.
+         *
+         * @param name the name of the buffer
+         *
+         * @return the pending configuration of this buffer
+         */
+        CompletableFuture<BufferConfiguration> getAsync(String name) {
 
             ClientEndpoint endpoint = getConnectedClientEndpoint();
 
-            if (endpoint != null) return endpoint.getBufferConfiguration(name);
-            else return null;
+            if (endpoint != null) return endpoint.getBufferConfigurationAsync(name);
+            else return CompletableFuture.completedFuture(null);
         }
 
         /**
@@ -67,10 +77,24 @@ public class BufferManager {
          */
         boolean update(String name, BufferConfiguration configuration, boolean createAllowed) {
 
+            return await(updateAsync(name, configuration, createAllowed));
+        }
+
+        /**
+         * This method makes an update of the buffer configuration without waiting for the daemon.
+         *
+         * @param name          the name of the buffer
+         * @param configuration the buffer configuration
+         * @param createAllowed if the creation of a new buffer is allowed
+         *
+         * @return the pending result, which is <tt>true</tt>, if the configuration was successfully changed in the daemon
+         */
+        CompletableFuture<Boolean> updateAsync(String name, BufferConfiguration configuration, boolean createAllowed) {
+
             ClientEndpoint endpoint = getConnectedClientEndpoint();
 
-            if (endpoint != null) return endpoint.setBufferConfiguration(name, configuration, createAllowed);
-            else return false;
+            if (endpoint != null) return endpoint.setBufferConfigurationAsync(name, configuration, createAllowed);
+            else return CompletableFuture.completedFuture(false);
         }
 
         /**
@@ -83,12 +107,21 @@ public class BufferManager {
          * @throws java.lang.IllegalArgumentException
          *          if the buffer is unknown
          */
-        public boolean remove(String name) {
+        public boolean remove(String name) { return await(removeAsync(name)); }
+
+        /**
+         * This method releases the buffer with the given name without waiting for the daemon.
+         *
+         * @param name the name of the buffer
+         *
+         * @return the pending result, which is <tt>true</tt>, if the buffer was successfully released in the daemon
+         */
+        CompletableFuture<Boolean> removeAsync(String name) {
 
             ClientEndpoint endpoint = getConnectedClientEndpoint();
 
-            if (endpoint != null) return endpoint.releaseBuffer(name);
-            else return false;
+            if (endpoint != null) return endpoint.releaseBufferAsync(name);
+            else return CompletableFuture.completedFuture(false);
         }
     }
 
@@ -150,6 +183,19 @@ public class BufferManager {
      */
     public Set<BufferDescription> queryBuffersByName(String bufferName) { return implementation.queryBuffersByName(bufferName); }
 
+    /**
+     * This method looks for available buffers without waiting for the daemon.
+     *
+     * @param bufferName a regular expression specifying the buffer name. A simple match satisfy
+     *                   the search condition, the regular expression must not match the whole buffer name.
+     *
+     * @return the pending collection of all the buffers matching this query
+     */
+    public CompletableFuture<Set<BufferDescription>> queryBuffersByNameAsync(String bufferName) {
+
+        return implementation.queryBuffersByNameAsync(bufferName);
+    }
+
     /**
      * This method looks for available buffers.
      *
@@ -166,6 +212,22 @@ public class BufferManager {
         return implementation.queryBuffersByMetainfo(topic, feature);
     }
 
+    /**
+     * This method looks for available buffers without waiting for the daemon.
+     *
+     * @param topic   a regular expression specifying the buffer topics, which should be scanned for the wanted features.
+     *                These are keys of the buffer meta information. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole topic name.
+     * @param feature a regular expression specifying the buffer features, which should be scanned. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending collection of all the buffers matching this query
+     */
+    public CompletableFuture<Set<BufferDescription>> queryBuffersByMetainfoAsync(String topic, String feature) {
+
+        return implementation.queryBuffersByMetainfoAsync(topic, feature);
+    }
+
     /**
      * This method looks for available buffers. This query scans all topics of the buffer for the requested feature.
      *
@@ -176,6 +238,17 @@ public class BufferManager {
      */
     public Set<BufferDescription> queryBuffersByMetainfo(String feature) { return queryBuffersByMetainfo(".*", feature); }
 
+    /**
+     * This method looks for available buffers without waiting for the daemon. This query scans all topics of the buffer for the
+     * requested feature.
+     *
+     * @param feature a regular expression specifying the buffer features, which should be scanned. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending collection of all the buffers matching this query
+     */
+    public CompletableFuture<Set<BufferDescription>> queryBuffersByMetainfoAsync(String feature) { return queryBuffersByMetainfoAsync(".*", feature); }
+
     /**
      * This method returns the configuration of a buffer.
      *
@@ -189,6 +262,16 @@ public class BufferManager {
      */
     public BufferConfiguration get(String name) throws IllegalArgumentException { return implementation.get(name); }
 
+    /**
+     * This method returns the configuration of a buffer without waiting for the daemon.
+     *
+     * @param name the name of the buffer
+     *
+     * @return the pending configuration of this buffer, which may be <tt>null</tt>, if no communication with the buffer
+     *         daemon is possible. It completes exceptionally with an <tt>IllegalArgumentException</tt>, if the buffer is unknown.
+     */
+    public CompletableFuture<BufferConfiguration> getAsync(String name) { return implementation.getAsync(name); }
+
     /**
      * This method creates a new buffer with a given buffer configuration. If the buffer already exists, the
      * buffer configuration is updated.
@@ -200,6 +283,20 @@ public class BufferManager {
      */
     public boolean create(String name, BufferConfiguration configuration) { return implementation.update(name, configuration, true); }
 
+    /**
+     * This method creates a new buffer with a given buffer configuration without waiting for the daemon. If the buffer
+     * already exists, the buffer configuration is updated.
+     *
+     * @param name          the name of the buffer
+     * @param configuration the buffer configuration
+     *
+     * @return the pending result, which is <tt>true</tt>, if the configuration was successfully changed in the daemon
+     */
+    public CompletableFuture<Boolean> createAsync(String name, BufferConfiguration configuration) {
+
+        return implementation.updateAsync(name, configuration, true);
+    }
+
     /**
      * This method makes an update of the buffer configuration.
      *
@@ -213,6 +310,19 @@ public class BufferManager {
         return implementation.update(name, configuration, false);
     }
 
+    /**
+     * This method makes an update of the buffer configuration without waiting for the daemon.
+     *
+     * @param name          the name of the buffer
+     * @param configuration the buffer configuration
+     *
+     * @return the pending result, which is <tt>true</tt>, if the configuration was successfully changed in the daemon
+     */
+    public CompletableFuture<Boolean> updateAsync(String name, BufferConfiguration configuration) {
+
+        return implementation.updateAsync(name, configuration, false);
+    }
+
     /**
      * This method releases the buffer with the given name and removes it from the set of known buffers.
      *
@@ -224,4 +334,13 @@ public class BufferManager {
      *          if the buffer is unknown
      */
     public boolean release(String name) { return implementation.remove(name); }
+
+    /**
+     * This method releases the buffer with the given name without waiting for the daemon.
+     *
+     * @param name the name of the buffer
+     *
+     * @return the pending result, which is <tt>true</tt>, if the buffer was successfully released in the daemon
+     */
+    public CompletableFuture<Boolean> releaseAsync(String name) { return implementation.removeAsync(name); }
 }
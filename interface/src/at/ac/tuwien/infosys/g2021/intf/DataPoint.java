@@ -1,9 +1,12 @@
 package at.ac.tuwien.infosys.g2021.intf;
 
+import at.ac.tuwien.infosys.g2021.common.Aggregate;
 import at.ac.tuwien.infosys.g2021.common.BufferDescription;
 import at.ac.tuwien.infosys.g2021.common.BufferState;
+import at.ac.tuwien.infosys.g2021.common.Condition;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.common.communication.ClientEndpoint;
+import at.ac.tuwien.infosys.g2021.common.communication.ConditionObserver;
 import at.ac.tuwien.infosys.g2021.common.communication.ValueChangeObserver;
 import at.ac.tuwien.infosys.g2021.common.util.Loggers;
 import java.util.ArrayList;
@@ -21,6 +24,7 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.WeakHashMap;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -81,6 +85,28 @@ public class DataPoint {
     // The logger
     private final static Logger logger = Loggers.getLogger(DataPoint.class);
 
+    /** These are the settings of a buffer subscription, which filter the value changes. */
+    private static class Filter {
+
+        // The minimum time in milliseconds between two value changes
+        private final long minInterval;
+
+        // The minimum difference between two values
+        private final double deadband;
+
+        /**
+         * Initialization.
+         *
+         * @param i the minimum interval
+         * @param d the deadband
+         */
+        Filter(long i, double d) {
+
+            minInterval = i;
+            deadband = d;
+        }
+    }
+
     /**
      * Due to information hiding issues, the functionality of a data point isn't implemented in the class
      * <tt>{@link at.ac.tuwien.infosys.g2021.intf.DataPoint}</tt> itself. This inner class is the real implementation
@@ -99,6 +125,9 @@ public class DataPoint {
         private Map<String, SimpleData> buffers;
         private final Object bufferLock;
 
+        // The subscription settings of the assigned buffers.
+        private Map<String, Filter> filters;
+
         // The list of observers.
         private List<DataPointObserver> observers;
 
@@ -118,6 +147,7 @@ public class DataPoint {
 
             bufferLock = new Object();
             buffers = new HashMap<>();
+            filters = new HashMap<>();
             observers = new CopyOnWriteArrayList<>();
             streams = new WeakHashMap<>();
             state = ClientEndpoint.get().isConnected() ? BufferState.INITIALIZING : BufferState.ISOLATED;
@@ -140,11 +170,18 @@ public class DataPoint {
                         allBufferNames.addAll(buffers.keySet());
                     }
 
+                    // All the values are read with one request
+                    Map<String, SimpleData> values = connected.getImmediateAll(allBufferNames);
+
                     for (String bufferName : allBufferNames) {
-                        try {
-                            valueChanged(connected.getImmediate(bufferName));
+
+                        SimpleData value = values.get(bufferName);
+
+                        if (value != null) {
+                            valueChanged(value);
+                            subscribe(connected, bufferName);
                         }
-                        catch (IllegalArgumentException e) {
+                        else {
 
                             // This buffer has been removed!
                             valueChanged(new SimpleData(bufferName, new Date(), BufferState.RELEASED));
@@ -158,6 +195,24 @@ public class DataPoint {
             return connected;
         }
 
+        /**
+         * Subscribes the value changes of an assigned buffer. A daemon, which is too old to subscribe value changes,
+         * is asked for the next value change by <tt>valueChanged()</tt> instead.
+         *
+         * @param endpoint   the client endpoint
+         * @param bufferName the buffer name
+         */
+        private void subscribe(ClientEndpoint endpoint, String bufferName) {
+
+            Filter filter;
+
+            synchronized (bufferLock) {
+                filter = filters.get(bufferName);
+            }
+
+            if (filter != null) endpoint.subscribe(bufferName, filter.minInterval, filter.deadband);
+        }
+
         /** Release the client endpoint. */
         @Override
         protected void releaseClientEndpoint() {
@@ -290,6 +345,13 @@ public class DataPoint {
                 if (buffers.size() == 0) return BufferState.INITIALIZING;
 
                 for (SimpleData data : buffers.values()) {
+
+                    // A buffer, whose assignment is pending, has no state yet
+                    if (data.getState() == null) {
+                        initializing = true;
+                        continue;
+                    }
+
                     switch (data.getState()) {
                         case FAULTED:
                         case RELEASED:
@@ -355,47 +417,68 @@ public class DataPoint {
          * Assigns a buffer for read or write access to this data point. This method will have no effect, if the buffer is currently
          * assigned to this data point.
          *
-         * @param bufferName the name of the buffer
+         * @param bufferName  the name of the buffer
+         * @param minInterval the minimum time in milliseconds between two value changes, which is 0 for no limit
+         * @param deadband    the minimum difference between two values, which is 0 for no deadband
          *
          * @throws IllegalArgumentException if there exists no buffer with the given buffer name
          */
-        void assign(String bufferName) throws IllegalArgumentException {
+        void assign(String bufferName, long minInterval, double deadband) throws IllegalArgumentException {
+
+            await(assignAsync(bufferName, minInterval, deadband));
+        }
+
+        /**
+         * Assigns a buffer for read or write access to this data point without waiting for the daemon. This method will have
+         * no effect, if the buffer is currently assigned to this data point.
+         *
+         * @param bufferName  the name of the buffer
+         * @param minInterval the minimum time in milliseconds between two value changes, which is 0 for no limit
+         * @param deadband    the minimum difference between two values, which is 0 for no deadband
+         *
+         * @return the pending assignment, which completes exceptionally with an <tt>IllegalArgumentException</tt>, if there
+         *         exists no buffer with the given buffer name
+         */
+        CompletableFuture<Void> assignAsync(String bufferName, long minInterval, double deadband) {
 
             ClientEndpoint endpoint = getConnectedClientEndpoint();
             boolean initialized;
 
             // Daemon not reachable -> there is no buffer to assign to
-            if (endpoint == null) {
-                throw new IllegalArgumentException("unknown buffer '" + bufferName + "'");
+            if (endpoint == null) return failed(new IllegalArgumentException("unknown buffer '" + bufferName + "'"));
+
+            // At first we try insert the buffer into the set of wellknown buffers.
+            synchronized (bufferLock) {
+                initialized = buffers.putIfAbsent(bufferName, new SimpleData()) == null;
+                if (initialized) filters.put(bufferName, new Filter(minInterval, deadband));
             }
-            else {
 
-                // At first we try insert the buffer into the set of wellknown buffers.
-                synchronized (bufferLock) {
-                    initialized = buffers.putIfAbsent(bufferName, new SimpleData()) == null;
-                }
+            // If the buffer was already known, there is nothing to do
+            if (!initialized) return CompletableFuture.completedFuture(null);
 
-                // If the buffer was unknown, we must evaluate the buffer value
-                if (initialized) {
-                    try {
-                        SimpleData initialValue = endpoint.getImmediate(bufferName);
+            // The buffer was unknown, we must evaluate the buffer value
+            return endpoint.getImmediateAsync(bufferName).handle((initialValue, failure) -> {
 
-                        // Ok, the buffer is assigned now
-                        fireBufferAssigned(bufferName);
-                        valueChanged(initialValue);
-                        updateState();
-                    }
-                    catch (IllegalArgumentException e) {
+                if (failure == null) {
 
-                        // In the meantime, the buffer was removed with the buffer manager. We remove it now.
-                        synchronized (bufferLock) {
-                            buffers.remove(bufferName);
-                        }
+                    // Ok, the buffer is assigned now
+                    fireBufferAssigned(bufferName);
+                    valueChanged(initialValue);
+                    subscribe(endpoint, bufferName);
+                    updateState();
+                    return null;
+                }
+                else {
 
-                        throw new IllegalArgumentException("unknown buffer '" + bufferName + "'");
+                    // In the meantime, the buffer was removed with the buffer manager. We remove it now.
+                    synchronized (bufferLock) {
+                        buffers.remove(bufferName);
+                        filters.remove(bufferName);
                     }
+
+                    throw new IllegalArgumentException("unknown buffer '" + bufferName + "'");
                 }
-            }
+            });
         }
 
         /**
@@ -421,14 +504,21 @@ public class DataPoint {
          */
         void detach(String bufferName) {
 
+            boolean subscribed = false;
+
             synchronized (bufferLock) {
                 if (buffers.get(bufferName) != null) {
                     valueChanged(new SimpleData(bufferName, new Date(), BufferState.RELEASED));
                     buffers.remove(bufferName);
+                    subscribed = filters.remove(bufferName) != null;
                     fireBufferDetached(bufferName);
                     updateState();
                 }
             }
+
+            // No more value changes are needed
+            ClientEndpoint endpoint = getClientEndpoint();
+            if (subscribed && endpoint != null && endpoint.isConnected()) endpoint.unsubscribe(bufferName);
         }
 
         /**
@@ -453,7 +543,19 @@ public class DataPoint {
          * @throws java.lang.IllegalArgumentException
          *          if the buffer isn't assigned to this data point or is not changable (e.g. an actor)
          */
-        void set(String bufferName, Number value) throws IllegalArgumentException {
+        void set(String bufferName, Number value) throws IllegalArgumentException { await(setAsync(bufferName, value)); }
+
+        /**
+         * Sets the value to an actor assigned to this data point without waiting for the daemon.
+         *
+         * @param bufferName the name of the actor buffer
+         * @param value      the new value
+         *
+         * @return the pending value change, which completes exceptionally with an <tt>IllegalArgumentException</tt>, if the
+         *         buffer isn't assigned to this data point or is not changable, and with an <tt>IllegalStateException</tt>, if
+         *         the daemon isn't reachable
+         */
+        CompletableFuture<Void> setAsync(String bufferName, Number value) {
 
             ClientEndpoint endpoint = getConnectedClientEndpoint();
             SimpleData currentValue;
@@ -466,22 +568,78 @@ public class DataPoint {
                 throw new NullPointerException("buffer value is null");
             }
             else if (currentValue == null) {
-                throw new IllegalArgumentException("unknown buffer '" + bufferName + "'");
+                return failed(new IllegalArgumentException("unknown buffer '" + bufferName + "'"));
             }
             else if (endpoint == null) {
-                throw new IllegalStateException("buffer '" + bufferName + "' is not reachable.");
+                return failed(new IllegalStateException("buffer '" + bufferName + "' is not reachable."));
             }
             else {
-                currentValue = endpoint.set(bufferName, value);
-                valueChanged(currentValue);
-                updateState();
-                if (currentValue.getState() == BufferState.READY) {
-                    logger.info(String.format("The value of buffer '%s' is set to %.3f from data point #%d.", bufferName, value.doubleValue(), getId()));
-                }
-                else {
-                    logger.info(String.format("The state of buffer '%s' from data point #%d is now '%s'.", bufferName, getId(), currentValue.getState().name()));
+                return endpoint.setAsync(bufferName, value).thenAccept(newValue -> {
+                    valueChanged(newValue);
+                    updateState();
+                    if (newValue.getState() == BufferState.READY) {
+                        logger.info(String.format("The value of buffer '%s' is set to %.3f from data point #%d.", bufferName, value.doubleValue(), getId()));
+                    }
+                    else {
+                        logger.info(String.format("The state of buffer '%s' from data point #%d is now '%s'.", bufferName, getId(), newValue.getState().name()));
+                    }
+                });
+            }
+        }
+
+        /**
+         * Sets the values of some actors assigned to this data point. All the values are sent within one request.
+         *
+         * @param values the new values by buffer name
+         *
+         * @throws java.lang.IllegalArgumentException
+         *          if a buffer isn't assigned to this data point or is not changable (e.g. an actor)
+         */
+        void setAll(Map<String, ? extends Number> values) throws IllegalArgumentException { await(setAllAsync(values)); }
+
+        /**
+         * Sets the values of some actors assigned to this data point without waiting for the daemon. All the values are sent
+         * within one request.
+         *
+         * @param values the new values by buffer name
+         *
+         * @return the pending value changes, which completes exceptionally with an <tt>IllegalArgumentException</tt>, if a
+         *         buffer isn't assigned to this data point or is not changable, and with an <tt>IllegalStateException</tt>, if
+         *         the daemon isn't reachable
+         */
+        CompletableFuture<Void> setAllAsync(Map<String, ? extends Number> values) {
+
+            ClientEndpoint endpoint = getConnectedClientEndpoint();
+            Set<String> unknown = new TreeSet<>();
+
+            if (values.containsValue(null)) throw new NullPointerException("buffer value is null");
+
+            synchronized (bufferLock) {
+                for (String bufferName : values.keySet()) {
+                    if (!buffers.containsKey(bufferName)) unknown.add(bufferName);
                 }
             }
+
+            if (!unknown.isEmpty()) {
+                return failed(new IllegalArgumentException("unknown buffers " + unknown));
+            }
+            else if (endpoint == null) {
+                return failed(new IllegalStateException("buffers " + values.keySet() + " are not reachable."));
+            }
+            else {
+                return endpoint.setAllAsync(values).thenAccept(newValues -> {
+
+                    for (SimpleData newValue : newValues.values()) valueChanged(newValue);
+                    updateState();
+                    logger.info(String.format("The values of %d buffers are set from data point #%d.", newValues.size(), getId()));
+
+                    if (!newValues.keySet().containsAll(values.keySet())) {
+                        Set<String> rejected = new TreeSet<>(values.keySet());
+                        rejected.removeAll(newValues.keySet());
+                        throw new IllegalArgumentException("value changes of " + rejected + " rejected");
+                    }
+                });
+            }
         }
 
         /**
@@ -563,9 +721,9 @@ public class DataPoint {
                     fireBufferChanged(oldValue, newValue);
                 }
 
-                // Order the next change
+                // Without subscriptions, the next change must be ordered
                 ClientEndpoint endpoint = getClientEndpoint();
-                if (endpoint != null && endpoint.isConnected() && newValue.getState() != BufferState.RELEASED) {
+                if (endpoint != null && endpoint.isConnected() && !endpoint.hasSubscriptions() && newValue.getState() != BufferState.RELEASED) {
                     endpoint.getOnChange(newValue.getBufferName());
                 }
             }
@@ -681,6 +839,16 @@ public class DataPoint {
      */
     public Set<BufferDescription> queryBuffersByName(String name) { return implementation.queryBuffersByName(name); }
 
+    /**
+     * This method looks for available buffers without waiting for the daemon.
+     *
+     * @param name a regular expression specifying the buffer name. A simple match satisfy
+     *             the search condition, the regular expression must not match the whole buffer name.
+     *
+     * @return the pending collection of all the buffers matching this query
+     */
+    public CompletableFuture<Set<BufferDescription>> queryBuffersByNameAsync(String name) { return implementation.queryBuffersByNameAsync(name); }
+
     /**
      * This method looks for available buffers.
      *
@@ -694,6 +862,22 @@ public class DataPoint {
      */
     public Set<BufferDescription> queryBuffersByMetainfo(String topic, String feature) { return implementation.queryBuffersByMetainfo(topic, feature); }
 
+    /**
+     * This method looks for available buffers without waiting for the daemon.
+     *
+     * @param topic   a regular expression specifying the buffer topics, which should be scanned for the wanted features.
+     *                These are keys of the buffer meta information. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole topic name.
+     * @param feature a regular expression specifying the buffer features, which should be scanned. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending collection of all the buffers matching this query
+     */
+    public CompletableFuture<Set<BufferDescription>> queryBuffersByMetainfoAsync(String topic, String feature) {
+
+        return implementation.queryBuffersByMetainfoAsync(topic, feature);
+    }
+
     /**
      * This method looks for available buffers. This query scans all topics of the buffer for the requested feature.
      *
@@ -704,6 +888,17 @@ public class DataPoint {
      */
     public Set<BufferDescription> queryBuffersByMetainfo(String feature) { return queryBuffersByMetainfo(".*", feature); }
 
+    /**
+     * This method looks for available buffers without waiting for the daemon. This query scans all topics of the buffer for the
+     * requested feature.
+     *
+     * @param feature a regular expression specifying the buffer features, which should be scanned. A simple match satisfy
+     *                the search condition, the regular expression must not match the whole feature description.
+     *
+     * @return the pending collection of all the buffers matching this query
+     */
+    public CompletableFuture<Set<BufferDescription>> queryBuffersByMetainfoAsync(String feature) { return queryBuffersByMetainfoAsync(".*", feature); }
+
     /**
      * This method returns the meta information of a buffer.
      *
@@ -716,6 +911,16 @@ public class DataPoint {
      */
     public BufferDescription getBufferDescription(String name) throws IllegalArgumentException { return implementation.getBufferDescription(name); }
 
+    /**
+     * This method returns the meta information of a buffer without waiting for the daemon.
+     *
+     * @param name the name of a buffer
+     *
+     * @return the pending buffer meta information, which completes exceptionally with an <tt>IllegalArgumentException</tt>,
+     *         if there exists no buffer with the given buffer name
+     */
+    public CompletableFuture<BufferDescription> getBufferDescriptionAsync(String name) { return implementation.getBufferDescriptionAsync(name); }
+
     /**
      * Assigns a buffer for read or write access to this data point. This method will have no effect, if the buffer is currently
      * assigned to this data point.
@@ -725,7 +930,53 @@ public class DataPoint {
      * @throws java.lang.IllegalArgumentException
      *          if there exists no buffer with the given buffer name
      */
-    public void assign(String bufferName) throws IllegalArgumentException { implementation.assign(bufferName); }
+    public void assign(String bufferName) throws IllegalArgumentException { implementation.assign(bufferName, 0L, 0.0); }
+
+    /**
+     * Assigns a buffer for read or write access to this data point. Value changes of this buffer are reported not until
+     * the minimum interval since the last reported change is elapsed and the value differs from the last reported value
+     * at least by the deadband. Changes of the buffer state are reported immediately. This method will have no effect,
+     * if the buffer is currently assigned to this data point.
+     *
+     * @param bufferName  the name of the buffer
+     * @param minInterval the minimum time in milliseconds between two value changes, which is 0 for no limit
+     * @param deadband    the minimum difference between two values, which is 0 for no deadband
+     *
+     * @throws java.lang.IllegalArgumentException
+     *          if there exists no buffer with the given buffer name
+     */
+    public void assign(String bufferName, long minInterval, double deadband) throws IllegalArgumentException {
+
+        implementation.assign(bufferName, minInterval, deadband);
+    }
+
+    /**
+     * Assigns a buffer for read or write access to this data point without waiting for the daemon. This method will have no
+     * effect, if the buffer is currently assigned to this data point.
+     *
+     * @param bufferName the name of the buffer
+     *
+     * @return the pending assignment, which completes exceptionally with an <tt>IllegalArgumentException</tt>, if there
+     *         exists no buffer with the given buffer name
+     */
+    public CompletableFuture<Void> assignAsync(String bufferName) { return implementation.assignAsync(bufferName, 0L, 0.0); }
+
+    /**
+     * Assigns a buffer for read or write access to this data point without waiting for the daemon. The reported value changes
+     * are limited like in <tt>{@link #assign(String, long, double)}</tt>. This method will have no effect, if the buffer is
+     * currently assigned to this data point.
+     *
+     * @param bufferName  the name of the buffer
+     * @param minInterval the minimum time in milliseconds between two value changes, which is 0 for no limit
+     * @param deadband    the minimum difference between two values, which is 0 for no deadband
+     *
+     * @return the pending assignment, which completes exceptionally with an <tt>IllegalArgumentException</tt>, if there
+     *         exists no buffer with the given buffer name
+     */
+    public CompletableFuture<Void> assignAsync(String bufferName, long minInterval, double deadband) {
+
+        return implementation.assignAsync(bufferName, minInterval, deadband);
+    }
 
     /**
      * Is a buffer assigned to this data point?
@@ -786,6 +1037,104 @@ public class DataPoint {
      */
     public Map<String, SimpleData> getAll() { return implementation.getAll(); }
 
+    /**
+     * Reads the history of a buffer. The buffer must not be attached to this data point. The daemon keeps the history of a
+     * buffer only, if a history capacity is set in the buffer configuration. If there are more values within the time range
+     * than requested, the daemon sends averages of consecutive values.
+     *
+     * @param bufferName the name of the buffer
+     * @param from       the start of the time range, inclusive
+     * @param to         the end of the time range, inclusive
+     * @param maxPoints  the maximum number of values, which is 0 for no limit
+     *
+     * @return the buffer values in the order of their timestamps. The result may be empty, but is never <tt>null</tt>.
+     *
+     * @throws java.lang.IllegalArgumentException
+     *          if there exists no buffer with the given buffer name
+     */
+    public List<SimpleData> getHistory(String bufferName, Date from, Date to, int maxPoints) throws IllegalArgumentException {
+
+        return implementation.getHistory(bufferName, from.getTime(), to.getTime(), maxPoints);
+    }
+
+    /**
+     * Reads the history of a buffer without waiting for the daemon.
+     *
+     * @param bufferName the name of the buffer
+     * @param from       the start of the time range, inclusive
+     * @param to         the end of the time range, inclusive
+     * @param maxPoints  the maximum number of values, which is 0 for no limit
+     *
+     * @return the pending buffer values in the order of their timestamps, which completes exceptionally with an
+     *         <tt>IllegalArgumentException</tt>, if there exists no buffer with the given buffer name
+     */
+    public CompletableFuture<List<SimpleData>> getHistoryAsync(String bufferName, Date from, Date to, int maxPoints) {
+
+        return implementation.getHistoryAsync(bufferName, from.getTime(), to.getTime(), maxPoints);
+    }
+
+    /**
+     * Reads the aggregates of some buffers. The buffers must not be attached to this data point. The time range is split
+     * into time windows, and the daemon sends the number, the minimum, the maximum and the average of the values within
+     * every time window. The daemon keeps the summaries of a buffer only, if a rollup capacity is set in the buffer
+     * configuration. The window is rounded up to a multiple of <tt>{@link at.ac.tuwien.infosys.g2021.common.BufferConfiguration#ROLLUP_PERIOD}</tt>.
+     *
+     * @param bufferNames the names of the buffers
+     * @param from        the start of the time range, inclusive
+     * @param to          the end of the time range, inclusive
+     * @param window      the length of a time window in milliseconds
+     *
+     * @return the aggregates in the order of their time windows by buffer name. Unknown buffers are missing. The result may
+     *         be empty, but is never <tt>null</tt>.
+     *
+     * @throws java.lang.IllegalArgumentException
+     *          if the length of the time window is not positive
+     */
+    public Map<String, List<Aggregate>> getAggregates(Collection<String> bufferNames, Date from, Date to, long window) throws IllegalArgumentException {
+
+        return implementation.getAggregates(bufferNames, from.getTime(), to.getTime(), window);
+    }
+
+    /**
+     * Reads the aggregates of some buffers without waiting for the daemon.
+     *
+     * @param bufferNames the names of the buffers
+     * @param from        the start of the time range, inclusive
+     * @param to          the end of the time range, inclusive
+     * @param window      the length of a time window in milliseconds
+     *
+     * @return the pending aggregates in the order of their time windows by buffer name, which completes exceptionally with
+     *         an <tt>IllegalArgumentException</tt>, if the length of the time window is not positive
+     */
+    public CompletableFuture<Map<String, List<Aggregate>>> getAggregatesAsync(Collection<String> bufferNames, Date from, Date to, long window) {
+
+        return implementation.getAggregatesAsync(bufferNames, from.getTime(), to.getTime(), window);
+    }
+
+    /**
+     * Watches a condition of a buffer. The buffer must not be attached to this data point. Instead of pushing every value
+     * change, the daemon evaluates the condition and notifies the observer only, if the condition becomes active or
+     * inactive. The first event reports the current status of the condition. The watch lasts until it is cancelled, the
+     * buffer is released or the connection to the daemon is lost.
+     *
+     * @param bufferName the name of the buffer
+     * @param condition  the condition
+     * @param observer   the observer receiving the events
+     *
+     * @return the id of the watch, which is 0, if the daemon cannot watch conditions
+     */
+    public int watch(String bufferName, Condition condition, ConditionObserver observer) {
+
+        return implementation.watch(bufferName, condition, observer);
+    }
+
+    /**
+     * Cancels the watch of a condition. If there is no watch with this id, this method has no effect.
+     *
+     * @param id the id of the watch
+     */
+    public void unwatch(int id) { implementation.unwatch(id); }
+
     /**
      * Sets the value to an actor assigned to this data point.
      *
@@ -800,6 +1149,43 @@ public class DataPoint {
         implementation.set(bufferName, value);
     }
 
+    /**
+     * Sets the value to an actor assigned to this data point without waiting for the daemon. Many value changes may be
+     * pending at the same time.
+     *
+     * @param bufferName the name of the actor buffer
+     * @param value      the new value
+     *
+     * @return the pending value change, which completes exceptionally with an <tt>IllegalArgumentException</tt>, if the
+     *         buffer isn't assigned to this data point or is not changable (e.g. an actor)
+     */
+    public CompletableFuture<Void> setAsync(String bufferName, Number value) { return implementation.setAsync(bufferName, value); }
+
+    /**
+     * Sets the values of some actors assigned to this data point. All the values are sent to the daemon within one request.
+     * If some actors reject their value change, the other values are set anyway.
+     *
+     * @param values the new values by buffer name
+     *
+     * @throws java.lang.IllegalArgumentException
+     *          if a buffer isn't assigned to this data point or is not changable (e.g. an actor)
+     */
+    public void setAll(Map<String, ? extends Number> values) throws IllegalArgumentException {
+
+        implementation.setAll(values);
+    }
+
+    /**
+     * Sets the values of some actors assigned to this data point without waiting for the daemon. All the values are sent to
+     * the daemon within one request. If some actors reject their value change, the other values are set anyway.
+     *
+     * @param values the new values by buffer name
+     *
+     * @return the pending value changes, which completes exceptionally with an <tt>IllegalArgumentException</tt>, if a
+     *         buffer isn't assigned to this data point or is not changable (e.g. an actor)
+     */
+    public CompletableFuture<Void> setAllAsync(Map<String, ? extends Number> values) { return implementation.setAllAsync(values); }
+
     /**
      * <p>
      * Adds a new data point observer to the set of well known observers. If the observer argument is <tt>null</tt> or the
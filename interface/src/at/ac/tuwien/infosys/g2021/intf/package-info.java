@@ -11,6 +11,12 @@
  *     an higher level application (so called GBot).
  * </p>
  * <p>
+ *     Every method of <tt>{@link at.ac.tuwien.infosys.g2021.intf.DataPoint}</tt> and <tt>{@link at.ac.tuwien.infosys.g2021.intf.BufferManager}</tt>,
+ *     which needs an answer of the buffer daemon, has an asynchronous counterpart (e.g. <tt>{@link at.ac.tuwien.infosys.g2021.intf.DataPoint#setAsync(String, Number)}</tt>).
+ *     It returns a <tt>CompletableFuture</tt> without waiting for the daemon. So a single thread can drive many actors at the same time.
+ *     These futures are completed by the communication threads, therefore dependent actions must not block.
+ * </p>
+ * <p>
  *     As requested time triggered retrieval of all the buffer values is implemented in the class
  *     <tt>{@link at.ac.tuwien.infosys.g2021.intf.TimeControl}</tt>. A simple timer is used, to retrieve the buffer
  *     values (method <tt>{@link at.ac.tuwien.infosys.g2021.intf.DataPoint#getAll()}</tt>) and put them into a blocking queue. The timer can be started,
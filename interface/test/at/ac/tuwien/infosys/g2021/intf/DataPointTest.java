@@ -8,8 +8,13 @@ import at.ac.tuwien.infosys.g2021.common.DummyGathererConfiguration;
 import at.ac.tuwien.infosys.g2021.common.ScalingAdapterConfiguration;
 import at.ac.tuwien.infosys.g2021.common.SimpleData;
 import at.ac.tuwien.infosys.g2021.daemon.Daemon;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -389,6 +394,75 @@ public class DataPointTest {
         assertEquals(10.0, newValue.getValue().doubleValue(), 1.0e-6);
     }
 
+    /** Every change of the sensor caused by setting the actor is pushed before the answer of the set request. */
+    @Test
+    public void testSetPushesDependentBuffers() {
+
+        dataPoint.assign("actor");
+        dataPoint.assign("sensor");
+
+        for (int i = 1; i <= 50; i++) {
+            dataPoint.set("actor", i);
+            assertEquals(0.5 * (2.0 * i + 1.0), dataPoint.get("sensor").getValue().doubleValue(), 1.0e-6);
+        }
+    }
+
+    /** Assigning buffers and setting buffer values without waiting for the daemon. */
+    @Test
+    public void testAsync() {
+
+        // Assigning an unknown buffer
+        try {
+            dataPoint.assignAsync("xtor").join();
+            assertTrue(false);
+        }
+        catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        CompletableFuture.allOf(dataPoint.assignAsync("actor"), dataPoint.assignAsync("sensor")).join();
+        assertTrue(dataPoint.isAssigned("actor"));
+        assertTrue(dataPoint.isAssigned("sensor"));
+
+        // Many value changes are pending at the same time. The last one wins.
+        List<CompletableFuture<Void>> changes = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) changes.add(dataPoint.setAsync("actor", (double)i));
+        CompletableFuture.allOf(changes.toArray(new CompletableFuture<?>[changes.size()])).join();
+
+        assertEquals(20.0, dataPoint.get("actor").getValue().doubleValue(), 1.0e-6);
+        assertEquals(BufferState.READY, dataPoint.getState());
+
+        // The queries are available too
+        assertEquals(2, dataPoint.queryBuffersByNameAsync("or").join().size());
+        assertEquals("actor", dataPoint.getBufferDescriptionAsync("actor").join().getBufferName());
+    }
+
+    /** Setting some buffer values with one request. */
+    @Test
+    public void testSetAll() {
+
+        dataPoint.assign("actor");
+        dataPoint.assign("sensor");
+
+        Map<String, Number> values = new HashMap<>();
+        values.put("actor", 10.0);
+        dataPoint.setAll(values);
+
+        assertEquals(10.0, dataPoint.get("actor").getValue().doubleValue(), 1.0e-6);
+        assertEquals(BufferState.READY, dataPoint.getState());
+
+        // The sensor rejects the value change, but the actor value is set anyway
+        values.put("actor", 12.0);
+        values.put("sensor", 1.0);
+        try {
+            dataPoint.setAll(values);
+            assertTrue(false);
+        }
+        catch (IllegalArgumentException e) { /* well done ! */ }
+
+        assertEquals(12.0, dataPoint.get("actor").getValue().doubleValue(), 1.0e-6);
+    }
+
     @Test
     public void testCallbacks() throws Exception {
 